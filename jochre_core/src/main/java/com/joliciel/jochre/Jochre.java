@@ -24,16 +24,12 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -56,7 +52,6 @@ import com.joliciel.jochre.analyser.ErrorLogger;
 import com.joliciel.jochre.analyser.FScoreObserver;
 import com.joliciel.jochre.analyser.ImageAnalyser;
 import com.joliciel.jochre.analyser.LetterAssigner;
-import com.joliciel.jochre.analyser.LetterGuessObserver;
 import com.joliciel.jochre.analyser.OriginalShapeLetterAssigner;
 import com.joliciel.jochre.analyser.SimpleLetterFScoreObserver;
 import com.joliciel.jochre.boundaries.BoundaryDetector;
@@ -78,6 +73,7 @@ import com.joliciel.jochre.boundaries.features.MergeFeatureParser;
 import com.joliciel.jochre.boundaries.features.SplitFeature;
 import com.joliciel.jochre.boundaries.features.SplitFeatureParser;
 import com.joliciel.jochre.doc.DocumentDao;
+import com.joliciel.jochre.doc.DocumentBatchScheduler;
 import com.joliciel.jochre.doc.DocumentObserver;
 import com.joliciel.jochre.doc.ImageDocumentExtractor;
 import com.joliciel.jochre.doc.JochreDocument;
@@ -102,7 +98,9 @@ import com.joliciel.jochre.letterGuesser.LetterValidator;
 import com.joliciel.jochre.letterGuesser.features.LetterFeature;
 import com.joliciel.jochre.letterGuesser.features.LetterFeatureParser;
 import com.joliciel.jochre.letterGuesser.features.LetterFeatureTester;
+import com.joliciel.jochre.lexicon.CompiledLexicon;
 import com.joliciel.jochre.lexicon.CorpusLexiconBuilder;
+import com.joliciel.jochre.lexicon.Lexicon;
 import com.joliciel.jochre.lexicon.LexiconErrorWriter;
 import com.joliciel.jochre.lexicon.MostLikelyWordChooser;
 import com.joliciel.jochre.lexicon.TextFileLexicon;
@@ -209,6 +207,8 @@ public class Jochre {
           values.put("jochre.boundaries.splitter.beam-width", Integer.parseInt(argValue));
         } else if (argName.equals("lexicon")) {
           values.put("jochre.lexicon", argValue);
+        } else if (argName.equals("threadCount")) {
+          values.put("jochre.document-generator.thread-count", Integer.parseInt(argValue));
         } else {
           handled = false;
         }
@@ -291,6 +291,7 @@ public class Jochre {
     String docSelectionPath = null;
     List<String> featureDescriptors = null;
     boolean includeDate = false;
+    boolean compiled = false;
 
     for (Entry<String, String> argMapEntry : argMap.entrySet()) {
       String argName = argMapEntry.getKey();
@@ -434,6 +435,8 @@ public class Jochre {
         }
       } else if (argName.equals("includeDate")) {
         includeDate = argValue.equalsIgnoreCase("true");
+      } else if (argName.equals("compiled")) {
+        compiled = argValue.equalsIgnoreCase("true");
       } else {
         throw new RuntimeException("Unknown argument: " + argName);
       }
@@ -560,6 +563,9 @@ public class Jochre {
         if (outputDir == null) {
           throw new JochreException("Either outputDir our outputFile are required for " + command);
         }
+        if (outputFile != null && outputFile.getName().endsWith(CompiledLexicon.EXTENSION))
+          compiled = true;
+        String extension = compiled ? CompiledLexicon.EXTENSION : ".obj";
 
         File inputFile = new File(inFilePath);
         if (inputFile.isDirectory()) {
@@ -567,67 +573,35 @@ public class Jochre {
           for (File oneLexFile : lexiconFiles) {
             LOG.debug(oneLexFile.getName() + ": " + ", size: " + oneLexFile.length());
 
-            TextFileLexicon lexicon = new TextFileLexicon(oneLexFile, jochreSession.getEncoding());
-
             String baseName = oneLexFile.getName().substring(0, oneLexFile.getName().indexOf("."));
             if (baseName.lastIndexOf("/") > 0)
               baseName = baseName.substring(baseName.lastIndexOf("/") + 1);
 
-            File lexiconFile = new File(outputDir, baseName + ".obj");
-            lexicon.serialize(lexiconFile);
+            File lexiconFile = new File(outputDir, baseName + extension);
+            this.serializeLexicon(oneLexFile, lexiconFile, compiled);
           }
         } else {
           LOG.debug(inFilePath + ": " + inputFile.exists() + ", size: " + inputFile.length());
 
-          TextFileLexicon lexicon = new TextFileLexicon(inputFile, jochreSession.getEncoding());
-
           String baseName = inFilePath.substring(0, inFilePath.indexOf("."));
           if (baseName.lastIndexOf("/") > 0)
             baseName = baseName.substring(baseName.lastIndexOf("/") + 1);
 
           File lexiconFile = outputFile;
           if (lexiconFile == null)
-            lexiconFile = new File(outputDir, baseName + ".obj");
-          lexicon.serialize(lexiconFile);
+            lexiconFile = new File(outputDir, baseName + extension);
+          this.serializeLexicon(inputFile, lexiconFile, compiled);
         }
       } else if (command.equals("analyseFolder")) {
         File inDir = new File(inDirPath);
-        File[] pdfFiles = inDir.listFiles(new FilenameFilter() {
-
-          @Override
-          public boolean accept(File dir, String name) {
-            return (name.toLowerCase().endsWith(".pdf"));
-          }
-        });
-
-        Arrays.sort(pdfFiles);
-
-        for (File pdfFile : pdfFiles) {
-          LOG.info("Analysing file: " + pdfFile.getAbsolutePath());
-          try {
-            String baseName = this.getBaseName(pdfFile);
-            File analysisDir = new File(inDir, baseName);
-            analysisDir.mkdirs();
-            List<DocumentObserver> pdfObservers = this.getObservers(outputFormats, baseName, analysisDir, includeDate);
-
-            this.doCommandAnalyse(pdfFile, wordChooser, pages, pdfObservers);
-
-            File pdfOutputDir = new File(outputDir, baseName);
-            pdfOutputDir.mkdirs();
-
-            File targetFile = new File(pdfOutputDir, pdfFile.getName());
-            Files.move(pdfFile.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-            File[] analysisFiles = analysisDir.listFiles();
-            for (File analysisFile : analysisFiles) {
-              targetFile = new File(pdfOutputDir, analysisFile.getName());
-              Files.move(analysisFile.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-            }
-            Files.delete(analysisDir.toPath());
-          } catch (Exception e) {
-            // log errors, but continue processing
-            LOG.error("Error processing file: " + pdfFile.getAbsolutePath(), e);
-          }
-        }
+        final List<OutputFormat> folderOutputFormats = outputFormats;
+        final boolean folderIncludeDate = includeDate;
+        DocumentBatchScheduler scheduler = new DocumentBatchScheduler(
+            (pdfFile, pdfPages, pdfObservers) -> this.doCommandAnalyse(pdfFile, wordChooser, pdfPages, pdfObservers),
+            (pdfBaseName, analysisDir) -> this.getObservers(folderOutputFormats, pdfBaseName, analysisDir,
+                folderIncludeDate),
+            jochreSession);
+        scheduler.analyseFolder(inDir, outputDir, pages);
       } else if (command.equals("analyseFile")) {
         File pdfFile = new File(inFilePath);
         this.doCommandAnalyse(pdfFile, wordChooser, pages, observers);
@@ -657,6 +631,26 @@ public class Jochre {
     return baseName;
   }
 
+  /**
+   * Read a lexicon from a text file and write it to a lexicon file, either
+   * serialized or compiled. If compiled, the upper-case variants of each word
+   * are computed for the session's locale, and the input file can also be a
+   * serialized lexicon.
+   */
+  private void serializeLexicon(File inputFile, File lexiconFile, boolean compiled) {
+    if (compiled) {
+      Lexicon lexicon = null;
+      if (inputFile.getName().endsWith(".txt"))
+        lexicon = new TextFileLexicon(inputFile, jochreSession.getEncoding());
+      else
+        lexicon = TextFileLexicon.deserialize(inputFile);
+      CompiledLexicon.write(lexicon, jochreSession.getLocale(), lexiconFile);
+    } else {
+      TextFileLexicon lexicon = new TextFileLexicon(inputFile, jochreSession.getEncoding());
+      lexicon.serialize(lexiconFile);
+    }
+  }
+
   /**
    * Test a feature on a particular shape.
    */
@@ -1085,36 +1079,8 @@ public class Jochre {
   public void doCommandAnalyse(File sourceFile, MostLikelyWordChooser wordChooser, Set<Integer> pages,
       List<DocumentObserver> observers) throws IOException {
 
-    ClassificationModel letterModel = jochreSession.getLetterModel();
-
-    List<String> letterFeatureDescriptors = letterModel.getFeatureDescriptors();
-    LetterFeatureParser letterFeatureParser = new LetterFeatureParser();
-    Set<LetterFeature<?>> letterFeatures = letterFeatureParser.getLetterFeatureSet(letterFeatureDescriptors);
-    LetterGuesser letterGuesser = new LetterGuesser(letterFeatures, letterModel.getDecisionMaker());
-    BoundaryDetector boundaryDetector = null;
-    LetterGuessObserver letterGuessObserver = null;
-
-    if (jochreSession.getSplitModel() != null && jochreSession.getMergeModel() != null) {
-      boundaryDetector = new DeterministicBoundaryDetector(jochreSession.getSplitModel(), jochreSession.getMergeModel(),
-          jochreSession);
-
-      OriginalShapeLetterAssigner shapeLetterAssigner = new OriginalShapeLetterAssigner();
-      shapeLetterAssigner.setEvaluate(false);
-      shapeLetterAssigner.setSingleLetterMethod(false);
-
-      letterGuessObserver = shapeLetterAssigner;
-    } else {
-      boundaryDetector = new OriginalBoundaryDetector();
-
-      LetterAssigner letterAssigner = new LetterAssigner();
-      letterGuessObserver = letterAssigner;
-    }
-
-    ImageAnalyser analyser = new BeamSearchImageAnalyser(boundaryDetector, letterGuesser, wordChooser, jochreSession);
-    analyser.addObserver(letterGuessObserver);
-
     JochreDocumentGenerator documentGenerator = new JochreDocumentGenerator(sourceFile.getName(), "", jochreSession);
-    documentGenerator.addDocumentObserver(analyser);
+    documentGenerator.requestAnalysis(wordChooser);
 
     for (DocumentObserver observer : observers)
       documentGenerator.addDocumentObserver(observer);
@@ -1123,7 +1089,7 @@ public class Jochre {
       throw new JochreException("The file " + sourceFile.getPath() + " does not exist");
 
     if (sourceFile.getName().toLowerCase().endsWith(".pdf")) {
-      PdfImageVisitor pdfImageVisitor = new PdfImageVisitor(sourceFile, pages, documentGenerator);
+      PdfImageVisitor pdfImageVisitor = new PdfImageVisitor(sourceFile, pages, documentGenerator, config);
 
       pdfImageVisitor.visitImages();
     } else if (sourceFile.getName().toLowerCase().endsWith(".png")
@@ -1276,7 +1242,7 @@ public class Jochre {
     JochreDocument doc = documentDao.loadJochreDocument(docId);
     if (filename.toLowerCase().endsWith(".pdf")) {
       File pdfFile = new File(filename);
-      PdfImageVisitor pdfImageVisitor = new PdfImageVisitor(pdfFile, pages, new PdfImageUpdater(doc));
+      PdfImageVisitor pdfImageVisitor = new PdfImageVisitor(pdfFile, pages, new PdfImageUpdater(doc), config);
       pdfImageVisitor.visitImages();
     } else {
       throw new RuntimeException("Unrecognised file extension");
@@ -1301,7 +1267,7 @@ public class Jochre {
 
     if (filename.toLowerCase().endsWith(".pdf")) {
       File pdfFile = new File(filename);
-      PdfImageSaver pdfImageSaver = new PdfImageSaver(pdfFile, outputDirPath, pages);
+      PdfImageSaver pdfImageSaver = new PdfImageSaver(pdfFile, outputDirPath, pages, config);
       pdfImageSaver.saveImages();
     } else {
       throw new RuntimeException("Unrecognised file extension");
@@ -1351,7 +1317,7 @@ public class Jochre {
     }
 
     if (filename.toLowerCase().endsWith(".pdf")) {
-      PdfImageVisitor pdfImageVisitor = new PdfImageVisitor(file, pages, jochreDocumentGenerator);
+      PdfImageVisitor pdfImageVisitor = new PdfImageVisitor(file, pages, jochreDocumentGenerator, config);
       pdfImageVisitor.visitImages();
     } else if (filename.toLowerCase().endsWith(".png") || filename.toLowerCase().endsWith(".jpg")
         || filename.toLowerCase().endsWith(".jpeg") || filename.toLowerCase().endsWith(".gif")) {
@@ -30,11 +30,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.joliciel.jochre.lang.Linguistics;
+import com.joliciel.jochre.lexicon.CompiledLexicon;
 import com.joliciel.jochre.lexicon.DefaultLexiconWrapper;
 import com.joliciel.jochre.lexicon.FakeLexicon;
 import com.joliciel.jochre.lexicon.Lexicon;
 import com.joliciel.jochre.lexicon.LexiconMerger;
 import com.joliciel.jochre.lexicon.TextFileLexicon;
+import com.joliciel.jochre.lexicon.WordFrequencyCache;
 import com.joliciel.talismane.machineLearning.ClassificationModel;
 import com.joliciel.talismane.machineLearning.MachineLearningModelFactory;
 import com.joliciel.talismane.utils.CSVFormatter;
@@ -58,6 +60,7 @@ public class JochreSession {
   private final Charset encoding;
   private final Charset csvEncoding;
   private final Lexicon lexicon;
+  private final WordFrequencyCache wordFrequencyCache;
   private final String letterModelPath;
   private final String mergeModelPath;
   private final String splitModelPath;
@@ -107,6 +110,8 @@ public class JochreSession {
       this.lexicon = new FakeLexicon();
     }
 
+    this.wordFrequencyCache = new WordFrequencyCache(jochreConfig.getInt("word-chooser.frequency-cache-size"));
+
     String linguisticsClassName = jochreConfig.getString("linguistics.class");
     LOG.debug("linguisticsClassName: " + linguisticsClassName);
 
@@ -182,6 +187,8 @@ public class JochreSession {
         if (lexiconFile.getName().endsWith(".txt")) {
           TextFileLexicon textFileLexicon = new TextFileLexicon(lexiconFile, this.encoding);
           lexiconMerger.addLexicon(textFileLexicon);
+        } else if (lexiconFile.getName().endsWith(CompiledLexicon.EXTENSION)) {
+          lexiconMerger.addLexicon(CompiledLexicon.open(lexiconFile));
         } else {
           Lexicon textFileLexicon = TextFileLexicon.deserialize(lexiconFile);
           lexiconMerger.addLexicon(textFileLexicon);
@@ -193,6 +200,8 @@ public class JochreSession {
       if (lexiconDir.getName().endsWith(".txt")) {
         TextFileLexicon textFileLexicon = new TextFileLexicon(lexiconDir, this.encoding);
         myLexicon = textFileLexicon;
+      } else if (lexiconDir.getName().endsWith(CompiledLexicon.EXTENSION)) {
+        myLexicon = CompiledLexicon.open(lexiconDir);
       } else {
         Lexicon textFileLexicon = TextFileLexicon.deserialize(lexiconDir);
         myLexicon = textFileLexicon;
@@ -205,13 +214,21 @@ public class JochreSession {
     return this.lexicon;
   }
 
+  /**
+   * The cache of word frequencies found in this session's lexicon, shared by
+   * all analyses in this session.
+   */
+  public WordFrequencyCache getWordFrequencyCache() {
+    return wordFrequencyCache;
+  }
+
   /**
    * Return the letter model indicated by the config path.
    * 
    * @throws IOException
    *           if unable to load the letter model
    */
-  public ClassificationModel getLetterModel() throws IOException {
+  public synchronized ClassificationModel getLetterModel() throws IOException {
     if (letterModel == null) {
       if (letterModelPath == null) {
         throw new IllegalArgumentException("Missing config setting: jochre.image-analyser.letter-model");
@@ -233,7 +250,7 @@ public class JochreSession {
    * @throws IOException
    *           if unable to load the merge model
    */
-  public ClassificationModel getMergeModel() throws IOException {
+  public synchronized ClassificationModel getMergeModel() throws IOException {
     if (mergeModel == null && mergeModelPath != null) {
       Config imageAnalyserConfig = config.getConfig("jochre.image-analyser");
       MachineLearningModelFactory modelFactory = new MachineLearningModelFactory();
@@ -252,7 +269,7 @@ public class JochreSession {
    * @throws IOException
    *           if unable to load the split model
    */
-  public ClassificationModel getSplitModel() throws IOException {
+  public synchronized ClassificationModel getSplitModel() throws IOException {
     if (splitModel == null && splitModelPath != null) {
       Config imageAnalyserConfig = config.getConfig("jochre.image-analyser");
       MachineLearningModelFactory modelFactory = new MachineLearningModelFactory();
@@ -19,7 +19,10 @@
 package com.joliciel.jochre.analyser;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.PriorityQueue;
 import java.util.TreeMap;
@@ -41,6 +44,7 @@ import com.joliciel.jochre.graphics.Shape;
 import com.joliciel.jochre.letterGuesser.LetterGuesser;
 import com.joliciel.jochre.letterGuesser.LetterSequence;
 import com.joliciel.jochre.lexicon.MostLikelyWordChooser;
+import com.joliciel.jochre.lexicon.WordFrequencyCache;
 import com.joliciel.talismane.machineLearning.Decision;
 import com.joliciel.talismane.utils.LogUtils;
 import com.joliciel.talismane.utils.Monitorable;
@@ -117,6 +121,9 @@ public class BeamSearchImageAnalyser implements ImageAnalyser, Monitorable {
       LOG.debug("Analysing paragraph " + paragraph.getIndex() + " (id=" + paragraph.getId() + ")");
       List<LetterSequence> holdoverSequences = null;
       GroupOfShapes holdoverGroup = null;
+      // the full list of guesses from which each letter in the beam was
+      // chosen, so that they can be stored on the shapes of the best sequence
+      Map<Decision, List<Decision>> letterGuessesPerDecision = new IdentityHashMap<>();
       for (RowOfShapes row : paragraph.getRows()) {
         LOG.debug("Analysing row " + row.getIndex() + " (id=" + row.getId() + ")");
         for (GroupOfShapes group : row.getGroups()) {
@@ -170,8 +177,30 @@ public class BeamSearchImageAnalyser implements ImageAnalyser, Monitorable {
             // limit the breadth to K
             int maxSequences = previousHeap.size() > this.beamWidth ? this.beamWidth : previousHeap.size();
 
+            // gather the histories reaching each shape, so that each shape is
+            // only analysed once for all of them
+            List<LetterSequence> histories = new ArrayList<>(maxSequences);
+            Map<ShapeInSequence, List<LetterSequence>> historiesPerShape = new LinkedHashMap<>();
             for (int j = 0; j < maxSequences; j++) {
               LetterSequence history = previousHeap.poll();
+              histories.add(history);
+              ShapeInSequence shapeInSequence = history.getNextShape();
+              List<LetterSequence> shapeHistories = historiesPerShape.get(shapeInSequence);
+              if (shapeHistories == null) {
+                shapeHistories = new ArrayList<>();
+                historiesPerShape.put(shapeInSequence, shapeHistories);
+              }
+              shapeHistories.add(history);
+            }
+
+            Map<LetterSequence, List<Decision>> letterGuessesPerHistory = new IdentityHashMap<>();
+            for (Entry<ShapeInSequence, List<LetterSequence>> shapeEntry : historiesPerShape.entrySet()) {
+              List<List<Decision>> letterGuesses = letterGuesser.guessLetters(shapeEntry.getKey(), shapeEntry.getValue());
+              for (int j = 0; j < letterGuesses.size(); j++)
+                letterGuessesPerHistory.put(shapeEntry.getValue().get(j), letterGuesses.get(j));
+            }
+
+            for (LetterSequence history : histories) {
               ShapeInSequence shapeInSequence = history.getNextShape();
               Shape shape = shapeInSequence.getShape();
               if (LOG.isTraceEnabled()) {
@@ -190,16 +219,14 @@ public class BeamSearchImageAnalyser implements ImageAnalyser, Monitorable {
                 heaps.put(position, heap);
               }
 
-              letterGuesser.guessLetter(shapeInSequence, history);
-
               // heap sort
-              for (Decision letterGuess : shape.getLetterGuesses()) {
+              List<Decision> letterGuesses = letterGuessesPerHistory.get(history);
+              for (Decision letterGuess : letterGuesses) {
                 // leave out very low probability outcomes
                 if (letterGuess.getProbability() > this.minOutcomeWeight) {
-                  LetterSequence sequence = new LetterSequence(history);
-                  sequence.getLetters().add(letterGuess.getOutcome());
-                  sequence.addDecision(letterGuess);
+                  LetterSequence sequence = new LetterSequence(history, letterGuess);
                   heap.add(sequence);
+                  letterGuessesPerDecision.put(letterGuess, letterGuesses);
                 } // weight big enough to include
               } // next letter guess for this shape
 
@@ -279,9 +306,20 @@ public class BeamSearchImageAnalyser implements ImageAnalyser, Monitorable {
             int i = 0;
             for (ShapeInSequence shapeInSequence : bestSequence.getUnderlyingShapeSequence()) {
               String bestOutcome = bestSequence.getLetters().get(i);
+              // store the guesses for this shape given the history actually
+              // chosen, on which the shape's confidence is based
+              Decision decision = bestSequence.getDecisions().get(i);
+              List<Decision> letterGuesses = letterGuessesPerDecision.get(decision);
+              Shape shape = shapeInSequence.getShape();
+              shape.getLetterGuesses().clear();
+              if (letterGuesses != null)
+                shape.getLetterGuesses().addAll(letterGuesses);
+              else
+                shape.getLetterGuesses().add(decision);
               this.assignLetter(shapeInSequence, bestOutcome);
               i++;
             } // next shape
+            letterGuessesPerDecision.clear();
 
             for (LetterGuessObserver observer : observers) {
               observer.onGuessSequence(bestSequence);
@@ -358,6 +396,17 @@ public class BeamSearchImageAnalyser implements ImageAnalyser, Monitorable {
 
   @Override
   public void onAnalysisComplete() {
+    int cacheHits = letterGuesser.getCacheHits();
+    int cacheMisses = letterGuesser.getCacheMisses();
+    if (cacheHits + cacheMisses > 0)
+      LOG.info("Letter guesses: " + (cacheHits + cacheMisses) + ", reusing shape features for " + cacheHits + " ("
+          + String.format("%.1f", cacheHits * 100.0 / (cacheHits + cacheMisses)) + "%), model evaluations: " + letterGuesser.getDecisionCount()
+          + ", beam width " + beamWidth);
+    WordFrequencyCache wordFrequencyCache = jochreSession.getWordFrequencyCache();
+    long lookups = wordFrequencyCache.getHits() + wordFrequencyCache.getMisses();
+    if (lookups > 0)
+      LOG.info("Word frequency lookups: " + lookups + ", answered from cache: " + wordFrequencyCache.getHits() + " ("
+          + String.format("%.1f", wordFrequencyCache.getHitRate() * 100.0) + "%), words cached: " + wordFrequencyCache.size());
     for (LetterGuessObserver observer : observers) {
       observer.onFinish();
     }
@@ -48,7 +48,7 @@ public final class BoundaryDao {
 
   public static Map<String, BoundaryDao> instances = new HashMap<>();
 
-  public static BoundaryDao getInstance(JochreSession jochreSession) {
+  public static synchronized BoundaryDao getInstance(JochreSession jochreSession) {
     String key = DaoConfig.getKey(jochreSession.getConfig().getConfig("jochre.jdbc"));
     BoundaryDao instance = instances.get(key);
     if (instance == null) {
@@ -24,6 +24,7 @@ import java.util.List;
 import com.joliciel.jochre.boundaries.features.ShapeInSequenceWrapper;
 import com.joliciel.jochre.graphics.Shape;
 import com.joliciel.jochre.graphics.ShapeWrapper;
+import com.joliciel.talismane.machineLearning.features.FeatureResult;
 
 /**
  * Represents a Shape forming part of a ShapeSequence. Allows us to include the
@@ -40,6 +41,8 @@ public class ShapeInSequence implements ShapeWrapper, ShapeInSequenceWrapper {
   private int index;
   private final ShapeSequence shapeSequence;
   private final List<Shape> originalShapes = new ArrayList<Shape>();
+  private Object featureResultsKey = null;
+  private FeatureResult<?>[] featureResults = null;
 
   public ShapeInSequence(Shape shape, ShapeSequence shapeSequence, int index) {
     super();
@@ -62,6 +65,8 @@ public class ShapeInSequence implements ShapeWrapper, ShapeInSequenceWrapper {
 
   void setIndex(int index) {
     this.index = index;
+    this.featureResultsKey = null;
+    this.featureResults = null;
   }
 
   /**
@@ -84,6 +89,25 @@ public class ShapeInSequence implements ShapeWrapper, ShapeInSequenceWrapper {
     return this;
   }
 
+  /**
+   * Feature results stored for this shape in its current position, which can
+   * be reused whenever the same features are checked again, or null if none
+   * were stored for the key provided.
+   * 
+   * @param key
+   *          identifies the set of features whose results were stored
+   */
+  public FeatureResult<?>[] getFeatureResults(Object key) {
+    if (key != featureResultsKey)
+      return null;
+    return featureResults;
+  }
+
+  public void setFeatureResults(Object key, FeatureResult<?>[] featureResults) {
+    this.featureResultsKey = key;
+    this.featureResults = featureResults;
+  }
+
   @Override
   public String toString() {
     return "ShapeInSequence [shape=" + shape + ", index=" + index + "]";
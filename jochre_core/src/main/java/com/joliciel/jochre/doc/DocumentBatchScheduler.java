@@ -0,0 +1,316 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.doc;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.joliciel.jochre.JochreSession;
+import com.joliciel.jochre.graphics.JochreImage;
+import com.typesafe.config.Config;
+
+/**
+ * Analyses all of the PDF files in a folder, several documents at a time.<br>
+ * Each document is analysed in a sub-directory of the input folder named after
+ * the document, and is checkpointed after each page, so that a batch which was
+ * interrupted continues from the last page written rather than from the start.
+ * Once a document is complete, the document and its analysis files are moved to
+ * a sub-directory of the output folder.<br>
+ * The number of documents analysed concurrently is limited both by
+ * jochre.batch.document-count and by the memory budget.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public class DocumentBatchScheduler {
+  private static final Logger LOG = LoggerFactory.getLogger(DocumentBatchScheduler.class);
+
+  /**
+   * Analyses a single document, restricted to the pages provided, and notifies
+   * the observers provided.
+   */
+  public interface DocumentAnalyser {
+    public void analyse(File sourceFile, Set<Integer> pages, List<DocumentObserver> observers) throws IOException;
+  }
+
+  private final DocumentAnalyser documentAnalyser;
+  private final BiFunction<String, File, List<DocumentObserver>> observerFactory;
+  private final int documentCount;
+  private final int memoryPerDocument;
+  private final Semaphore memoryBudget;
+  private final long statusInterval;
+
+  private final AtomicInteger queuedDocuments = new AtomicInteger();
+  private final AtomicInteger activeDocuments = new AtomicInteger();
+  private final AtomicInteger completedDocuments = new AtomicInteger();
+  private final AtomicInteger failedDocuments = new AtomicInteger();
+  private final AtomicInteger startedDocuments = new AtomicInteger();
+  private final AtomicInteger completedPages = new AtomicInteger();
+  private final AtomicInteger expectedPages = new AtomicInteger();
+  private final AtomicLong lastStatus = new AtomicLong();
+  private long startTime;
+
+  /**
+   * @param documentAnalyser
+   *          analyses a single document
+   * @param observerFactory
+   *          builds the observers for a given document, given its base name
+   *          and the directory in which to write the analysis
+   */
+  public DocumentBatchScheduler(DocumentAnalyser documentAnalyser,
+      BiFunction<String, File, List<DocumentObserver>> observerFactory, JochreSession jochreSession) {
+    this.documentAnalyser = documentAnalyser;
+    this.observerFactory = observerFactory;
+
+    Config config = jochreSession.getConfig().getConfig("jochre.batch");
+    this.documentCount = config.getInt("document-count");
+    this.statusInterval = config.getDuration("status-interval", TimeUnit.MILLISECONDS);
+
+    int budget = config.getInt("memory-budget");
+    if (budget <= 0)
+      budget = (int) (Runtime.getRuntime().maxMemory() / (1024 * 1024) * 3 / 4);
+    // a single document must always be able to run, whatever the budget
+    this.memoryPerDocument = Math.min(config.getInt("memory-per-document"), budget);
+    this.memoryBudget = new Semaphore(budget, true);
+  }
+
+  /**
+   * Analyse all PDF files in the input directory, moving each one along with
+   * its analysis to the output directory once complete. Errors in a given
+   * document are logged, and the remaining documents are processed.
+   * 
+   * @param inDir
+   *          the directory containing the PDF files
+   * @param outDir
+   *          the directory to which analysed files are moved
+   * @param pages
+   *          the pages to analyse in each document, where an empty set means
+   *          all pages
+   */
+  public void analyseFolder(File inDir, File outDir, Set<Integer> pages) {
+    File[] pdfFiles = inDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".pdf"));
+    Arrays.sort(pdfFiles);
+
+    startTime = System.currentTimeMillis();
+    lastStatus.set(startTime);
+    queuedDocuments.set(pdfFiles.length);
+
+    LOG.info("Analysing " + pdfFiles.length + " documents, " + documentCount + " at a time");
+
+    ExecutorService executor = Executors.newFixedThreadPool(documentCount);
+    for (File pdfFile : pdfFiles) {
+      executor.submit(() -> this.analyseDocument(pdfFile, inDir, outDir, pages));
+    }
+    executor.shutdown();
+    try {
+      while (!executor.awaitTermination(statusInterval, TimeUnit.MILLISECONDS)) {
+        this.logStatus();
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+    this.logStatus();
+  }
+
+  private void analyseDocument(File pdfFile, File inDir, File outDir, Set<Integer> pages) {
+    try {
+      memoryBudget.acquire(memoryPerDocument);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    }
+
+    queuedDocuments.decrementAndGet();
+    activeDocuments.incrementAndGet();
+    startedDocuments.incrementAndGet();
+    try {
+      LOG.info("Analysing file: " + pdfFile.getAbsolutePath());
+      String baseName = pdfFile.getName();
+      if (baseName.lastIndexOf('.') > 0)
+        baseName = baseName.substring(0, baseName.lastIndexOf('.'));
+
+      File analysisDir = new File(inDir, baseName);
+      analysisDir.mkdirs();
+
+      List<DocumentObserver> pdfObservers = observerFactory.apply(baseName, analysisDir);
+      DocumentCheckpoint checkpoint = new DocumentCheckpoint(new File(analysisDir, baseName + ".checkpoint"),
+          pdfObservers);
+      Set<Integer> remainingPages = checkpoint.restore(pages);
+
+      List<DocumentObserver> observers = new ArrayList<>(pdfObservers);
+      observers.add(new ProgressObserver(remainingPages));
+      observers.add(checkpoint);
+
+      documentAnalyser.analyse(pdfFile, remainingPages, observers);
+      checkpoint.delete();
+
+      File pdfOutputDir = new File(outDir, baseName);
+      pdfOutputDir.mkdirs();
+
+      File targetFile = new File(pdfOutputDir, pdfFile.getName());
+      Files.move(pdfFile.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      File[] analysisFiles = analysisDir.listFiles();
+      for (File analysisFile : analysisFiles) {
+        targetFile = new File(pdfOutputDir, analysisFile.getName());
+        Files.move(analysisFile.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+      Files.delete(analysisDir.toPath());
+      completedDocuments.incrementAndGet();
+    } catch (Exception e) {
+      // log errors, but continue processing
+      LOG.error("Error processing file: " + pdfFile.getAbsolutePath(), e);
+      failedDocuments.incrementAndGet();
+    } finally {
+      activeDocuments.decrementAndGet();
+      memoryBudget.release(memoryPerDocument);
+    }
+  }
+
+  private void logStatus() {
+    long now = System.currentTimeMillis();
+    lastStatus.set(now);
+    long eta = this.getEstimatedTimeRemaining();
+    LOG.info(String.format("Documents: %d queued, %d active, %d complete, %d failed. Pages: %d, %.2f pages/sec, ETA: %s",
+        queuedDocuments.get(), activeDocuments.get(), completedDocuments.get(), failedDocuments.get(),
+        completedPages.get(), this.getPagesPerSecond(), eta < 0 ? "unknown" : (eta / 1000) + "s"));
+  }
+
+  /**
+   * Documents waiting to be analysed.
+   */
+  public int getQueueDepth() {
+    return queuedDocuments.get();
+  }
+
+  /**
+   * Documents currently being analysed.
+   */
+  public int getActiveDocuments() {
+    return activeDocuments.get();
+  }
+
+  /**
+   * Documents successfully analysed and moved to the output directory.
+   */
+  public int getCompletedDocuments() {
+    return completedDocuments.get();
+  }
+
+  /**
+   * Documents whose analysis failed.
+   */
+  public int getFailedDocuments() {
+    return failedDocuments.get();
+  }
+
+  /**
+   * Pages analysed so far, across all documents.
+   */
+  public int getCompletedPages() {
+    return completedPages.get();
+  }
+
+  /**
+   * Average throughput since the batch started.
+   */
+  public double getPagesPerSecond() {
+    long elapsed = System.currentTimeMillis() - startTime;
+    if (elapsed <= 0)
+      return 0;
+    return completedPages.get() * 1000.0 / elapsed;
+  }
+
+  /**
+   * Estimated milliseconds until the batch is complete, or -1 if no estimate is
+   * available yet. Documents which haven't started are assumed to have as many
+   * pages as the average document started so far.
+   */
+  public long getEstimatedTimeRemaining() {
+    double pagesPerSecond = this.getPagesPerSecond();
+    int started = startedDocuments.get();
+    if (pagesPerSecond <= 0 || started == 0)
+      return -1;
+    double remainingPages = expectedPages.get() - completedPages.get();
+    remainingPages += queuedDocuments.get() * ((double) expectedPages.get() / started);
+    return (long) (remainingPages / pagesPerSecond * 1000);
+  }
+
+  private final class ProgressObserver implements DocumentObserver {
+    private final Set<Integer> pages;
+
+    public ProgressObserver(Set<Integer> pages) {
+      this.pages = pages;
+    }
+
+    @Override
+    public void onDocumentStart(JochreDocument jochreDocument) {
+      int totalPageCount = jochreDocument.getTotalPageCount();
+      int pageCount = totalPageCount;
+      if (!pages.isEmpty())
+        pageCount = (int) pages.stream().filter(p -> p >= 1 && p <= totalPageCount).count();
+      expectedPages.addAndGet(pageCount);
+    }
+
+    @Override
+    public void onPageStart(JochrePage jochrePage) {
+    }
+
+    @Override
+    public void onImageStart(JochreImage jochreImage) {
+    }
+
+    @Override
+    public void onImageComplete(JochreImage jochreImage) {
+    }
+
+    @Override
+    public void onPageComplete(JochrePage jochrePage) {
+      completedPages.incrementAndGet();
+      long last = lastStatus.get();
+      long now = System.currentTimeMillis();
+      if (now - last >= statusInterval && lastStatus.compareAndSet(last, now))
+        logStatus();
+    }
+
+    @Override
+    public void onDocumentComplete(JochreDocument jochreDocument) {
+    }
+
+    @Override
+    public void onAnalysisComplete() {
+    }
+  }
+}
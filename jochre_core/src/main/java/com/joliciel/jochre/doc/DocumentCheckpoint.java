@@ -0,0 +1,247 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.doc;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.joliciel.jochre.graphics.JochreImage;
+
+/**
+ * Records which pages of a document have been fully written by a set of
+ * observers, so that an interrupted analysis can be resumed at the first page
+ * not yet written.<br>
+ * After each page, all observers are flushed, and the list of completed pages
+ * is stored together with the length of each output file. When resuming, the
+ * output files are truncated back to these lengths, so that any partial page
+ * written after the last checkpoint is discarded, and the observers are told to
+ * append to them.<br>
+ * If any of the observers cannot be resumed, no checkpoint is written.<br>
+ * This observer needs to be added after all of the observers it watches.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public class DocumentCheckpoint implements DocumentObserver {
+  private static final Logger LOG = LoggerFactory.getLogger(DocumentCheckpoint.class);
+  private static final String PAGES_KEY = "pages";
+  private static final String PAGE_COUNT_KEY = "page-count";
+  private static final String FILE_PREFIX = "file.";
+
+  private final File checkpointFile;
+  private final List<DocumentObserver> observers;
+  private final SortedSet<Integer> completedPages = new TreeSet<>();
+  private final boolean resumable;
+  private int pageCount = 0;
+
+  /**
+   * @param checkpointFile
+   *          where to store the checkpoint
+   * @param observers
+   *          the observers whose output is being checkpointed
+   */
+  public DocumentCheckpoint(File checkpointFile, List<DocumentObserver> observers) {
+    this.checkpointFile = checkpointFile;
+    this.observers = observers;
+    this.resumable = this.observersCanResume();
+  }
+
+  /**
+   * Restore the state of a previous run, if a checkpoint exists and all
+   * observers can be resumed, and return the pages which remain to be analysed.
+   * If the previous run cannot be resumed, the checkpoint is discarded and the
+   * pages requested are returned as is.
+   * 
+   * @param pages
+   *          the pages requested, where an empty set means all pages of the
+   *          document, as counted by the previous run
+   * @return the pages remaining. If no pages remain, a set containing only page
+   *         0 is returned, so that the document is still opened and closed
+   *         without analysing any page.
+   */
+  public Set<Integer> restore(Set<Integer> pages) throws IOException {
+    completedPages.clear();
+    if (!checkpointFile.exists())
+      return pages;
+
+    Properties props = new Properties();
+    try (InputStream in = new FileInputStream(checkpointFile)) {
+      props.load(in);
+    }
+
+    if (!this.canResume(props)) {
+      LOG.info("Cannot resume from " + checkpointFile.getPath() + ", restarting from the first page");
+      this.delete();
+      return pages;
+    }
+
+    for (DocumentObserver observer : observers) {
+      ResumableDocumentObserver resumable = (ResumableDocumentObserver) observer;
+      for (File outputFile : resumable.getOutputFiles()) {
+        long length = Long.parseLong(props.getProperty(FILE_PREFIX + outputFile.getName()));
+        try (RandomAccessFile raf = new RandomAccessFile(outputFile, "rw")) {
+          raf.setLength(length);
+        }
+      }
+      resumable.resume();
+    }
+
+    String pageList = props.getProperty(PAGES_KEY, "");
+    for (String page : pageList.split(",")) {
+      if (page.length() > 0)
+        completedPages.add(Integer.parseInt(page));
+    }
+
+    Set<Integer> remainingPages = new TreeSet<>();
+    if (pages.isEmpty()) {
+      int previousPageCount = Integer.parseInt(props.getProperty(PAGE_COUNT_KEY));
+      for (int i = 1; i <= previousPageCount; i++)
+        remainingPages.add(i);
+    } else {
+      remainingPages.addAll(pages);
+    }
+    remainingPages.removeAll(completedPages);
+    if (remainingPages.isEmpty())
+      remainingPages.add(0);
+
+    LOG.info("Resuming from " + checkpointFile.getPath() + ", " + completedPages.size() + " pages already complete");
+    return remainingPages;
+  }
+
+  private boolean observersCanResume() {
+    for (DocumentObserver observer : observers) {
+      if (!(observer instanceof ResumableDocumentObserver))
+        return false;
+      if (!((ResumableDocumentObserver) observer).canResume())
+        return false;
+    }
+    return true;
+  }
+
+  private boolean canResume(Properties props) {
+    if (!resumable || props.getProperty(PAGE_COUNT_KEY) == null)
+      return false;
+    for (DocumentObserver observer : observers) {
+      ResumableDocumentObserver resumable = (ResumableDocumentObserver) observer;
+      for (File outputFile : resumable.getOutputFiles()) {
+        String length = props.getProperty(FILE_PREFIX + outputFile.getName());
+        if (length == null || !outputFile.exists() || outputFile.length() < Long.parseLong(length))
+          return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Pages completed, including those restored from a previous run.
+   */
+  public Set<Integer> getCompletedPages() {
+    return Collections.unmodifiableSet(completedPages);
+  }
+
+  /**
+   * Delete the checkpoint, typically once the document is complete.
+   */
+  public void delete() throws IOException {
+    Files.deleteIfExists(checkpointFile.toPath());
+  }
+
+  private void save() {
+    Properties props = new Properties();
+    StringBuilder sb = new StringBuilder();
+    for (int page : completedPages) {
+      if (sb.length() > 0)
+        sb.append(',');
+      sb.append(page);
+    }
+    props.setProperty(PAGES_KEY, sb.toString());
+    props.setProperty(PAGE_COUNT_KEY, "" + pageCount);
+
+    for (DocumentObserver observer : observers) {
+      ResumableDocumentObserver resumable = (ResumableDocumentObserver) observer;
+      resumable.flush();
+      for (File outputFile : resumable.getOutputFiles()) {
+        props.setProperty(FILE_PREFIX + outputFile.getName(), "" + outputFile.length());
+      }
+    }
+
+    // write to a temporary file first, so that a crash never leaves a truncated
+    // checkpoint behind
+    File tempFile = new File(checkpointFile.getPath() + ".tmp");
+    try {
+      try (OutputStream out = new FileOutputStream(tempFile)) {
+        props.store(out, null);
+      }
+      Files.move(tempFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      LOG.error("Failed writing checkpoint " + checkpointFile.getPath(), e);
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public void onDocumentStart(JochreDocument jochreDocument) {
+    pageCount = jochreDocument.getTotalPageCount();
+  }
+
+  @Override
+  public void onPageStart(JochrePage jochrePage) {
+  }
+
+  @Override
+  public void onImageStart(JochreImage jochreImage) {
+  }
+
+  @Override
+  public void onImageComplete(JochreImage jochreImage) {
+  }
+
+  @Override
+  public void onPageComplete(JochrePage jochrePage) {
+    completedPages.add(jochrePage.getIndex());
+    if (resumable)
+      this.save();
+  }
+
+  @Override
+  public void onDocumentComplete(JochreDocument jochreDocument) {
+  }
+
+  @Override
+  public void onAnalysisComplete() {
+  }
+
+}
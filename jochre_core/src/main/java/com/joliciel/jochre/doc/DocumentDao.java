@@ -53,7 +53,7 @@ public final class DocumentDao {
 
   private static Map<String, DocumentDao> instances = new HashMap<>();
 
-  public static DocumentDao getInstance(JochreSession jochreSession) {
+  public static synchronized DocumentDao getInstance(JochreSession jochreSession) {
     String key = DaoConfig.getKey(jochreSession.getConfig().getConfig("jochre.jdbc"));
     DocumentDao instance = instances.get(key);
     if (instance == null) {
@@ -21,9 +21,19 @@ package com.joliciel.jochre.doc;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import javax.imageio.ImageIO;
 
@@ -58,7 +68,17 @@ import com.typesafe.config.Config;
 
 /**
  * A utility interface to create and analyse JochreDocuments out of a source
- * file containing multiple pages and images (typically a PDF file).
+ * file containing multiple pages and images (typically a PDF file).<br>
+ * <br>
+ * If jochre.document-generator.thread-count is greater than 1, pages are
+ * segmented and analysed concurrently on a pool of worker threads, each of
+ * which has its own image analyser. The finished pages are then handed over to
+ * the document observers on the calling thread, strictly in page order, so that
+ * observers need not be thread-safe. In this case,
+ * {@link #onImageFound(JochrePage, BufferedImage, String, int)} returns null,
+ * since the image is only created once the page is complete, and progress is
+ * reported once per page, when the page is handed over to the workers, rather
+ * than per image.
  * 
  * @author Assaf Urieli
  *
@@ -84,6 +104,14 @@ public class JochreDocumentGenerator implements SourceFileProcessor, Monitorable
 
   private final JochreSession jochreSession;
 
+  private final int threadCount;
+  private final int maxPendingPages;
+  private ExecutorService executor = null;
+  private ThreadLocal<ImageAnalyser> workerAnalyser = null;
+  private final List<ImageAnalyser> workerAnalysers = Collections.synchronizedList(new ArrayList<>());
+  private final Deque<Future<JochrePage>> pagesInProgress = new ArrayDeque<>();
+  private List<PendingImage> pendingImages = new ArrayList<>();
+
   /**
    * Constructor for existing documents.
    * 
@@ -97,6 +125,10 @@ public class JochreDocumentGenerator implements SourceFileProcessor, Monitorable
     Config segmenterConfig = jochreSession.getConfig().getConfig("jochre.segmenter");
     drawSegmentedImage = segmenterConfig.getBoolean("draw-segmented-image");
     drawPixelSpread = segmenterConfig.getBoolean("draw-pixel-spread");
+
+    Config generatorConfig = jochreSession.getConfig().getConfig("jochre.document-generator");
+    this.threadCount = generatorConfig.getInt("thread-count");
+    this.maxPendingPages = Math.max(threadCount, generatorConfig.getInt("max-pending-pages"));
   }
 
   /**
@@ -111,6 +143,10 @@ public class JochreDocumentGenerator implements SourceFileProcessor, Monitorable
     this.jochreSession = jochreSession;
     this.filename = filename;
     this.userFriendlyName = userFriendlyName;
+
+    Config generatorConfig = jochreSession.getConfig().getConfig("jochre.document-generator");
+    this.threadCount = generatorConfig.getInt("thread-count");
+    this.maxPendingPages = Math.max(threadCount, generatorConfig.getInt("max-pending-pages"));
   }
 
   @Override
@@ -142,6 +178,8 @@ public class JochreDocumentGenerator implements SourceFileProcessor, Monitorable
   @Override
   public void onDocumentComplete(JochreDocument doc) {
     LOG.debug("JochreDocumentGeneratorImpl.onDocumentComplete");
+    if (this.isConcurrent())
+      this.completePages(0);
     for (DocumentObserver observer : documentObservers)
       observer.onDocumentComplete(doc);
   }
@@ -149,6 +187,14 @@ public class JochreDocumentGenerator implements SourceFileProcessor, Monitorable
   @Override
   public void onAnalysisComplete() {
     LOG.debug("JochreDocumentGeneratorImpl.onAnalysisComplete");
+    if (this.isConcurrent()) {
+      for (ImageAnalyser analyser : workerAnalysers)
+        analyser.onAnalysisComplete();
+      if (executor != null) {
+        executor.shutdown();
+        executor = null;
+      }
+    }
     for (DocumentObserver observer : documentObservers)
       observer.onAnalysisComplete();
   }
@@ -165,14 +211,28 @@ public class JochreDocumentGenerator implements SourceFileProcessor, Monitorable
     jochrePage.setIndex(pageIndex);
     if (save)
       jochrePage.save();
-    for (DocumentObserver observer : documentObservers)
-      observer.onPageStart(jochrePage);
+    if (this.isConcurrent()) {
+      // observers are only notified once the page has been analysed
+      pendingImages = new ArrayList<>();
+    } else {
+      for (DocumentObserver observer : documentObservers)
+        observer.onPageStart(jochrePage);
+    }
     return jochrePage;
   }
 
   @Override
   public void onPageComplete(JochrePage jochrePage) {
     LOG.debug("JochreDocumentGeneratorImpl.onPageComplete(" + jochrePage.getIndex() + ")");
+    if (this.isConcurrent()) {
+      if (currentMonitor != null)
+        currentMonitor.setCurrentAction("imageMonitor.segmentingImage", new Object[] { jochrePage.getIndex() });
+      final List<PendingImage> images = pendingImages;
+      pendingImages = new ArrayList<>();
+      pagesInProgress.add(this.getExecutor().submit(() -> this.analysePage(jochrePage, images)));
+      this.completePages(maxPendingPages);
+      return;
+    }
     for (DocumentObserver observer : documentObservers)
       observer.onPageComplete(jochrePage);
     jochrePage.clearMemory();
@@ -181,6 +241,10 @@ public class JochreDocumentGenerator implements SourceFileProcessor, Monitorable
   @Override
   public JochreImage onImageFound(JochrePage jochrePage, BufferedImage image, String imageName, int imageIndex) {
     LOG.debug("JochreDocumentGeneratorImpl.onImageFound");
+    if (this.isConcurrent()) {
+      pendingImages.add(new PendingImage(image, imageName));
+      return null;
+    }
     try {
       int monitorableCount = 0;
       for (DocumentObserver observer : documentObservers) {
@@ -191,12 +255,7 @@ public class JochreDocumentGenerator implements SourceFileProcessor, Monitorable
       if (currentMonitor != null) {
         currentMonitor.setCurrentAction("imageMonitor.segmentingImage", new Object[] { jochrePage.getIndex() });
       }
-      LOG.debug("Creating source image object");
-      SourceImage sourceImage = jochrePage.newJochreImage(image, imageName + '.' + SUFFIX);
-      sourceImage.setDrawPixelSpread(drawPixelSpread);
-
-      if (currentUser != null)
-        sourceImage.setOwner(currentUser);
+      SourceImage sourceImage = this.newSourceImage(jochrePage, image, imageName);
 
       LOG.debug("Running observers onImageStart");
       for (DocumentObserver observer : documentObservers)
@@ -217,19 +276,10 @@ public class JochreDocumentGenerator implements SourceFileProcessor, Monitorable
         }
         currentMonitor.startTask(monitor, percentAlloted);
       }
-      segmenter.segment();
+      this.segment(segmenter, sourceImage, imageName);
       if (currentMonitor != null)
         currentMonitor.endTask();
 
-      if (drawSegmentedImage) {
-        LOG.debug("Writing segmentation file");
-        BufferedImage segmentedImage = segmenter.getSegmentedImage();
-        File imageFile = new File(outputDirectory, imageName + "_seg.png");
-        LOG.debug("Writing segmented image to " + imageFile.getAbsolutePath());
-        ImageIO.write(segmentedImage, "PNG", imageFile);
-      }
-      sourceImage.setImageStatus(ImageStatus.AUTO_NEW);
-
       if (currentMonitor != null) {
         currentMonitor.setCurrentAction("");
       }
@@ -271,6 +321,137 @@ public class JochreDocumentGenerator implements SourceFileProcessor, Monitorable
     }
   }
 
+  private SourceImage newSourceImage(JochrePage jochrePage, BufferedImage image, String imageName) {
+    LOG.debug("Creating source image object");
+    SourceImage sourceImage = jochrePage.newJochreImage(image, imageName + '.' + SUFFIX);
+    sourceImage.setDrawPixelSpread(drawPixelSpread);
+
+    if (currentUser != null)
+      sourceImage.setOwner(currentUser);
+    return sourceImage;
+  }
+
+  private void segment(Segmenter segmenter, SourceImage sourceImage, String imageName) throws IOException {
+    segmenter.segment();
+
+    if (drawSegmentedImage) {
+      LOG.debug("Writing segmentation file");
+      BufferedImage segmentedImage = segmenter.getSegmentedImage();
+      File imageFile = new File(outputDirectory, imageName + "_seg.png");
+      LOG.debug("Writing segmented image to " + imageFile.getAbsolutePath());
+      ImageIO.write(segmentedImage, "PNG", imageFile);
+    }
+    sourceImage.setImageStatus(ImageStatus.AUTO_NEW);
+  }
+
+  /**
+   * Segments and analyses the images found on a page. Runs on a worker thread,
+   * and only touches this page and the worker's own image analyser.
+   */
+  private JochrePage analysePage(JochrePage jochrePage, List<PendingImage> images) throws IOException {
+    LOG.debug("Analysing page " + jochrePage.getIndex() + " on " + Thread.currentThread().getName());
+    ImageAnalyser analyser = workerAnalyser == null ? null : workerAnalyser.get();
+    for (PendingImage pendingImage : images) {
+      SourceImage sourceImage = this.newSourceImage(jochrePage, pendingImage.image, pendingImage.imageName);
+      if (analyser != null)
+        analyser.onImageStart(sourceImage);
+
+      Segmenter segmenter = new Segmenter(sourceImage, jochreSession);
+      segmenter.setDrawSegmentation(drawSegmentedImage);
+      this.segment(segmenter, sourceImage, pendingImage.imageName);
+
+      if (save)
+        sourceImage.save();
+
+      if (analyser != null)
+        analyser.onImageComplete(sourceImage);
+    }
+    return jochrePage;
+  }
+
+  /**
+   * Hands analysed pages over to the document observers in page order, waiting
+   * for the earliest page in progress as long as more than maxPending pages are
+   * in progress.
+   */
+  private void completePages(int maxPending) {
+    while (!pagesInProgress.isEmpty()) {
+      Future<JochrePage> nextPage = pagesInProgress.peekFirst();
+      if (!nextPage.isDone() && pagesInProgress.size() <= maxPending)
+        break;
+      pagesInProgress.removeFirst();
+
+      JochrePage jochrePage = null;
+      try {
+        jochrePage = nextPage.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        this.abort();
+        throw new RuntimeException(e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        LOG.error("Failed to process page", cause);
+        this.abort();
+        if (cause instanceof RuntimeException)
+          throw (RuntimeException) cause;
+        throw new RuntimeException(cause);
+      }
+
+      for (DocumentObserver observer : documentObservers)
+        observer.onPageStart(jochrePage);
+      for (JochreImage jochreImage : jochrePage.getImages()) {
+        for (DocumentObserver observer : documentObservers)
+          observer.onImageStart(jochreImage);
+        for (DocumentObserver observer : documentObservers)
+          observer.onImageComplete(jochreImage);
+      }
+      for (DocumentObserver observer : documentObservers)
+        observer.onPageComplete(jochrePage);
+      jochrePage.clearMemory();
+    }
+  }
+
+  private void abort() {
+    for (Future<JochrePage> pageInProgress : pagesInProgress)
+      pageInProgress.cancel(true);
+    pagesInProgress.clear();
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  private ExecutorService getExecutor() {
+    if (executor == null) {
+      final AtomicInteger threadIndex = new AtomicInteger();
+      ThreadFactory threadFactory = runnable -> {
+        Thread thread = new Thread(runnable, "jochre-page-" + threadIndex.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      };
+      executor = Executors.newFixedThreadPool(threadCount, threadFactory);
+    }
+    return executor;
+  }
+
+  private boolean isConcurrent() {
+    return threadCount > 1;
+  }
+
+  /**
+   * An image extracted from the source file, waiting for its page to be
+   * analysed.
+   */
+  private static final class PendingImage {
+    private final BufferedImage image;
+    private final String imageName;
+
+    public PendingImage(BufferedImage image, String imageName) {
+      this.image = image;
+      this.imageName = imageName;
+    }
+  }
+
   @Override
   public ProgressMonitor monitorTask() {
     currentMonitor = new MultiTaskProgressMonitor();
@@ -330,6 +511,41 @@ public class JochreDocumentGenerator implements SourceFileProcessor, Monitorable
    * split/merge models.
    */
   public void requestAnalysis(MostLikelyWordChooser wordChooser) {
+    try {
+      if (this.isConcurrent()) {
+        // load the shared models before any worker thread needs them
+        jochreSession.getLetterModel();
+        jochreSession.getSplitModel();
+        jochreSession.getMergeModel();
+
+        this.setWorkerAnalyser(() -> this.newAnalyser(wordChooser));
+      } else {
+        this.documentObservers.add(0, this.newAnalyser(wordChooser));
+      }
+    } catch (Exception e) {
+      LOG.error("Failed to load models", e);
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * In concurrent mode, the factory for the image analyser used by each worker
+   * thread.
+   */
+  void setWorkerAnalyser(Supplier<ImageAnalyser> analyserFactory) {
+    this.workerAnalyser = ThreadLocal.withInitial(() -> {
+      ImageAnalyser analyser = analyserFactory.get();
+      workerAnalysers.add(analyser);
+      return analyser;
+    });
+  }
+
+  /**
+   * Build an image analyser, together with its letter guess observers. Each
+   * analyser keeps its own per-image state, and can therefore only be used by
+   * one thread at a time.
+   */
+  private ImageAnalyser newAnalyser(MostLikelyWordChooser wordChooser) {
     try {
       ClassificationModel letterModel = jochreSession.getLetterModel();
 
@@ -359,9 +575,8 @@ public class JochreDocumentGenerator implements SourceFileProcessor, Monitorable
 
       ImageAnalyser analyser = new BeamSearchImageAnalyser(boundaryDetector, letterGuesser, wordChooser, jochreSession);
       analyser.addObserver(observer);
-
-      this.documentObservers.add(0, analyser);
-    } catch (Exception e) {
+      return analyser;
+    } catch (IOException e) {
       LOG.error("Failed to load models", e);
       throw new RuntimeException(e);
     }
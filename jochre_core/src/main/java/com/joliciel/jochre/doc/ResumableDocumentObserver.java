@@ -0,0 +1,54 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.doc;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * A document observer whose output can be continued by a later run, after a
+ * crash or interruption, without redoing the pages already processed.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public interface ResumableDocumentObserver extends DocumentObserver {
+  /**
+   * Can the output of an earlier run be continued?
+   */
+  public boolean canResume();
+
+  /**
+   * Called before the document is started, if this observer should continue
+   * the output of an earlier run rather than starting afresh. The output files
+   * will already have been truncated to their length at the last checkpoint.
+   */
+  public void resume();
+
+  /**
+   * The files written by this observer whose length has to be checkpointed
+   * after each page.
+   */
+  public List<File> getOutputFiles();
+
+  /**
+   * Make sure everything written so far has reached the output files.
+   */
+  public void flush();
+}
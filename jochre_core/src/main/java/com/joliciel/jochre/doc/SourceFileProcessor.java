@@ -66,7 +66,9 @@ public interface SourceFileProcessor {
    * @param image the BufferedImage that was extracted
    * @param imageName the name of the image
    * @param imageIndex the index of the image on the current page
-   * @return a JochreImage that has either been loaded or created.
+   * @return a JochreImage that has either been loaded or created, or null if
+   * the image is processed later on, e.g. on another thread once its page is
+   * complete.
    * */
   public JochreImage onImageFound(JochrePage jochrePage, BufferedImage image, String imageName,
       int imageIndex);
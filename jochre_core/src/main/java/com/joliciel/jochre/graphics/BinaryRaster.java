@@ -0,0 +1,161 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.graphics;
+
+import java.util.BitSet;
+
+/**
+ * A black-and-white version of an image grid for a given threshold, packed 64
+ * pixels to a word, with each row starting on a new word. Pixel x of row y is
+ * bit (x % 64) of word (x / 64) in the row. Runs of black or white pixels
+ * within a row, and black pixel counts, are found a word at a time.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public class BinaryRaster {
+  private final int width;
+  private final int height;
+  private final int wordsPerRow;
+  private final long[] words;
+
+  /**
+   * Binarise the grid provided: any pixel considered black by
+   * {@link ImageGrid#isPixelBlack(int, int, int)} for this threshold is set.
+   */
+  public BinaryRaster(ImageGrid grid, int threshold) {
+    this.width = grid.getWidth();
+    this.height = grid.getHeight();
+    this.wordsPerRow = (width + 63) >>> 6;
+    this.words = new long[wordsPerRow * height];
+    for (int y = 0; y < height; y++) {
+      int rowStart = y * wordsPerRow;
+      for (int x = 0; x < width; x++) {
+        if (grid.isPixelBlack(x, y, threshold))
+          words[rowStart + (x >>> 6)] |= 1L << x;
+      }
+    }
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Is the pixel at the given coordinates black? Pixels outside of the raster
+   * are considered white.
+   */
+  public boolean isBlack(int x, int y) {
+    if (x < 0 || y < 0 || x >= width || y >= height)
+      return false;
+    return (words[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+  }
+
+  /**
+   * The first black pixel in row y at or after x, or the raster width if there
+   * are none.
+   */
+  public int nextBlack(int y, int x) {
+    if (x >= width)
+      return width;
+    int rowStart = y * wordsPerRow;
+    int i = x >>> 6;
+    long word = words[rowStart + i] & (-1L << x);
+    while (word == 0) {
+      if (++i == wordsPerRow)
+        return width;
+      word = words[rowStart + i];
+    }
+    return (i << 6) + Long.numberOfTrailingZeros(word);
+  }
+
+  /**
+   * The first white pixel in row y at or after x, or the raster width if there
+   * are none.
+   */
+  public int nextWhite(int y, int x) {
+    if (x >= width)
+      return width;
+    int rowStart = y * wordsPerRow;
+    int i = x >>> 6;
+    long word = ~words[rowStart + i] & (-1L << x);
+    while (word == 0) {
+      if (++i == wordsPerRow)
+        return width;
+      word = ~words[rowStart + i];
+    }
+    return Math.min(width, (i << 6) + Long.numberOfTrailingZeros(word));
+  }
+
+  /**
+   * The number of black pixels in row y between left and right inclusive.
+   */
+  public int countBlack(int y, int left, int right) {
+    if (y < 0 || y >= height)
+      return 0;
+    if (left < 0)
+      left = 0;
+    if (right >= width)
+      right = width - 1;
+    if (left > right)
+      return 0;
+    int rowStart = y * wordsPerRow;
+    int firstWord = left >>> 6;
+    int lastWord = right >>> 6;
+    long firstMask = -1L << left;
+    long lastMask = -1L >>> (63 - (right & 63));
+    if (firstWord == lastWord)
+      return Long.bitCount(words[rowStart + firstWord] & firstMask & lastMask);
+    int count = Long.bitCount(words[rowStart + firstWord] & firstMask);
+    for (int i = firstWord + 1; i < lastWord; i++)
+      count += Long.bitCount(words[rowStart + i]);
+    count += Long.bitCount(words[rowStart + lastWord] & lastMask);
+    return count;
+  }
+
+  /**
+   * The number of black pixels in the rectangle provided, inclusive.
+   */
+  public int countBlack(int left, int top, int right, int bottom) {
+    int count = 0;
+    for (int y = top; y <= bottom; y++)
+      count += this.countBlack(y, left, right);
+    return count;
+  }
+
+  /**
+   * Copy the pixels of row y between left and right inclusive to a BitSet, so
+   * that pixel left is written to bit offset. Pixels outside of the raster are
+   * considered white.
+   */
+  public void copyRow(int y, int left, int right, BitSet bitset, int offset) {
+    if (y < 0 || y >= height)
+      return;
+    int x = this.nextBlack(y, Math.max(left, 0));
+    while (x <= right && x < width) {
+      int end = Math.min(this.nextWhite(y, x), right + 1);
+      bitset.set(offset + x - left, offset + end - left);
+      x = this.nextBlack(y, end);
+    }
+  }
+}
@@ -0,0 +1,165 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.graphics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds the 8-connected black components of a binary raster in two passes over
+ * its horizontal runs of black pixels, rather than pixel by pixel.<br>
+ * The first pass extracts the runs row by row, and merges each run with any
+ * run in the previous row which touches it, including diagonally, using a
+ * union-find structure. The second pass gathers the bounds of each component.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+class ConnectedComponentLabeller {
+  private int runCount = 0;
+  private int[] runStarts = new int[1024];
+  private int[] runEnds = new int[1024];
+  private int[] runRows = new int[1024];
+  private int[] parents = new int[1024];
+
+  /**
+   * A single connected component.
+   */
+  static final class Component {
+    final int left;
+    final int top;
+    final int right;
+    final int bottom;
+    /**
+     * The first black pixel of the component, scanning top-to-bottom and
+     * left-to-right.
+     */
+    final int startX;
+    final int startY;
+
+    private Component(int left, int top, int right, int bottom, int startX, int startY) {
+      this.left = left;
+      this.top = top;
+      this.right = right;
+      this.bottom = bottom;
+      this.startX = startX;
+      this.startY = startY;
+    }
+  }
+
+  /**
+   * Return the connected components of the raster, ordered by their first
+   * pixel, top-to-bottom and left-to-right.
+   */
+  List<Component> label(BinaryRaster raster) {
+    runCount = 0;
+    int previousRowStart = 0;
+    int previousRowEnd = 0;
+    for (int y = 0; y < raster.getHeight(); y++) {
+      int rowStart = runCount;
+      int j = previousRowStart;
+      int x = raster.nextBlack(y, 0);
+      while (x < raster.getWidth()) {
+        int end = raster.nextWhite(y, x) - 1;
+        int run = this.addRun(x, end, y);
+
+        // runs in the previous row touch this one if they start no later than
+        // one pixel after it ends, and end no earlier than one pixel before it
+        // starts
+        while (j < previousRowEnd && runEnds[j] < x - 1)
+          j++;
+        for (int k = j; k < previousRowEnd && runStarts[k] <= end + 1; k++)
+          this.union(run, k);
+
+        x = raster.nextBlack(y, end + 1);
+      }
+      previousRowStart = rowStart;
+      previousRowEnd = runCount;
+    }
+
+    // runs are numbered in raster order, and the root is always the lowest run
+    // in its component, so each component is discovered at its first pixel
+    int[] componentIndexes = new int[runCount];
+    Arrays.fill(componentIndexes, -1);
+    List<int[]> bounds = new ArrayList<>();
+    for (int run = 0; run < runCount; run++) {
+      int root = this.find(run);
+      int[] componentBounds;
+      if (componentIndexes[root] < 0) {
+        componentIndexes[root] = bounds.size();
+        componentBounds = new int[] { runStarts[run], runRows[run], runEnds[run], runRows[run] };
+        bounds.add(componentBounds);
+      } else {
+        componentBounds = bounds.get(componentIndexes[root]);
+        if (runStarts[run] < componentBounds[0])
+          componentBounds[0] = runStarts[run];
+        if (runEnds[run] > componentBounds[2])
+          componentBounds[2] = runEnds[run];
+        componentBounds[3] = runRows[run];
+      }
+    }
+
+    List<Component> components = new ArrayList<>(bounds.size());
+    for (int run = 0; run < runCount; run++) {
+      if (parents[run] == run) {
+        int[] b = bounds.get(componentIndexes[run]);
+        components.add(new Component(b[0], b[1], b[2], b[3], runStarts[run], runRows[run]));
+      }
+    }
+    return components;
+  }
+
+  private int addRun(int start, int end, int row) {
+    if (runCount == runStarts.length) {
+      int newLength = runStarts.length * 2;
+      runStarts = Arrays.copyOf(runStarts, newLength);
+      runEnds = Arrays.copyOf(runEnds, newLength);
+      runRows = Arrays.copyOf(runRows, newLength);
+      parents = Arrays.copyOf(parents, newLength);
+    }
+    runStarts[runCount] = start;
+    runEnds[runCount] = end;
+    runRows[runCount] = row;
+    parents[runCount] = runCount;
+    return runCount++;
+  }
+
+  private int find(int run) {
+    int root = run;
+    while (parents[root] != root)
+      root = parents[root];
+    // path compression
+    while (parents[run] != root) {
+      int next = parents[run];
+      parents[run] = root;
+      run = next;
+    }
+    return root;
+  }
+
+  private void union(int run1, int run2) {
+    int root1 = this.find(run1);
+    int root2 = this.find(run2);
+    if (root1 < root2)
+      parents[root2] = root1;
+    else if (root2 < root1)
+      parents[root1] = root2;
+  }
+}
@@ -55,7 +55,7 @@ public final class GraphicsDao {
 
   private static Map<String, GraphicsDao> instances = new HashMap<>();
 
-  public static GraphicsDao getInstance(JochreSession jochreSession) {
+  public static synchronized GraphicsDao getInstance(JochreSession jochreSession) {
     String key = DaoConfig.getKey(jochreSession.getConfig().getConfig("jochre.jdbc"));
     GraphicsDao instance = instances.get(key);
     if (instance == null) {
@@ -33,8 +33,7 @@ import com.joliciel.jochre.Entity;
 import com.joliciel.jochre.JochreSession;
 import com.joliciel.jochre.doc.DocumentDao;
 import com.joliciel.jochre.doc.JochrePage;
-import com.joliciel.jochre.graphics.util.ImagePixelGrabber;
-import com.joliciel.jochre.graphics.util.ImagePixelGrabberImpl;
+import com.joliciel.jochre.graphics.util.GreyscaleRaster;
 import com.joliciel.jochre.security.SecurityDao;
 import com.joliciel.jochre.security.User;
 import com.joliciel.talismane.utils.Monitorable;
@@ -72,7 +71,8 @@ public class JochreImage implements Entity, ImageGrid, Monitorable {
   boolean originalImageChanged = false;
   private BufferedImage originalImage = null;
   int shapeCount = -1;
-  private ImagePixelGrabber pixelGrabber;
+  private GreyscaleRaster greyscaleRaster;
+  private Map<Integer, BinaryRaster> binaryRasters = new HashMap<>();
 
   private double confidence = -1;
   ImageStatus imageStatus;
@@ -97,11 +97,29 @@ public class JochreImage implements Entity, ImageGrid, Monitorable {
     this.originalImage = originalImage;
   }
 
-  ImagePixelGrabber getPixelGrabber() {
-    if (this.pixelGrabber == null) {
-      this.pixelGrabber = new ImagePixelGrabberImpl(this.getOriginalImage());
+  /**
+   * The greyscale brightness of the original image's pixels, shared by all of
+   * the shapes on this image.
+   */
+  GreyscaleRaster getGreyscaleRaster() {
+    if (this.greyscaleRaster == null) {
+      this.greyscaleRaster = new GreyscaleRaster(this.getOriginalImage());
+    }
+    return this.greyscaleRaster;
+  }
+
+  /**
+   * A black-and-white version of this image for a given threshold, calculated
+   * once and reused thereafter. Black pixels are those for which
+   * {@link #isPixelBlack(int, int, int)} would return true.
+   */
+  public BinaryRaster getBinaryRaster(int threshold) {
+    BinaryRaster binaryRaster = this.binaryRasters.get(threshold);
+    if (binaryRaster == null) {
+      binaryRaster = new BinaryRaster(this, threshold);
+      this.binaryRasters.put(threshold, binaryRaster);
     }
-    return this.pixelGrabber;
+    return binaryRaster;
   }
 
   @Override
@@ -124,7 +142,7 @@ public class JochreImage implements Entity, ImageGrid, Monitorable {
 
   @Override
   public int getRawAbsolutePixel(int x, int y) {
-    return this.getPixelGrabber().getPixelBrightness(x, y);
+    return this.getGreyscaleRaster().getPixelBrightness(x, y);
   }
 
   @Override
@@ -348,7 +366,8 @@ public class JochreImage implements Entity, ImageGrid, Monitorable {
   public void clearMemory() {
     this.paragraphs = null;
     this.originalImage = null;
-    this.pixelGrabber = null;
+    this.greyscaleRaster = null;
+    this.binaryRasters.clear();
     this.shapeMap = null;
     System.gc();
   }
@@ -387,6 +406,7 @@ public class JochreImage implements Entity, ImageGrid, Monitorable {
 
   public void setOriginalImage(BufferedImage originalImage) {
     this.originalImage = originalImage;
+    this.binaryRasters.clear();
     originalImageChanged = true;
   }
 
@@ -62,11 +62,27 @@ import com.typesafe.config.Config;
  */
 public class Segmenter implements Monitorable {
   private static final Logger LOG = LoggerFactory.getLogger(Segmenter.class);
+
+  /**
+   * How contiguous shapes are extracted from the image.
+   */
+  public enum ShapeFinderType {
+    /**
+     * Flood fill outwards from each black pixel not yet assigned to a shape.
+     */
+    FloodFill,
+    /**
+     * Label connected runs of black pixels on a binarised copy of the image.
+     */
+    RunLength
+  }
+
   private boolean drawSegmentation = false;
   private BufferedImage segmentedImage = null;
   private Graphics2D graphics2D = null;
   private SimpleProgressMonitor currentMonitor;
   private boolean splitAndJoin = false;
+  private final ShapeFinderType shapeFinderType;
 
   private final SourceImage sourceImage;
   private final JochreSession jochreSession;
@@ -76,6 +92,7 @@ public class Segmenter implements Monitorable {
     this.jochreSession = jochreSession;
     Config segmenterConfig = jochreSession.getConfig().getConfig("jochre.segmenter");
     drawSegmentation = segmenterConfig.getBoolean("draw-segmented-image");
+    shapeFinderType = ShapeFinderType.valueOf(segmenterConfig.getString("shape-finder-type"));
   }
 
   /**
@@ -258,6 +275,7 @@ public class Segmenter implements Monitorable {
       // let's get pixel counts shape by shape, and leave out the rest (in
       // case rows overlap vertically)
       int[] pixelCounts = new int[yInterval];
+      BinaryRaster raster = sourceImage.getBinaryRaster(sourceImage.getBlackThreshold());
       for (Shape shape : row.getShapes()) {
         LOG.trace("Shape " + shape);
         int yDeltaAtLeft = (int) Math.round(regression.predict(shape.getLeft()));
@@ -269,12 +287,10 @@ public class Segmenter implements Monitorable {
         int topIndex = (shape.getTop() - row.getTop()) + (row.getTop() - yDeltaAtLeft) + yDelta;
         LOG.trace("topIndex: (" + shape.getTop() + " - " + row.getTop() + ") + (" + row.getTop() + " - " + yDeltaAtLeft + ") + " + yDelta + " = "
             + topIndex);
-        for (int x = 0; x < shape.getWidth(); x++) {
-          for (int y = 0; y < shape.getHeight(); y++) {
-            if (shape.isPixelBlack(x, y, sourceImage.getBlackThreshold())) {
-              pixelCounts[topIndex + y]++;
-            }
-          }
+        for (int y = 0; y < shape.getHeight(); y++) {
+          int blackCount = raster.countBlack(shape.getTop() + y, shape.getLeft(), shape.getRight());
+          if (blackCount > 0)
+            pixelCounts[topIndex + y] += blackCount;
         }
       }
 
@@ -734,6 +750,16 @@ public class Segmenter implements Monitorable {
    */
   Set<Shape> findContiguousShapes(SourceImage sourceImage) {
     LOG.debug("########## findContiguousShapes #########");
+    if (shapeFinderType == ShapeFinderType.RunLength)
+      return this.findContiguousShapesByRuns(sourceImage);
+    return this.findContiguousShapesByFloodFill(sourceImage);
+  }
+
+  /**
+   * Get all contiguous shapes by flood filling outwards from each black pixel
+   * not yet assigned to a shape.
+   */
+  Set<Shape> findContiguousShapesByFloodFill(SourceImage sourceImage) {
     // As we get them out of the image grid, we write them to a writeable
     // grid so as to avoid duplicate extraction
     WritableImageGrid mirror = new ImageMirror(sourceImage);
@@ -758,6 +784,23 @@ public class Segmenter implements Monitorable {
     return shapes;
   }
 
+  /**
+   * Get all contiguous shapes by labelling the runs of black pixels in a
+   * binarised copy of the image. Gives the same shapes as the flood fill.
+   */
+  Set<Shape> findContiguousShapesByRuns(SourceImage sourceImage) {
+    BinaryRaster raster = sourceImage.getBinaryRaster(sourceImage.getSeparationThreshold());
+    List<ConnectedComponentLabeller.Component> components = new ConnectedComponentLabeller().label(raster);
+
+    Set<Shape> shapes = new TreeSet<Shape>(new ShapeTopToBottomComparator());
+    for (ConnectedComponentLabeller.Component component : components) {
+      Shape shape = new Shape(sourceImage, component.left, component.top, component.right, component.bottom, jochreSession);
+      shape.setStartingPoint(new int[] { component.startX, component.startY });
+      shapes.add(shape);
+    }
+    return shapes;
+  }
+
   List<RowOfShapes> groupShapesIntoRows(SourceImage sourceImage, Set<Shape> shapes, List<Rectangle> whiteAreas, boolean useSlope) {
     LOG.debug("########## groupShapesIntoRows #########");
     LOG.debug("useSlope? " + useSlope);
@@ -41,8 +41,8 @@ import com.joliciel.jochre.Entity;
 import com.joliciel.jochre.JochreSession;
 import com.joliciel.jochre.boundaries.BoundaryDao;
 import com.joliciel.jochre.boundaries.Split;
+import com.joliciel.jochre.graphics.util.GreyscaleRaster;
 import com.joliciel.jochre.graphics.util.ImagePixelGrabber;
-import com.joliciel.jochre.graphics.util.ImagePixelGrabberImpl;
 import com.joliciel.talismane.machineLearning.Decision;
 import com.joliciel.talismane.machineLearning.features.Feature;
 import com.joliciel.talismane.machineLearning.features.FeatureResult;
@@ -936,12 +936,20 @@ public class Shape implements ImageGrid, Entity, Rectangle, ShapeWrapper, HasFea
     BitSet bitset = this.bitsets.get(key);
     if (bitset == null) {
       bitset = new BitSet(this.getWidth() * this.getHeight());
-      int counter = 0;
-      for (int j = 0; j < this.getHeight(); j++)
-        for (int i = 0; i < this.getWidth(); i++) {
-          int pixel = this.getPixel(i, j);
-          bitset.set(counter++, pixel <= threshold);
-        }
+      if (this.image == null) {
+        // copy the black runs from the containing image's raster, rather than
+        // testing each pixel
+        BinaryRaster raster = this.getJochreImage().getBinaryRaster(threshold);
+        for (int j = 0; j < this.getHeight(); j++)
+          raster.copyRow(top + j, left, right, bitset, j * this.getWidth());
+      } else {
+        int counter = 0;
+        for (int j = 0; j < this.getHeight(); j++)
+          for (int i = 0; i < this.getWidth(); i++) {
+            int pixel = this.getPixel(i, j);
+            bitset.set(counter++, pixel <= threshold);
+          }
+      }
       this.bitsets.put(key, bitset);
     }
     return bitset;
@@ -979,20 +987,20 @@ public class Shape implements ImageGrid, Entity, Rectangle, ShapeWrapper, HasFea
   public BitSet getOutline(int threshold) {
     BitSet outline = this.outlines.get(threshold);
     if (outline == null) {
-      outline = new BitSet(this.getHeight() * this.getWidth());
-      int counter = 0;
-      for (int y = 0; y < this.getHeight(); y++) {
-        for (int x = 0; x < this.getWidth(); x++) {
-          boolean black = this.isPixelBlack(x, y, threshold);
-          if (!black)
-            outline.set(counter++, false);
-          else {
-            boolean innerPixel = this.isPixelBlack(x - 1, y, threshold) && this.isPixelBlack(x + 1, y, threshold)
-                && this.isPixelBlack(x, y - 1, threshold) && this.isPixelBlack(x, y + 1, threshold);
-            outline.set(counter++, !innerPixel);
-          } // is it black?
-        } // next x
-      } // next y
+      int width = this.getWidth();
+      int height = this.getHeight();
+      outline = new BitSet(height * width);
+      BitSet bitset = this.getBlackAndWhiteBitSet(threshold, 0);
+      // a black pixel belongs to the outline unless all four of its direct
+      // neighbours are black, pixels outside the shape counting as white
+      for (int i = bitset.nextSetBit(0); i >= 0; i = bitset.nextSetBit(i + 1)) {
+        int x = i % width;
+        int y = i / width;
+        boolean innerPixel = x > 0 && x < width - 1 && y > 0 && y < height - 1 && bitset.get(i - 1) && bitset.get(i + 1)
+            && bitset.get(i - width) && bitset.get(i + width);
+        if (!innerPixel)
+          outline.set(i);
+      }
       this.outlines.put(threshold, outline);
     }
     return outline;
@@ -1081,11 +1089,15 @@ public class Shape implements ImageGrid, Entity, Rectangle, ShapeWrapper, HasFea
   }
 
   /**
-   * Get the image behind this shape.
+   * Get the image behind this shape. Unless an image was set for this shape
+   * (e.g. when loaded without its page), this is a subimage sharing the
+   * original image's pixels. It isn't retained, so that pixels continue to be
+   * read from the greyscale raster shared by all shapes on the page, rather
+   * than being copied for each shape.
    */
   public BufferedImage getImage() {
     if (image == null && this.jochreImage != null) {
-      image = this.jochreImage.getOriginalImage().getSubimage(this.getLeft(), this.getTop(), this.getWidth(), this.getHeight());
+      return this.jochreImage.getOriginalImage().getSubimage(this.getLeft(), this.getTop(), this.getWidth(), this.getHeight());
     }
     return image;
   }
@@ -1096,7 +1108,7 @@ public class Shape implements ImageGrid, Entity, Rectangle, ShapeWrapper, HasFea
 
   ImagePixelGrabber getPixelGrabber() {
     if (this.pixelGrabber == null) {
-      this.pixelGrabber = new ImagePixelGrabberImpl(this.getImage());
+      this.pixelGrabber = new GreyscaleRaster(this.getImage());
     }
     return this.pixelGrabber;
   }
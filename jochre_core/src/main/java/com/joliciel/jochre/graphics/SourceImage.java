@@ -125,8 +125,8 @@ public class SourceImage extends JochreImage implements ImageGrid {
 
     this.setOriginalImage(image);
 
-    this.setWidth(this.getPixelGrabber().getWidth());
-    this.setHeight(this.getPixelGrabber().getHeight());
+    this.setWidth(this.getGreyscaleRaster().getWidth());
+    this.setHeight(this.getGreyscaleRaster().getHeight());
 
     this.calculateThresholds(drawPixelSpread);
   }
@@ -155,7 +155,7 @@ public class SourceImage extends JochreImage implements ImageGrid {
     int horizontalMarginPixels = (int) Math.floor(this.getWidth() * 0.10);
     for (int y = verticalMarginPixels; y < this.getHeight() - verticalMarginPixels; y++)
       for (int x = horizontalMarginPixels; x < this.getWidth() - horizontalMarginPixels; x++) {
-        int pixel = this.getPixelGrabber().getPixelBrightness(x, y);
+        int pixel = this.getGreyscaleRaster().getPixelBrightness(x, y);
         pixelSpread[pixel]++;
       }
 
@@ -18,6 +18,7 @@
 //////////////////////////////////////////////////////////////////////////////
 package com.joliciel.jochre.graphics;
 
+import java.util.BitSet;
 import java.util.List;
 import java.util.TreeSet;
 import java.util.ArrayList;
@@ -57,46 +58,53 @@ class WhiteAreaFinder {
     // Now - doing this by getting horizontal boxes first
 //    double minRatioForExtension = 0.5;
     
+    // alternate method to a list of rectangles: get black pixels directly
+    // a page's raster is shared, so that it is only binarised once per threshold
+    BinaryRaster raster = null;
+    if (imageGrid instanceof JochreImage)
+      raster = ((JochreImage) imageGrid).getBinaryRaster(blackThreshold);
+    else if (imageGrid!=null)
+      raster = new BinaryRaster(imageGrid, blackThreshold);
+    BitSet pixels = new BitSet(right+1);
+    
     for (int y = top; y<=bottom; y++) {
       // get all white horizontal lines on current row
       List<WhiteLine> whiteLines = new ArrayList<WhiteLine>();
-      boolean[] pixels = new boolean[right+1];
-      List<Rectangle> blackAreasToRemove = new ArrayList<Rectangle>();
-      for (Rectangle blackArea : blackAreasToConsider) {
-        if (blackArea.getBottom()<y) 
-          blackAreasToRemove.add(blackArea);
-        if (blackArea.getTop()>y)
-          break;
-        if (blackArea.getBottom()>=y) {
-          int maxLeft = blackArea.getLeft() > left ? blackArea.getLeft() : left;
-          int minRight = blackArea.getRight() < right ? blackArea.getRight() : right;
-          for (int i =maxLeft; i<=minRight; i++) {
-            pixels[i] = true;
-          }
+      if (raster!=null) {
+        int startWhite = raster.nextWhite(y, left);
+        while (startWhite<=right) {
+          // pixels beyond the raster's right edge are white
+          int nextBlack = raster.nextBlack(y, startWhite);
+          int endWhite = (nextBlack>=raster.getWidth() || nextBlack>right) ? right : nextBlack - 1;
+          whiteLines.add(new WhiteLine(startWhite, endWhite));
+          if (endWhite>=right)
+            break;
+          startWhite = raster.nextWhite(y, endWhite+1);
         }
-      }
-      blackAreasToConsider.removeAll(blackAreasToRemove);
-      boolean inWhite = false;
-      int startWhite = 0;
-      for (int x = left; x<=right; x++) {
-        boolean isBlack = pixels[x];
-        // alternate method to a list of rectangles: get black pixel directly
-        if (imageGrid!=null) {
-          isBlack = imageGrid.isPixelBlack(x, y, blackThreshold);
+      } else {
+        pixels.clear();
+        List<Rectangle> blackAreasToRemove = new ArrayList<Rectangle>();
+        for (Rectangle blackArea : blackAreasToConsider) {
+          if (blackArea.getBottom()<y) 
+            blackAreasToRemove.add(blackArea);
+          if (blackArea.getTop()>y)
+            break;
+          if (blackArea.getBottom()>=y) {
+            int maxLeft = blackArea.getLeft() > left ? blackArea.getLeft() : left;
+            int minRight = blackArea.getRight() < right ? blackArea.getRight() : right;
+            if (maxLeft<=minRight)
+              pixels.set(maxLeft, minRight+1);
+          }
         }
-        if (!inWhite && !isBlack) {
-          startWhite = x;
-          inWhite = true;
-        } else if (inWhite && isBlack) {
-          WhiteLine whiteLine = new WhiteLine(startWhite, x-1);
-          whiteLines.add(whiteLine);
-          inWhite = false;
+        blackAreasToConsider.removeAll(blackAreasToRemove);
+        int startWhite = pixels.nextClearBit(left);
+        while (startWhite<=right) {
+          int nextBlack = pixels.nextSetBit(startWhite);
+          int endWhite = (nextBlack<0 || nextBlack>right) ? right : nextBlack - 1;
+          whiteLines.add(new WhiteLine(startWhite, endWhite));
+          startWhite = pixels.nextClearBit(endWhite+1);
         }
       }
-      if (inWhite) {
-        WhiteLine whiteLine = new WhiteLine(startWhite, right);
-        whiteLines.add(whiteLine);
-      }
       
       // check if the white horizontal lines extend existing rectangles
       List<RectangleImpl> currentWhiteAreas = new ArrayList<RectangleImpl>();
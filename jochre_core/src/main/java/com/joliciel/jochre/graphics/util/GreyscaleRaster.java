@@ -0,0 +1,95 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.graphics.util;
+
+import java.awt.Image;
+
+/**
+ * The greyscale brightness of each pixel in an image, calculated once and
+ * stored one byte per pixel, row after row. The brightness values are
+ * identical to those of {@link ImagePixelGrabberImpl#getPixelBrightness(int, int)},
+ * but reading a pixel is a single array access, with no color model
+ * conversion.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public final class GreyscaleRaster implements ImagePixelGrabber {
+  private final byte[] pixels;
+  private final int width;
+  private final int height;
+
+  public GreyscaleRaster(Image image) {
+    ImagePixelGrabber pixelGrabber = new ImagePixelGrabberImpl(image);
+    this.width = pixelGrabber.getWidth();
+    this.height = pixelGrabber.getHeight();
+    this.pixels = new byte[width * height];
+    int i = 0;
+    for (int y = 0; y < height; y++)
+      for (int x = 0; x < width; x++)
+        pixels[i++] = (byte) pixelGrabber.getPixelBrightness(x, y);
+  }
+
+  /**
+   * The brightness of each pixel, as an unsigned byte, row after row.
+   */
+  @Override
+  public byte[] getPixels() {
+    return pixels;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Always 0, since there is no indexed color model.
+   */
+  @Override
+  public int getNumColors() {
+    return 0;
+  }
+
+  @Override
+  public int getRed(int pixel) {
+    return pixel & 0xff;
+  }
+
+  @Override
+  public int getGreen(int pixel) {
+    return pixel & 0xff;
+  }
+
+  @Override
+  public int getBlue(int pixel) {
+    return pixel & 0xff;
+  }
+
+  @Override
+  public int getPixelBrightness(int x, int y) {
+    return pixels[y * width + x] & 0xff;
+  }
+
+}
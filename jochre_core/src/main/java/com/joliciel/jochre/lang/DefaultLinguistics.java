@@ -23,6 +23,21 @@ public class DefaultLinguistics implements Linguistics {
   private static final Pattern NUMBER = Pattern.compile("[\\+\\-]?\\d+([\\.\\,]\\d+)*");
   private static final Pattern Punctuation = Pattern.compile("\\p{Punct}+", Pattern.UNICODE_CHARACTER_CLASS);
 
+  private static final ReplacementRule[] SPLIT_TEXT_RULES = {
+      // all numerals are treated identically
+      new ReplacementRule("[0-9]", "0"),
+
+      // split letters are joined back together
+      new ReplacementRule("\\|(.)\\1\\|", "$1"),
+      new ReplacementRule("\\|(..)\\1\\|", "$1"),
+      new ReplacementRule("\\|(...)\\1\\|", "$1"),
+
+      // replace multiple underscores by a single underscore
+      new ReplacementRule("_++", "_"),
+
+      // fix other punctuation
+      new ReplacementRule("''", "\"") };
+
   private Set<String> dualCharacterLetters;
   private Set<String> validLetters;
   private Set<Character> validCharacters;
@@ -155,19 +170,7 @@ public class DefaultLinguistics implements Linguistics {
       return results;
     }
 
-    // all numerals are treated identically
-    wordText = wordText.replaceAll("[0-9]", "0");
-
-    // split letters are joined back together
-    wordText = wordText.replaceAll("\\|(.)\\1\\|", "$1");
-    wordText = wordText.replaceAll("\\|(..)\\1\\|", "$1");
-    wordText = wordText.replaceAll("\\|(...)\\1\\|", "$1");
-
-    // replace multiple underscores by a single underscore
-    wordText = wordText.replaceAll("_++", "_");
-
-    // fix other punctuation
-    wordText = wordText.replaceAll("''", "\"");
+    wordText = ReplacementRule.applyAll(wordText, SPLIT_TEXT_RULES);
 
     StringTokenizer tokenizer = new StringTokenizer(wordText, PUNCTUATION, true);
 
@@ -223,6 +226,14 @@ public class DefaultLinguistics implements Linguistics {
 
   @Override
   public List<CountedOutcome<String>> getFrequencies(String word) {
+    return jochreSession.getWordFrequencyCache().getFrequencies(word, this::findFrequencies);
+  }
+
+  /**
+   * Find the frequencies for a given word in the lexicon, without going through
+   * the session's cache.
+   */
+  protected List<CountedOutcome<String>> findFrequencies(String word) {
     List<CountedOutcome<String>> results = new ArrayList<>();
     String standardisedWord = this.standardiseWord(word);
     if (LOG.isTraceEnabled()) {
@@ -37,7 +37,8 @@ public interface Linguistics {
   /**
    * For a given word (not necessarily in standard spelling for the lexicon),
    * returns a list of any equivalent words found in the lexicon (in their
-   * standard spelling) with the associated frequencies.
+   * standard spelling) with the associated frequencies. The list returned may
+   * be shared with other callers, and should not be modified.
    */
   public List<CountedOutcome<String>> getFrequencies(String word);
 
@@ -0,0 +1,108 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.lang;
+
+import java.util.regex.Pattern;
+
+/**
+ * A regex replacement, equivalent to {@link String#replaceAll(String, String)},
+ * but with the regex compiled only once. Since most rules are only applicable
+ * to a few words, the literal text which any match must contain is checked
+ * first, and the regex is only run if it is found. Rules without any regex
+ * syntax are applied as a plain {@link String#replace(CharSequence, CharSequence)}.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public final class ReplacementRule {
+  private static final String METACHARACTERS = "\\.[]{}()*+?^$|";
+  private static final Pattern ANY_CHARACTER_GROUPS_AND_ANCHORS = Pattern
+      .compile("\\((?:\\.+|\\[\\^[^\\]]*\\])\\)|\\\\A|\\\\z");
+
+  private final String regex;
+  private final String replacement;
+  private final Pattern pattern;
+  private final String requiredText;
+  private final boolean literal;
+
+  public ReplacementRule(String regex, String replacement) {
+    this.regex = regex;
+    this.replacement = replacement;
+    this.pattern = Pattern.compile(regex);
+    this.literal = !containsAny(regex, METACHARACTERS) && !containsAny(replacement, "$\\");
+    this.requiredText = this.literal ? regex : findRequiredText(regex);
+  }
+
+  /**
+   * The longest text which has to be found in any string matched by the
+   * regex, or an empty string if it can't be determined. Only groups matching
+   * any character (or any character but a few) and anchors are understood.
+   */
+  private static String findRequiredText(String regex) {
+    String requiredText = "";
+    for (String part : ANY_CHARACTER_GROUPS_AND_ANCHORS.split(regex)) {
+      if (containsAny(part, METACHARACTERS))
+        return "";
+      if (part.length() > requiredText.length())
+        requiredText = part;
+    }
+    return requiredText;
+  }
+
+  private static boolean containsAny(String text, String characters) {
+    for (int i = 0; i < text.length(); i++) {
+      if (characters.indexOf(text.charAt(i)) >= 0)
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * Replace every match of this rule's regex in the text.
+   */
+  public String apply(String text) {
+    if (requiredText.length() > 0 && text.indexOf(requiredText) < 0)
+      return text;
+    if (literal)
+      return text.replace(regex, replacement);
+    return pattern.matcher(text).replaceAll(replacement);
+  }
+
+  /**
+   * Apply each rule in turn to the text.
+   */
+  public static String applyAll(String text, ReplacementRule... rules) {
+    for (ReplacementRule rule : rules)
+      text = rule.apply(text);
+    return text;
+  }
+
+  public String getRegex() {
+    return regex;
+  }
+
+  public String getReplacement() {
+    return replacement;
+  }
+
+  @Override
+  public String toString() {
+    return "ReplacementRule [regex=" + regex + ", replacement=" + replacement + "]";
+  }
+}
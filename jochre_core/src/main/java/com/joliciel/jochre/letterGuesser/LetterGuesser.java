@@ -19,7 +19,10 @@
 package com.joliciel.jochre.letterGuesser;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.slf4j.Logger;
@@ -45,11 +48,18 @@ public class LetterGuesser {
   private static final double MIN_PROB_TO_STORE = 0.001;
 
   private final DecisionMaker decisionMaker;
-  private final Set<LetterFeature<?>> features;
+  private final List<LetterFeature<?>> features;
+  private final boolean[] historyDependent;
+  private int cacheHits = 0;
+  private int cacheMisses = 0;
+  private int decisionCount = 0;
 
   public LetterGuesser(Set<LetterFeature<?>> features, DecisionMaker decisionMaker) {
     this.decisionMaker = decisionMaker;
-    this.features = features;
+    this.features = new ArrayList<>(features);
+    this.historyDependent = new boolean[this.features.size()];
+    for (int i = 0; i < this.features.size(); i++)
+      this.historyDependent[i] = this.features.get(i).isHistoryDependent();
   }
 
   public String guessLetter(ShapeInSequence shapeInSequence) {
@@ -68,13 +78,94 @@ public class LetterGuesser {
     if (LOG.isTraceEnabled())
       LOG.trace("guessLetter, shape: " + shape);
 
+    List<FeatureResult<?>> featureResults = this.analyseFeatures(shapeInSequence, history, null);
+    List<Decision> letterGuesses = this.decide(featureResults);
+
+    // store outcomes
+    String bestOutcome = null;
+    shape.getLetterGuesses().clear();
+    shape.getLetterGuesses().addAll(letterGuesses);
+
+    bestOutcome = shape.getLetterGuesses().iterator().next().getOutcome();
+
+    if (LOG.isTraceEnabled()) {
+      LOG.trace("Shape: " + shape);
+      LOG.trace("Letter: " + shape.getLetter());
+      LOG.trace("Best outcome: " + bestOutcome);
+    }
+
+    return bestOutcome;
+  }
+
+  /**
+   * Analyses a single shape for several histories leading up to it. Features
+   * which don't depend on the history are only analysed once, and the decision
+   * maker is only consulted once for each distinct set of history-dependent
+   * feature results. Unlike
+   * {@link #guessLetter(ShapeInSequence, LetterSequence)}, the shape's letter
+   * guesses are left untouched, so that the histories don't overwrite each
+   * other's guesses.
+   * 
+   * @return for each history, in the order provided, the outcomes above a
+   *         certain threshold of probability, from most to least likely.
+   */
+  public List<List<Decision>> guessLetters(ShapeInSequence shapeInSequence, List<LetterSequence> histories) {
+    if (LOG.isTraceEnabled())
+      LOG.trace("guessLetters, shape: " + shapeInSequence.getShape() + ", histories: " + histories.size());
+
+    List<List<Decision>> guessesPerHistory = new ArrayList<>(histories.size());
+    Map<List<Object>, List<Decision>> guessesPerOutcomes = new HashMap<>();
+    for (LetterSequence history : histories) {
+      List<Object> historyOutcomes = new ArrayList<>();
+      List<FeatureResult<?>> featureResults = this.analyseFeatures(shapeInSequence, history, historyOutcomes);
+      List<Decision> letterGuesses = guessesPerOutcomes.get(historyOutcomes);
+      if (letterGuesses == null) {
+        letterGuesses = this.decide(featureResults);
+        guessesPerOutcomes.put(historyOutcomes, letterGuesses);
+      }
+      guessesPerHistory.add(letterGuesses);
+    }
+    return guessesPerHistory;
+  }
+
+  /**
+   * Analyse all features for this shape and history, reusing the results of
+   * features which don't depend on the history if they've already been
+   * analysed for this shape in this position.
+   * 
+   * @param historyOutcomes
+   *          if not null, the outcomes of history-dependent features are added
+   *          to this list
+   */
+  private List<FeatureResult<?>> analyseFeatures(ShapeInSequence shapeInSequence, LetterSequence history, List<Object> historyOutcomes) {
     List<FeatureResult<?>> featureResults = new ArrayList<FeatureResult<?>>();
 
+    // features which don't depend on the history are only analysed the first
+    // time this shape is seen in this position, and reused for all other
+    // histories
+    FeatureResult<?>[] intrinsicResults = shapeInSequence.getFeatureResults(this);
+    boolean cached = intrinsicResults != null;
+    if (cached) {
+      cacheHits++;
+    } else {
+      cacheMisses++;
+      intrinsicResults = new FeatureResult<?>[features.size()];
+    }
+
     // analyse features
-    for (LetterFeature<?> feature : features) {
-      LetterGuesserContext context = new LetterGuesserContext(shapeInSequence, history);
-      RuntimeEnvironment env = new RuntimeEnvironment();
-      FeatureResult<?> featureResult = feature.check(context, env);
+    LetterGuesserContext context = new LetterGuesserContext(shapeInSequence, history);
+    for (int i = 0; i < features.size(); i++) {
+      FeatureResult<?> featureResult = null;
+      if (cached && !historyDependent[i]) {
+        featureResult = intrinsicResults[i];
+      } else {
+        RuntimeEnvironment env = new RuntimeEnvironment();
+        featureResult = features.get(i).check(context, env);
+        if (!historyDependent[i])
+          intrinsicResults[i] = featureResult;
+        else if (historyOutcomes != null)
+          historyOutcomes.add(featureResult == null ? null : featureResult.getOutcome());
+      }
       if (featureResult != null) {
         featureResults.add(featureResult);
         if (LOG.isTraceEnabled()) {
@@ -82,28 +173,50 @@ public class LetterGuesser {
         }
       }
     }
+    if (!cached)
+      shapeInSequence.setFeatureResults(this, intrinsicResults);
 
-    List<Decision> letterGuesses = decisionMaker.decide(featureResults);
-
-    // store outcomes
-    String bestOutcome = null;
-    shape.getLetterGuesses().clear();
+    return featureResults;
+  }
 
-    for (Decision letterGuess : letterGuesses) {
+  /**
+   * Consult the decision maker, and keep all outcomes above a certain
+   * threshold of probability, from most to least likely.
+   */
+  private List<Decision> decide(List<FeatureResult<?>> featureResults) {
+    decisionCount++;
+    List<Decision> decisions = decisionMaker.decide(featureResults);
+    List<Decision> letterGuesses = new ArrayList<>(decisions.size());
+    for (Decision letterGuess : decisions) {
       if (letterGuess.getProbability() >= MIN_PROB_TO_STORE) {
-        shape.getLetterGuesses().add(letterGuess);
+        letterGuesses.add(letterGuess);
       }
     }
+    Collections.sort(letterGuesses);
+    return letterGuesses;
+  }
 
-    bestOutcome = shape.getLetterGuesses().iterator().next().getOutcome();
+  /**
+   * The number of shapes analysed for which the results of features not
+   * depending on the history were reused from a previous analysis of the same
+   * shape in the same position.
+   */
+  public int getCacheHits() {
+    return cacheHits;
+  }
 
-    if (LOG.isTraceEnabled()) {
-      LOG.trace("Shape: " + shape);
-      LOG.trace("Letter: " + shape.getLetter());
-      LOG.trace("Best outcome: " + bestOutcome);
-    }
+  /**
+   * The number of shapes analysed for which all features had to be analysed.
+   */
+  public int getCacheMisses() {
+    return cacheMisses;
+  }
 
-    return bestOutcome;
+  /**
+   * The number of times the decision maker was consulted.
+   */
+  public int getDecisionCount() {
+    return decisionCount;
   }
 
 }
@@ -18,8 +18,12 @@
 //////////////////////////////////////////////////////////////////////////////
 package com.joliciel.jochre.letterGuesser;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
@@ -31,6 +35,7 @@ import com.joliciel.jochre.graphics.GroupOfShapes;
 import com.joliciel.jochre.graphics.Rectangle;
 import com.joliciel.jochre.graphics.Shape;
 import com.joliciel.jochre.lang.Linguistics;
+import com.joliciel.jochre.lang.ReplacementRule;
 import com.joliciel.talismane.machineLearning.ClassificationSolution;
 import com.joliciel.talismane.machineLearning.Decision;
 import com.joliciel.talismane.machineLearning.GeometricMeanScoringStrategy;
@@ -55,6 +60,10 @@ public class LetterSequence implements Comparable<LetterSequence>, Classificatio
   // Pattern.UNICODE_CHARACTER_CLASS);
   private static final Pattern PUNCTUATION = Pattern.compile("[\\p{Punct}]+", Pattern.UNICODE_CHARACTER_CLASS);
 
+  // split letters are joined back together
+  private static final ReplacementRule[] JOIN_SPLIT_LETTER_RULES = { new ReplacementRule("\\|(.)\\1\\|", "$1"),
+      new ReplacementRule("\\|(..)\\1\\|", "$1"), new ReplacementRule("\\|(...)\\1\\|", "$1") };
+
   private double score = 0;
   private double adjustedScore = 0;
   private boolean scoreCalculated = false;
@@ -68,9 +77,11 @@ public class LetterSequence implements Comparable<LetterSequence>, Classificatio
   private int endOfLineHyphenIndex = -1;
   private ShapeSequence underlyingShapeSequence;
   private int frequency = 0;
-  private List<CountedOutcome<String>> wordFrequencies = new ArrayList<CountedOutcome<String>>();
+  private List<CountedOutcome<String>> wordFrequencies = null;
 
-  private List<Decision> decisions = new ArrayList<Decision>();
+  private final List<Decision> decisions;
+  private final boolean extension;
+  private final double probabilityLogSum;
   private List<Solution> underlyingSolutions = new ArrayList<Solution>();
   @SuppressWarnings("rawtypes")
   private ScoringStrategy scoringStrategy = new GeometricMeanScoringStrategy();
@@ -78,7 +89,7 @@ public class LetterSequence implements Comparable<LetterSequence>, Classificatio
   private List<LetterSequence> subsequences;
   private List<LetterSequence> groupSequences;
   private LetterSequence hyphenSubsequence = null;
-  private List<String> letters = new ArrayList<String>();
+  private final List<String> letters;
   private boolean punctation = false;
   private boolean softHyphen = false;
   private String hyphenatedString = null;
@@ -86,8 +97,7 @@ public class LetterSequence implements Comparable<LetterSequence>, Classificatio
   private final JochreSession jochreSession;
 
   public LetterSequence(ShapeSequence underlyingShapeSequence, JochreSession jochreSession) {
-    this.jochreSession = jochreSession;
-    this.setUnderlyingShapeSequence(underlyingShapeSequence);
+    this(underlyingShapeSequence, new ArrayList<String>(), jochreSession);
   }
 
   /**
@@ -96,8 +106,26 @@ public class LetterSequence implements Comparable<LetterSequence>, Classificatio
    */
   public LetterSequence(LetterSequence history) {
     this.jochreSession = history.getJochreSession();
-    this.letters.addAll(history.getLetters());
-    this.decisions.addAll(history.getDecisions());
+    this.letters = new ArrayList<String>(history.getLetters());
+    this.decisions = new ArrayList<Decision>(history.getDecisions());
+    this.extension = false;
+    this.probabilityLogSum = 0;
+    this.setUnderlyingShapeSequence(history.getUnderlyingShapeSequence());
+  }
+
+  /**
+   * Create a letter sequence adding a single letter guess to the end of an
+   * existing history. The history's letters and decisions are shared rather
+   * than copied, so that the cost of extending a sequence doesn't depend on its
+   * length. The letters and decisions of the sequence created cannot be
+   * modified.
+   */
+  public LetterSequence(LetterSequence history, Decision letterGuess) {
+    this.jochreSession = history.getJochreSession();
+    this.letters = new ExtendedList<String>(history.getLetters(), letterGuess.getOutcome());
+    this.decisions = new ExtendedList<Decision>(history.getDecisions(), letterGuess);
+    this.extension = true;
+    this.probabilityLogSum = history.getProbabilityLogSum() + letterGuess.getProbabilityLog();
     this.setUnderlyingShapeSequence(history.getUnderlyingShapeSequence());
   }
 
@@ -106,6 +134,10 @@ public class LetterSequence implements Comparable<LetterSequence>, Classificatio
    */
   public LetterSequence(LetterSequence sequence1, LetterSequence sequence2) {
     jochreSession = sequence1 != null ? sequence1.getJochreSession() : sequence2.getJochreSession();
+    this.letters = new ArrayList<String>();
+    this.decisions = new ArrayList<Decision>();
+    this.extension = false;
+    this.probabilityLogSum = 0;
     if (sequence1 != null) {
       this.letters.addAll(sequence1.getLetters());
       this.decisions.addAll(sequence1.getDecisions());
@@ -141,8 +173,11 @@ public class LetterSequence implements Comparable<LetterSequence>, Classificatio
 
   public LetterSequence(ShapeSequence shapeSequence, List<String> letters, JochreSession jochreSession) {
     this.jochreSession = jochreSession;
-    this.setUnderlyingShapeSequence(shapeSequence);
     this.letters = letters;
+    this.decisions = new ArrayList<Decision>();
+    this.extension = false;
+    this.probabilityLogSum = 0;
+    this.setUnderlyingShapeSequence(shapeSequence);
   }
 
   /**
@@ -153,12 +188,43 @@ public class LetterSequence implements Comparable<LetterSequence>, Classificatio
 
   public double getScore() {
     if (!scoreCalculated) {
-      score = this.getScoringStrategy().calculateScore(this);
+      if (this.getScoringStrategy().getClass().equals(GeometricMeanScoringStrategy.class))
+        score = this.getGeometricMeanScore();
+      else
+        score = this.getScoringStrategy().calculateScore(this);
       scoreCalculated = true;
     }
     return score;
   }
 
+  /**
+   * The score calculated by a {@link GeometricMeanScoringStrategy}, without
+   * going through all of the decisions for sequences extending a history.
+   */
+  private double getGeometricMeanScore() {
+    double score = 0;
+    if (decisions.size() > 0)
+      score = this.getProbabilityLogSum() / decisions.size();
+    score = Math.exp(score);
+    for (Solution solution : underlyingSolutions) {
+      if (!solution.getScoringStrategy().isAdditive())
+        score *= solution.getScore();
+    }
+    return score;
+  }
+
+  /**
+   * The sum of the probability logs of this sequence's decisions, in order.
+   */
+  private double getProbabilityLogSum() {
+    if (extension)
+      return probabilityLogSum;
+    double sum = 0;
+    for (Decision decision : decisions)
+      sum += decision.getProbabilityLog();
+    return sum;
+  }
+
   public void setScore(double score) {
     this.score = score;
     scoreCalculated = true;
@@ -197,9 +263,8 @@ public class LetterSequence implements Comparable<LetterSequence>, Classificatio
       realWord = realWord.replace("]", "");
 
       // split letters are joined back together
-      realWord = realWord.replaceAll("\\|(.)\\1\\|", "$1");
-      realWord = realWord.replaceAll("\\|(..)\\1\\|", "$1");
-      realWord = realWord.replaceAll("\\|(...)\\1\\|", "$1");
+      if (realWord.indexOf('|') >= 0)
+        realWord = ReplacementRule.applyAll(realWord, JOIN_SPLIT_LETTER_RULES);
 
       realWord = jochreSession.getLinguistics().standardiseWord(realWord);
     }
@@ -217,9 +282,8 @@ public class LetterSequence implements Comparable<LetterSequence>, Classificatio
       guessedWord = guessedWord.replace("]", "");
 
       // split letters are joined back together
-      guessedWord = guessedWord.replaceAll("\\|(.)\\1\\|", "$1");
-      guessedWord = guessedWord.replaceAll("\\|(..)\\1\\|", "$1");
-      guessedWord = guessedWord.replaceAll("\\|(...)\\1\\|", "$1");
+      if (guessedWord.indexOf('|') >= 0)
+        guessedWord = ReplacementRule.applyAll(guessedWord, JOIN_SPLIT_LETTER_RULES);
 
       guessedWord = jochreSession.getLinguistics().standardiseWord(guessedWord);
     }
@@ -371,6 +435,8 @@ public class LetterSequence implements Comparable<LetterSequence>, Classificatio
    * frequency for each word as found in the lexicon.
    */
   public List<CountedOutcome<String>> getWordFrequencies() {
+    if (wordFrequencies == null)
+      wordFrequencies = new ArrayList<CountedOutcome<String>>();
     return wordFrequencies;
   }
 
@@ -645,4 +711,57 @@ public class LetterSequence implements Comparable<LetterSequence>, Classificatio
     return jochreSession;
   }
 
+  /**
+   * An unmodifiable list made up of the elements of an existing list, as they
+   * were when this list was created, followed by one additional element. The
+   * last elements are reached in constant time, and the first elements in time
+   * proportional to their distance from the end.
+   */
+  private static final class ExtendedList<E> extends AbstractList<E> {
+    private final List<E> head;
+    private final int headSize;
+    private final E last;
+
+    public ExtendedList(List<E> head, E last) {
+      this.head = head;
+      this.headSize = head.size();
+      this.last = last;
+    }
+
+    @Override
+    public E get(int index) {
+      if (index < 0 || index > headSize)
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size());
+      List<E> list = this;
+      while (list instanceof ExtendedList) {
+        ExtendedList<E> extendedList = (ExtendedList<E>) list;
+        if (index == extendedList.headSize)
+          return extendedList.last;
+        list = extendedList.head;
+      }
+      return list.get(index);
+    }
+
+    @Override
+    public int size() {
+      return headSize + 1;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+      // gather the elements in a single pass rather than one get per element
+      @SuppressWarnings("unchecked")
+      E[] elements = (E[]) new Object[this.size()];
+      List<E> list = this;
+      int i = elements.length - 1;
+      while (list instanceof ExtendedList) {
+        ExtendedList<E> extendedList = (ExtendedList<E>) list;
+        elements[i--] = extendedList.last;
+        list = extendedList.head;
+      }
+      for (; i >= 0; i--)
+        elements[i] = list.get(i);
+      return Collections.unmodifiableList(Arrays.asList(elements)).iterator();
+    }
+  }
 }
@@ -27,5 +27,9 @@ import com.joliciel.talismane.machineLearning.features.AbstractCachableFeature;
  *
  */
 public abstract class AbstractLetterFeature<Y> extends AbstractCachableFeature<LetterGuesserContext,Y> implements LetterFeature<Y> {
-  
+
+  @Override
+  public boolean isHistoryDependent() {
+    return false;
+  }
 }
\ No newline at end of file
@@ -34,4 +34,11 @@ public interface LetterFeature<Y> extends Feature<LetterGuesserContext,Y> {
    * Check the feature on this shape and return the result.
    */
   public FeatureResult<Y> check(LetterGuesserContext context, RuntimeEnvironment env);
+
+  /**
+   * Does this feature's result depend on the letters guessed for the preceding
+   * shapes? If not, it only depends on the shape and its position in the
+   * sequence, and can be calculated once for all histories.
+   */
+  public boolean isHistoryDependent();
 }
@@ -19,6 +19,7 @@
 package com.joliciel.jochre.letterGuesser.features;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
@@ -48,6 +49,7 @@ public class LetterFeatureParser extends AbstractFeatureParser<LetterGuesserCont
 
   private final ShapeFeatureParser shapeFeatureParser;
   private final ShapeInSequenceFeatureParser shapeInSequenceFeatureParser;
+  private final Set<String> historyDependentNames = new HashSet<>();
 
   public LetterFeatureParser() {
     super();
@@ -81,6 +83,10 @@ public class LetterFeatureParser extends AbstractFeatureParser<LetterGuesserCont
 
   @SuppressWarnings({ "unchecked", "rawtypes" })
   public List<LetterFeature<?>> parseDescriptor(FunctionDescriptor functionDescriptor) {
+    boolean historyDependent = this.isHistoryDependent(functionDescriptor);
+    if (historyDependent && functionDescriptor.getDescriptorName() != null)
+      historyDependentNames.add(functionDescriptor.getDescriptorName());
+
     List<Feature<LetterGuesserContext, ?>> letterFeatures = this.parse(functionDescriptor);
     List<LetterFeature<?>> wrappedFeatures = new ArrayList<LetterFeature<?>>();
     for (Feature<LetterGuesserContext, ?> letterFeature : letterFeatures) {
@@ -98,11 +104,30 @@ public class LetterFeatureParser extends AbstractFeatureParser<LetterGuesserCont
       } else {
         wrappedFeature = new LetterFeatureWrapper(letterFeature);
       }
+      if (historyDependent && wrappedFeature instanceof LetterFeatureWrapper)
+        ((LetterFeatureWrapper) wrappedFeature).setHistoryDependent(true);
       wrappedFeatures.add(wrappedFeature);
     }
     return wrappedFeatures;
   }
 
+  /**
+   * A descriptor depends on the history if it refers, directly or through a
+   * named feature defined earlier, to an Ngram feature.
+   */
+  private boolean isHistoryDependent(FunctionDescriptor functionDescriptor) {
+    if (functionDescriptor.isFunction()) {
+      String functionName = functionDescriptor.getFunctionName();
+      if ("Ngram".equals(functionName) || historyDependentNames.contains(functionName))
+        return true;
+    }
+    for (FunctionDescriptor argument : functionDescriptor.getArguments()) {
+      if (this.isHistoryDependent(argument))
+        return true;
+    }
+    return false;
+  }
+
   @Override
   public List<FunctionDescriptor> getModifiedDescriptors(FunctionDescriptor functionDescriptor) {
     List<FunctionDescriptor> modifiedDescriptors = this.shapeFeatureParser.getModifiedDescriptors(functionDescriptor);
@@ -114,6 +139,7 @@ public class LetterFeatureParser extends AbstractFeatureParser<LetterGuesserCont
   private static class LetterFeatureWrapper<T> extends AbstractFeature<LetterGuesserContext, T>
       implements LetterFeature<T>, FeatureWrapper<LetterGuesserContext, T> {
     private Feature<LetterGuesserContext, T> wrappedFeature = null;
+    private boolean historyDependent = false;
 
     public LetterFeatureWrapper(Feature<LetterGuesserContext, T> wrappedFeature) {
       super();
@@ -121,6 +147,15 @@ public class LetterFeatureParser extends AbstractFeatureParser<LetterGuesserCont
       this.setName(wrappedFeature.getName());
     }
 
+    @Override
+    public boolean isHistoryDependent() {
+      return historyDependent;
+    }
+
+    void setHistoryDependent(boolean historyDependent) {
+      this.historyDependent = historyDependent;
+    }
+
     @Override
     public FeatureResult<T> check(LetterGuesserContext context, RuntimeEnvironment env) {
       return wrappedFeature.check(context, env);
@@ -17,6 +17,11 @@ public class NgramFeature extends AbstractLetterFeature<String> implements Strin
     this.nFeature = nFeature;
     this.setName(super.getName() + "(" + this.nFeature.getName() + ")");
   }
+
+  @Override
+  public boolean isHistoryDependent() {
+    return true;
+  }
   
   @Override
   public FeatureResult<String> checkInternal(LetterGuesserContext context, RuntimeEnvironment env) {
@@ -0,0 +1,355 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.lexicon;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.joliciel.jochre.utils.JochreException;
+
+/**
+ * An immutable lexicon compiled into a single file, which is memory-mapped
+ * rather than deserialized. The words are stored as UTF-8 keys in byte order,
+ * each with its frequency, and are found through an open-addressing hash table
+ * of key ordinals, all read directly from the mapped file. Each slot of the
+ * table also holds the key's {@link String#hashCode()}, so that most keys which
+ * are not the word being looked up are skipped without comparing any bytes.
+ * Nothing but the header is held on the heap, and the mapped pages are shared
+ * by all processes reading the same file.<br>
+ * <br>
+ * The upper-case variants added by {@link DefaultLexiconWrapper} for a given
+ * locale are computed when the lexicon is compiled, and stored as additional
+ * keys, so that the wrapper doesn't need to compute them at startup.<br>
+ * <br>
+ * A compiled lexicon is written by {@link #write(Lexicon, Locale, File)}, e.g.
+ * by the serializeLexicon command.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public class CompiledLexicon implements Lexicon {
+  private static final Logger LOG = LoggerFactory.getLogger(CompiledLexicon.class);
+  private static final int MAGIC = 0x4A4C4558; // "JLEX"
+  private static final int VERSION = 1;
+
+  private static final byte WORD = 1;
+  private static final byte UPPER_CASE_VARIANT = 2;
+
+  /**
+   * The file extension by which compiled lexicons are recognised.
+   */
+  public static final String EXTENSION = ".lex";
+
+  private static final Comparator<byte[]> UNSIGNED_BYTE_ORDER = new Comparator<byte[]>() {
+    @Override
+    public int compare(byte[] a, byte[] b) {
+      int length = Math.min(a.length, b.length);
+      for (int i = 0; i < length; i++) {
+        int diff = (a[i] & 0xff) - (b[i] & 0xff);
+        if (diff != 0)
+          return diff;
+      }
+      return a.length - b.length;
+    }
+  };
+
+  private final ByteBuffer buffer;
+  private final Locale locale;
+  private final int entryCount;
+  private final int wordCount;
+  private final int slotCount;
+  private final int offsetsStart;
+  private final int frequenciesStart;
+  private final int flagsStart;
+  private final int slotsStart;
+  private final int keysStart;
+
+  private CompiledLexicon(ByteBuffer buffer) {
+    this.buffer = buffer;
+    int pos = 0;
+    if (buffer.getInt(pos) != MAGIC)
+      throw new JochreException("Not a compiled lexicon");
+    pos += 4;
+    int version = buffer.getInt(pos);
+    if (version != VERSION)
+      throw new JochreException("Unsupported compiled lexicon version: " + version);
+    pos += 4;
+    int localeLength = buffer.getInt(pos);
+    pos += 4;
+    byte[] localeBytes = new byte[localeLength];
+    for (int i = 0; i < localeLength; i++)
+      localeBytes[i] = buffer.get(pos++);
+    this.locale = Locale.forLanguageTag(new String(localeBytes, StandardCharsets.UTF_8));
+    this.entryCount = buffer.getInt(pos);
+    pos += 4;
+    this.wordCount = buffer.getInt(pos);
+    pos += 4;
+    this.slotCount = buffer.getInt(pos);
+    pos += 4;
+    this.offsetsStart = pos;
+    this.frequenciesStart = offsetsStart + (entryCount + 1) * 4;
+    this.flagsStart = frequenciesStart + entryCount * 4;
+    this.slotsStart = flagsStart + entryCount;
+    this.keysStart = slotsStart + slotCount * 8;
+  }
+
+  /**
+   * Open a compiled lexicon file written by
+   * {@link #write(Lexicon, Locale, File)}.
+   */
+  public static CompiledLexicon open(File lexiconFile) {
+    try (RandomAccessFile file = new RandomAccessFile(lexiconFile, "r"); FileChannel channel = file.getChannel()) {
+      // the mapping remains valid after the channel is closed
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      CompiledLexicon lexicon = new CompiledLexicon(buffer);
+      if (LOG.isDebugEnabled())
+        LOG.debug("Opened lexicon " + lexiconFile.getAbsolutePath() + " with " + lexicon.wordCount + " words and "
+            + (lexicon.entryCount - lexicon.wordCount) + " other upper-case variants for locale "
+            + lexicon.locale.toLanguageTag());
+      return lexicon;
+    } catch (IOException e) {
+      LOG.error("Failed to open lexicon " + lexiconFile.getAbsolutePath(), e);
+      throw new JochreException(e);
+    }
+  }
+
+  /**
+   * Compile a lexicon, including the upper-case variants of its words for the
+   * locale provided, and write it to the file provided, replacing any existing
+   * file.
+   */
+  public static void write(Lexicon lexicon, Locale locale, File outFile) {
+    Map<String, Integer> frequencies = new HashMap<>();
+    Set<String> variants = new HashSet<>();
+    Iterator<String> words = lexicon.getWords();
+    while (words.hasNext()) {
+      String word = words.next();
+      frequencies.put(word, lexicon.getFrequency(word));
+      DefaultLexiconWrapper.addUpperCaseVariants(word, locale, variants);
+    }
+
+    // keys are stored in UTF-8 byte order
+    TreeMap<byte[], String> sortedKeys = new TreeMap<>(UNSIGNED_BYTE_ORDER);
+    for (String word : frequencies.keySet())
+      sortedKeys.put(word.getBytes(StandardCharsets.UTF_8), word);
+    for (String variant : variants)
+      sortedKeys.put(variant.getBytes(StandardCharsets.UTF_8), variant);
+    List<byte[]> keys = new ArrayList<>(sortedKeys.keySet());
+    List<String> keyStrings = new ArrayList<>(sortedKeys.values());
+
+    int entryCount = keys.size();
+    // a load factor of 2/3, leaving at least one empty slot to end each probe
+    int slotCount = entryCount + entryCount / 2 + 1;
+    int[] slotHashes = new int[slotCount];
+    int[] slotOrds = new int[slotCount];
+    for (int ord = 0; ord < entryCount; ord++) {
+      int hash = keyStrings.get(ord).hashCode();
+      int slot = getSlot(hash, slotCount);
+      while (slotOrds[slot] != 0)
+        slot = slot + 1 == slotCount ? 0 : slot + 1;
+      slotHashes[slot] = hash;
+      slotOrds[slot] = ord + 1;
+    }
+
+    File parentFile = outFile.getAbsoluteFile().getParentFile();
+    parentFile.mkdirs();
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outFile)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      byte[] localeBytes = locale.toLanguageTag().getBytes(StandardCharsets.UTF_8);
+      out.writeInt(localeBytes.length);
+      out.write(localeBytes);
+      out.writeInt(entryCount);
+      out.writeInt(frequencies.size());
+      out.writeInt(slotCount);
+
+      int offset = 0;
+      for (byte[] key : keys) {
+        out.writeInt(offset);
+        offset += key.length;
+      }
+      out.writeInt(offset);
+
+      for (String key : keyStrings) {
+        Integer frequency = frequencies.get(key);
+        out.writeInt(frequency == null ? 0 : frequency.intValue());
+      }
+      for (String key : keyStrings) {
+        byte flags = 0;
+        if (frequencies.containsKey(key))
+          flags |= WORD;
+        if (variants.contains(key))
+          flags |= UPPER_CASE_VARIANT;
+        out.writeByte(flags);
+      }
+
+      for (int slot = 0; slot < slotCount; slot++) {
+        out.writeInt(slotHashes[slot]);
+        out.writeInt(slotOrds[slot]);
+      }
+      for (byte[] key : keys)
+        out.write(key);
+    } catch (IOException e) {
+      LOG.error("Failed to write lexicon to " + outFile.getAbsolutePath(), e);
+      throw new JochreException(e);
+    }
+    LOG.info("Wrote lexicon with " + frequencies.size() + " words and " + (entryCount - frequencies.size())
+        + " other upper-case variants to " + outFile.getAbsolutePath());
+  }
+
+  /**
+   * The first slot to probe for a string's hash code. The hash code is mixed
+   * so that all of its bits count, and then mapped onto the slots by
+   * multiplication rather than by a modulo.
+   */
+  private static int getSlot(int hash, int slotCount) {
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    return (int) (((hash & 0xffffffffL) * slotCount) >>> 32);
+  }
+
+  /**
+   * The ordinal of a given key, or -1 if it isn't in this lexicon.
+   */
+  private int find(String word) {
+    // the hash code is cached by the string, and so is only calculated once
+    // for all of the lexicons merged
+    int hash = word.hashCode();
+    byte[] key = null;
+    int slot = getSlot(hash, slotCount);
+    while (true) {
+      int pos = slotsStart + slot * 8;
+      int ord = buffer.getInt(pos + 4) - 1;
+      if (ord < 0)
+        return -1;
+      if (buffer.getInt(pos) == hash) {
+        if (key == null)
+          key = word.getBytes(StandardCharsets.UTF_8);
+        if (this.keyEquals(ord, key))
+          return ord;
+      }
+      slot = slot + 1 == slotCount ? 0 : slot + 1;
+    }
+  }
+
+  private boolean keyEquals(int ord, byte[] key) {
+    int start = buffer.getInt(offsetsStart + ord * 4);
+    int end = buffer.getInt(offsetsStart + (ord + 1) * 4);
+    if (end - start != key.length)
+      return false;
+    int pos = keysStart + start;
+    for (int i = 0; i < key.length; i++) {
+      if (buffer.get(pos + i) != key[i])
+        return false;
+    }
+    return true;
+  }
+
+  private String getKey(int ord) {
+    int start = buffer.getInt(offsetsStart + ord * 4);
+    int end = buffer.getInt(offsetsStart + (ord + 1) * 4);
+    byte[] key = new byte[end - start];
+    int pos = keysStart + start;
+    for (int i = 0; i < key.length; i++)
+      key[i] = buffer.get(pos + i);
+    return new String(key, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public int getFrequency(String word) {
+    int ord = this.find(word);
+    if (ord < 0)
+      return 0;
+    return buffer.getInt(frequenciesStart + ord * 4);
+  }
+
+  /**
+   * Is this word an upper-case variant of a word in this lexicon, as defined
+   * by {@link DefaultLexiconWrapper} for this lexicon's locale.
+   */
+  public boolean isUpperCaseVariant(String word) {
+    int ord = this.find(word);
+    return ord >= 0 && (buffer.get(flagsStart + ord) & UPPER_CASE_VARIANT) != 0;
+  }
+
+  /**
+   * The locale for which upper-case variants were computed.
+   */
+  public Locale getLocale() {
+    return locale;
+  }
+
+  /**
+   * The number of words in this lexicon, not including upper-case variants
+   * which are not words in their own right.
+   */
+  public int getWordCount() {
+    return wordCount;
+  }
+
+  @Override
+  public Iterator<String> getWords() {
+    return new Iterator<String>() {
+      int ord = this.findWord(0);
+
+      private int findWord(int from) {
+        int i = from;
+        while (i < entryCount && (buffer.get(flagsStart + i) & WORD) == 0)
+          i++;
+        return i;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return ord < entryCount;
+      }
+
+      @Override
+      public String next() {
+        if (!this.hasNext())
+          throw new NoSuchElementException();
+        String word = getKey(ord);
+        ord = this.findWord(ord + 1);
+        return word;
+      }
+    };
+  }
+}
@@ -20,17 +20,22 @@ package com.joliciel.jochre.lexicon;
 
 import java.text.Normalizer;
 import java.text.Normalizer.Form;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * For each word in the lexicon, adds variants with an initial uppercase and all
- * upper-case.
+ * upper-case. For {@link CompiledLexicon}s compiled for the same locale, the
+ * variants stored in the lexicon are used instead.
  * 
  * @author Assaf Urieli
  *
@@ -38,29 +43,49 @@ import org.slf4j.LoggerFactory;
 public class DefaultLexiconWrapper implements Lexicon {
   @SuppressWarnings("unused")
   private static final Logger LOG = LoggerFactory.getLogger(DefaultLexiconWrapper.class);
+  private static final Pattern COMBINING_DIACRITICAL_MARKS = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
   private final Lexicon baseLexicon;
   private final Set<String> upperCaseLexicon = new HashSet<String>();
+  private final List<CompiledLexicon> compiledLexicons = new ArrayList<>();
   private final Locale locale;
 
   public DefaultLexiconWrapper(Lexicon baseLexicon, Locale locale) {
     this.locale = locale;
     this.baseLexicon = baseLexicon;
-    Iterator<String> words = baseLexicon.getWords();
-    while (words.hasNext()) {
-      String word = words.next();
-      if (word.length() > 0) {
-        String firstLetter = word.substring(0, 1);
-
-        if (word.length() == 1)
-          upperCaseLexicon.add(this.toUpperCaseNoAccents(firstLetter));
-        else
-          upperCaseLexicon.add(this.toUpperCaseNoAccents(firstLetter) + word.substring(1));
-
-        upperCaseLexicon.add(this.toUpperCaseNoAccents(word));
+    this.addUpperCaseVariants(baseLexicon);
+  }
+
+  private void addUpperCaseVariants(Lexicon lexicon) {
+    if (lexicon instanceof LexiconMerger) {
+      for (Lexicon oneLexicon : ((LexiconMerger) lexicon).getLexicons())
+        this.addUpperCaseVariants(oneLexicon);
+    } else if (lexicon instanceof CompiledLexicon && ((CompiledLexicon) lexicon).getLocale().equals(locale)) {
+      compiledLexicons.add((CompiledLexicon) lexicon);
+    } else {
+      Iterator<String> words = lexicon.getWords();
+      while (words.hasNext()) {
+        addUpperCaseVariants(words.next(), locale, upperCaseLexicon);
       }
     }
   }
 
+  /**
+   * Add the variants of a word with an initial uppercase and all upper-case to
+   * a collection.
+   */
+  static void addUpperCaseVariants(String word, Locale locale, Collection<String> variants) {
+    if (word.length() > 0) {
+      String firstLetter = word.substring(0, 1);
+
+      if (word.length() == 1)
+        variants.add(toUpperCaseNoAccents(firstLetter, locale));
+      else
+        variants.add(toUpperCaseNoAccents(firstLetter, locale) + word.substring(1));
+
+      variants.add(toUpperCaseNoAccents(word, locale));
+    }
+  }
+
   @Override
   public int getFrequency(String word) {
     int frequency = baseLexicon.getFrequency(word);
@@ -70,14 +95,23 @@ public class DefaultLexiconWrapper implements Lexicon {
     if (upperCaseLexicon.contains(word))
       return 1;
 
+    for (CompiledLexicon compiledLexicon : compiledLexicons) {
+      if (compiledLexicon.isUpperCaseVariant(word))
+        return 1;
+    }
+
     return 0;
   }
 
   String toUpperCaseNoAccents(String string) {
+    return toUpperCaseNoAccents(string, locale);
+  }
+
+  static String toUpperCaseNoAccents(String string, Locale locale) {
     // decompose accents
     String decomposed = Normalizer.normalize(string, Form.NFD);
     // removing diacritics
-    String removed = decomposed.replaceAll("\\p{InCombiningDiacriticalMarks}+", "");
+    String removed = COMBINING_DIACRITICAL_MARKS.matcher(decomposed).replaceAll("");
 
     String uppercase = removed.toUpperCase(locale);
     return uppercase;
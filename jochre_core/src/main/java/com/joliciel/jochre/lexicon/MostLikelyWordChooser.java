@@ -27,6 +27,7 @@ import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,7 +52,7 @@ public class MostLikelyWordChooser {
   private double frequencyLogBase;
   private boolean frequencyAdjusted;
 
-  private final Map<Integer, Double> frequencyLogs = new HashMap<>();
+  private final Map<Integer, Double> frequencyLogs = new ConcurrentHashMap<>();
   private final Linguistics linguistics;
   private Set<String> midWordPunctuation = new HashSet<>();
   private Set<String> startWordPunctuation = new HashSet<>();
@@ -422,7 +423,9 @@ public class MostLikelyWordChooser {
       for (LetterSequence subsequence : possibility) {
         String word = subsequence.getGuessedWord();
         int freq = 0;
-        List<CountedOutcome<String>> frequencies = this.linguistics.getFrequencies(word);
+        // the list is shared by the session's frequency cache: copy it before
+        // adding anything
+        List<CountedOutcome<String>> frequencies = new ArrayList<>(this.linguistics.getFrequencies(word));
 
         if (frequencies.size() == 0) {
           // check whether word is impossible
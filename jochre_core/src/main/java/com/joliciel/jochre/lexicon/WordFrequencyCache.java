@@ -0,0 +1,135 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.lexicon;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import com.joliciel.talismane.utils.CountedOutcome;
+
+/**
+ * A session-wide cache of the frequencies found in the lexicon for a given
+ * word, as returned by
+ * {@link com.joliciel.jochre.lang.Linguistics#getFrequencies(String)}. The same
+ * words are looked up repeatedly for every letter sequence in the beam, and
+ * again throughout a page and a document, whereas finding their variants and
+ * looking each of them up in the lexicon is relatively costly.<br>
+ * The cache holds at most a given number of words, evicting the least recently
+ * used words first. It can be shared by several threads analysing pages
+ * concurrently. The lists returned are unmodifiable.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public class WordFrequencyCache {
+  private final int maxWords;
+  private final Map<String, List<CountedOutcome<String>>> cache;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * @param maxWords
+   *          the maximum number of words whose frequencies are cached. If 0,
+   *          frequencies are never cached.
+   */
+  public WordFrequencyCache(final int maxWords) {
+    this.maxWords = maxWords;
+    this.cache = new LinkedHashMap<String, List<CountedOutcome<String>>>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, List<CountedOutcome<String>>> eldest) {
+        return this.size() > maxWords;
+      }
+    };
+  }
+
+  /**
+   * Return the frequencies cached for this word, or, if none are cached, the
+   * frequencies found by the lookup provided, caching them for further calls.
+   * The lookup is performed outside of any lock, so that two threads missing
+   * the same word at the same time may both perform it.
+   */
+  public List<CountedOutcome<String>> getFrequencies(String word, Function<String, List<CountedOutcome<String>>> lookup) {
+    if (maxWords > 0) {
+      List<CountedOutcome<String>> frequencies;
+      synchronized (cache) {
+        frequencies = cache.get(word);
+      }
+      if (frequencies != null) {
+        hits.incrementAndGet();
+        return frequencies;
+      }
+    }
+
+    misses.incrementAndGet();
+    List<CountedOutcome<String>> frequencies = Collections.unmodifiableList(lookup.apply(word));
+    if (maxWords > 0) {
+      synchronized (cache) {
+        cache.put(word, frequencies);
+      }
+    }
+    return frequencies;
+  }
+
+  /**
+   * The number of lookups answered from the cache.
+   */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * The number of lookups which had to be performed in the lexicon.
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * The proportion of lookups answered from the cache, between 0 and 1.
+   */
+  public double getHitRate() {
+    long hits = this.hits.get();
+    long total = hits + this.misses.get();
+    return total == 0 ? 0.0 : (double) hits / total;
+  }
+
+  /**
+   * The number of words whose frequencies are currently cached.
+   */
+  public int size() {
+    synchronized (cache) {
+      return cache.size();
+    }
+  }
+
+  /**
+   * Remove all cached frequencies, e.g. after the lexicon has changed.
+   */
+  public void clear() {
+    synchronized (cache) {
+      cache.clear();
+    }
+  }
+}
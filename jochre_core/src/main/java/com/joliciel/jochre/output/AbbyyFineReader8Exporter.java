@@ -96,7 +96,9 @@ public class AbbyyFineReader8Exporter extends AbstractExporter implements Docume
   public void onPageStart(JochrePage jochrePage) {
     try {
       if (firstPage) {
-        if (jochrePage.getIndex() > 1) {
+        // when appending, the placeholders for earlier pages have already been
+        // written
+        if (jochrePage.getIndex() > 1 && !this.isAppend()) {
           for (int i = 1; i < jochrePage.getIndex(); i++) {
             writer.write("<page/>\n");
           }
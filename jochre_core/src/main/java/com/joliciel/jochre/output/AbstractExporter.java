@@ -7,17 +7,19 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.joliciel.jochre.doc.DocumentObserver;
 import com.joliciel.jochre.doc.JochreDocument;
+import com.joliciel.jochre.doc.ResumableDocumentObserver;
 
-public abstract class AbstractExporter implements DocumentObserver {
+public abstract class AbstractExporter implements ResumableDocumentObserver {
   private static final Logger LOG = LoggerFactory.getLogger(AbstractExporter.class);
   private final File outputDir;
   protected Writer writer;
@@ -26,6 +28,7 @@ public abstract class AbstractExporter implements DocumentObserver {
   private final String dateString = format.format(new Date());
   private boolean includeDate = false;
   private String baseName = null;
+  private boolean append = false;
 
   public AbstractExporter(File outputDir, String suffix) {
     this.outputDir = outputDir;
@@ -45,12 +48,12 @@ public abstract class AbstractExporter implements DocumentObserver {
         String fileName = baseName;
         if (fileName == null)
           fileName = jochreDocument.getFileBase();
-        if (includeDate)
-          fileName += "_" + dateString;
-        fileName += suffix;
-        File file = new File(outputDir, fileName);
+        File file = this.getOutputFile(fileName);
 
-        if (suffix.endsWith(".zip")) {
+        if (append) {
+          LOG.info("Appending to " + file.getPath());
+          this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), "UTF8"));
+        } else if (suffix.endsWith(".zip")) {
           ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(file, false));
           ZipEntry zipEntry = new ZipEntry("contents.txt");
           zos.putNextEntry(zipEntry);
@@ -59,13 +62,21 @@ public abstract class AbstractExporter implements DocumentObserver {
           this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, false), "UTF8"));
         }
       }
-      this.onDocumentStartInternal(jochreDocument);
+      if (!append)
+        this.onDocumentStartInternal(jochreDocument);
     } catch (IOException e) {
       LOG.error("Failed writing to " + this.getClass().getSimpleName(), e);
       throw new RuntimeException(e);
     }
   }
 
+  private File getOutputFile(String fileName) {
+    if (includeDate)
+      fileName += "_" + dateString;
+    fileName += suffix;
+    return new File(outputDir, fileName);
+  }
+
   protected abstract void onDocumentStartInternal(JochreDocument jochreDocument);
 
   @Override
@@ -86,6 +97,48 @@ public abstract class AbstractExporter implements DocumentObserver {
   public void onAnalysisComplete() {
   }
 
+  /**
+   * Output can only be resumed when it is written to a named, unzipped file in
+   * the output directory, which a later run can find and append to.
+   */
+  @Override
+  public boolean canResume() {
+    return outputDir != null && baseName != null && !includeDate && !suffix.endsWith(".zip");
+  }
+
+  @Override
+  public void resume() {
+    if (!this.canResume())
+      throw new IllegalStateException(this.getClass().getSimpleName() + " cannot be resumed");
+    this.append = true;
+  }
+
+  @Override
+  public List<File> getOutputFiles() {
+    if (!this.canResume())
+      return Collections.emptyList();
+    return Collections.singletonList(this.getOutputFile(baseName));
+  }
+
+  @Override
+  public void flush() {
+    try {
+      if (writer != null)
+        writer.flush();
+    } catch (IOException e) {
+      LOG.error("Failed writing to " + this.getClass().getSimpleName(), e);
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Is this exporter appending to the output of an earlier run, in which case
+   * the document header has already been written.
+   */
+  public boolean isAppend() {
+    return append;
+  }
+
   public boolean isIncludeDate() {
     return includeDate;
   }
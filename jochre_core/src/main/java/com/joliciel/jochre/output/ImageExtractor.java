@@ -2,18 +2,20 @@ package com.joliciel.jochre.output;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 
 import javax.imageio.ImageIO;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.joliciel.jochre.doc.DocumentObserver;
 import com.joliciel.jochre.doc.JochreDocument;
 import com.joliciel.jochre.doc.JochrePage;
+import com.joliciel.jochre.doc.ResumableDocumentObserver;
 import com.joliciel.jochre.graphics.JochreImage;
 
-public class ImageExtractor implements DocumentObserver {
+public class ImageExtractor implements ResumableDocumentObserver {
   private static final Logger LOG = LoggerFactory.getLogger(ImageExtractor.class);
   private static String SUFFIX = "png";
   private File outDir;
@@ -68,4 +70,25 @@ public class ImageExtractor implements DocumentObserver {
   public void onAnalysisComplete() {
   }
   
+  /**
+   * Each image is written to its own file, so there is nothing to restore.
+   */
+  @Override
+  public boolean canResume() {
+    return true;
+  }
+
+  @Override
+  public void resume() {
+  }
+
+  @Override
+  public List<File> getOutputFiles() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public void flush() {
+  }
+  
 }
@@ -6,17 +6,19 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map.Entry;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.joliciel.jochre.doc.DocumentObserver;
 import com.joliciel.jochre.doc.JochreDocument;
 import com.joliciel.jochre.doc.JochrePage;
+import com.joliciel.jochre.doc.ResumableDocumentObserver;
 import com.joliciel.jochre.graphics.JochreImage;
 
-public class MetaDataExporter implements DocumentObserver {
+public class MetaDataExporter implements ResumableDocumentObserver {
   private static final Logger LOG = LoggerFactory.getLogger(MetaDataExporter.class);
 
   private File outDir;
@@ -68,4 +70,26 @@ public class MetaDataExporter implements DocumentObserver {
   public void onAnalysisComplete() {
   }
   
+  /**
+   * Metadata is only written when the document is complete, so there is nothing
+   * to restore.
+   */
+  @Override
+  public boolean canResume() {
+    return true;
+  }
+
+  @Override
+  public void resume() {
+  }
+
+  @Override
+  public List<File> getOutputFiles() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public void flush() {
+  }
+  
 }
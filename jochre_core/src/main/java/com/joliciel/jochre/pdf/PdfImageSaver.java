@@ -30,6 +30,8 @@ import org.slf4j.LoggerFactory;
 
 import com.joliciel.jochre.utils.JochreException;
 import com.joliciel.jochre.utils.pdf.AbstractPdfImageVisitor;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
 
 /**
  * Saves a set of images extracted from a pdf document.
@@ -54,7 +56,15 @@ public class PdfImageSaver extends AbstractPdfImageVisitor {
    *          Pages to process, empty set means all pages
    */
   public PdfImageSaver(File pdfFile, String outputDirectory, Set<Integer> pages) {
-    super(pdfFile);
+    this(pdfFile, outputDirectory, pages, ConfigFactory.load());
+  }
+
+  /**
+   * Same as {@link #PdfImageSaver(File, String, Set)}, reading pdf memory
+   * settings from the configuration provided.
+   */
+  public PdfImageSaver(File pdfFile, String outputDirectory, Set<Integer> pages, Config config) {
+    super(pdfFile, config);
     // Create the output directory if it doesn't exist
     this.outputDir = new File(outputDirectory);
 
@@ -15,6 +15,7 @@ import com.joliciel.jochre.utils.pdf.AbstractPdfImageVisitor;
 import com.joliciel.talismane.utils.Monitorable;
 import com.joliciel.talismane.utils.MultiTaskProgressMonitor;
 import com.joliciel.talismane.utils.ProgressMonitor;
+import com.typesafe.config.Config;
 
 /**
  * Visits a set of images from a pdf document, and returns them as a
@@ -43,6 +44,16 @@ public class PdfImageVisitor extends AbstractPdfImageVisitor implements Runnable
     this.pages = pages;
   }
 
+  /**
+   * Same as {@link #PdfImageVisitor(File, Set, SourceFileProcessor)}, reading
+   * pdf memory settings from the configuration provided.
+   */
+  public PdfImageVisitor(File pdfFile, Set<Integer> pages, SourceFileProcessor documentProcessor, Config config) {
+    super(pdfFile, config);
+    this.documentProcessor = documentProcessor;
+    this.pages = pages;
+  }
+
   @Override
   public void run() {
     this.visitImages();
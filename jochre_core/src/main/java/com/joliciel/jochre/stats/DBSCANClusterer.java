@@ -22,14 +22,19 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.Stack;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
 /**
  * Performs clustering on a dataset using the DBSCAN algorithm,
- * and the Euclidean distance between coordinates corresponding to each object.
+ * and the Euclidean distance between coordinates corresponding to each object.<br>
+ * Neighbours are found using a grid of cells with sides of length epsilon over
+ * the first two dimensions, so that only the points in the adjacent cells need
+ * to be compared, rather than the full dataset.
  * 
  * @author Assaf Urieli
  *
@@ -41,6 +46,9 @@ public class DBSCANClusterer<T> {
   List<double[]> dataSet;
   boolean[] visited;
   List<Set<T>> clusterList;
+  boolean useSpatialIndex = true;
+  private TLongObjectHashMap<TIntArrayList> grid;
+  private double cellSize;
   
   public DBSCANClusterer(List<T> objectSet, List<double[]> dataSet) {
     if (objectSet.size()!=dataSet.size())
@@ -69,6 +77,7 @@ public class DBSCANClusterer<T> {
     this.clusterList = new ArrayList<Set<T>>(dataSet.size());
     for (int i = 0; i < dataSet.size(); i++)
       this.clusterList.add(null);
+    this.buildGrid(epsilon);
     
     Set<T> cluster = null;
     
@@ -76,7 +85,7 @@ public class DBSCANClusterer<T> {
       if (visited[index])
         continue;
       visited[index] = true;
-      Set<Integer> neighbours = this.getNeighbours(index, epsilon);
+      TIntArrayList neighbours = this.getNeighbours(index, epsilon);
       if (neighbours.size()<minPoints - 1)
         noise.add(objectSet.get(index));
       else {
@@ -85,6 +94,7 @@ public class DBSCANClusterer<T> {
         clusters.add(cluster);
       }
     }
+    this.grid = null;
     LOG.debug("Found " + clusters.size() + " clusters"); 
     LOG.debug("Found " + noise.size() + " noise"); 
     if (includeNoise) {
@@ -98,7 +108,7 @@ public class DBSCANClusterer<T> {
     return clusters;
   }
 
-  private void expandCluster(int index, Set<Integer> neighbours,
+  private void expandCluster(int index, TIntArrayList neighbours,
       Set<T> cluster, double epsilon, int minPoints) {
     /*
     expandCluster(P, N, C, eps, MinPts)
@@ -114,14 +124,14 @@ public class DBSCANClusterer<T> {
     */
     cluster.add(objectSet.get(index));
     clusterList.set(index, cluster);
-    Stack<Integer> points = new Stack<Integer>();
-    points.addAll(neighbours);
+    // used as a stack
+    TIntArrayList points = new TIntArrayList(neighbours);
     
     while (!points.isEmpty()) {
-      int i = points.pop();
+      int i = points.removeAt(points.size() - 1);
       if (!visited[i]) {
         visited[i] = true;
-        Set<Integer> nPrime = this.getNeighbours(i, epsilon);
+        TIntArrayList nPrime = this.getNeighbours(i, epsilon);
         if (nPrime.size()>=minPoints-1) {
           points.addAll(nPrime);
         }
@@ -133,26 +143,79 @@ public class DBSCANClusterer<T> {
     }
   }
 
+  /**
+   * Place each point in a grid cell whose sides are epsilon long, so that all
+   * neighbours of a point are in its own cell or in an adjacent one.
+   */
+  private void buildGrid(double epsilon) {
+    this.grid = null;
+    if (!useSpatialIndex || !(epsilon > 0) || dataSet.isEmpty())
+      return;
+    // slightly larger than epsilon, so that rounding can never place two
+    // neighbours more than one cell apart
+    this.cellSize = epsilon * (1 + 1e-9);
+    this.grid = new TLongObjectHashMap<TIntArrayList>();
+    for (int i = 0; i < dataSet.size(); i++) {
+      double[] point = dataSet.get(i);
+      long key = this.getCellKey(this.getCell(point, 0), this.getCell(point, 1));
+      TIntArrayList cell = grid.get(key);
+      if (cell == null) {
+        cell = new TIntArrayList();
+        grid.put(key, cell);
+      }
+      cell.add(i);
+    }
+  }
+
+  private int getCell(double[] point, int dimension) {
+    if (dimension >= point.length)
+      return 0;
+    return (int) Math.floor(point[dimension] / cellSize);
+  }
+
+  private long getCellKey(int cellX, int cellY) {
+    return (((long) cellX) << 32) | (cellY & 0xffffffffL);
+  }
+
   /**
    * Get neighbours based on Euclidean distance.
    */
-  Set<Integer> getNeighbours(int i, double epsilon) {
-    Set<Integer> neighbours = new HashSet<Integer>();
+  TIntArrayList getNeighbours(int i, double epsilon) {
+    TIntArrayList neighbours = new TIntArrayList();
     double[] point = dataSet.get(i);
-    int dimensions = point.length;
-    for (int j = 0; j < dataSet.size(); j++) {
-      if (i!=j) {
-        double[] otherPoint = dataSet.get(j);
-        double sum = 0.0;
-        for (int n = 0; n < dimensions; n++) {
-          double diff = point[n]-otherPoint[n];
-          sum += (diff * diff);
-        }
-        double distance = Math.sqrt(sum);
-        if (distance <= epsilon)
+    if (grid == null) {
+      for (int j = 0; j < dataSet.size(); j++) {
+        if (i!=j && this.isNeighbour(point, dataSet.get(j), epsilon))
           neighbours.add(j);
       }
+    } else {
+      int cellX = this.getCell(point, 0);
+      int cellY = this.getCell(point, 1);
+      int yRange = point.length > 1 ? 1 : 0;
+      for (int x = cellX - 1; x <= cellX + 1; x++) {
+        for (int y = cellY - yRange; y <= cellY + yRange; y++) {
+          TIntArrayList cell = grid.get(this.getCellKey(x, y));
+          if (cell == null)
+            continue;
+          for (int k = 0; k < cell.size(); k++) {
+            int j = cell.getQuick(k);
+            if (i!=j && this.isNeighbour(point, dataSet.get(j), epsilon))
+              neighbours.add(j);
+          }
+        }
+      }
     }
     return neighbours;
   }
+
+  private boolean isNeighbour(double[] point, double[] otherPoint, double epsilon) {
+    int dimensions = point.length;
+    double sum = 0.0;
+    for (int n = 0; n < dimensions; n++) {
+      double diff = point[n]-otherPoint[n];
+      sum += (diff * diff);
+    }
+    double distance = Math.sqrt(sum);
+    return distance <= epsilon;
+  }
 }
@@ -0,0 +1,95 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.analyser;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.joliciel.jochre.JochreSession;
+import com.joliciel.jochre.graphics.GroupOfShapes;
+import com.joliciel.jochre.graphics.ImageStatus;
+import com.joliciel.jochre.graphics.JochreImage;
+import com.joliciel.jochre.graphics.Paragraph;
+import com.joliciel.jochre.graphics.RowOfShapes;
+import com.joliciel.jochre.graphics.Shape;
+import com.joliciel.jochre.letterGuesser.LetterGuesser;
+import com.joliciel.talismane.machineLearning.ClassificationSolution;
+import com.joliciel.talismane.machineLearning.Decision;
+import com.joliciel.talismane.machineLearning.DecisionMaker;
+import com.joliciel.talismane.machineLearning.GeometricMeanScoringStrategy;
+import com.joliciel.talismane.machineLearning.ScoringStrategy;
+import com.joliciel.talismane.machineLearning.features.FeatureResult;
+import com.typesafe.config.ConfigFactory;
+
+public class BeamSearchImageAnalyserTest {
+
+  @Test
+  public void testShapeConfidence() throws Exception {
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+    JochreSession jochreSession = new JochreSession(ConfigFactory.load());
+
+    JochreImage jochreImage = new JochreImage(new BufferedImage(40, 20, BufferedImage.TYPE_BYTE_GRAY), jochreSession);
+    jochreImage.setImageStatus(ImageStatus.AUTO_NEW);
+    Paragraph paragraph = jochreImage.newParagraph();
+    RowOfShapes row = paragraph.newRow();
+    GroupOfShapes group = row.newGroup();
+    // right-to-left: the first shape is on the right
+    Shape shape1 = new Shape(jochreImage, 10, 0, 19, 9, jochreSession);
+    Shape shape2 = new Shape(jochreImage, 0, 0, 9, 9, jochreSession);
+    group.addShape(shape1);
+    group.addShape(shape2);
+    jochreImage.setShapeCount(2);
+
+    // the first shape is certain, the second one much less so
+    final LinkedList<List<Decision>> guesses = new LinkedList<>();
+    guesses.add(Arrays.asList(new Decision("a", 1.0)));
+    guesses.add(Arrays.asList(new Decision("b", 0.55), new Decision("c", 0.45)));
+    DecisionMaker decisionMaker = new DecisionMaker() {
+      @Override
+      public List<Decision> decide(List<FeatureResult<?>> featureVector) {
+        return new ArrayList<>(guesses.removeFirst());
+      }
+
+      @Override
+      public ScoringStrategy<ClassificationSolution> getDefaultScoringStrategy() {
+        return new GeometricMeanScoringStrategy();
+      }
+    };
+    LetterGuesser letterGuesser = new LetterGuesser(Collections.emptySet(), decisionMaker);
+
+    BeamSearchImageAnalyser analyser = new BeamSearchImageAnalyser(null, letterGuesser, null, jochreSession);
+    analyser.addObserver(new LetterAssigner());
+    analyser.analyse(jochreImage);
+
+    assertEquals("a", shape1.getLetter());
+    assertEquals("b", shape2.getLetter());
+    assertEquals(1.0, shape1.getConfidence(), 0.0001);
+    assertEquals(0.55, shape2.getConfidence(), 0.0001);
+    assertEquals(2, shape2.getLetterGuesses().size());
+  }
+}
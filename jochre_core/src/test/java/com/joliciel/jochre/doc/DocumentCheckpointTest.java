@@ -0,0 +1,191 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.doc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.joliciel.jochre.JochreSession;
+import com.joliciel.jochre.graphics.JochreImage;
+import com.typesafe.config.ConfigFactory;
+
+public class DocumentCheckpointTest {
+
+  private static class PageWriter implements ResumableDocumentObserver {
+    private final File outputFile;
+    private final boolean canResume;
+    private Writer writer;
+    private boolean append = false;
+
+    public PageWriter(File outputFile, boolean canResume) {
+      this.outputFile = outputFile;
+      this.canResume = canResume;
+    }
+
+    @Override
+    public void onDocumentStart(JochreDocument jochreDocument) {
+      try {
+        writer = new FileWriter(outputFile, append);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public void onPageStart(JochrePage jochrePage) {
+    }
+
+    @Override
+    public void onImageStart(JochreImage jochreImage) {
+    }
+
+    @Override
+    public void onImageComplete(JochreImage jochreImage) {
+    }
+
+    @Override
+    public void onPageComplete(JochrePage jochrePage) {
+      try {
+        writer.write("page " + jochrePage.getIndex() + "\n");
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public void onDocumentComplete(JochreDocument jochreDocument) {
+    }
+
+    @Override
+    public void onAnalysisComplete() {
+    }
+
+    @Override
+    public boolean canResume() {
+      return canResume;
+    }
+
+    @Override
+    public void resume() {
+      append = true;
+    }
+
+    @Override
+    public List<File> getOutputFiles() {
+      return Arrays.asList(outputFile);
+    }
+
+    @Override
+    public void flush() {
+      try {
+        writer.flush();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  private void analyse(JochreSession jochreSession, int pageCount, Set<Integer> pages, int failAfter,
+      List<DocumentObserver> observers) {
+    JochreDocument jochreDocument = new JochreDocument(jochreSession);
+    jochreDocument.setTotalPageCount(pageCount);
+    for (DocumentObserver observer : observers)
+      observer.onDocumentStart(jochreDocument);
+    int analysed = 0;
+    for (int i = 1; i <= pageCount; i++) {
+      if (!pages.isEmpty() && !pages.contains(i))
+        continue;
+      if (analysed++ == failAfter)
+        return;
+      JochrePage jochrePage = new JochrePage(jochreSession);
+      jochrePage.setIndex(i);
+      for (DocumentObserver observer : observers)
+        observer.onPageComplete(jochrePage);
+    }
+  }
+
+  @Test
+  public void testResumeAllPages() throws Exception {
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+    JochreSession jochreSession = new JochreSession(ConfigFactory.load());
+
+    File dir = Files.createTempDirectory("checkpoint").toFile();
+    File outputFile = new File(dir, "out.txt");
+    File checkpointFile = new File(dir, "out.checkpoint");
+
+    PageWriter pageWriter = new PageWriter(outputFile, true);
+    DocumentCheckpoint checkpoint = new DocumentCheckpoint(checkpointFile, Arrays.asList(pageWriter));
+    Set<Integer> pages = checkpoint.restore(Collections.emptySet());
+    assertTrue(pages.isEmpty());
+    List<DocumentObserver> observers = new ArrayList<>();
+    observers.add(pageWriter);
+    observers.add(checkpoint);
+    this.analyse(jochreSession, 5, pages, 3, observers);
+    assertTrue(checkpointFile.exists());
+
+    // only the pages of the document which remain are requested on resume
+    pageWriter = new PageWriter(outputFile, true);
+    checkpoint = new DocumentCheckpoint(checkpointFile, Arrays.asList(pageWriter));
+    pages = checkpoint.restore(Collections.emptySet());
+    assertEquals(new HashSet<>(Arrays.asList(4, 5)), pages);
+    observers = new ArrayList<>();
+    observers.add(pageWriter);
+    observers.add(checkpoint);
+    this.analyse(jochreSession, 5, pages, -1, observers);
+    pageWriter.writer.close();
+
+    assertEquals(Arrays.asList("page 1", "page 2", "page 3", "page 4", "page 5"),
+        Files.readAllLines(outputFile.toPath()));
+  }
+
+  @Test
+  public void testNoCheckpointWhenNotResumable() throws Exception {
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+    JochreSession jochreSession = new JochreSession(ConfigFactory.load());
+
+    File dir = Files.createTempDirectory("checkpoint").toFile();
+    File checkpointFile = new File(dir, "out.checkpoint");
+
+    PageWriter pageWriter = new PageWriter(new File(dir, "out.txt"), false);
+    DocumentCheckpoint checkpoint = new DocumentCheckpoint(checkpointFile, Arrays.asList(pageWriter));
+    List<DocumentObserver> observers = new ArrayList<>();
+    observers.add(pageWriter);
+    observers.add(checkpoint);
+    this.analyse(jochreSession, 5, Collections.emptySet(), 3, observers);
+    pageWriter.writer.close();
+    assertFalse(checkpointFile.exists());
+  }
+}
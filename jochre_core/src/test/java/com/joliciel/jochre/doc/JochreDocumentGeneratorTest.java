@@ -0,0 +1,232 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.doc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.joliciel.jochre.JochreSession;
+import com.joliciel.jochre.analyser.ImageAnalyser;
+import com.joliciel.jochre.analyser.LetterGuessObserver;
+import com.joliciel.jochre.graphics.JochreImage;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+public class JochreDocumentGeneratorTest {
+
+  /**
+   * Records the observer calls, together with the thread they were made on.
+   */
+  private static class RecordingObserver implements DocumentObserver {
+    private final List<String> events = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+
+    private void record(String event) {
+      events.add(event);
+      threads.add(Thread.currentThread());
+    }
+
+    @Override
+    public void onDocumentStart(JochreDocument jochreDocument) {
+    }
+
+    @Override
+    public void onPageStart(JochrePage jochrePage) {
+      this.record("pageStart " + jochrePage.getIndex());
+    }
+
+    @Override
+    public void onImageStart(JochreImage jochreImage) {
+      this.record("imageStart " + jochreImage.getPage().getIndex());
+    }
+
+    @Override
+    public void onImageComplete(JochreImage jochreImage) {
+    }
+
+    @Override
+    public void onPageComplete(JochrePage jochrePage) {
+      this.record("pageComplete " + jochrePage.getIndex());
+    }
+
+    @Override
+    public void onDocumentComplete(JochreDocument jochreDocument) {
+    }
+
+    @Override
+    public void onAnalysisComplete() {
+    }
+  }
+
+  /**
+   * A worker analyser which takes longer for earlier pages, so that pages
+   * finish out of order, and fails on a given page.
+   */
+  private static class SlowAnalyser implements ImageAnalyser {
+    private final int pageCount;
+    private final int failingPage;
+
+    public SlowAnalyser(int pageCount, int failingPage) {
+      this.pageCount = pageCount;
+      this.failingPage = failingPage;
+    }
+
+    @Override
+    public void onImageStart(JochreImage jochreImage) {
+      int pageIndex = jochreImage.getPage().getIndex();
+      if (pageIndex == failingPage)
+        throw new IllegalStateException("Failed on page " + pageIndex);
+      try {
+        Thread.sleep((pageCount - pageIndex) * 100);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    @Override
+    public void onDocumentStart(JochreDocument jochreDocument) {
+    }
+
+    @Override
+    public void onPageStart(JochrePage jochrePage) {
+    }
+
+    @Override
+    public void onImageComplete(JochreImage jochreImage) {
+    }
+
+    @Override
+    public void onPageComplete(JochrePage jochrePage) {
+    }
+
+    @Override
+    public void onDocumentComplete(JochreDocument jochreDocument) {
+    }
+
+    @Override
+    public void onAnalysisComplete() {
+    }
+
+    @Override
+    public void analyse(JochreImage image) {
+    }
+
+    @Override
+    public void addObserver(LetterGuessObserver letterGuessObserver) {
+    }
+
+    @Override
+    public double getMinOutcomeWeight() {
+      return 0;
+    }
+
+    @Override
+    public int getBeamWidth() {
+      return 1;
+    }
+  }
+
+  private static JochreSession getConcurrentSession() throws Exception {
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+    Config config = ConfigFactory.parseString("jochre.document-generator.thread-count = 3")
+        .withFallback(ConfigFactory.load());
+    return new JochreSession(config);
+  }
+
+  private static BufferedImage getImage() {
+    BufferedImage image = new BufferedImage(60, 40, BufferedImage.TYPE_BYTE_GRAY);
+    Graphics2D graphics = image.createGraphics();
+    graphics.setColor(Color.WHITE);
+    graphics.fillRect(0, 0, 60, 40);
+    graphics.setColor(Color.BLACK);
+    graphics.fillRect(20, 10, 10, 20);
+    graphics.dispose();
+    return image;
+  }
+
+  private static void generate(JochreDocumentGenerator generator, int pageCount) {
+    JochreDocument doc = generator.onDocumentStart();
+    for (int i = 1; i <= pageCount; i++) {
+      JochrePage page = generator.onPageStart(i);
+      generator.onImageFound(page, getImage(), "page" + i, 0);
+      generator.onPageComplete(page);
+    }
+    generator.onDocumentComplete(doc);
+    generator.onAnalysisComplete();
+  }
+
+  @Test
+  public void testPageOrder() throws Exception {
+    JochreSession jochreSession = getConcurrentSession();
+    int pageCount = 4;
+    JochreDocumentGenerator generator = new JochreDocumentGenerator("test", "test", jochreSession);
+    generator.setWorkerAnalyser(() -> new SlowAnalyser(pageCount, -1));
+    RecordingObserver observer = new RecordingObserver();
+    generator.addDocumentObserver(observer);
+
+    generate(generator, pageCount);
+
+    // later pages finish first, but are handed over in page order, on the
+    // calling thread
+    List<String> expected = new ArrayList<>();
+    for (int i = 1; i <= pageCount; i++)
+      expected.addAll(Arrays.asList("pageStart " + i, "imageStart " + i, "pageComplete " + i));
+    assertEquals(expected, observer.events);
+    assertEquals(Collections.nCopies(expected.size(), Thread.currentThread()), observer.threads);
+  }
+
+  @Test
+  public void testPageFailure() throws Exception {
+    JochreSession jochreSession = getConcurrentSession();
+    int pageCount = 4;
+    JochreDocumentGenerator generator = new JochreDocumentGenerator("test", "test", jochreSession);
+    generator.setWorkerAnalyser(() -> new SlowAnalyser(pageCount, 2));
+    RecordingObserver observer = new RecordingObserver();
+    generator.addDocumentObserver(observer);
+
+    JochreDocument doc = generator.onDocumentStart();
+    for (int i = 1; i <= pageCount; i++) {
+      JochrePage page = generator.onPageStart(i);
+      generator.onImageFound(page, getImage(), "page" + i, 0);
+      generator.onPageComplete(page);
+    }
+
+    // the failure is rethrown once the document is completed
+    try {
+      generator.onDocumentComplete(doc);
+      fail("Page failure swallowed");
+    } catch (IllegalStateException e) {
+      assertEquals("Failed on page 2", e.getMessage());
+    }
+
+    // the run stops at the failing page
+    assertEquals(Arrays.asList("pageStart 1", "imageStart 1", "pageComplete 1"), observer.events);
+  }
+}
@@ -18,12 +18,19 @@
 //////////////////////////////////////////////////////////////////////////////
 package com.joliciel.jochre.graphics;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
+import javax.imageio.ImageIO;
+
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -208,4 +215,37 @@ public class SegmenterImplTest {
     }
   }
 
+  @Test
+  public void testFindContiguousShapesByRuns() throws Exception {
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+    Config config = ConfigFactory.load();
+    JochreSession jochreSession = new JochreSession(config);
+
+    String[] imageNames = { "MotlPeysiDemKhazns2RowsShort2.jpg", "MegileLiderZeresh.png", "MendeleMoykherSforimVol1_41_0Excerpt.png",
+        "JoinedLetterTest.png", "AlephWithHoles.png", "TesWithHoles.png" };
+    for (String imageName : imageNames) {
+      LOG.debug(imageName);
+      InputStream imageFileStream = getClass().getResourceAsStream("/com/joliciel/jochre/test/resources/" + imageName);
+      assertNotNull(imageFileStream);
+      BufferedImage image = ImageIO.read(imageFileStream);
+      SourceImage sourceImage = new SourceImage(imageName, image, jochreSession);
+
+      Segmenter segmenter = new Segmenter(sourceImage, jochreSession);
+      Set<Shape> floodFillShapes = segmenter.findContiguousShapesByFloodFill(sourceImage);
+      Set<Shape> runShapes = segmenter.findContiguousShapesByRuns(sourceImage);
+
+      assertEquals(imageName, floodFillShapes.size(), runShapes.size());
+      Iterator<Shape> iRunShapes = runShapes.iterator();
+      for (Shape floodFillShape : floodFillShapes) {
+        Shape runShape = iRunShapes.next();
+        assertEquals(imageName, floodFillShape.getLeft(), runShape.getLeft());
+        assertEquals(imageName, floodFillShape.getTop(), runShape.getTop());
+        assertEquals(imageName, floodFillShape.getRight(), runShape.getRight());
+        assertEquals(imageName, floodFillShape.getBottom(), runShape.getBottom());
+        assertArrayEquals(imageName, floodFillShape.getStartingPoint(), runShape.getStartingPoint());
+      }
+    }
+  }
+
 }
@@ -0,0 +1,123 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.graphics;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import com.joliciel.jochre.JochreSession;
+import com.joliciel.jochre.graphics.Shape.SectionBrightnessMeasurementMethod;
+import com.joliciel.jochre.graphics.util.GreyscaleRaster;
+import com.joliciel.jochre.graphics.util.ImagePixelGrabberImpl;
+import com.typesafe.config.ConfigFactory;
+
+/**
+ * Times feature extraction for all of the shapes on a page, with the shapes
+ * reading their pixels from the page's {@link GreyscaleRaster}, as they do
+ * now, and with each shape copying its own subimage into an
+ * {@link ImagePixelGrabberImpl}, as they did before. Not run as part of the
+ * test suite: run the main method directly.<br>
+ * The page is a 2480x3508 greyscale image (A4 at 300 dpi) covered in random
+ * text, cut into about 4,750 letter-sized shapes. For each shape, the section
+ * brightness, outline and total brightness are calculated, as used by the
+ * letter guesser's features. Each round starts from a new page, so that the
+ * page raster is built once per round.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public class ShapeFeatureBenchmark {
+  public static void main(String[] args) throws Exception {
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+    JochreSession jochreSession = new JochreSession(ConfigFactory.load());
+
+    int shapeWidth = 30;
+    int shapeHeight = 45;
+    int rowHeight = 60;
+    int rounds = 3;
+    BufferedImage page = drawPage(2480, 3508, rowHeight);
+
+    System.out.println("mode\tshapes\tmean (ms)\tper shape (us)\tchecksum");
+    // the first round is a warm-up
+    for (int round = 0; round < 2; round++) {
+      for (boolean copy : new boolean[] { true, false }) {
+        long totalNanos = 0;
+        int shapeCount = 0;
+        long checksum = 0;
+        for (int i = 0; i < rounds; i++) {
+          long start = System.nanoTime();
+          SourceImage sourceImage = new SourceImage("benchmark", page, jochreSession);
+          BufferedImage image = sourceImage.getOriginalImage();
+          int threshold = sourceImage.getBlackThreshold();
+          shapeCount = 0;
+          for (int top = 0; top + shapeHeight <= image.getHeight(); top += rowHeight) {
+            for (int left = 0; left + shapeWidth <= image.getWidth(); left += shapeWidth) {
+              Shape shape = new Shape(sourceImage, left, top, left + shapeWidth - 1, top + shapeHeight - 1,
+                  jochreSession);
+              if (copy) {
+                BufferedImage subimage = image.getSubimage(left, top, shapeWidth, shapeHeight);
+                shape.setImage(subimage);
+                shape.setPixelGrabber(new ImagePixelGrabberImpl(subimage));
+              }
+              double[][] sections = shape.getBrightnessBySection(5, 5, 1, SectionBrightnessMeasurementMethod.RAW);
+              checksum += (long) sections[2][2];
+              checksum += shape.getOutline(threshold).cardinality();
+              checksum += shape.getTotalBrightness();
+              shapeCount++;
+            }
+          }
+          totalNanos += System.nanoTime() - start;
+        }
+        long meanNanos = totalNanos / rounds;
+        if (round > 0)
+          System.out.println((copy ? "copied" : "raster") + "\t" + shapeCount + "\t" + (meanNanos / 1000000) + "\t"
+              + (meanNanos / 1000 / shapeCount) + "\t" + checksum);
+      }
+    }
+  }
+
+  private static BufferedImage drawPage(int width, int height, int rowHeight) {
+    BufferedImage page = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+    Graphics2D graphics = page.createGraphics();
+    graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+    graphics.setColor(Color.WHITE);
+    graphics.fillRect(0, 0, width, height);
+    graphics.setColor(Color.BLACK);
+    graphics.setFont(new Font(Font.SERIF, Font.PLAIN, 40));
+    Random random = new Random(1);
+    StringBuilder sb = new StringBuilder();
+    for (int y = rowHeight - 20; y < height; y += rowHeight) {
+      sb.setLength(0);
+      while (sb.length() < width / 20) {
+        int wordLength = 2 + random.nextInt(8);
+        for (int i = 0; i < wordLength; i++)
+          sb.append((char) ('a' + random.nextInt(26)));
+        sb.append(' ');
+      }
+      graphics.drawString(sb.toString(), 20, y);
+    }
+    graphics.dispose();
+    return page;
+  }
+}
@@ -0,0 +1,84 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.graphics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.joliciel.jochre.JochreSession;
+import com.typesafe.config.ConfigFactory;
+
+public class WhiteAreaFinderTest {
+
+  @Test
+  public void testWhiteAreasFromPage() throws Exception {
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+    JochreSession jochreSession = new JochreSession(ConfigFactory.load());
+
+    // two black columns separated by a white gutter
+    BufferedImage image = new BufferedImage(100, 60, BufferedImage.TYPE_BYTE_GRAY);
+    Graphics2D graphics = image.createGraphics();
+    graphics.setColor(Color.WHITE);
+    graphics.fillRect(0, 0, 100, 60);
+    graphics.setColor(Color.BLACK);
+    graphics.fillRect(10, 10, 30, 40);
+    graphics.fillRect(60, 10, 30, 40);
+    graphics.dispose();
+    JochreImage jochreImage = new JochreImage(image, jochreSession);
+    jochreImage.setWidth(100);
+    jochreImage.setHeight(60);
+    jochreImage.setBlackLimit(0);
+    jochreImage.setWhiteLimit(255);
+
+    List<Rectangle> blackAreas = new ArrayList<>();
+    blackAreas.add(new RectangleImpl(10, 10, 39, 49));
+    blackAreas.add(new RectangleImpl(60, 10, 89, 49));
+
+    WhiteAreaFinder whiteAreaFinder = new WhiteAreaFinder();
+    List<Rectangle> fromPage = whiteAreaFinder.getWhiteAreas(jochreImage, 128, 0, 0, 99, 59, 15, 55);
+    List<Rectangle> fromBlackAreas = whiteAreaFinder.getWhiteAreas(blackAreas, 0, 0, 99, 59, 15, 55);
+    assertFalse(fromPage.isEmpty());
+    assertEquals(fromBlackAreas.size(), fromPage.size());
+    for (int i = 0; i < fromPage.size(); i++) {
+      Rectangle expected = fromBlackAreas.get(i);
+      Rectangle actual = fromPage.get(i);
+      assertEquals(expected.getLeft(), actual.getLeft());
+      assertEquals(expected.getTop(), actual.getTop());
+      assertEquals(expected.getRight(), actual.getRight());
+      assertEquals(expected.getBottom(), actual.getBottom());
+    }
+
+    // pixels beyond the raster's right edge are white
+    assertEquals(1, whiteAreaFinder.getWhiteAreas(jochreImage, 128, 0, 0, 149, 9, 15, 5).size());
+
+    // the page's raster is shared rather than recomputed
+    BinaryRaster raster = jochreImage.getBinaryRaster(128);
+    whiteAreaFinder.getWhiteAreas(jochreImage, 128, 0, 0, 99, 59, 15, 55);
+    assertEquals(raster, jochreImage.getBinaryRaster(128));
+  }
+}
@@ -0,0 +1,107 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.graphics.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class GreyscaleRasterTest {
+
+  @Test
+  public void testRgb() {
+    BufferedImage image = new BufferedImage(37, 23, BufferedImage.TYPE_INT_RGB);
+    Random random = new Random(1);
+    for (int y = 0; y < image.getHeight(); y++)
+      for (int x = 0; x < image.getWidth(); x++)
+        image.setRGB(x, y, random.nextInt(0x1000000));
+    assertSameBrightness(image);
+  }
+
+  @Test
+  public void testArgb() {
+    BufferedImage image = new BufferedImage(31, 17, BufferedImage.TYPE_INT_ARGB);
+    Random random = new Random(2);
+    for (int y = 0; y < image.getHeight(); y++)
+      for (int x = 0; x < image.getWidth(); x++)
+        image.setRGB(x, y, random.nextInt());
+    assertSameBrightness(image);
+  }
+
+  @Test
+  public void testGreyscale() {
+    BufferedImage image = new BufferedImage(41, 19, BufferedImage.TYPE_BYTE_GRAY);
+    Random random = new Random(3);
+    for (int y = 0; y < image.getHeight(); y++)
+      for (int x = 0; x < image.getWidth(); x++)
+        image.getRaster().setSample(x, y, 0, random.nextInt(256));
+    assertSameBrightness(image);
+  }
+
+  @Test
+  public void testIndexed() {
+    // a palette of 16 arbitrary colours
+    Random random = new Random(4);
+    byte[] reds = new byte[16];
+    byte[] greens = new byte[16];
+    byte[] blues = new byte[16];
+    random.nextBytes(reds);
+    random.nextBytes(greens);
+    random.nextBytes(blues);
+    IndexColorModel colorModel = new IndexColorModel(4, 16, reds, greens, blues);
+    BufferedImage image = new BufferedImage(29, 13, BufferedImage.TYPE_BYTE_INDEXED, colorModel);
+    for (int y = 0; y < image.getHeight(); y++)
+      for (int x = 0; x < image.getWidth(); x++)
+        image.getRaster().setSample(x, y, 0, random.nextInt(16));
+    assertSameBrightness(image);
+  }
+
+  @Test
+  public void testBlackAndWhite() {
+    BufferedImage image = new BufferedImage(33, 11, BufferedImage.TYPE_BYTE_BINARY);
+    Random random = new Random(5);
+    for (int y = 0; y < image.getHeight(); y++)
+      for (int x = 0; x < image.getWidth(); x++)
+        image.getRaster().setSample(x, y, 0, random.nextInt(2));
+    assertSameBrightness(image);
+  }
+
+  private static void assertSameBrightness(BufferedImage image) {
+    ImagePixelGrabber expected = new ImagePixelGrabberImpl(image);
+    GreyscaleRaster raster = new GreyscaleRaster(image);
+    assertEquals(expected.getWidth(), raster.getWidth());
+    assertEquals(expected.getHeight(), raster.getHeight());
+
+    byte[] pixels = new byte[raster.getWidth() * raster.getHeight()];
+    int i = 0;
+    for (int y = 0; y < raster.getHeight(); y++) {
+      for (int x = 0; x < raster.getWidth(); x++) {
+        int brightness = expected.getPixelBrightness(x, y);
+        assertEquals("Pixel " + x + "," + y, brightness, raster.getPixelBrightness(x, y));
+        pixels[i++] = (byte) brightness;
+      }
+    }
+    assertArrayEquals(pixels, raster.getPixels());
+  }
+}
@@ -0,0 +1,41 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.lang;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ReplacementRuleTest {
+
+  @Test
+  public void testApply() {
+    String[][] rules = new String[][] { { "וו", "װ" }, { "\\Aת([^ּ])", "תּ$1" }, { "(.)יי", "$1ײ" }, { "(.)'(.)", "$1$2" },
+        { "(.)דיג\\z", "$1דיק" }, { "(.)יע(.)", "$1י$2" }, { "\\|(.)\\1\\|", "$1" }, { "_++", "_" }, { "''", "\"" },
+        { "[0-9]", "0" } };
+    String[] texts = new String[] { "", "וווּ", "תאָג", "תּאָג", "ייִדיש", "זייער", "ס'איז", "איז'", "לעבעדיג", "דיג",
+        "זיעגן", "יע", "a|bb|c", "__x___", "''a''", "1942", "ב" };
+    for (String[] rule : rules) {
+      ReplacementRule replacementRule = new ReplacementRule(rule[0], rule[1]);
+      for (String text : texts)
+        assertEquals(replacementRule.toString() + " on " + text, text.replaceAll(rule[0], rule[1]),
+            replacementRule.apply(text));
+    }
+  }
+}
@@ -0,0 +1,73 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.letterGuesser;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.joliciel.jochre.boundaries.ShapeSequence;
+import com.joliciel.talismane.machineLearning.Decision;
+import com.joliciel.talismane.machineLearning.GeometricMeanScoringStrategy;
+
+public class LetterSequenceTest {
+
+  @Test
+  public void testExtendHistory() {
+    LetterSequence history = new LetterSequence(new ShapeSequence(), null);
+    history.getLetters().add("a");
+    history.addDecision(new Decision("a", 0.9));
+
+    LetterSequence sequence1 = new LetterSequence(history, new Decision("b", 0.4));
+    LetterSequence sequence2 = new LetterSequence(sequence1, new Decision("c", 0.7));
+    LetterSequence otherSequence2 = new LetterSequence(sequence1, new Decision("d", 0.2));
+
+    // the history is unchanged by extending it
+    history.getLetters().add("x");
+    history.addDecision(new Decision("x", 0.1));
+
+    assertEquals(Arrays.asList("a", "b"), sequence1.getLetters());
+    assertEquals(Arrays.asList("a", "b", "c"), sequence2.getLetters());
+    assertEquals(Arrays.asList("a", "b", "d"), otherSequence2.getLetters());
+    assertEquals("d", otherSequence2.getLetters().get(2));
+    assertEquals("a", otherSequence2.getLetters().get(0));
+    assertEquals(3, sequence2.getDecisions().size());
+
+    List<String> outcomes = new ArrayList<>();
+    for (Decision decision : sequence2.getDecisions())
+      outcomes.add(decision.getOutcome());
+    assertEquals(Arrays.asList("a", "b", "c"), outcomes);
+
+    // the score is identical to the one calculated from all of the decisions
+    GeometricMeanScoringStrategy scoringStrategy = new GeometricMeanScoringStrategy();
+    assertEquals(scoringStrategy.calculateScore(new LetterSequence(sequence2)), sequence2.getScore(), 0.0);
+    assertEquals(scoringStrategy.calculateScore(new LetterSequence(otherSequence2)), otherSequence2.getScore(), 0.0);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testExtensionUnmodifiable() {
+    LetterSequence history = new LetterSequence(new ShapeSequence(), null);
+    LetterSequence sequence = new LetterSequence(history, new Decision("a", 0.5));
+    sequence.getLetters().add("b");
+  }
+}
@@ -0,0 +1,93 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.lexicon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class CompiledLexiconTest {
+
+  @Test
+  public void testWriteAndOpen() throws Exception {
+    Map<String, Integer> entries = new HashMap<>();
+    entries.put("école", 12);
+    entries.put("vilatge", 3);
+    entries.put("ostal", 1);
+    entries.put("a", 40);
+    entries.put("ײִדיש", 7);
+    entries.put("zero", 0);
+    TextFileLexicon textFileLexicon = new TextFileLexicon(entries);
+
+    Locale locale = Locale.forLanguageTag("oc");
+    File lexiconFile = File.createTempFile("lexicon", CompiledLexicon.EXTENSION);
+    lexiconFile.deleteOnExit();
+    CompiledLexicon.write(textFileLexicon, locale, lexiconFile);
+    CompiledLexicon compiledLexicon = CompiledLexicon.open(lexiconFile);
+
+    assertEquals(locale, compiledLexicon.getLocale());
+    assertEquals(entries.size(), compiledLexicon.getWordCount());
+    for (String word : entries.keySet())
+      assertEquals(word, entries.get(word).intValue(), compiledLexicon.getFrequency(word));
+    assertEquals(0, compiledLexicon.getFrequency("ECOLE"));
+    assertEquals(0, compiledLexicon.getFrequency("ostals"));
+    assertEquals(0, compiledLexicon.getFrequency(""));
+
+    assertTrue(compiledLexicon.isUpperCaseVariant("ECOLE"));
+    assertTrue(compiledLexicon.isUpperCaseVariant("Ecole"));
+    assertTrue(compiledLexicon.isUpperCaseVariant("Vilatge"));
+    assertFalse(compiledLexicon.isUpperCaseVariant("vilatge"));
+    assertFalse(compiledLexicon.isUpperCaseVariant("OSTALS"));
+
+    Set<String> words = new HashSet<>();
+    Iterator<String> iterator = compiledLexicon.getWords();
+    while (iterator.hasNext())
+      words.add(iterator.next());
+    assertEquals(entries.keySet(), words);
+
+    // the wrapper gives the same frequencies whether the variants are
+    // precomputed or not
+    DefaultLexiconWrapper textWrapper = new DefaultLexiconWrapper(textFileLexicon, locale);
+    DefaultLexiconWrapper compiledWrapper = new DefaultLexiconWrapper(compiledLexicon, locale);
+    DefaultLexiconWrapper otherLocaleWrapper = new DefaultLexiconWrapper(compiledLexicon, Locale.forLanguageTag("tr"));
+    DefaultLexiconWrapper textOtherLocaleWrapper = new DefaultLexiconWrapper(textFileLexicon, Locale.forLanguageTag("tr"));
+    LexiconMerger merger = new LexiconMerger();
+    merger.addLexicon(compiledLexicon);
+    merger.addLexicon(new TextFileLexicon());
+    DefaultLexiconWrapper mergedWrapper = new DefaultLexiconWrapper(merger, locale);
+
+    String[] probes = new String[] { "école", "ECOLE", "Ecole", "École", "VILATGE", "Vilatge", "vilatge", "ostal", "OSTAL",
+        "Ostal", "A", "a", "ײִדיש", "zero", "ZERO", "Zero", "ostals", "" };
+    for (String probe : probes) {
+      assertEquals(probe, textWrapper.getFrequency(probe), compiledWrapper.getFrequency(probe));
+      assertEquals(probe, textWrapper.getFrequency(probe), mergedWrapper.getFrequency(probe));
+      assertEquals(probe, textOtherLocaleWrapper.getFrequency(probe), otherLocaleWrapper.getFrequency(probe));
+    }
+  }
+}
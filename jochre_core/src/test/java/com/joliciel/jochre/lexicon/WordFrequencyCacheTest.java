@@ -0,0 +1,68 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.lexicon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import com.joliciel.talismane.utils.CountedOutcome;
+
+public class WordFrequencyCacheTest {
+
+  @Test
+  public void testGetFrequencies() {
+    final List<String> lookedUp = new ArrayList<>();
+    Function<String, List<CountedOutcome<String>>> lookup = word -> {
+      lookedUp.add(word);
+      List<CountedOutcome<String>> frequencies = new ArrayList<>();
+      frequencies.add(new CountedOutcome<>(word, word.length()));
+      return frequencies;
+    };
+
+    WordFrequencyCache cache = new WordFrequencyCache(2);
+    List<CountedOutcome<String>> frequencies = cache.getFrequencies("a", lookup);
+    assertEquals(1, frequencies.get(0).getCount());
+    assertSame(frequencies, cache.getFrequencies("a", lookup));
+    cache.getFrequencies("bb", lookup);
+    cache.getFrequencies("a", lookup);
+    // "bb" is the least recently used, and is evicted
+    cache.getFrequencies("ccc", lookup);
+    cache.getFrequencies("a", lookup);
+    cache.getFrequencies("bb", lookup);
+
+    assertEquals("[a, bb, ccc, bb]", lookedUp.toString());
+    assertEquals(3, cache.getHits());
+    assertEquals(4, cache.getMisses());
+    assertEquals(3.0 / 7.0, cache.getHitRate(), 0.0001);
+    assertEquals(2, cache.size());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testUnmodifiable() {
+    WordFrequencyCache cache = new WordFrequencyCache(0);
+    List<CountedOutcome<String>> frequencies = cache.getFrequencies("a", word -> new ArrayList<>());
+    frequencies.add(new CountedOutcome<>("a", -1));
+  }
+}
@@ -0,0 +1,72 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.stats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Times {@link DBSCANClusterer} on speck-like data, with and without the
+ * spatial index, for increasing numbers of points. Not run as part of the test
+ * suite: run the main method directly.<br>
+ * Points are spread uniformly over a page of 5000x7000 pixels, and clustered
+ * with an epsilon of 20 pixels and at least 4 points per cluster, similar to
+ * the speck clustering in the segmenter. Brute force is skipped above 20,000
+ * points, where it takes minutes.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public class DBSCANClustererBenchmark {
+  public static void main(String[] args) {
+    int[] sizes = { 1000, 5000, 10000, 20000, 50000, 100000 };
+    double epsilon = 20.0;
+    int minPoints = 4;
+    Random random = new Random(1);
+
+    System.out.println("points\tindexed (ms)\tbrute force (ms)\tclusters");
+    for (int size : sizes) {
+      List<Integer> objects = new ArrayList<>(size);
+      List<double[]> points = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        objects.add(i);
+        points.add(new double[] { random.nextDouble() * 5000, random.nextDouble() * 7000 });
+      }
+
+      // warm-up
+      new DBSCANClusterer<>(objects, points).cluster(epsilon, minPoints, false);
+
+      long start = System.currentTimeMillis();
+      int clusterCount = new DBSCANClusterer<>(objects, points).cluster(epsilon, minPoints, false).size();
+      long indexed = System.currentTimeMillis() - start;
+
+      String bruteForce = "-";
+      if (size <= 20000) {
+        DBSCANClusterer<Integer> clusterer = new DBSCANClusterer<>(objects, points);
+        clusterer.useSpatialIndex = false;
+        start = System.currentTimeMillis();
+        clusterer.cluster(epsilon, minPoints, false);
+        bruteForce = "" + (System.currentTimeMillis() - start);
+      }
+
+      System.out.println(size + "\t" + indexed + "\t" + bruteForce + "\t" + clusterCount);
+    }
+  }
+}
@@ -0,0 +1,61 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.stats;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class DBSCANClustererTest {
+
+  @Test
+  public void testSpatialIndexMatchesBruteForce() throws Exception {
+    Random random = new Random(42);
+    for (int dimensions = 1; dimensions <= 3; dimensions++) {
+      List<Integer> objects = new ArrayList<>();
+      List<double[]> points = new ArrayList<>();
+      for (int i = 0; i < 2000; i++) {
+        double[] point = new double[dimensions];
+        for (int n = 0; n < dimensions; n++) {
+          // integer coordinates, as for pixels, so that some neighbours lie
+          // at exactly epsilon
+          point[n] = random.nextInt(dimensions == 1 ? 20000 : 400) - 100;
+        }
+        objects.add(i);
+        points.add(point);
+      }
+
+      for (double epsilon : new double[] { 1.0, 5.0, 12.5 }) {
+        DBSCANClusterer<Integer> bruteForce = new DBSCANClusterer<>(objects, points);
+        bruteForce.useSpatialIndex = false;
+        Set<Set<Integer>> expected = bruteForce.cluster(epsilon, 4, true);
+
+        DBSCANClusterer<Integer> indexed = new DBSCANClusterer<>(objects, points);
+        Set<Set<Integer>> actual = indexed.cluster(epsilon, 4, true);
+
+        assertEquals("dimensions " + dimensions + ", epsilon " + epsilon, expected, actual);
+      }
+    }
+  }
+}
@@ -0,0 +1,196 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2018 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IntsRefBuilder;
+import org.apache.lucene.util.StringHelper;
+import org.apache.lucene.util.fst.Builder;
+import org.apache.lucene.util.fst.BytesRefFSTEnum;
+import org.apache.lucene.util.fst.FST;
+import org.apache.lucene.util.fst.PositiveIntOutputs;
+import org.apache.lucene.util.fst.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A weighted completion structure for the terms of a single field, built once
+ * per index reader, so that prefix searches (e.g. for author or title
+ * autocomplete) don't need to scan the index.<br>
+ * <br>
+ * Each term is stored in an FST, whose output combines the term's document
+ * frequency and its ordinal in the array of display forms. Since outputs are
+ * inverted so that the most frequent terms have the smallest outputs, the top
+ * N completions of a prefix are the N shortest paths from the prefix's node.
+ * The display form of a term is the stored value of the field in the first
+ * document containing it, so that results retain their original case and
+ * accents.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public class FieldTermCompletion {
+  private static final Logger LOG = LoggerFactory.getLogger(FieldTermCompletion.class);
+
+  private final JochreIndexField field;
+  private final FST<Long> fst;
+  private final String[] displayForms;
+
+  /**
+   * Build the completions for a given field from all of the terms in a given
+   * reader.
+   */
+  public static FieldTermCompletion build(IndexReader reader, JochreIndexField field) throws IOException {
+    long startTime = System.currentTimeMillis();
+    Terms terms = MultiFields.getTerms(reader, field.name());
+    List<String> displayForms = new ArrayList<>();
+    FST<Long> fst = null;
+    if (terms != null) {
+      Builder<Long> builder = new Builder<>(FST.INPUT_TYPE.BYTE1, PositiveIntOutputs.getSingleton());
+      IntsRefBuilder scratch = new IntsRefBuilder();
+      Set<String> fieldsToLoad = Collections.singleton(field.name());
+      // many terms share the same first document, e.g. for tokenised titles
+      Map<Integer, String> docValues = new HashMap<>();
+
+      TermsEnum termsEnum = terms.iterator();
+      PostingsEnum postingsEnum = null;
+      BytesRef bytesRef = null;
+      while ((bytesRef = termsEnum.next()) != null) {
+        // we need the text actually stored in the documents,
+        // not the text normalised into a search term
+        // which might be lowercase or not have accents
+        String displayForm = null;
+        postingsEnum = termsEnum.postings(postingsEnum, PostingsEnum.NONE);
+        int docId = postingsEnum.nextDoc();
+        if (docId != PostingsEnum.NO_MORE_DOCS) {
+          displayForm = docValues.get(docId);
+          if (displayForm == null) {
+            Document doc = reader.document(docId, fieldsToLoad);
+            displayForm = doc.get(field.name());
+            if (displayForm != null)
+              docValues.put(docId, displayForm);
+          }
+        }
+        if (displayForm == null)
+          displayForm = bytesRef.utf8ToString();
+
+        int ordinal = displayForms.size();
+        displayForms.add(displayForm);
+        builder.add(Util.toIntsRef(bytesRef, scratch), encode(termsEnum.docFreq(), ordinal));
+      }
+      fst = builder.finish();
+    }
+
+    FieldTermCompletion completion = new FieldTermCompletion(field, fst,
+        displayForms.toArray(new String[displayForms.size()]));
+    if (LOG.isDebugEnabled())
+      LOG.debug("Built completions for " + field.name() + ": " + displayForms.size() + " terms in "
+          + (System.currentTimeMillis() - startTime) + " ms");
+    return completion;
+  }
+
+  private FieldTermCompletion(JochreIndexField field, FST<Long> fst, String[] displayForms) {
+    this.field = field;
+    this.fst = fst;
+    this.displayForms = displayForms;
+  }
+
+  /**
+   * Find the most frequent terms starting with a given prefix.
+   * 
+   * @param prefix
+   *          the prefix, already normalised in the same way as the indexed
+   *          terms
+   * @param maxResults
+   *          the maximum number of terms to return, or 0 for all of them
+   * @return the display form and document frequency of each term, by
+   *         descending frequency
+   */
+  public List<Pair<String, Integer>> lookup(String prefix, int maxResults) throws IOException {
+    List<Pair<String, Integer>> results = new ArrayList<>();
+    if (fst == null)
+      return results;
+
+    BytesRef prefixBytes = new BytesRef(prefix);
+    if (maxResults <= 0) {
+      List<Long> outputs = new ArrayList<>();
+      BytesRefFSTEnum<Long> fstEnum = new BytesRefFSTEnum<>(fst);
+      BytesRefFSTEnum.InputOutput<Long> current = fstEnum.seekCeil(prefixBytes);
+      while (current != null && StringHelper.startsWith(current.input, prefixBytes)) {
+        outputs.add(current.output);
+        current = fstEnum.next();
+      }
+      // smaller outputs are more frequent terms
+      Collections.sort(outputs);
+      for (long output : outputs)
+        results.add(this.decode(output));
+      return results;
+    }
+
+    FST.BytesReader bytesReader = fst.getBytesReader();
+    FST.Arc<Long> arc = fst.getFirstArc(new FST.Arc<Long>());
+    long prefixOutput = fst.outputs.getNoOutput();
+    for (int i = 0; i < prefixBytes.length; i++) {
+      if (fst.findTargetArc(prefixBytes.bytes[prefixBytes.offset + i] & 0xFF, arc, arc, bytesReader) == null)
+        return results;
+      prefixOutput += arc.output;
+    }
+
+    Util.TopResults<Long> topResults = Util.shortestPaths(fst, arc, prefixOutput, Long::compare, maxResults, true);
+    for (Util.Result<Long> result : topResults)
+      results.add(this.decode(result.output));
+    return results;
+  }
+
+  /**
+   * The number of distinct terms in this field.
+   */
+  public int getTermCount() {
+    return displayForms.length;
+  }
+
+  public JochreIndexField getField() {
+    return field;
+  }
+
+  private static long encode(int docFreq, int ordinal) {
+    return ((long) (Integer.MAX_VALUE - docFreq) << 32) | ordinal;
+  }
+
+  private Pair<String, Integer> decode(long output) {
+    int docFreq = Integer.MAX_VALUE - (int) (output >>> 32);
+    int ordinal = (int) output;
+    return Pair.of(displayForms[ordinal], docFreq);
+  }
+}
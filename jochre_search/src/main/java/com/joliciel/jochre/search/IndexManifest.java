@@ -0,0 +1,277 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2015 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.search;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.ChecksumIndexInput;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A record of each work in the index, so that an update can decide which works
+ * are stale without querying the index for each one. For each work path, the
+ * manifest gives the time it was indexed, a fingerprint of the files it was
+ * indexed from, and the number of sections (Lucene documents) it was indexed
+ * as.<br>
+ * The manifest is written to a side file in the index directory, with a new
+ * generation for each commit, and the commit user data only names the
+ * generation and its checksum, so that the commit point doesn't grow with the
+ * number of works.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+class IndexManifest {
+  private static final Logger LOG = LoggerFactory.getLogger(IndexManifest.class);
+  private static final String VERSION_KEY = "jochre.manifest.version";
+  private static final String GENERATION_KEY = "jochre.manifest.generation";
+  private static final String CHECKSUM_KEY = "jochre.manifest.checksum";
+  private static final String VERSION = "3";
+  private static final String FILE_PREFIX = "jochre-manifest-";
+  private static final String CODEC_NAME = "JochreManifest";
+  private static final int CODEC_VERSION = 0;
+
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private long generation = 0;
+
+  static final class Entry {
+    private final long indexTime;
+    private final long fingerprint;
+    private final int sectionCount;
+
+    Entry(long indexTime, long fingerprint, int sectionCount) {
+      this.indexTime = indexTime;
+      this.fingerprint = fingerprint;
+      this.sectionCount = sectionCount;
+    }
+
+    public long getIndexTime() {
+      return indexTime;
+    }
+
+    public long getFingerprint() {
+      return fingerprint;
+    }
+
+    /**
+     * The number of Lucene documents the work was indexed as.
+     */
+    public int getSectionCount() {
+      return sectionCount;
+    }
+  }
+
+  /**
+   * Read the manifest referenced by the last commit of the index being
+   * written. If the manifest file is missing or doesn't match the checksum in
+   * the commit, an empty manifest is returned, so that each work is checked
+   * against the index itself.
+   */
+  static IndexManifest read(IndexWriter indexWriter) throws IOException {
+    IndexManifest manifest = new IndexManifest();
+    Iterable<Map.Entry<String, String>> commitData = indexWriter.getLiveCommitData();
+    if (commitData == null)
+      return manifest;
+
+    String version = null;
+    String generation = null;
+    String checksum = null;
+    for (Map.Entry<String, String> data : commitData) {
+      if (data.getKey().equals(VERSION_KEY))
+        version = data.getValue();
+      else if (data.getKey().equals(GENERATION_KEY))
+        generation = data.getValue();
+      else if (data.getKey().equals(CHECKSUM_KEY))
+        checksum = data.getValue();
+    }
+    if (version == null)
+      return manifest;
+    if (!VERSION.equals(version) || generation == null || checksum == null) {
+      LOG.info("Ignoring index manifest with version " + version);
+      return manifest;
+    }
+
+    manifest.generation = Long.parseLong(generation);
+    String fileName = getFileName(manifest.generation);
+    Directory directory = indexWriter.getDirectory();
+    Map<String, Entry> entries = new HashMap<>();
+    try (ChecksumIndexInput input = directory.openChecksumInput(fileName, IOContext.READONCE)) {
+      CodecUtil.checkHeader(input, CODEC_NAME, CODEC_VERSION, CODEC_VERSION);
+      int size = input.readVInt();
+      for (int i = 0; i < size; i++) {
+        String path = input.readString();
+        long indexTime = input.readLong();
+        long fingerprint = input.readLong();
+        int sectionCount = input.readVInt();
+        entries.put(path, new Entry(indexTime, fingerprint, sectionCount));
+      }
+      long actualChecksum = CodecUtil.checkFooter(input);
+      if (actualChecksum != Long.parseLong(checksum))
+        throw new CorruptIndexException("Checksum " + actualChecksum + " doesn't match commit: " + checksum, input);
+    } catch (IOException e) {
+      LOG.warn("Ignoring unreadable index manifest " + fileName + ": " + e.getMessage());
+      return manifest;
+    }
+    manifest.entries.putAll(entries);
+    LOG.debug("Read index manifest with " + manifest.entries.size() + " entries");
+    return manifest;
+  }
+
+  /**
+   * Write the manifest to a new file in the index directory, and reference it
+   * in the commit user data for the next commit. Files from previous
+   * generations are kept until {@link #deleteStaleFiles(IndexWriter)} is called
+   * after the commit.
+   */
+  void write(IndexWriter indexWriter) throws IOException {
+    long nextGeneration = generation + 1;
+    String fileName = getFileName(nextGeneration);
+    Directory directory = indexWriter.getDirectory();
+    long checksum;
+    try (IndexOutput output = directory.createOutput(fileName, IOContext.DEFAULT)) {
+      CodecUtil.writeHeader(output, CODEC_NAME, CODEC_VERSION);
+      Map<String, Entry> snapshot = new HashMap<>(entries);
+      output.writeVInt(snapshot.size());
+      for (Map.Entry<String, Entry> entry : snapshot.entrySet()) {
+        Entry value = entry.getValue();
+        output.writeString(entry.getKey());
+        output.writeLong(value.indexTime);
+        output.writeLong(value.fingerprint);
+        output.writeVInt(value.sectionCount);
+      }
+      CodecUtil.writeFooter(output);
+    }
+    try (IndexInput input = directory.openInput(fileName, IOContext.READONCE)) {
+      checksum = CodecUtil.retrieveChecksum(input);
+    }
+    directory.sync(Collections.singleton(fileName));
+    generation = nextGeneration;
+
+    Map<String, String> commitData = new HashMap<>();
+    commitData.put(VERSION_KEY, VERSION);
+    commitData.put(GENERATION_KEY, Long.toString(generation));
+    commitData.put(CHECKSUM_KEY, Long.toString(checksum));
+    indexWriter.setLiveCommitData(commitData.entrySet());
+  }
+
+  /**
+   * Delete the manifest files other than the one written by the last call to
+   * {@link #write(IndexWriter)}. Should only be called once that manifest has
+   * been committed.
+   */
+  void deleteStaleFiles(IndexWriter indexWriter) throws IOException {
+    Directory directory = indexWriter.getDirectory();
+    String current = getFileName(generation);
+    for (String fileName : directory.listAll()) {
+      if (fileName.startsWith(FILE_PREFIX) && !fileName.equals(current)) {
+        LOG.debug("Deleting stale index manifest " + fileName);
+        directory.deleteFile(fileName);
+      }
+    }
+  }
+
+  private static String getFileName(long generation) {
+    return FILE_PREFIX + Long.toString(generation, Character.MAX_RADIX);
+  }
+
+  /**
+   * The entry for a given work path, or null if it's not in the manifest.
+   */
+  Entry get(String path) {
+    return entries.get(path);
+  }
+
+  void put(String path, long indexTime, long fingerprint, int sectionCount) {
+    entries.put(path, new Entry(indexTime, fingerprint, sectionCount));
+  }
+
+  void remove(String path) {
+    entries.remove(path);
+  }
+
+  /**
+   * Remove the works whose directory no longer exists in the content
+   * directory, so that they don't remain in the manifest forever.
+   * 
+   * @return the number of works removed
+   */
+  int removeMissing(File contentDir) {
+    int removed = 0;
+    for (Iterator<String> iPaths = entries.keySet().iterator(); iPaths.hasNext();) {
+      String path = iPaths.next();
+      if (!new File(contentDir, path).isDirectory()) {
+        if (LOG.isDebugEnabled())
+          LOG.debug("Removing " + path + " from the index manifest: directory not found");
+        iPaths.remove();
+        removed++;
+      }
+    }
+    return removed;
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  /**
+   * The total number of sections over all works in the manifest, which should
+   * equal the number of documents with a name in the committed index.
+   */
+  long getSectionCount() {
+    long sectionCount = 0;
+    for (Entry entry : entries.values())
+      sectionCount += entry.sectionCount;
+    return sectionCount;
+  }
+
+  /**
+   * A fingerprint of the files a work is indexed from, based on their names,
+   * sizes and modification dates, which changes whenever any of them is
+   * replaced or modified.
+   */
+  static long getFingerprint(JochreIndexDirectory directory) {
+    long fingerprint = 17;
+    fingerprint = fingerprint * 31 + getFingerprint(directory.getAltoFile());
+    File metaDataFile = directory.getMetaDataFile();
+    if (metaDataFile != null)
+      fingerprint = fingerprint * 31 + getFingerprint(metaDataFile);
+    return fingerprint;
+  }
+
+  private static long getFingerprint(File file) {
+    long fingerprint = file.getName().hashCode();
+    fingerprint = fingerprint * 31 + file.length();
+    fingerprint = fingerprint * 31 + file.lastModified();
+    return fingerprint;
+  }
+}
@@ -29,6 +29,11 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
@@ -40,6 +45,7 @@ import org.apache.lucene.index.Term;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermRangeQuery;
 import org.apache.lucene.search.TopDocs;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -67,8 +73,17 @@ public class JochreIndexBuilder implements Runnable, TokenExtractor {
   private final boolean forceUpdate;
 
   private final int wordsPerDoc;
+  private final int threadCount;
+  private final int altoPageQueueSize;
 
-  private List<JochreToken> currentStrings = null;
+  /**
+   * The strings for the document currently being added by each indexing
+   * thread, read back by the text layer analyser on the same thread.
+   */
+  private final ThreadLocal<List<JochreToken>> currentStrings = new ThreadLocal<>();
+
+  private IndexManifest manifest = null;
+  private boolean verifySectionCounts = false;
 
   /**
    * 
@@ -88,6 +103,8 @@ public class JochreIndexBuilder implements Runnable, TokenExtractor {
     this.config = JochreSearchConfig.getInstance(configId);
     this.contentDir = config.getContentDir();
     this.wordsPerDoc = config.getConfig().getInt("index-builder.words-per-document");
+    this.threadCount = config.getConfig().getInt("index-builder.thread-count");
+    this.altoPageQueueSize = config.getConfig().getInt("index-builder.alto-page-queue-size");
     this.forceUpdate = forceUpdate;
   }
 
@@ -100,8 +117,10 @@ public class JochreIndexBuilder implements Runnable, TokenExtractor {
    * Update the index by scanning all of the sub-directories of this contentDir
    * for updates. The sub-directory path is considered to uniquely identify a
    * work. Sub-directory contents are described in {@link JochreIndexDirectory}. A
-   * work will only be updated if the date of it's text layer is later than the
-   * previous index date (stored in the index), or if forceUpdate=true. If the
+   * work will only be updated if its files have changed since it was last
+   * indexed (as recorded in the {@link IndexManifest} stored with each commit,
+   * or failing that, if the date of its text layer is later than the previous
+   * index date stored in the index), or if forceUpdate=true. If the
    * work is updated, any previous documents with the same path are first deleted.
    * Multiple Lucene documents can be created from a single work, if
    * {@link #getWordsPerDoc()}&gt;0.
@@ -119,6 +138,9 @@ public class JochreIndexBuilder implements Runnable, TokenExtractor {
 
       Map<String, Analyzer> analyzerPerField = new HashMap<>();
       analyzerPerField.put(JochreIndexField.text.name(), new JochreTextLayerAnalyser(this, configId));
+      if (config.isIndexLemmas())
+        analyzerPerField.put(JochreIndexField.lemma.name(),
+            new JochreTextLayerAnalyser(this, configId, config.getLexicon()));
       analyzerPerField.put(JochreIndexField.author.name(), new JochreKeywordAnalyser(configId));
       analyzerPerField.put(JochreIndexField.authorEnglish.name(), new JochreKeywordAnalyser(configId));
       analyzerPerField.put(JochreIndexField.publisher.name(), new JochreKeywordAnalyser(configId));
@@ -128,6 +150,20 @@ public class JochreIndexBuilder implements Runnable, TokenExtractor {
       IndexWriterConfig iwc = new IndexWriterConfig(analyzer);
       iwc.setOpenMode(OpenMode.CREATE_OR_APPEND);
       try (IndexWriter indexWriter = new IndexWriter(manager.getIndexDir(), iwc)) {
+        this.manifest = IndexManifest.read(indexWriter);
+        this.verifySectionCounts = false;
+        if (manifest.size() > 0) {
+          // if works were partially indexed or deleted without updating the
+          // manifest, the section counts no longer add up: in this case, check
+          // each work's section count against the index
+          long indexedSections = this.countSections(manager,
+              new TermRangeQuery(JochreIndexField.name.name(), null, null, true, true));
+          if (indexedSections != manifest.getSectionCount()) {
+            LOG.info("Index contains " + indexedSections + " sections, manifest expects " + manifest.getSectionCount()
+                + ": verifying section counts for each work");
+            this.verifySectionCounts = true;
+          }
+        }
 
         File[] subdirs = contentDir.listFiles(new FileFilter() {
 
@@ -145,20 +181,41 @@ public class JochreIndexBuilder implements Runnable, TokenExtractor {
         searchStatusHolder.setStatus(SearchStatus.BUSY);
         searchStatusHolder.setTotalCount(subdirs.length);
 
-        for (File subdir : subdirs) {
+        if (threadCount <= 1) {
+          for (File subdir : subdirs) {
+            this.processDocumentAndReport(manager, indexWriter, subdir);
+          }
+        } else {
+          // the index writer is thread-safe, so each thread reads and adds
+          // entire documents on its own
+          final AtomicInteger threadIndex = new AtomicInteger();
+          ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "jochre-index-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          };
+          ExecutorService executor = Executors.newFixedThreadPool(threadCount, threadFactory);
           try {
-            searchStatusHolder.setAction("Indexing " + subdir.getName());
-            this.processDocument(manager, indexWriter, subdir, forceUpdate);
-            searchStatusHolder.incrementSuccessCount(1);
-          } catch (Exception e) {
-            LOG.error("Failed to index " + subdir.getName(), e);
-            searchStatusHolder.incrementFailureCount(1);
+            for (File subdir : subdirs) {
+              executor.submit(() -> this.processDocumentAndReport(manager, indexWriter, subdir));
+            }
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+              LOG.info("Indexed " + searchStatusHolder.getProcessedCount() + " out of " + subdirs.length);
+            }
+          } finally {
+            executor.shutdownNow();
           }
         }
 
         LOG.info("Commiting index...");
         searchStatusHolder.setStatus(SearchStatus.COMMITING);
+        int removed = manifest.removeMissing(contentDir);
+        if (removed > 0)
+          LOG.info("Removed " + removed + " works no longer in the content dir from the index manifest");
+        manifest.write(indexWriter);
         indexWriter.commit();
+        manifest.deleteStaleFiles(indexWriter);
         indexWriter.close();
         manager.getManager().maybeRefresh();
       }
@@ -179,6 +236,17 @@ public class JochreIndexBuilder implements Runnable, TokenExtractor {
     }
   }
 
+  private void processDocumentAndReport(JochreSearchManager manager, IndexWriter indexWriter, File subdir) {
+    try {
+      searchStatusHolder.setAction("Indexing " + subdir.getName());
+      this.processDocument(manager, indexWriter, subdir, forceUpdate);
+      searchStatusHolder.incrementSuccessCount(1);
+    } catch (Exception e) {
+      LOG.error("Failed to index " + subdir.getName(), e);
+      searchStatusHolder.incrementFailureCount(1);
+    }
+  }
+
   private void processDocument(JochreSearchManager manager, IndexWriter indexWriter, File documentDir,
       boolean forceUpdate) {
     try {
@@ -189,6 +257,7 @@ public class JochreIndexBuilder implements Runnable, TokenExtractor {
       switch (instructions) {
       case Delete:
         this.deleteDocumentInternal(indexWriter, jochreIndexDirectory);
+        manifest.remove(jochreIndexDirectory.getPath());
         return;
       case Skip:
         return;
@@ -204,7 +273,26 @@ public class JochreIndexBuilder implements Runnable, TokenExtractor {
       if (forceUpdate)
         updateIndex = true;
 
-      if (!updateIndex) {
+      long fingerprint = IndexManifest.getFingerprint(jochreIndexDirectory);
+      IndexManifest.Entry manifestEntry = manifest.get(jochreIndexDirectory.getPath());
+      if (!updateIndex && manifestEntry != null) {
+        if (manifestEntry.getFingerprint() != fingerprint) {
+          if (LOG.isDebugEnabled())
+            LOG.debug("For " + documentDir.getName() + " files changed since index date: "
+                + Instant.ofEpochMilli(manifestEntry.getIndexTime()).toString());
+          updateIndex = true;
+        } else if (verifySectionCounts) {
+          Query termQuery = new TermQuery(new Term(JochreIndexField.name.name(), jochreIndexDirectory.getName()));
+          int sectionCount = this.countSections(manager, termQuery);
+          if (sectionCount != manifestEntry.getSectionCount()) {
+            LOG.info("For " + documentDir.getName() + " found " + sectionCount + " sections in index, expected "
+                + manifestEntry.getSectionCount() + ": partially indexed");
+            updateIndex = true;
+          }
+        }
+      } else if (!updateIndex) {
+        // not in the manifest, e.g. an index built before manifests were
+        // stored: check the document in the index itself
         long ocrDate = jochreIndexDirectory.getAltoFile().lastModified();
         if (jochreIndexDirectory.getMetaDataFile() != null) {
           long metaDate = jochreIndexDirectory.getMetaDataFile().lastModified();
@@ -212,6 +300,7 @@ public class JochreIndexBuilder implements Runnable, TokenExtractor {
             ocrDate = metaDate;
         }
         long lastIndexDate = Long.MIN_VALUE;
+        int sectionCount = 0;
 
         IndexSearcher indexSearcher = manager.getManager().acquire();
         try {
@@ -219,8 +308,15 @@ public class JochreIndexBuilder implements Runnable, TokenExtractor {
           Query termQuery = new TermQuery(term);
           TopDocs topDocs = indexSearcher.search(termQuery, 1);
           if (topDocs.scoreDocs.length > 0) {
+            sectionCount = (int) topDocs.totalHits;
             Document doc = indexSearcher.doc(topDocs.scoreDocs[0].doc);
             lastIndexDate = doc.getField(JochreIndexField.indexTime.name()).numericValue().longValue();
+            if (doc.getBinaryValue(JochreIndexField.layout.name()) == null) {
+              // indexed with one field per row: re-index to store the layout
+              // in a single field
+              LOG.info("For " + documentDir.getName() + " no layout field found, migrating to layout field.");
+              lastIndexDate = Long.MIN_VALUE;
+            }
           }
         } finally {
           manager.getManager().release(indexSearcher);
@@ -236,11 +332,15 @@ public class JochreIndexBuilder implements Runnable, TokenExtractor {
                 + lastIndexInstant.toString() + ", ocrDate: " + ocrInstant.toString());
           }
           updateIndex = true;
+        } else {
+          manifest.put(jochreIndexDirectory.getPath(), lastIndexDate, fingerprint, sectionCount);
         }
       }
 
       if (updateIndex) {
-        this.updateDocumentInternal(indexWriter, jochreIndexDirectory, -1, -1);
+        long indexTime = System.currentTimeMillis();
+        int sectionCount = this.updateDocumentInternal(indexWriter, jochreIndexDirectory, -1, -1);
+        manifest.put(jochreIndexDirectory.getPath(), indexTime, fingerprint, sectionCount);
       } else {
         if (LOG.isTraceEnabled())
           LOG.trace("Index for " + documentDir.getName() + " already up-to-date.");
@@ -255,7 +355,22 @@ public class JochreIndexBuilder implements Runnable, TokenExtractor {
     }
   }
 
-  private void updateDocumentInternal(IndexWriter indexWriter, JochreIndexDirectory jochreIndexDirectory, int startPage,
+  /**
+   * The number of documents matching a query in the last committed index.
+   */
+  private int countSections(JochreSearchManager manager, Query query) throws IOException {
+    IndexSearcher indexSearcher = manager.getManager().acquire();
+    try {
+      return indexSearcher.count(query);
+    } finally {
+      manager.getManager().release(indexSearcher);
+    }
+  }
+
+  /**
+   * @return the number of Lucene documents added for this directory
+   */
+  private int updateDocumentInternal(IndexWriter indexWriter, JochreIndexDirectory jochreIndexDirectory, int startPage,
       int endPage) {
     try {
       LOG.info("Updating index for " + jochreIndexDirectory.getName());
@@ -264,6 +379,7 @@ public class JochreIndexBuilder implements Runnable, TokenExtractor {
 
       AltoDocument altoDoc = new AltoDocument(jochreIndexDirectory.getName());
       AltoReader reader = new AltoReader(altoDoc);
+      reader.setPageQueueSize(altoPageQueueSize);
       AltoPageIndexer altoPageIndexer = new AltoPageIndexer(indexWriter, this, jochreIndexDirectory, startPage,
           endPage);
       reader.addConsumer(altoPageIndexer);
@@ -271,6 +387,7 @@ public class JochreIndexBuilder implements Runnable, TokenExtractor {
       UnclosableInputStream uis = jochreIndexDirectory.getAltoInputStream();
       reader.parseFile(uis, jochreIndexDirectory.getName());
       uis.reallyClose();
+      return altoPageIndexer.docCount;
     } catch (IOException e) {
       LOG.error("Failed to update jochreIndexDirectory " + jochreIndexDirectory.getName(), e);
       throw new RuntimeException(e);
@@ -402,15 +519,18 @@ public class JochreIndexBuilder implements Runnable, TokenExtractor {
 
   @Override
   public List<JochreToken> findTokens(String fieldName, Reader input) {
-    return currentStrings;
+    return currentStrings.get();
   }
 
+  /**
+   * The strings for the document currently being added on this thread.
+   */
   public List<JochreToken> getCurrentStrings() {
-    return currentStrings;
+    return currentStrings.get();
   }
 
   public void setCurrentStrings(List<JochreToken> currentStrings) {
-    this.currentStrings = currentStrings;
+    this.currentStrings.set(currentStrings);
   }
 
   /**
@@ -19,6 +19,7 @@ import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.util.BytesRef;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -69,9 +70,7 @@ public class JochreIndexDocument {
   private final JochreIndexDirectory directory;
   private final int length;
   private Long indexTime = null;
-  private TIntObjectMap<TIntObjectMap<Rectangle>> rectangles = null;
-  private TIntObjectMap<TIntIntMap> startIndexes = null;
-  private TIntIntMap rowCounts = null;
+  private RowLayout layout = null;
   private int docId = -1;
 
   private JochreIndexTermLister termLister;
@@ -88,6 +87,16 @@ public class JochreIndexDocument {
     TYPE_STORED.freeze();
   }
 
+  /* Indexed, tokenized, not stored, for the lemma field. */
+  public static final FieldType TYPE_LEMMA = new FieldType();
+
+  static {
+    TYPE_LEMMA.setTokenized(true);
+    TYPE_LEMMA.setStored(false);
+    TYPE_LEMMA.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+    TYPE_LEMMA.freeze();
+  }
+
   /**
    * Construct a document already stored in the index.
    * 
@@ -159,9 +168,9 @@ public class JochreIndexDocument {
     this.indexSearcher = null;
 
     StringBuilder sb = new StringBuilder();
-    rectangles = new TIntObjectHashMap<>();
-    startIndexes = new TIntObjectHashMap<>();
-    rowCounts = new TIntIntHashMap();
+    TIntObjectMap<TIntObjectMap<Rectangle>> rectangles = new TIntObjectHashMap<>();
+    TIntObjectMap<TIntIntMap> startIndexes = new TIntObjectHashMap<>();
+    TIntIntMap rowCounts = new TIntIntHashMap();
     int lastSpanStart = 0;
 
     for (AltoPage page : pages) {
@@ -242,6 +251,7 @@ public class JochreIndexDocument {
 
     this.contents = sb.toString();
     this.length = this.contents.length();
+    this.layout = RowLayout.fromMaps(rowCounts, rectangles, startIndexes);
 
     this.startPage = pages.get(0).getIndex();
     this.endPage = pages.get(pages.size() - 1).getIndex();
@@ -259,6 +269,8 @@ public class JochreIndexDocument {
       doc.add(new StoredField(JochreIndexField.endPage.name(), endPage));
       doc.add(new StringField(JochreIndexField.sectionNumber.name(), "" + sectionNumber, Field.Store.YES));
       doc.add(new Field(JochreIndexField.text.name(), contents, TYPE_STORED));
+      if (config.isIndexLemmas())
+        doc.add(new Field(JochreIndexField.lemma.name(), contents, TYPE_LEMMA));
       doc.add(new StoredField(JochreIndexField.length.name(), length));
       doc.add(new StoredField(JochreIndexField.indexTime.name(), System.currentTimeMillis()));
 
@@ -289,29 +301,7 @@ public class JochreIndexDocument {
       if (this.url != null)
         doc.add(new StringField(JochreIndexField.url.name(), this.url, Field.Store.YES));
 
-      for (int pageIndex : rectangles.keys()) {
-        TIntObjectMap<Rectangle> rowRectangles = rectangles.get(pageIndex);
-        for (int rowIndex : rowRectangles.keys()) {
-          Rectangle rect = rowRectangles.get(rowIndex);
-          String fieldName = JochreIndexField.rect.name() + pageIndex + "_" + rowIndex;
-          doc.add(new StoredField(fieldName, this.rectToString(rect)));
-        }
-      }
-
-      for (int pageIndex : startIndexes.keys()) {
-        TIntIntMap rowStartIndexes = startIndexes.get(pageIndex);
-        for (int rowIndex : rowStartIndexes.keys()) {
-          int startIndex = rowStartIndexes.get(rowIndex);
-          String fieldName = JochreIndexField.start.name() + pageIndex + "_" + rowIndex;
-          doc.add(new StoredField(fieldName, startIndex));
-        }
-      }
-
-      for (int pageIndex : rowCounts.keys()) {
-        int rowCount = rowCounts.get(pageIndex);
-        String fieldName = JochreIndexField.rowCount.name() + pageIndex;
-        doc.add(new StoredField(fieldName, rowCount));
-      }
+      doc.add(new StoredField(JochreIndexField.layout.name(), layout.toBytes()));
 
       indexWriter.addDocument(doc);
 
@@ -374,105 +364,62 @@ public class JochreIndexDocument {
     return length;
   }
 
+  /**
+   * The layout of this document's rows. For documents indexed before the
+   * layout was stored as a single field, it is read from the individual row
+   * fields instead.
+   */
+  public RowLayout getLayout() {
+    if (layout == null) {
+      BytesRef bytes = doc.getBinaryValue(JochreIndexField.layout.name());
+      if (bytes != null)
+        layout = RowLayout.fromBytes(bytes);
+      else
+        layout = RowLayout.fromLegacyFields(doc, startPage, endPage);
+    }
+    return layout;
+  }
+
   /**
    * Get the rectangle enclosing a particular row.
    */
   public Rectangle getRowRectangle(int pageIndex, int rowIndex) {
-    Rectangle rect = null;
-    if (rectangles != null) {
-      TIntObjectMap<Rectangle> rowRectangles = rectangles.get(pageIndex);
-      if (rowRectangles == null)
-        throw new IndexFieldNotFoundException("No rectangles for pageIndex " + pageIndex);
-
-      rect = rowRectangles.get(rowIndex);
-      if (rect == null)
-        throw new IndexFieldNotFoundException("No rectangles for pageIndex " + pageIndex + ", rowIndex " + rowIndex);
-    } else if (doc != null) {
-      String fieldName = JochreIndexField.rect.name() + pageIndex + "_" + rowIndex;
-      String rectString = this.doc.get(fieldName);
-      if (rectString == null) {
-        throw new IndexFieldNotFoundException("No rectangle found for " + fieldName + " in document "
-            + this.doc.get(JochreIndexField.name.name()) + ", pages " + this.doc.get(JochreIndexField.startPage.name())
-            + " to " + this.doc.get(JochreIndexField.endPage.name()) + " (docId=" + this.docId + ")");
-      }
-      rect = this.stringToRect(rectString);
-    }
-    return rect;
+    return this.getLayout().getRowRectangle(pageIndex, rowIndex);
   }
 
   /**
    * Return the content index of the first character on a given row.
    */
   public int getStartIndex(int pageIndex, int rowIndex) {
-    int startIndex = -1;
-    if (startIndexes != null) {
-      TIntIntMap rowStartIndexes = startIndexes.get(pageIndex);
-      if (rowStartIndexes == null)
-        throw new IndexFieldNotFoundException("No start indexes for pageIndex " + pageIndex);
-
-      startIndex = rowStartIndexes.get(rowIndex);
-      if (startIndex == -1)
-        throw new IndexFieldNotFoundException("No start index for pageIndex " + pageIndex + ", rowIndex " + rowIndex);
-    } else if (doc != null) {
-      String fieldName = JochreIndexField.start.name() + pageIndex + "_" + rowIndex;
-      Number startIndexObj = null;
-      IndexableField field = this.doc.getField(fieldName);
-      if (field != null)
-        startIndexObj = field.numericValue();
-      if (startIndexObj == null) {
-        throw new IndexFieldNotFoundException("No start index found for " + fieldName + " in document "
-            + this.doc.get(JochreIndexField.name.name()) + ", pages " + this.doc.get(JochreIndexField.startPage.name())
-            + " to " + this.doc.get(JochreIndexField.endPage.name()));
-      }
-      startIndex = startIndexObj.intValue();
-    }
-    return startIndex;
+    return this.getLayout().getStartIndex(pageIndex, rowIndex);
   }
 
   /**
    * Return the content index following the last character on a given row.
    */
   public int getEndIndex(int pageIndex, int rowIndex) {
-    int endIndex = -1;
-    if (rowIndex + 1 < this.getRowCount(pageIndex))
-      endIndex = this.getStartIndex(pageIndex, rowIndex + 1);
-    else {
-      for (int i = pageIndex + 1; i <= this.getEndPage(); i++) {
-        try {
-          endIndex = this.getStartIndex(i, 0);
-          break;
-        } catch (IndexFieldNotFoundException e) {
-          // do nothing
-        }
-      }
-    }
+    int endIndex = this.getLayout().getEndIndex(pageIndex, rowIndex);
     if (endIndex == -1) {
       endIndex = this.getLength();
     }
     return endIndex;
   }
 
+  /**
+   * Find the row containing a given content offset.
+   * 
+   * @return an array containing the page index and row index, or null if the
+   *         offset precedes the first row.
+   */
+  public int[] findRow(int offset) {
+    return this.getLayout().findRow(offset);
+  }
+
   /**
    * Get the number of rows on a given page.
    */
   public int getRowCount(int pageIndex) {
-    int rowCount = -1;
-    if (rowCounts != null) {
-      return rowCounts.get(pageIndex);
-    } else {
-      String fieldName = JochreIndexField.rowCount.name() + pageIndex;
-      Number rowCountObj = null;
-      IndexableField field = this.doc.getField(fieldName);
-      if (field != null)
-        rowCountObj = field.numericValue();
-      if (rowCountObj == null) {
-        throw new IndexFieldNotFoundException("NorowCount found for " + fieldName + " in document "
-            + this.doc.get(JochreIndexField.name.name()) + ", pages " + this.doc.get(JochreIndexField.startPage.name())
-            + " to " + this.doc.get(JochreIndexField.endPage.name()));
-      }
-      rowCount = rowCountObj.intValue();
-    }
-    return rowCount;
+    return this.getLayout().getRowCount(pageIndex);
   }
 
   /**
@@ -498,28 +445,16 @@ public class JochreIndexDocument {
   }
 
   /**
-   * Get the image corresponding to a particular page index.
+   * Get the image corresponding to a particular page index. The image is
+   * shared with other callers via the {@link PageImageCache}, and should not be
+   * modified.
    */
   public BufferedImage getImage(int pageIndex) {
-    PdfImageReader pdfImageReader = new PdfImageReader(this.directory.getPdfFile());
-    BufferedImage image = pdfImageReader.readImage(pageIndex);
+    PageImageCache pageImageCache = PageImageCache.getInstance(config.getConfigId());
+    BufferedImage image = pageImageCache.getImage(this.directory.getPdfFile(), pageIndex);
     return image;
   }
 
-  private String rectToString(Rectangle rect) {
-    return rect.x + "|" + rect.y + "|" + rect.width + "|" + rect.height;
-  }
-
-  private Rectangle stringToRect(String string) {
-    String[] parts = string.split("\\|");
-    int x = Integer.parseInt(parts[0]);
-    int y = Integer.parseInt(parts[1]);
-    int width = Integer.parseInt(parts[2]);
-    int height = Integer.parseInt(parts[3]);
-    Rectangle rect = new Rectangle(x, y, width, height);
-    return rect;
-  }
-
   /**
    * Get the word starting at the given offset, or at the maximum offset prior to
    * this one.
@@ -22,6 +22,11 @@ public enum JochreIndexField {
   endPage,
   /** Tokenised contents of the current section */
   text,
+  /**
+   * Lemmas of the tokenised contents, at the same positions and offsets as in
+   * {@link #text}, only indexed if {@link JochreSearchConfig#isIndexLemmas()}
+   */
+  lemma,
   /** Time when this book was last indexed */
   indexTime,
   /** Full author name (not tokenised) in English */
@@ -48,10 +53,12 @@ public enum JochreIndexField {
   volume,
   /** Length of current section in characters */
   length,
-  /** Prefix for each row's rectangle. */
+  /** Binary layout of the rows on each page, see {@link RowLayout} */
+  layout,
+  /** Prefix for each row's rectangle, in documents indexed without a layout. */
   rect,
-  /** Prefix for each row's start position in characters. */
+  /** Prefix for each row's start position in characters, in documents indexed without a layout. */
   start,
-  /** Prefix for the number of rows in each page */
+  /** Prefix for the number of rows in each page, in documents indexed without a layout. */
   rowCount;
 }
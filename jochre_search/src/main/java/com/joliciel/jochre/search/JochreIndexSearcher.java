@@ -1,15 +1,21 @@
 package com.joliciel.jochre.search;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.BooleanQuery.Builder;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
@@ -43,7 +49,9 @@ public class JochreIndexSearcher {
   }
 
   /**
-   * Return paginated results for a query.
+   * Return paginated results for a query. The full results (up to the maximum
+   * results) are cached by the underlying {@link JochreSearcher} where possible,
+   * so that further pages for the same query only cost a slice.
    * 
    * @param jochreQuery
    *          the query to run
@@ -56,19 +64,165 @@ public class JochreIndexSearcher {
    * @throws IOException
    */
   public Pair<TopDocs, Integer> search(JochreQuery jochreQuery, int pageNumber, int resultsPerPage) throws IOException {
+    TopDocs allDocs = this.searchAll(jochreQuery);
+    TopDocs topDocs = slice(allDocs, pageNumber * resultsPerPage, resultsPerPage);
+    this.logResults(topDocs);
+    return Pair.of(topDocs, (int) allDocs.totalHits);
+  }
+
+  /**
+   * Return the page of results following a given cursor, as returned by
+   * {@link #getCursor(ScoreDoc)} for the last result of the previous page. If
+   * the query's full results are cached they are sliced, otherwise Lucene's
+   * searchAfter is used to collect only the requested page.
+   * 
+   * @param cursor
+   *          the cursor following which results should be returned, or null
+   *          for the first page
+   * @return a pair giving the TopDocs corresponding to the paginated results, and
+   *         the total hits
+   * @throws JochreSearchException
+   *           if the cursor is invalid, or if it was created before the index
+   *           was last refreshed, in which case its doc id may no longer refer
+   *           to the same document
+   */
+  public Pair<TopDocs, Integer> searchAfter(JochreQuery jochreQuery, String cursor, int resultsPerPage)
+      throws IOException {
+    if (cursor == null)
+      return this.search(jochreQuery, 0, resultsPerPage);
+
+    FieldDoc after = this.parseCursor(cursor);
+    TopDocs topDocs = null;
+    long totalHits = 0;
+    TopDocs allDocs = this.getCachedResults(jochreQuery);
+    if (allDocs != null) {
+      for (int i = 0; i < allDocs.scoreDocs.length; i++) {
+        if (allDocs.scoreDocs[i].doc == after.doc) {
+          topDocs = slice(allDocs, i + 1, resultsPerPage);
+          totalHits = allDocs.totalHits;
+          break;
+        }
+      }
+    }
+
+    if (topDocs == null) {
+      Sort sort = getSort(jochreQuery);
+      if (sort == null)
+        topDocs = indexSearcher.searchAfter(after, jochreQuery.getLuceneQuery(), resultsPerPage);
+      else
+        topDocs = indexSearcher.searchAfter(after, jochreQuery.getLuceneQuery(), resultsPerPage, sort, false, false);
+      totalHits = topDocs.totalHits;
+    }
+
+    this.logResults(topDocs);
+    return Pair.of(topDocs, (int) totalHits);
+  }
+
+  /**
+   * An opaque cursor identifying a given result, to be passed to
+   * {@link #searchAfter(JochreQuery, String, int)} in order to retrieve the
+   * results following it. Lucene doc ids change when segments are merged, so
+   * the cursor includes the version of the index it was created on, and is
+   * only valid until the index is next refreshed.
+   */
+  public String getCursor(ScoreDoc scoreDoc) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(this.getIndexVersion()).append(':');
+    sb.append(scoreDoc.doc).append(':').append(Float.floatToIntBits(scoreDoc.score));
+    if (scoreDoc instanceof FieldDoc) {
+      FieldDoc fieldDoc = (FieldDoc) scoreDoc;
+      if (fieldDoc.fields != null && fieldDoc.fields.length == 1 && fieldDoc.fields[0] instanceof Integer)
+        sb.append(':').append(fieldDoc.fields[0]);
+    }
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private FieldDoc parseCursor(String cursor) {
+    String[] parts = null;
+    long version = 0;
+    int doc = 0;
+    float score = 0;
+    Object[] fields = null;
+    try {
+      String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      parts = decoded.split(":");
+      version = Long.parseLong(parts[0]);
+      doc = Integer.parseInt(parts[1]);
+      score = Float.intBitsToFloat(Integer.parseInt(parts[2]));
+      if (parts.length > 3)
+        fields = new Object[] { Integer.parseInt(parts[3]) };
+    } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+      throw new JochreSearchException("Invalid cursor: " + cursor);
+    }
+    if (version != this.getIndexVersion())
+      throw new JochreSearchException("Stale cursor: the index has changed since it was created: " + cursor);
+    return new FieldDoc(doc, score, fields);
+  }
+
+  /**
+   * The version of the index being searched, which changes whenever the index
+   * is modified.
+   */
+  private long getIndexVersion() {
+    IndexReader indexReader = indexSearcher.getIndexReader();
+    if (indexReader instanceof DirectoryReader)
+      return ((DirectoryReader) indexReader).getVersion();
+    return 0;
+  }
+
+  private TopDocs searchAll(JochreQuery jochreQuery) throws IOException {
+    TopDocs allDocs = this.getCachedResults(jochreQuery);
+    if (allDocs != null)
+      return allDocs;
+
     TopDocsCollector<? extends ScoreDoc> topDocsCollector = null;
-    switch (jochreQuery.getSortBy()) {
-    case Score:
+    Sort sort = getSort(jochreQuery);
+    if (sort == null)
       topDocsCollector = TopScoreDocCollector.create(this.maxDocs);
+    else
+      topDocsCollector = TopFieldCollector.create(sort, this.maxDocs, true, false, false, true);
+
+    indexSearcher.search(jochreQuery.getLuceneQuery(), topDocsCollector);
+    allDocs = topDocsCollector.topDocs();
+    if (indexSearcher instanceof JochreSearcher)
+      ((JochreSearcher) indexSearcher).cacheResults(getCacheKey(jochreQuery), allDocs);
+    return allDocs;
+  }
+
+  private TopDocs getCachedResults(JochreQuery jochreQuery) {
+    if (indexSearcher instanceof JochreSearcher)
+      return ((JochreSearcher) indexSearcher).getCachedResults(getCacheKey(jochreQuery));
+    return null;
+  }
+
+  /**
+   * Queries are cached by their normalised Lucene query and sort order.
+   */
+  private static Object getCacheKey(JochreQuery jochreQuery) {
+    return Arrays.asList(jochreQuery.getLuceneQuery(), jochreQuery.getSortBy(), jochreQuery.isSortAscending());
+  }
+
+  /**
+   * The sort for a given query, or null if sorted by score.
+   */
+  private static Sort getSort(JochreQuery jochreQuery) {
+    switch (jochreQuery.getSortBy()) {
     case Year:
-      topDocsCollector = TopFieldCollector.create(new Sort(new SortedNumericSortField(JochreIndexField.yearSort.name(),
-          SortField.Type.INT, !jochreQuery.isSortAscending())), this.maxDocs, false, false, false, true);
+      return new Sort(new SortedNumericSortField(JochreIndexField.yearSort.name(), SortField.Type.INT,
+          !jochreQuery.isSortAscending()));
+    case Score:
+    default:
+      return null;
     }
+  }
 
-    indexSearcher.search(jochreQuery.getLuceneQuery(), topDocsCollector);
-    TopDocs topDocs = topDocsCollector.topDocs(pageNumber * resultsPerPage, resultsPerPage);
-    int totalHits = topDocsCollector.getTotalHits();
+  private static TopDocs slice(TopDocs allDocs, int start, int howMany) {
+    int from = Math.min(start, allDocs.scoreDocs.length);
+    int to = Math.min(from + howMany, allDocs.scoreDocs.length);
+    return new TopDocs(allDocs.totalHits, Arrays.copyOfRange(allDocs.scoreDocs, from, to), allDocs.getMaxScore());
+  }
 
+  private void logResults(TopDocs topDocs) throws IOException {
     if (LOG.isTraceEnabled()) {
       LOG.trace("Search results: ");
       for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
@@ -77,7 +231,6 @@ public class JochreIndexSearcher {
         LOG.trace(extId + "(docId " + scoreDoc.doc + "): " + scoreDoc.score);
       }
     }
-    return Pair.of(topDocs, totalHits);
   }
 
   /**
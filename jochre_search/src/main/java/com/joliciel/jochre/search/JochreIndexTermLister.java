@@ -105,7 +105,7 @@ public class JochreIndexTermLister {
 
   public void list(Writer writer) {
     try {
-      JsonFactory jsonFactory = new JsonFactory();
+      JsonFactory jsonFactory = JochreSearchConstants.JSON_FACTORY;
       JsonGenerator jsonGen = jsonFactory.createGenerator(writer);
 
       jsonGen.writeStartArray();
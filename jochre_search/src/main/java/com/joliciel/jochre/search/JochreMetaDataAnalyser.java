@@ -1,5 +1,8 @@
 package com.joliciel.jochre.search;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.Tokenizer;
@@ -17,8 +20,24 @@ import com.joliciel.jochre.search.lexicon.TextNormalisingFilter;
  *
  */
 class JochreMetaDataAnalyser extends Analyzer {
+  private static final Map<String, JochreMetaDataAnalyser> instances = new HashMap<>();
+
   private final TextNormaliser textNormaliser;
 
+  /**
+   * A shared instance for analysing queries in a given configuration.
+   */
+  public static JochreMetaDataAnalyser getInstance(String configId) {
+    synchronized (instances) {
+      JochreMetaDataAnalyser instance = instances.get(configId);
+      if (instance == null) {
+        instance = new JochreMetaDataAnalyser(configId);
+        instances.put(configId, instance);
+      }
+      return instance;
+    }
+  }
+
   public JochreMetaDataAnalyser(String configId) {
     textNormaliser = TextNormaliser.getInstance(configId);
   }
@@ -143,8 +143,15 @@ public class JochreQuery {
         }
         LOG.debug("Parsing query: " + this.getQueryString());
         LOG.debug("expandInflections: " + expandInflections);
-        JochreQueryAnalyser analyzer = new JochreQueryAnalyser(configId, expandInflections);
-        QueryParser queryParser = new QueryParser(JochreIndexField.text.name(), analyzer);
+        JochreSearchConfig config = JochreSearchConfig.getInstance(configId);
+        QueryParser queryParser = null;
+        if (expandInflections && config.isIndexLemmas()) {
+          queryParser = new LemmaQueryParser(JochreQueryAnalyser.getInstance(configId, false),
+              JochreQueryAnalyser.getInstance(configId, true), config.getLexicon());
+        } else {
+          JochreQueryAnalyser analyzer = JochreQueryAnalyser.getInstance(configId, expandInflections);
+          queryParser = new QueryParser(JochreIndexField.text.name(), analyzer);
+        }
         String queryString = this.getQueryString();
         TextNormaliser textNormaliser = TextNormaliser.getInstance(configId);
         if (textNormaliser != null)
@@ -164,7 +171,7 @@ public class JochreQuery {
    */
   public Query getLuceneQuery() {
     try {
-      Analyzer jochreAnalyzer = new JochreMetaDataAnalyser(configId);
+      Analyzer jochreAnalyzer = JochreMetaDataAnalyser.getInstance(configId);
       if (luceneQuery == null) {
         Builder builder = new Builder();
         boolean hasQuery = false;
@@ -1,5 +1,7 @@
 package com.joliciel.jochre.search;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 import org.apache.lucene.analysis.Analyzer;
@@ -18,13 +20,16 @@ import com.joliciel.jochre.search.lexicon.TextNormaliser;
 import com.joliciel.jochre.search.lexicon.TextNormalisingFilter;
 
 /**
- * The analyser used to analyse user queries.
+ * The analyser used to analyse user queries. Analysers are thread-safe and
+ * reuse their token streams per thread, so a single shared instance per
+ * configuration should be retrieved via {@link #getInstance(String, boolean)}.
  * 
  * @author Assaf Urieli
  *
  */
 class JochreQueryAnalyser extends Analyzer {
   private static final Logger LOG = LoggerFactory.getLogger(JochreQueryAnalyser.class);
+  private static final Map<String, JochreQueryAnalyser> instances = new HashMap<>();
 
   private final Lexicon lexicon;
   private final boolean expandInflections;
@@ -32,6 +37,18 @@ class JochreQueryAnalyser extends Analyzer {
   private final JochreSearchConfig config;
   private final Pattern tokenSplitPattern;
 
+  public static JochreQueryAnalyser getInstance(String configId, boolean expandInflections) {
+    synchronized (instances) {
+      String key = configId + "|" + expandInflections;
+      JochreQueryAnalyser instance = instances.get(key);
+      if (instance == null) {
+        instance = new JochreQueryAnalyser(configId, expandInflections);
+        instances.put(key, instance);
+      }
+      return instance;
+    }
+  }
+
   public JochreQueryAnalyser(String configId, boolean expandInflections) {
     this.textNormaliser = TextNormaliser.getInstance(configId);
     this.config = JochreSearchConfig.getInstance(configId);
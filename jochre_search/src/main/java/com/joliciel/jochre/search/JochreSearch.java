@@ -37,6 +37,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
@@ -71,11 +72,13 @@ import com.joliciel.jochre.search.feedback.FeedbackCriterion;
 import com.joliciel.jochre.search.feedback.FeedbackDocument;
 import com.joliciel.jochre.search.feedback.FeedbackQuery;
 import com.joliciel.jochre.search.feedback.FeedbackSuggestion;
+import com.joliciel.jochre.search.feedback.FeedbackWriter;
 import com.joliciel.jochre.search.highlight.HighlightManager;
 import com.joliciel.jochre.search.highlight.Highlighter;
 import com.joliciel.jochre.search.highlight.ImageSnippet;
 import com.joliciel.jochre.search.highlight.LuceneQueryHighlighter;
 import com.joliciel.jochre.search.highlight.Snippet;
+import com.joliciel.jochre.search.lexicon.FstLexicon;
 import com.joliciel.jochre.search.lexicon.LexicalEntryReader;
 import com.joliciel.jochre.search.lexicon.Lexicon;
 import com.joliciel.jochre.search.lexicon.RegexLexicalEntryReader;
@@ -100,6 +103,7 @@ public class JochreSearch {
   private static DecimalFormatSymbols enSymbols = new DecimalFormatSymbols(Locale.US);
 
   private final String configId;
+  private final Map<Command, LatencyHistogram> latencies = new EnumMap<>(Command.class);
 
   public JochreSearch(String configId) {
     if (configId == null) {
@@ -108,6 +112,8 @@ public class JochreSearch {
     } else {
       this.configId = configId;
     }
+    for (Command command : Command.values())
+      latencies.put(command, new LatencyHistogram());
   }
 
   public JochreSearch() {
@@ -167,6 +173,11 @@ public class JochreSearch {
      * Deserialize a lexicon and test certain words.
      */
     deserializeLexicon("application/json;charset=UTF-8"),
+    /**
+     * Compile a serialized lexicon into a memory-mapped
+     * {@link com.joliciel.jochre.search.lexicon.FstLexicon}.
+     */
+    compileLexicon("application/json;charset=UTF-8"),
     /**
      * Return the highlighted text corresponding to a particular snippet.
      */
@@ -183,6 +194,11 @@ public class JochreSearch {
      * Check the status of the index update thread.
      */
     indexStatus("application/json;charset=UTF-8"),
+    /**
+     * Return the latency statistics of each command executed so far by this
+     * instance, in milliseconds.
+     */
+    stats("application/json;charset=UTF-8"),
     /**
      * Refresh the index reader, to take into account any index updates.
      */
@@ -216,8 +232,13 @@ public class JochreSearch {
 
   }
 
+  /**
+   * Execute a single command. A single instance can be shared by any number of
+   * threads, as all per-request state is local to this method.
+   */
   public void execute(Map<String, String> argMap, Either<PrintWriter, OutputStream> output) {
     long startTime = System.currentTimeMillis();
+    long startNanos = System.nanoTime();
     Command command = null;
     try {
       command = Command.valueOf(argMap.get("command"));
@@ -249,11 +270,14 @@ public class JochreSearch {
       Integer toYear = null;
       String reference = null;
       int pageNumber = 0;
+      String cursor = null;
       int resultsPerPage = config.getConfig().getInt("results-per-page");
 
       // lexicon handling
       String lexiconDirPath = null;
       String lexiconRegexPath = null;
+      String lexiconFilePath = null;
+      String lexiconOutPath = null;
       String word = null;
 
       // snippets
@@ -316,6 +340,10 @@ public class JochreSearch {
           lexiconDirPath = argValue;
         } else if (argName.equals("lexiconRegex")) {
           lexiconRegexPath = argValue;
+        } else if (argName.equals("lexiconFile")) {
+          lexiconFilePath = argValue;
+        } else if (argName.equals("lexiconOut")) {
+          lexiconOutPath = argValue;
         } else if (argName.equals("word")) {
           word = argValue;
         } else if (argName.equals("snippetCount")) {
@@ -369,6 +397,8 @@ public class JochreSearch {
           reference = argValue;
         } else if (argName.equals("page")) {
           pageNumber = Integer.parseInt(argValue);
+        } else if (argName.equals("cursor")) {
+          cursor = argValue;
         } else if (argName.equals("resultsPerPage")) {
           resultsPerPage = Integer.parseInt(argValue);
         } else if (argName.equals("applyEverywhere")) {
@@ -398,7 +428,7 @@ public class JochreSearch {
         SearchStatusHolder searchStatusHolder = SearchStatusHolder.getInstance();
         DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
 
-        JsonFactory jsonFactory = new JsonFactory();
+        JsonFactory jsonFactory = JochreSearchConstants.JSON_FACTORY;
         JsonGenerator jsonGen = jsonFactory.createGenerator(out);
 
         jsonGen.writeStartObject();
@@ -416,6 +446,22 @@ public class JochreSearch {
         jsonGen.flush();
         break;
       }
+      case stats: {
+        JsonFactory jsonFactory = JochreSearchConstants.JSON_FACTORY;
+        JsonGenerator jsonGen = jsonFactory.createGenerator(out);
+
+        jsonGen.writeStartObject();
+        for (Command oneCommand : Command.values()) {
+          LatencyHistogram histogram = latencies.get(oneCommand);
+          if (histogram.getCount() > 0) {
+            jsonGen.writeFieldName(oneCommand.name());
+            histogram.toJson(jsonGen);
+          }
+        }
+        jsonGen.writeEndObject();
+        jsonGen.flush();
+        break;
+      }
       case refresh: {
         JochreSearchManager manager = JochreSearchManager.getInstance(configId);
         manager.getManager().maybeRefresh();
@@ -435,8 +481,12 @@ public class JochreSearch {
 
             switch (command) {
             case search: {
-              Pair<TopDocs, Integer> results = searcher.search(query, pageNumber, resultsPerPage);
-              JsonFactory jsonFactory = new JsonFactory();
+              Pair<TopDocs, Integer> results = null;
+              if (cursor != null)
+                results = searcher.searchAfter(query, cursor, resultsPerPage);
+              else
+                results = searcher.search(query, pageNumber, resultsPerPage);
+              JsonFactory jsonFactory = JochreSearchConstants.JSON_FACTORY;
               JsonGenerator jsonGen = jsonFactory.createGenerator(out);
 
               jsonGen.writeStartObject();
@@ -463,6 +513,9 @@ public class JochreSearch {
               }
 
               jsonGen.writeEndArray();
+              if (topDocs.scoreDocs.length > 0)
+                jsonGen.writeStringField("cursor",
+                    searcher.getCursor(topDocs.scoreDocs[topDocs.scoreDocs.length - 1]));
               jsonGen.writeEndObject();
               jsonGen.flush();
 
@@ -490,7 +543,7 @@ public class JochreSearch {
                 if (query.getReference() != null)
                   feedbackQuery.addClause(FeedbackCriterion.reference, query.getReference());
 
-                feedbackQuery.save();
+                FeedbackWriter.getInstance(configId).write(feedbackQuery);
               }
               break;
             }
@@ -500,7 +553,11 @@ public class JochreSearch {
                     "For command " + command + " a query is required - no highlights available.");
 
               if (docIds == null) {
-                Pair<TopDocs, Integer> result = searcher.search(query, pageNumber, resultsPerPage);
+                Pair<TopDocs, Integer> result = null;
+                if (cursor != null)
+                  result = searcher.searchAfter(query, cursor, resultsPerPage);
+                else
+                  result = searcher.search(query, pageNumber, resultsPerPage);
 
                 docIds = new LinkedHashSet<>();
                 for (ScoreDoc scoreDoc : result.getLeft().scoreDocs) {
@@ -509,6 +566,7 @@ public class JochreSearch {
                   Document doc = indexSearcher.doc(scoreDoc.doc);
                   for (IndexableField oneField : doc.getFields()) {
                     if (!oneField.name().equals(JochreIndexField.text.name())
+                        && !oneField.name().equals(JochreIndexField.layout.name())
                         && !oneField.name().startsWith(JochreIndexField.rect.name())
                         && !oneField.name().startsWith(JochreIndexField.start.name()))
                       LOG.debug(oneField.toString());
@@ -536,7 +594,7 @@ public class JochreSearch {
             }
             }
           } catch (JochreQueryParseException e) {
-            JsonFactory jsonFactory = new JsonFactory();
+            JsonFactory jsonFactory = JochreSearchConstants.JSON_FACTORY;
             JsonGenerator jsonGen = jsonFactory.createGenerator(out);
 
             jsonGen.writeStartObject();
@@ -625,7 +683,7 @@ public class JochreSearch {
             word2 = word1.substring(word1.indexOf(JochreSearchConstants.INDEX_NEWLINE) + 1);
             word1 = word1.substring(0, word1.indexOf(JochreSearchConstants.INDEX_NEWLINE));
           }
-          JsonFactory jsonFactory = new JsonFactory();
+          JsonFactory jsonFactory = JochreSearchConstants.JSON_FACTORY;
           JsonGenerator jsonGen = jsonFactory.createGenerator(out);
           jsonGen.writeStartObject();
           jsonGen.writeStringField("word", word1);
@@ -658,7 +716,7 @@ public class JochreSearch {
 
           Document doc = indexSearcher.doc(docId);
 
-          JsonFactory jsonFactory = new JsonFactory();
+          JsonFactory jsonFactory = JochreSearchConstants.JSON_FACTORY;
           JsonGenerator jsonGen = jsonFactory.createGenerator(out);
 
           jsonGen.writeStartObject();
@@ -932,7 +990,7 @@ public class JochreSearch {
         IndexSearcher indexSearcher = searchManager.getManager().acquire();
         try {
           FieldTermPrefixFinder finder = new FieldTermPrefixFinder(indexSearcher, field, prefix, maxResults, configId);
-          JsonFactory jsonFactory = new JsonFactory();
+          JsonFactory jsonFactory = JochreSearchConstants.JSON_FACTORY;
           JsonGenerator jsonGen = jsonFactory.createGenerator(out);
 
           jsonGen.writeStartArray();
@@ -972,7 +1030,7 @@ public class JochreSearch {
             docs.add(doc);
           }
 
-          JsonFactory jsonFactory = new JsonFactory();
+          JsonFactory jsonFactory = JochreSearchConstants.JSON_FACTORY;
           JsonGenerator jsonGen = jsonFactory.createGenerator(out);
 
           jsonGen.writeStartArray();
@@ -1020,7 +1078,7 @@ public class JochreSearch {
         IndexSearcher indexSearcher = searchManager.getManager().acquire();
         try {
           int bookCount = ((JochreSearcher) indexSearcher).getBookCount();
-          JsonFactory jsonFactory = new JsonFactory();
+          JsonFactory jsonFactory = JochreSearchConstants.JSON_FACTORY;
           JsonGenerator jsonGen = jsonFactory.createGenerator(out);
 
           jsonGen.writeStartObject();
@@ -1075,6 +1133,23 @@ public class JochreSearch {
         }
         break;
       }
+      case compileLexicon: {
+        File lexiconFile = lexiconFilePath == null ? config.getLexiconFile() : new File(lexiconFilePath);
+        File outFile = null;
+        if (lexiconOutPath != null) {
+          outFile = new File(lexiconOutPath);
+        } else {
+          String baseName = lexiconFile.getName();
+          if (baseName.lastIndexOf('.') > 0)
+            baseName = baseName.substring(0, baseName.lastIndexOf('.'));
+          outFile = new File(lexiconFile.getAbsoluteFile().getParentFile(), baseName + FstLexicon.EXTENSION);
+        }
+
+        TextFileLexicon lexicon = TextFileLexicon.deserialize(lexiconFile);
+        FstLexicon.write(lexicon.wordToLemmaMap, outFile);
+        out.write("{\"response\":\"lexicon compiled\"}\n");
+        break;
+      }
       default: {
         throw new RuntimeException("Unknown command: " + command);
       }
@@ -1090,11 +1165,20 @@ public class JochreSearch {
       LOG.error("Failed to run command " + command, e);
       throw new RuntimeException(e);
     } finally {
+      if (command != null)
+        latencies.get(command).record(System.nanoTime() - startNanos);
       long endTime = System.currentTimeMillis();
       LOG.info("Command " + command + " completed in " + (endTime - startTime) + " ms");
     }
   }
 
+  /**
+   * The latencies recorded so far for a given command.
+   */
+  public LatencyHistogram getLatencies(Command command) {
+    return latencies.get(command);
+  }
+
   /**
    * Command-line entry point.
    */
@@ -1152,6 +1236,8 @@ public class JochreSearch {
       if (output.isRight())
         output.getRight().close();
     } finally {
+      // write any queries logged in the background
+      FeedbackWriter.shutdownAll();
       long endTime = System.currentTimeMillis();
       LOG.info("Total time: " + (endTime - startTime) + " ms");
     }
@@ -29,12 +29,13 @@ public class JochreSearchConfig {
   private static Map<String, JochreSearchConfig> instances = new HashMap<>();
 
   private final Config config;
+  private final Config pdfConfig;
   private final String configId;
   private final Locale locale;
   private final File contentDir;
   private final int maxResults;
 
-  public static JochreSearchConfig getInstance(String configId) {
+  public static synchronized JochreSearchConfig getInstance(String configId) {
     JochreSearchConfig searchConfig = instances.get(configId);
     if (searchConfig == null) {
       searchConfig = new JochreSearchConfig(configId);
@@ -47,6 +48,7 @@ public class JochreSearchConfig {
     this.configId = configId;
     Config config = ConfigFactory.load();
     this.config = config.getConfig("jochre.search." + configId);
+    this.pdfConfig = config.getConfig("jochre.pdf");
     this.locale = Locale.forLanguageTag(this.config.getString("locale"));
     this.contentDir = new File(this.config.getString("content-dir"));
     this.maxResults = this.config.getInt("max-results");
@@ -94,6 +96,15 @@ public class JochreSearchConfig {
     return lexicon;
   }
 
+  /**
+   * Should the lemmas of the text layer be indexed in
+   * {@link JochreIndexField#lemma}, so that queries expanding inflections can
+   * search for lemmas instead. Only true if a lexicon is configured.
+   */
+  public boolean isIndexLemmas() {
+    return config.getBoolean("index-lemmas") && config.hasPath("lexicon");
+  }
+
   public Locale getLocale() {
     return locale;
   }
@@ -106,6 +117,14 @@ public class JochreSearchConfig {
     return config;
   }
 
+  /**
+   * The configuration for reading PDF files, from the same configuration as
+   * this search configuration.
+   */
+  public Config getPdfConfig() {
+    return pdfConfig;
+  }
+
   public String getConfigId() {
     return configId;
   }
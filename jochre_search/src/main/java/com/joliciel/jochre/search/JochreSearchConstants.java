@@ -18,8 +18,16 @@
 //////////////////////////////////////////////////////////////////////////////
 package com.joliciel.jochre.search;
 
+import com.fasterxml.jackson.core.JsonFactory;
+
 public class JochreSearchConstants {
   public static final String INDEX_PARAGRAPH = "֎";
   public static final String INDEX_NEWLINE = "֏";
   public static final String INDEX_PUNCT_PREFIX = "※";
+
+  /**
+   * A JSON factory shared by all requests, as factories are thread-safe and
+   * costly to create.
+   */
+  public static final JsonFactory JSON_FACTORY = new JsonFactory();
 }
@@ -3,18 +3,70 @@ package com.joliciel.jochre.search;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TopDocs;
 
 public class JochreSearcher extends IndexSearcher {
   private final int bookCount;
+  private final Map<Object, TopDocs> resultCache;
+  private final Map<JochreIndexField, FieldTermCompletion> completions = new EnumMap<>(JochreIndexField.class);
 
   public JochreSearcher(IndexReader reader, JochreSearchConfig config) throws IOException {
     super(reader);
     File contentDir = config.getContentDir();
     bookCount = (int) (Files.find(contentDir.toPath(), 1, // how deep do we want to descend
         (path, attributes) -> attributes.isDirectory()).count() - 1);
+
+    final int maxQueries = config.getConfig().getInt("result-cache.max-queries");
+    this.resultCache = new LinkedHashMap<Object, TopDocs>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Object, TopDocs> eldest) {
+        return this.size() > maxQueries;
+      }
+    };
+  }
+
+  /**
+   * The results previously cached for a given query key, or null if none. Since
+   * a new searcher is created whenever the index reader is refreshed, cached
+   * results are always consistent with this searcher's doc ids.
+   */
+  public TopDocs getCachedResults(Object key) {
+    synchronized (resultCache) {
+      return resultCache.get(key);
+    }
+  }
+
+  /**
+   * Cache the results for a given query key, evicting the least recently used
+   * results if required.
+   */
+  public void cacheResults(Object key, TopDocs topDocs) {
+    synchronized (resultCache) {
+      resultCache.put(key, topDocs);
+    }
+  }
+
+  /**
+   * The completions for prefix searches in a given field, built from this
+   * searcher's reader on first use.
+   */
+  public FieldTermCompletion getCompletion(JochreIndexField field) throws IOException {
+    synchronized (completions) {
+      FieldTermCompletion completion = completions.get(field);
+      if (completion == null) {
+        completion = FieldTermCompletion.build(this.getIndexReader(), field);
+        completions.put(field, completion);
+      }
+      return completion;
+    }
   }
 
   /**
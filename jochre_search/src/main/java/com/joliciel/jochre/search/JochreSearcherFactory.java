@@ -1,21 +1,82 @@
 package com.joliciel.jochre.search;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.SearcherFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class JochreSearcherFactory extends SearcherFactory {
+  private static final Logger LOG = LoggerFactory.getLogger(JochreSearcherFactory.class);
+
   private final JochreSearchConfig config;
+  private final List<JochreIndexField> preloadFields;
+  private final ExecutorService preloadExecutor;
 
+  /**
+   * @throws JochreSearchException
+   *           if prefix-search.preload-fields contains an unknown field
+   */
   public JochreSearcherFactory(JochreSearchConfig config) {
     this.config = config;
+    List<JochreIndexField> preloadFields = new ArrayList<>();
+    for (String fieldName : config.getConfig().getStringList("prefix-search.preload-fields")) {
+      try {
+        preloadFields.add(JochreIndexField.valueOf(fieldName));
+      } catch (IllegalArgumentException e) {
+        throw new JochreSearchException("Unknown field in prefix-search.preload-fields: " + fieldName
+            + ". Expected one of: " + Arrays.toString(JochreIndexField.values()));
+      }
+    }
+    this.preloadFields = Collections.unmodifiableList(preloadFields);
+
+    if (this.preloadFields.isEmpty()) {
+      this.preloadExecutor = null;
+    } else {
+      this.preloadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "jochre-completion-preload");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
   }
 
   @Override
   public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) throws IOException {
-    return new JochreSearcher(reader, config);
+    JochreSearcher searcher = new JochreSearcher(reader, config);
+    // build completions in the background as soon as the reader is refreshed
+    // after a commit, rather than on the first prefix search, without delaying
+    // the refresh itself
+    if (preloadExecutor != null)
+      preloadExecutor.submit(() -> this.preload(searcher));
+    return searcher;
+  }
+
+  private void preload(JochreSearcher searcher) {
+    IndexReader reader = searcher.getIndexReader();
+    // the reader may have been closed after a further refresh
+    if (!reader.tryIncRef())
+      return;
+    try {
+      for (JochreIndexField field : preloadFields)
+        searcher.getCompletion(field);
+    } catch (IOException e) {
+      LOG.error("Unable to preload completions", e);
+    } finally {
+      try {
+        reader.decRef();
+      } catch (IOException e) {
+        LOG.error("Unable to release reader", e);
+      }
+    }
   }
 
 }
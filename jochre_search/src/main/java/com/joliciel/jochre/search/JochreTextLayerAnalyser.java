@@ -26,6 +26,8 @@ import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.joliciel.jochre.search.lexicon.LemmaFilter;
+import com.joliciel.jochre.search.lexicon.Lexicon;
 import com.joliciel.jochre.search.lexicon.TextNormaliser;
 import com.joliciel.jochre.search.lexicon.TextNormalisingFilter;
 
@@ -41,11 +43,22 @@ class JochreTextLayerAnalyser extends Analyzer {
   private static final Logger LOG = LoggerFactory.getLogger(JochreTextLayerAnalyser.class);
   private final TokenExtractor tokenExtractor;
   private final TextNormaliser textNormaliser;
+  private final Lexicon lexicon;
 
   public JochreTextLayerAnalyser(TokenExtractor tokenExtractor, String configId) {
+    this(tokenExtractor, configId, null);
+  }
+
+  /**
+   * @param lexicon
+   *          if not null, each token is replaced by its lemmas, as in
+   *          {@link JochreIndexField#lemma}
+   */
+  public JochreTextLayerAnalyser(TokenExtractor tokenExtractor, String configId, Lexicon lexicon) {
     super(Analyzer.PER_FIELD_REUSE_STRATEGY);
     this.tokenExtractor = tokenExtractor;
     this.textNormaliser = TextNormaliser.getInstance(configId);
+    this.lexicon = lexicon;
   }
 
   @Override
@@ -61,6 +74,8 @@ class JochreTextLayerAnalyser extends Analyzer {
       result = new ASCIIFoldingFilter(result);
       result = new LowerCaseFilter(result);
     }
+    if (lexicon != null)
+      result = new LemmaFilter(result, lexicon);
     return new TokenStreamComponents(source, result);
   }
 }
@@ -0,0 +1,114 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2018 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.search;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * A lock-free histogram of request durations, in buckets whose upper bounds
+ * are successive powers of two microseconds, so that percentiles are accurate
+ * to within a factor of two at most, whatever the range of durations.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public class LatencyHistogram {
+  private static final int BUCKET_COUNT = 40;
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong totalMicros = new AtomicLong();
+  private final AtomicLong maxMicros = new AtomicLong();
+
+  /**
+   * Record a single request duration.
+   */
+  public void record(long durationNanos) {
+    long micros = Math.max(0, durationNanos / 1000);
+    // bucket i holds durations in [2^(i-1), 2^i) microseconds
+    int bucket = Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+    buckets.incrementAndGet(bucket);
+    count.incrementAndGet();
+    totalMicros.addAndGet(micros);
+    long max = maxMicros.get();
+    while (micros > max && !maxMicros.compareAndSet(max, micros))
+      max = maxMicros.get();
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  /**
+   * The mean duration in milliseconds.
+   */
+  public double getMean() {
+    long count = this.count.get();
+    return count == 0 ? 0 : totalMicros.get() / 1000.0 / count;
+  }
+
+  /**
+   * The maximum duration in milliseconds.
+   */
+  public double getMax() {
+    return maxMicros.get() / 1000.0;
+  }
+
+  /**
+   * The duration in milliseconds under which the given fraction of requests
+   * completed, rounded up to the upper bound of its bucket.
+   * 
+   * @param fraction
+   *          between 0 and 1, e.g. 0.99 for the 99th percentile
+   */
+  public double getPercentile(double fraction) {
+    long count = this.count.get();
+    if (count == 0)
+      return 0;
+    long target = (long) Math.ceil(fraction * count);
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += buckets.get(i);
+      if (seen >= target) {
+        // the last bucket has no upper bound other than the maximum
+        if (i == BUCKET_COUNT - 1)
+          return this.getMax();
+        return Math.min(1L << i, maxMicros.get()) / 1000.0;
+      }
+    }
+    return this.getMax();
+  }
+
+  /**
+   * Write the count, mean, percentiles and maximum as a JSON object.
+   */
+  public void toJson(JsonGenerator jsonGen) throws IOException {
+    jsonGen.writeStartObject();
+    jsonGen.writeNumberField("count", this.getCount());
+    jsonGen.writeNumberField("mean", this.getMean());
+    jsonGen.writeNumberField("p50", this.getPercentile(0.5));
+    jsonGen.writeNumberField("p90", this.getPercentile(0.9));
+    jsonGen.writeNumberField("p99", this.getPercentile(0.99));
+    jsonGen.writeNumberField("max", this.getMax());
+    jsonGen.writeEndObject();
+  }
+}
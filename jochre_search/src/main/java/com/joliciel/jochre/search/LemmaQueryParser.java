@@ -0,0 +1,87 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2018 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SynonymQuery;
+import org.apache.lucene.search.TermQuery;
+
+import com.joliciel.jochre.search.lexicon.Lexicon;
+
+/**
+ * A query parser for queries expanding inflections on an index containing
+ * {@link JochreIndexField#lemma}. Each single word in the text field is
+ * replaced by a search for its lemmas in the lemma field, rather than by all of
+ * the inflected forms of these lemmas. Words not in the lexicon are searched
+ * for as is in the text field. Quoted phrases, which require positions in a
+ * single field, are analysed by an analyser expanding inflected forms as
+ * before.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+class LemmaQueryParser extends QueryParser {
+  private final Lexicon lexicon;
+  private final Analyzer phraseAnalyzer;
+
+  /**
+   * @param analyzer
+   *          the analyser for single words, which should not expand inflections
+   * @param phraseAnalyzer
+   *          the analyser for quoted phrases, which should expand inflections
+   */
+  public LemmaQueryParser(Analyzer analyzer, Analyzer phraseAnalyzer, Lexicon lexicon) {
+    super(JochreIndexField.text.name(), analyzer);
+    this.lexicon = lexicon;
+    this.phraseAnalyzer = phraseAnalyzer;
+  }
+
+  @Override
+  protected Query newFieldQuery(Analyzer analyzer, String field, String queryText, boolean quoted)
+      throws ParseException {
+    if (quoted)
+      return super.newFieldQuery(phraseAnalyzer, field, queryText, quoted);
+    return super.newFieldQuery(analyzer, field, queryText, quoted);
+  }
+
+  @Override
+  protected Query newTermQuery(Term term) {
+    if (term.field().equals(JochreIndexField.text.name())) {
+      Set<String> lemmas = lexicon.getLemmas(term.text());
+      if (lemmas != null && lemmas.size() > 0) {
+        List<Term> lemmaTerms = new ArrayList<>(lemmas.size());
+        for (String lemma : new TreeSet<>(lemmas))
+          lemmaTerms.add(new Term(JochreIndexField.lemma.name(), lemma));
+        if (lemmaTerms.size() == 1)
+          return new TermQuery(lemmaTerms.get(0));
+        return new SynonymQuery(lemmaTerms.toArray(new Term[lemmaTerms.size()]));
+      }
+    }
+    return super.newTermQuery(term);
+  }
+}
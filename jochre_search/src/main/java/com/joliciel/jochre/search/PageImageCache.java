@@ -0,0 +1,314 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2015 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.search;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.joliciel.jochre.utils.JochreException;
+import com.joliciel.jochre.utils.pdf.AbstractPdfImageVisitor;
+import com.typesafe.config.Config;
+
+/**
+ * A cache of open PDF documents and decoded page images, so that the various
+ * word images and snippets shown for a single page only require the PDF to be
+ * parsed and the page to be decoded once. Both caches are least-recently-used:
+ * page images are evicted once their total size exceeds a maximum number of
+ * bytes, and documents once there are too many open at once.<br>
+ * <br>
+ * The images returned are shared, and should never be modified by the caller.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public class PageImageCache {
+  private static final Logger LOG = LoggerFactory.getLogger(PageImageCache.class);
+  private static Map<String, PageImageCache> instances = new HashMap<>();
+
+  private final long maxPageBytes;
+  private final int maxOpenDocuments;
+  private final Config pdfConfig;
+
+  private final LinkedHashMap<String, BufferedImage> pageImages = new LinkedHashMap<>(16, 0.75f, true);
+  private long pageBytes = 0;
+  private final LinkedHashMap<String, PDDocument> documents = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, DocumentHolder> loadingDocuments = new HashMap<>();
+
+  private int hits = 0;
+  private int misses = 0;
+
+  public static synchronized PageImageCache getInstance(String configId) {
+    PageImageCache cache = instances.get(configId);
+    if (cache == null) {
+      JochreSearchConfig config = JochreSearchConfig.getInstance(configId);
+      cache = new PageImageCache(config.getConfig().getConfig("image-cache"), config.getPdfConfig());
+      instances.put(configId, cache);
+    }
+    return cache;
+  }
+
+  private PageImageCache(Config imageCacheConfig, Config pdfConfig) {
+    this.maxPageBytes = imageCacheConfig.getBytes("max-page-memory");
+    this.maxOpenDocuments = imageCacheConfig.getInt("max-open-documents");
+    this.pdfConfig = pdfConfig;
+  }
+
+  /**
+   * Get the image for a given page in a given PDF file, decoding it only if
+   * it isn't already cached.
+   * 
+   * @param pageNumber
+   *          the page number, starting at 1
+   */
+  public BufferedImage getImage(File pdfFile, int pageNumber) {
+    if (maxPageBytes <= 0 && maxOpenDocuments <= 0) {
+      PdfImageReader pdfImageReader = new PdfImageReader(pdfFile);
+      return pdfImageReader.readImage(pageNumber);
+    }
+
+    String key = pdfFile.getAbsolutePath() + "#" + pageNumber;
+    BufferedImage image = this.getCachedImage(key);
+    if (image != null)
+      return image;
+
+    while (image == null) {
+      PDDocument pdfDocument = this.getDocument(pdfFile);
+      // PDFBox documents aren't thread-safe
+      synchronized (pdfDocument) {
+        // the document may have been evicted while we were waiting
+        if (pdfDocument.getDocument().isClosed())
+          continue;
+
+        // another thread may have decoded this page while we were waiting
+        image = this.peekCachedImage(key);
+        if (image != null)
+          return image;
+
+        image = this.decodeImage(pdfDocument, pdfFile, pageNumber);
+        if (image == null)
+          return null;
+        // cache the image before other threads waiting for this document
+        // check for it
+        this.putImage(key, image);
+        if (maxOpenDocuments <= 0)
+          this.closeDocument(pdfDocument);
+      }
+    }
+    return image;
+  }
+
+  /**
+   * Look up an image, counting a hit or a miss.
+   */
+  private synchronized BufferedImage getCachedImage(String key) {
+    BufferedImage image = pageImages.get(key);
+    if (image != null)
+      hits++;
+    else
+      misses++;
+    return image;
+  }
+
+  /**
+   * Look up an image again after waiting for another thread, without counting.
+   */
+  private synchronized BufferedImage peekCachedImage(String key) {
+    return pageImages.get(key);
+  }
+
+  private synchronized void putImage(String key, BufferedImage image) {
+    long imageBytes = getByteCount(image);
+    if (imageBytes > maxPageBytes)
+      return;
+    BufferedImage previous = pageImages.put(key, image);
+    if (previous != null)
+      pageBytes -= getByteCount(previous);
+    pageBytes += imageBytes;
+
+    Iterator<Entry<String, BufferedImage>> iEntries = pageImages.entrySet().iterator();
+    while (pageBytes > maxPageBytes && iEntries.hasNext()) {
+      Entry<String, BufferedImage> eldest = iEntries.next();
+      pageBytes -= getByteCount(eldest.getValue());
+      iEntries.remove();
+    }
+    if (LOG.isDebugEnabled())
+      LOG.debug("Cached " + key + ", pages: " + pageImages.size() + ", bytes: " + pageBytes + ", hits: " + hits + ", misses: " + misses);
+  }
+
+  private PDDocument getDocument(File pdfFile) {
+    if (maxOpenDocuments <= 0)
+      return this.loadDocument(pdfFile);
+
+    String key = pdfFile.getAbsolutePath();
+    DocumentHolder holder = null;
+    synchronized (this) {
+      PDDocument pdfDocument = documents.get(key);
+      if (pdfDocument != null)
+        return pdfDocument;
+      holder = loadingDocuments.computeIfAbsent(key, k -> new DocumentHolder(pdfFile));
+    }
+
+    // parse the PDF outside of the cache lock, so that cache hits don't wait
+    // for it, and only once even if several threads request it at once
+    PDDocument pdfDocument = null;
+    try {
+      pdfDocument = holder.get();
+    } catch (RuntimeException e) {
+      synchronized (this) {
+        loadingDocuments.remove(key, holder);
+      }
+      throw e;
+    }
+
+    List<PDDocument> evicted = new ArrayList<>();
+    synchronized (this) {
+      // only the first thread to get here publishes the document
+      if (loadingDocuments.remove(key, holder)) {
+        documents.put(key, pdfDocument);
+        Iterator<PDDocument> iDocuments = documents.values().iterator();
+        while (documents.size() > maxOpenDocuments) {
+          evicted.add(iDocuments.next());
+          iDocuments.remove();
+        }
+      }
+    }
+    // close outside of the cache lock, since closing waits for decoding to end
+    for (PDDocument eldest : evicted)
+      this.closeDocument(eldest);
+    return pdfDocument;
+  }
+
+  private PDDocument loadDocument(File pdfFile) {
+    try {
+      PDDocument pdfDocument = PDDocument.load(pdfFile, AbstractPdfImageVisitor.getMemoryUsageSetting(pdfConfig));
+      // decoded pages are cached here instead
+      pdfDocument.setResourceCache(null);
+      return pdfDocument;
+    } catch (IOException e) {
+      throw new RuntimeException("Unable to load " + pdfFile.getAbsolutePath(), e);
+    }
+  }
+
+  /**
+   * A document being loaded, shared by all threads requesting it in the
+   * meantime.
+   */
+  private final class DocumentHolder {
+    private final File pdfFile;
+    private PDDocument pdfDocument = null;
+
+    public DocumentHolder(File pdfFile) {
+      this.pdfFile = pdfFile;
+    }
+
+    public synchronized PDDocument get() {
+      if (pdfDocument == null)
+        pdfDocument = loadDocument(pdfFile);
+      return pdfDocument;
+    }
+  }
+
+  private void closeDocument(PDDocument pdfDocument) {
+    // wait for any page being decoded from this document
+    synchronized (pdfDocument) {
+      try {
+        pdfDocument.close();
+      } catch (IOException e) {
+        LOG.error("Unable to close PDF document", e);
+      }
+    }
+  }
+
+  /**
+   * Decode the image on a given page. If the page contains several images, the
+   * last one is returned, as in {@link PdfImageReader}.
+   */
+  private BufferedImage decodeImage(PDDocument pdfDocument, File pdfFile, int pageNumber) {
+    LOG.debug("Decoding page " + pageNumber + " in " + pdfFile.getAbsolutePath());
+    try {
+      PDPage pdfPage = pdfDocument.getPage(pageNumber - 1);
+      PDResources resources = pdfPage.getResources();
+      BufferedImage image = null;
+      for (COSName cosName : resources.getXObjectNames()) {
+        PDXObject pdxObject = resources.getXObject(cosName);
+        if (pdxObject instanceof PDImageXObject) {
+          PDImageXObject pdfImage = (PDImageXObject) pdxObject;
+          image = pdfImage.getImage();
+          if (image == null)
+            throw new JochreException("Unable to extract image " + cosName.getName() + " in file " + pdfFile.getAbsolutePath() + ", page " + pageNumber);
+        }
+      }
+      return image;
+    } catch (IOException e) {
+      throw new RuntimeException("Error in file " + pdfFile.getAbsolutePath() + ", page " + pageNumber, e);
+    }
+  }
+
+  private static long getByteCount(BufferedImage image) {
+    DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+    return (long) dataBuffer.getSize() * dataBuffer.getNumBanks() * DataBuffer.getDataTypeSize(dataBuffer.getDataType()) / 8;
+  }
+
+  /**
+   * Close all open documents and empty the cache.
+   */
+  public void clear() {
+    List<PDDocument> evicted = null;
+    synchronized (this) {
+      evicted = new ArrayList<>(documents.values());
+      documents.clear();
+      pageImages.clear();
+      pageBytes = 0;
+    }
+    for (PDDocument pdfDocument : evicted)
+      this.closeDocument(pdfDocument);
+  }
+
+  /**
+   * The number of page images found in the cache.
+   */
+  public synchronized int getHits() {
+    return hits;
+  }
+
+  /**
+   * The number of page images not found in the cache on first lookup.
+   */
+  public synchronized int getMisses() {
+    return misses;
+  }
+}
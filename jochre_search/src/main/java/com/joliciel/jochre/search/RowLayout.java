@@ -0,0 +1,343 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2015 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.search;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.GrowableByteArrayDataOutput;
+import org.apache.lucene.util.BytesRef;
+
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.TIntObjectMap;
+
+/**
+ * The layout of the rows in a document: for each page, the rectangle enclosing
+ * each row and the content offset at which each row starts.<br>
+ * <br>
+ * The layout is stored in the index as a single binary field, in which pages
+ * and rows are written in order, with offsets and coordinates delta-encoded as
+ * variable-length integers. Once decoded, rows for all pages are held in flat
+ * arrays, so that a row can be found by page and index, or by content offset,
+ * using a binary search.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public final class RowLayout {
+  private static final int VERSION = 1;
+
+  /** Page indexes, in ascending order. */
+  private final int[] pageIndexes;
+  /** For each page, the position of its first row, followed by the total row count. */
+  private final int[] firstRows;
+  /** For each row, the content index of its first character, or -1 if unknown. */
+  private final int[] startIndexes;
+  /** For each row, x, y, width and height, or a negative width if unknown. */
+  private final int[] rectangles;
+
+  private RowLayout(int[] pageIndexes, int[] firstRows, int[] startIndexes, int[] rectangles) {
+    this.pageIndexes = pageIndexes;
+    this.firstRows = firstRows;
+    this.startIndexes = startIndexes;
+    this.rectangles = rectangles;
+  }
+
+  /**
+   * Build a layout from the rows gathered when constructing a document from
+   * Alto pages.
+   */
+  static RowLayout fromMaps(TIntIntMap rowCounts, TIntObjectMap<TIntObjectMap<Rectangle>> rowRectangles,
+      TIntObjectMap<TIntIntMap> rowStartIndexes) {
+    int[] pageIndexes = rowCounts.keys();
+    Arrays.sort(pageIndexes);
+    int[] firstRows = new int[pageIndexes.length + 1];
+    for (int i = 0; i < pageIndexes.length; i++)
+      firstRows[i + 1] = firstRows[i] + rowCounts.get(pageIndexes[i]);
+
+    int rowTotal = firstRows[pageIndexes.length];
+    int[] startIndexes = new int[rowTotal];
+    int[] rectangles = new int[rowTotal * 4];
+    for (int i = 0; i < pageIndexes.length; i++) {
+      TIntObjectMap<Rectangle> pageRectangles = rowRectangles.get(pageIndexes[i]);
+      TIntIntMap pageStartIndexes = rowStartIndexes.get(pageIndexes[i]);
+      for (int row = firstRows[i]; row < firstRows[i + 1]; row++) {
+        int rowIndex = row - firstRows[i];
+        startIndexes[row] = -1;
+        if (pageStartIndexes != null && pageStartIndexes.containsKey(rowIndex))
+          startIndexes[row] = pageStartIndexes.get(rowIndex);
+        Rectangle rect = pageRectangles == null ? null : pageRectangles.get(rowIndex);
+        setRectangle(rectangles, row, rect);
+      }
+    }
+    return new RowLayout(pageIndexes, firstRows, startIndexes, rectangles);
+  }
+
+  /**
+   * Build a layout from a document indexed before layouts were stored in a
+   * single field, in which each page's row count, and each row's rectangle and
+   * start index, were stored in separate fields.
+   */
+  static RowLayout fromLegacyFields(Document doc, int startPage, int endPage) {
+    int[] pageIndexes = new int[endPage - startPage + 1];
+    int[] rowCounts = new int[pageIndexes.length];
+    int pageCount = 0;
+    for (int pageIndex = startPage; pageIndex <= endPage; pageIndex++) {
+      IndexableField rowCountField = doc.getField(JochreIndexField.rowCount.name() + pageIndex);
+      if (rowCountField == null)
+        continue;
+      pageIndexes[pageCount] = pageIndex;
+      rowCounts[pageCount] = rowCountField.numericValue().intValue();
+      pageCount++;
+    }
+
+    pageIndexes = Arrays.copyOf(pageIndexes, pageCount);
+    int[] firstRows = new int[pageCount + 1];
+    for (int i = 0; i < pageCount; i++)
+      firstRows[i + 1] = firstRows[i] + rowCounts[i];
+
+    int rowTotal = firstRows[pageCount];
+    int[] startIndexes = new int[rowTotal];
+    int[] rectangles = new int[rowTotal * 4];
+    for (int i = 0; i < pageCount; i++) {
+      for (int row = firstRows[i]; row < firstRows[i + 1]; row++) {
+        String suffix = pageIndexes[i] + "_" + (row - firstRows[i]);
+        IndexableField startField = doc.getField(JochreIndexField.start.name() + suffix);
+        startIndexes[row] = startField == null ? -1 : startField.numericValue().intValue();
+
+        String rectString = doc.get(JochreIndexField.rect.name() + suffix);
+        Rectangle rect = null;
+        if (rectString != null) {
+          String[] parts = rectString.split("\\|");
+          rect = new Rectangle(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+              Integer.parseInt(parts[3]));
+        }
+        setRectangle(rectangles, row, rect);
+      }
+    }
+    return new RowLayout(pageIndexes, firstRows, startIndexes, rectangles);
+  }
+
+  private static void setRectangle(int[] rectangles, int row, Rectangle rect) {
+    if (rect == null) {
+      rectangles[row * 4 + 2] = -1;
+    } else {
+      rectangles[row * 4] = rect.x;
+      rectangles[row * 4 + 1] = rect.y;
+      rectangles[row * 4 + 2] = rect.width;
+      rectangles[row * 4 + 3] = rect.height;
+    }
+  }
+
+  /**
+   * Decode a layout written by {@link #toBytes()}.
+   */
+  static RowLayout fromBytes(BytesRef bytes) {
+    try {
+      ByteArrayDataInput in = new ByteArrayDataInput(bytes.bytes, bytes.offset, bytes.length);
+      int version = in.readVInt();
+      if (version != VERSION)
+        throw new JochreSearchException("Unknown row layout version: " + version);
+      int pageCount = in.readVInt();
+      int[] pageIndexes = new int[pageCount];
+      int[] firstRows = new int[pageCount + 1];
+      int rowTotal = in.readVInt();
+      int[] startIndexes = new int[rowTotal];
+      int[] rectangles = new int[rowTotal * 4];
+
+      int pageIndex = 0;
+      int startIndex = 0;
+      int x = 0;
+      int y = 0;
+      for (int i = 0; i < pageCount; i++) {
+        pageIndex += in.readZInt();
+        pageIndexes[i] = pageIndex;
+        firstRows[i + 1] = firstRows[i] + in.readVInt();
+        for (int row = firstRows[i]; row < firstRows[i + 1]; row++) {
+          int startDelta = in.readZInt();
+          if (startDelta == Integer.MIN_VALUE) {
+            startIndexes[row] = -1;
+          } else {
+            startIndex += startDelta;
+            startIndexes[row] = startIndex;
+          }
+          int width = in.readZInt();
+          rectangles[row * 4 + 2] = width;
+          if (width >= 0) {
+            x += in.readZInt();
+            y += in.readZInt();
+            rectangles[row * 4] = x;
+            rectangles[row * 4 + 1] = y;
+            rectangles[row * 4 + 3] = in.readVInt();
+          }
+        }
+      }
+      return new RowLayout(pageIndexes, firstRows, startIndexes, rectangles);
+    } catch (IOException e) {
+      throw new JochreSearchException("Unable to read row layout: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Encode this layout for storage in the index. Start indexes and rectangle
+   * positions are written as differences from the previous row, since rows
+   * generally follow each other both in the contents and on the page.
+   */
+  BytesRef toBytes() {
+    try {
+      int rowTotal = startIndexes.length;
+      GrowableByteArrayDataOutput out = new GrowableByteArrayDataOutput(16 + rowTotal * 8);
+      out.writeVInt(VERSION);
+      out.writeVInt(pageIndexes.length);
+      out.writeVInt(rowTotal);
+
+      int pageIndex = 0;
+      int startIndex = 0;
+      int x = 0;
+      int y = 0;
+      for (int i = 0; i < pageIndexes.length; i++) {
+        out.writeZInt(pageIndexes[i] - pageIndex);
+        pageIndex = pageIndexes[i];
+        out.writeVInt(firstRows[i + 1] - firstRows[i]);
+        for (int row = firstRows[i]; row < firstRows[i + 1]; row++) {
+          if (startIndexes[row] < 0) {
+            out.writeZInt(Integer.MIN_VALUE);
+          } else {
+            out.writeZInt(startIndexes[row] - startIndex);
+            startIndex = startIndexes[row];
+          }
+          int width = rectangles[row * 4 + 2];
+          out.writeZInt(width);
+          if (width >= 0) {
+            out.writeZInt(rectangles[row * 4] - x);
+            out.writeZInt(rectangles[row * 4 + 1] - y);
+            out.writeVInt(rectangles[row * 4 + 3]);
+            x = rectangles[row * 4];
+            y = rectangles[row * 4 + 1];
+          }
+        }
+      }
+      return new BytesRef(out.getBytes(), 0, out.getPosition());
+    } catch (IOException e) {
+      throw new JochreSearchException("Unable to write row layout: " + e.getMessage());
+    }
+  }
+
+  private int getFirstRow(int pageIndex) {
+    int i = Arrays.binarySearch(pageIndexes, pageIndex);
+    if (i < 0)
+      throw new IndexFieldNotFoundException("No rows for pageIndex " + pageIndex);
+    return i;
+  }
+
+  private int getRow(int pageIndex, int rowIndex) {
+    int i = this.getFirstRow(pageIndex);
+    if (rowIndex < 0 || rowIndex >= firstRows[i + 1] - firstRows[i])
+      throw new IndexFieldNotFoundException("No rowIndex " + rowIndex + " for pageIndex " + pageIndex);
+    return firstRows[i] + rowIndex;
+  }
+
+  /**
+   * The number of rows on a given page, or 0 if the page has no rows.
+   */
+  public int getRowCount(int pageIndex) {
+    int i = Arrays.binarySearch(pageIndexes, pageIndex);
+    if (i < 0)
+      return 0;
+    return firstRows[i + 1] - firstRows[i];
+  }
+
+  /**
+   * The rectangle enclosing a given row.
+   */
+  public Rectangle getRowRectangle(int pageIndex, int rowIndex) {
+    int row = this.getRow(pageIndex, rowIndex);
+    if (rectangles[row * 4 + 2] < 0)
+      throw new IndexFieldNotFoundException("No rectangle for pageIndex " + pageIndex + ", rowIndex " + rowIndex);
+    return new Rectangle(rectangles[row * 4], rectangles[row * 4 + 1], rectangles[row * 4 + 2], rectangles[row * 4 + 3]);
+  }
+
+  /**
+   * The content index of the first character on a given row.
+   */
+  public int getStartIndex(int pageIndex, int rowIndex) {
+    int row = this.getRow(pageIndex, rowIndex);
+    if (startIndexes[row] < 0)
+      throw new IndexFieldNotFoundException("No start index for pageIndex " + pageIndex + ", rowIndex " + rowIndex);
+    return startIndexes[row];
+  }
+
+  /**
+   * The content index following the last character on a given row, that is the
+   * start index of the next row with a known start index, on this page or a
+   * following one, or -1 if there is no such row.
+   */
+  public int getEndIndex(int pageIndex, int rowIndex) {
+    int row = this.getRow(pageIndex, rowIndex);
+    for (int next = row + 1; next < startIndexes.length; next++) {
+      if (startIndexes[next] >= 0)
+        return startIndexes[next];
+    }
+    return -1;
+  }
+
+  /**
+   * Find the row containing a given content offset, that is the last row
+   * starting at or before this offset.
+   * 
+   * @return an array containing the page index and row index, or null if the
+   *         offset precedes the first row.
+   */
+  public int[] findRow(int offset) {
+    // start indexes only ever increase, but rows with an unknown start index
+    // have to be skipped
+    int low = 0;
+    int high = startIndexes.length - 1;
+    int found = -1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int probe = mid;
+      while (probe >= low && startIndexes[probe] < 0)
+        probe--;
+      if (probe < low) {
+        low = mid + 1;
+      } else if (startIndexes[probe] <= offset) {
+        found = probe;
+        low = mid + 1;
+      } else {
+        high = probe - 1;
+      }
+    }
+    if (found < 0)
+      return null;
+
+    // find the page containing this row
+    int i = Arrays.binarySearch(firstRows, found);
+    if (i < 0)
+      i = -i - 2;
+    // skip pages without rows
+    while (firstRows[i + 1] == firstRows[i])
+      i++;
+    return new int[] { pageIndexes[i], found - firstRows[i] };
+  }
+}
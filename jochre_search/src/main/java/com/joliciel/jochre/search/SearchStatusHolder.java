@@ -16,7 +16,7 @@ public final class SearchStatusHolder implements TaskStatusHolder {
 
   private static SearchStatusHolder instance;
 
-  public static SearchStatusHolder getInstance() {
+  public static synchronized SearchStatusHolder getInstance() {
     if (instance == null)
       instance = new SearchStatusHolder();
     return instance;
@@ -25,14 +25,14 @@ public final class SearchStatusHolder implements TaskStatusHolder {
   private SearchStatusHolder() {
   }
 
-  private SearchStatus status = SearchStatus.WAITING;
+  private volatile SearchStatus status = SearchStatus.WAITING;
   private int successCount = 0;
   private int failureCount = 0;
-  private int totalCount = 0;
-  private long lastUpdated = System.currentTimeMillis();
-  private long startTime = 0;
-  private long endTime = 0;
-  private String action = "";
+  private volatile int totalCount = 0;
+  private volatile long lastUpdated = System.currentTimeMillis();
+  private volatile long startTime = 0;
+  private volatile long endTime = 0;
+  private volatile String action = "";
 
   @Override
   public long getLastUpdated() {
@@ -74,7 +74,7 @@ public final class SearchStatusHolder implements TaskStatusHolder {
   }
 
   @Override
-  public void setTotalCount(int totalCount) {
+  public synchronized void setTotalCount(int totalCount) {
     this.totalCount = totalCount;
     this.successCount = 0;
     this.failureCount = 0;
@@ -86,7 +86,7 @@ public final class SearchStatusHolder implements TaskStatusHolder {
   }
 
   @Override
-  public int getProcessedCount() {
+  public synchronized int getProcessedCount() {
     return successCount + failureCount;
   }
 
@@ -96,12 +96,12 @@ public final class SearchStatusHolder implements TaskStatusHolder {
   }
 
   @Override
-  public int getSuccessCount() {
+  public synchronized int getSuccessCount() {
     return successCount;
   }
 
   @Override
-  public int getFailureCount() {
+  public synchronized int getFailureCount() {
     return failureCount;
   }
 
@@ -24,6 +24,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
@@ -39,14 +42,21 @@ import org.xml.sax.helpers.DefaultHandler;
  * A reader for files in Alto 3 format. By default, the reader feeds pages read
  * to consumers via {@link #addConsumer(AltoPageConsumer)}. If the client wishes
  * to parse an entire document into memory rather than using consumers, it needs
- * to use {@link #setBuildEntireDocument(boolean)}.
+ * to use {@link #setBuildEntireDocument(boolean)}.<br>
+ * <br>
+ * If {@link #setPageQueueSize(int)} is set, the file is read (and unzipped) in
+ * a separate thread, a few pages ahead of the consumers, which are still
+ * notified in the calling thread.
  * 
  * @author Assaf Urieli
  *
  */
 public class AltoReader extends DefaultHandler {
   private static final Logger LOG = LoggerFactory.getLogger(AltoReader.class);
-  private String tempVal = null;
+  private static final AltoPage END_OF_DOCUMENT = new AltoPage(new AltoDocument(""), -1, 0, 0);
+
+  private StringBuilder alternative = null;
+  private Consumer<AltoPage> pageHandler;
   private AltoDocument doc = null;
   private AltoPage currentPage;
   private AltoTextBlock currentTextBlock;
@@ -57,6 +67,7 @@ public class AltoReader extends DefaultHandler {
   private boolean prevTextLineEndedWithHyphen = false;
   private List<AltoPageConsumer> consumers = new ArrayList<>();
   private boolean buildEntireDocument = false;
+  private int pageQueueSize = 0;
   private String documentName;
 
   public AltoReader() {
@@ -70,8 +81,7 @@ public class AltoReader extends DefaultHandler {
    * Parse a file.
    */
   public void parseFile(File altoFile) {
-    try {
-      InputStream inputStream = new FileInputStream(altoFile);
+    try (InputStream inputStream = new FileInputStream(altoFile)) {
       this.parseFile(inputStream, altoFile.getParentFile().getName());
     } catch (IOException e) {
       LOG.error("Failed to parse altoFile: " + altoFile.getAbsolutePath(), e);
@@ -83,14 +93,94 @@ public class AltoReader extends DefaultHandler {
    * Parse an input stream, with the given file name.
    */
   public void parseFile(InputStream inputStream, String documentName) {
+    this.documentName = documentName;
+    if (pageQueueSize > 0) {
+      this.parseInBackground(inputStream);
+    } else {
+      this.parse(inputStream, page -> {
+        for (AltoPageConsumer consumer : consumers)
+          consumer.onNextPage(page);
+      });
+    }
+
+    for (AltoPageConsumer consumer : consumers)
+      consumer.onComplete();
+  }
+
+  /**
+   * Parse the input stream in a separate thread, which places the pages read in
+   * a bounded queue, while the current thread passes them to the consumers.
+   */
+  private void parseInBackground(InputStream inputStream) {
+    BlockingQueue<AltoPage> pageQueue = new ArrayBlockingQueue<>(pageQueueSize);
+    RuntimeException[] failure = new RuntimeException[1];
+
+    Thread reader = new Thread(() -> {
+      try {
+        this.parse(inputStream, page -> {
+          try {
+            pageQueue.put(page);
+          } catch (InterruptedException e) {
+            // the consumers have stopped reading pages
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+          }
+        });
+      } catch (RuntimeException e) {
+        failure[0] = e;
+      } finally {
+        if (Thread.currentThread().isInterrupted()) {
+          // no-one is waiting for the end of the document, and the queue may be
+          // full
+          pageQueue.offer(END_OF_DOCUMENT);
+        } else {
+          try {
+            pageQueue.put(END_OF_DOCUMENT);
+          } catch (InterruptedException e) {
+            // no-one is waiting for the end of the document
+          }
+        }
+      }
+    }, "jochre-alto-reader-" + documentName);
+    reader.setDaemon(true);
+    reader.start();
+
+    boolean finished = false;
+    try {
+      AltoPage page = pageQueue.take();
+      while (page != END_OF_DOCUMENT) {
+        for (AltoPageConsumer consumer : consumers)
+          consumer.onNextPage(page);
+        page = pageQueue.take();
+      }
+      finished = true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } finally {
+      if (!finished) {
+        reader.interrupt();
+        // make room in case the reader is still placing a page in the queue
+        pageQueue.clear();
+      }
+      try {
+        reader.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    // the join ensures the failure is visible to the current thread
+    if (failure[0] != null)
+      throw failure[0];
+  }
+
+  private void parse(InputStream inputStream, Consumer<AltoPage> pageHandler) {
     SAXParserFactory spf = SAXParserFactory.newInstance();
     try {
-      this.documentName = documentName;
+      this.pageHandler = pageHandler;
       SAXParser sp = spf.newSAXParser();
       sp.parse(inputStream, this);
-
-      for (AltoPageConsumer consumer : consumers)
-        consumer.onComplete();
     } catch (SAXException e) {
       LOG.error("Failed to parse altoFile: " + documentName, e);
       throw new RuntimeException(e);
@@ -105,85 +195,136 @@ public class AltoReader extends DefaultHandler {
 
   @Override
   public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
-    // clear out tempVal whenever a new element is started
-    tempVal = "";
-    if (qName.equals("Page")) {
+    switch (qName) {
+    case "Page":
+    case "PrintSpace":
+    case "TextBlock":
+    case "TextLine":
+    case "SP":
+    case "HYP":
+    case "String":
+      break;
+    case "ALTERNATIVE":
+      alternative = new StringBuilder();
+      return;
+    default:
+      return;
+    }
+
+    // read all attributes in a single pass, rather than searching for each one
+    String hpos = null;
+    String vpos = null;
+    String width = null;
+    String height = null;
+    String content = null;
+    String wordConfidence = null;
+    String pageConfidence = null;
+    String subsType = null;
+    String subsContent = null;
+    String pageIndex = null;
+    for (int i = 0; i < attributes.getLength(); i++) {
+      String value = attributes.getValue(i);
+      switch (attributes.getQName(i)) {
+      case "HPOS":
+        hpos = value;
+        break;
+      case "VPOS":
+        vpos = value;
+        break;
+      case "WIDTH":
+        width = value;
+        break;
+      case "HEIGHT":
+        height = value;
+        break;
+      case "CONTENT":
+        content = value;
+        break;
+      case "WC":
+        wordConfidence = value;
+        break;
+      case "PC":
+        pageConfidence = value;
+        break;
+      case "SUBS_TYPE":
+        subsType = value;
+        break;
+      case "SUBS_CONTENT":
+        subsContent = value;
+        break;
+      case "PHYSICAL_IMG_NR":
+        pageIndex = value;
+        break;
+      default:
+        break;
+      }
+    }
+
+    switch (qName) {
+    case "Page": {
       if (this.doc == null || !buildEntireDocument)
         this.doc = new AltoDocument(documentName);
-      int width = Integer.parseInt(attributes.getValue("WIDTH"));
-      int height = Integer.parseInt(attributes.getValue("HEIGHT"));
-      int pageIndex = Integer.parseInt(attributes.getValue("PHYSICAL_IMG_NR"));
-      currentPage = new AltoPage(this.doc, pageIndex, width, height);
+      currentPage = new AltoPage(this.doc, Integer.parseInt(pageIndex), Integer.parseInt(width),
+          Integer.parseInt(height));
       currentOffset = 0;
+      break;
     }
-    if (qName.equals("PrintSpace")) {
-      if (attributes.getValue("PC") != null) {
-        double confidence = Double.parseDouble(attributes.getValue("PC"));
-        currentPage.setConfidence(confidence);
-      }
-    } else if (qName.equals("TextBlock")) {
-      int left = Integer.parseInt(attributes.getValue("HPOS"));
-      int top = Integer.parseInt(attributes.getValue("VPOS"));
-      int width = Integer.parseInt(attributes.getValue("WIDTH"));
-      int height = Integer.parseInt(attributes.getValue("HEIGHT"));
-      currentTextBlock = new AltoTextBlock(currentPage, left, top, width, height);
+    case "PrintSpace": {
+      if (pageConfidence != null)
+        currentPage.setConfidence(Double.parseDouble(pageConfidence));
+      break;
+    }
+    case "TextBlock": {
+      currentTextBlock = new AltoTextBlock(currentPage, Integer.parseInt(hpos), Integer.parseInt(vpos),
+          Integer.parseInt(width), Integer.parseInt(height));
       addedHyphen = false;
-    } else if (qName.equals("TextLine")) {
-      int left = Integer.parseInt(attributes.getValue("HPOS"));
-      int top = Integer.parseInt(attributes.getValue("VPOS"));
-      int width = Integer.parseInt(attributes.getValue("WIDTH"));
-      int height = Integer.parseInt(attributes.getValue("HEIGHT"));
-      currentTextLine = new AltoTextLine(currentTextBlock, left, top, width, height);
-    } else if (qName.equals("SP")) {
+      break;
+    }
+    case "TextLine": {
+      currentTextLine = new AltoTextLine(currentTextBlock, Integer.parseInt(hpos), Integer.parseInt(vpos),
+          Integer.parseInt(width), Integer.parseInt(height));
+      break;
+    }
+    case "SP": {
       // a space
-      int left = Integer.parseInt(attributes.getValue("HPOS"));
-      int top = Integer.parseInt(attributes.getValue("VPOS"));
-      int width = Integer.parseInt(attributes.getValue("WIDTH"));
-      int height = 0;
-      String content = " ";
-      currentString = new AltoString(currentTextLine, content, left, top, width, height);
+      content = " ";
+      currentString = new AltoString(currentTextLine, content, Integer.parseInt(hpos), Integer.parseInt(vpos),
+          Integer.parseInt(width), 0);
 
       currentString.setSpanStart(currentOffset);
       currentOffset += content.length();
       currentString.setSpanEnd(currentOffset);
       addedHyphen = false;
-    } else if (qName.equals("HYP")) {
+      break;
+    }
+    case "HYP": {
       // a hyphen
-      int left = Integer.parseInt(attributes.getValue("HPOS"));
-      int top = Integer.parseInt(attributes.getValue("VPOS"));
-      int width = Integer.parseInt(attributes.getValue("WIDTH"));
-      int height = Integer.parseInt(attributes.getValue("HEIGHT"));
-      String content = attributes.getValue("CONTENT").replace("&quot;", "\"");
-      currentString = new AltoString(currentTextLine, content, left, top, width, height);
+      content = unescapeQuotes(content);
+      currentString = new AltoString(currentTextLine, content, Integer.parseInt(hpos), Integer.parseInt(vpos),
+          Integer.parseInt(width), Integer.parseInt(height));
       currentString.setHyphen(true);
 
       currentString.setSpanStart(currentOffset);
       currentOffset += content.length();
       currentString.setSpanEnd(currentOffset);
 
-      if (attributes.getValue("WC") != null) {
-        double confidence = Double.parseDouble(attributes.getValue("WC"));
-        currentString.setConfidence(confidence);
-      }
+      if (wordConfidence != null)
+        currentString.setConfidence(Double.parseDouble(wordConfidence));
       addedHyphen = true;
-    } else if (qName.equals("String")) {
-      int left = Integer.parseInt(attributes.getValue("HPOS"));
-      int top = Integer.parseInt(attributes.getValue("VPOS"));
-      int width = Integer.parseInt(attributes.getValue("WIDTH"));
-      int height = Integer.parseInt(attributes.getValue("HEIGHT"));
-      String content = attributes.getValue("CONTENT").replace("&quot;", "\"");
-      currentString = new AltoString(currentTextLine, content, left, top, width, height);
+      break;
+    }
+    case "String": {
+      content = unescapeQuotes(content);
+      currentString = new AltoString(currentTextLine, content, Integer.parseInt(hpos), Integer.parseInt(vpos),
+          Integer.parseInt(width), Integer.parseInt(height));
 
       currentString.setSpanStart(currentOffset);
       currentOffset += content.length();
       currentString.setSpanEnd(currentOffset);
 
-      if (attributes.getValue("WC") != null) {
-        double confidence = Double.parseDouble(attributes.getValue("WC"));
-        currentString.setConfidence(confidence);
-      }
+      if (wordConfidence != null)
+        currentString.setConfidence(Double.parseDouble(wordConfidence));
 
-      String subsType = attributes.getValue("SUBS_TYPE");
       if (subsType != null) {
         if (subsType.equals("HypPart1"))
           currentString.setHyphenStart(true);
@@ -191,23 +332,34 @@ public class AltoReader extends DefaultHandler {
           currentString.setHyphenEnd(true);
       }
 
-      String hyphenatedContent = attributes.getValue("SUBS_CONTENT");
-      if (hyphenatedContent != null)
-        currentString.setHyphenatedContent(hyphenatedContent);
+      if (subsContent != null)
+        currentString.setHyphenatedContent(subsContent);
       addedHyphen = false;
+      break;
+    }
+    default:
+      break;
     }
   }
 
+  private static String unescapeQuotes(String content) {
+    if (content.indexOf('&') < 0)
+      return content;
+    return content.replace("&quot;", "\"");
+  }
+
   @Override
   public void characters(char[] ch, int start, int length) throws SAXException {
-    // add the characters to tempVal
-    tempVal += new String(ch, start, length);
+    // the only text content read is that of alternatives
+    if (alternative != null)
+      alternative.append(ch, start, length);
   }
 
   @Override
   public void endElement(String uri, String localName, String qName) throws SAXException {
     if (qName.equals("ALTERNATIVE")) {
-      currentString.getAlternatives().add(tempVal);
+      currentString.getAlternatives().add(alternative.toString());
+      alternative = null;
     } else if (qName.equals("TextLine")) {
       // an end of line is either a space or true end-of-line, add an
       // offset unless there's a dash at the end of the previous line
@@ -226,8 +378,7 @@ public class AltoReader extends DefaultHandler {
         currentOffset += 1;
       }
     } else if (qName.equals("Page")) {
-      for (AltoPageConsumer consumer : consumers)
-        consumer.onNextPage(currentPage);
+      pageHandler.accept(currentPage);
     }
   }
 
@@ -251,6 +402,18 @@ public class AltoReader extends DefaultHandler {
     this.buildEntireDocument = buildEntireDocument;
   }
 
+  /**
+   * The maximum number of pages read ahead of the consumers by a separate
+   * thread. If 0 (the default), pages are read in the calling thread.
+   */
+  public int getPageQueueSize() {
+    return pageQueueSize;
+  }
+
+  public void setPageQueueSize(int pageQueueSize) {
+    this.pageQueueSize = pageQueueSize;
+  }
+
   /**
    * Get the document built.
    */
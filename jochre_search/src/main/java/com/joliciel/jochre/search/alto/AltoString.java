@@ -62,12 +62,54 @@ public class AltoString implements JochreToken {
     this.rectangle = new Rectangle(left, top, width, height);
     this.index = this.textLine.getStrings().size();
     this.textLine.getStrings().add(this);
-    if (whiteSpacePattern.matcher(content).matches() || content.length() == 0 && width > 0)
+    if (isAllWhiteSpace(content) || content.length() == 0 && width > 0)
       this.whiteSpace = true;
-    if (punctuationPattern.matcher(content).matches())
+    if (isAllPunctuation(content))
       this.punctuation = true;
   }
 
+  /**
+   * Equivalent to matching {@link #whiteSpacePattern}, without the cost of a
+   * regex for every string read.
+   */
+  static boolean isAllWhiteSpace(String content) {
+    if (content.length() == 0)
+      return false;
+    for (int i = 0; i < content.length();) {
+      int c = content.codePointAt(i);
+      // the Unicode White_Space property, as used by \s with UNICODE_CHARACTER_CLASS
+      boolean whiteSpace = c == '\ufeff' || (c >= 0x9 && c <= 0xd) || c == 0x85
+          || (((1 << Character.SPACE_SEPARATOR | 1 << Character.LINE_SEPARATOR
+              | 1 << Character.PARAGRAPH_SEPARATOR) >> Character.getType(c)) & 1) != 0;
+      if (!whiteSpace)
+        return false;
+      i += Character.charCount(c);
+    }
+    return true;
+  }
+
+  /**
+   * Equivalent to matching {@link #punctuationPattern}, without the cost of a
+   * regex for every string read.
+   */
+  static boolean isAllPunctuation(String content) {
+    if (content.length() == 0)
+      return false;
+    for (int i = 0; i < content.length();) {
+      int c = content.codePointAt(i);
+      // the Unicode Punctuation category, as used by \p{Punct} with
+      // UNICODE_CHARACTER_CLASS
+      boolean punctuation = (((1 << Character.CONNECTOR_PUNCTUATION | 1 << Character.DASH_PUNCTUATION
+          | 1 << Character.START_PUNCTUATION | 1 << Character.END_PUNCTUATION | 1 << Character.OTHER_PUNCTUATION
+          | 1 << Character.INITIAL_QUOTE_PUNCTUATION | 1 << Character.FINAL_QUOTE_PUNCTUATION) >> Character
+              .getType(c)) & 1) != 0;
+      if (!punctuation)
+        return false;
+      i += Character.charCount(c);
+    }
+    return true;
+  }
+
   public String getContent() {
     return content;
   }
@@ -39,24 +39,26 @@ public interface AltoStringFixer {
   static Map<String, AltoStringFixer> instances = new HashMap<>();
 
   public static AltoStringFixer getInstance(String configId) {
-    AltoStringFixer instance = instances.get(configId);
-    if (instance == null) {
-      try {
-        JochreSearchConfig config = JochreSearchConfig.getInstance(configId);
-        String className = config.getConfig().getString("alto-string-fixer.class");
+    synchronized (instances) {
+      AltoStringFixer instance = instances.get(configId);
+      if (instance == null) {
+        try {
+          JochreSearchConfig config = JochreSearchConfig.getInstance(configId);
+          String className = config.getConfig().getString("alto-string-fixer.class");
 
-        @SuppressWarnings("unchecked")
-        Class<? extends AltoStringFixer> clazz = (Class<? extends AltoStringFixer>) Class.forName(className);
-        Constructor<? extends AltoStringFixer> cons = clazz.getConstructor(String.class);
+          @SuppressWarnings("unchecked")
+          Class<? extends AltoStringFixer> clazz = (Class<? extends AltoStringFixer>) Class.forName(className);
+          Constructor<? extends AltoStringFixer> cons = clazz.getConstructor(String.class);
 
-        instance = cons.newInstance(configId);
-        instances.put(configId, instance);
-      } catch (ReflectiveOperationException e) {
-        LOG.error("Unable to construct AltoStringFixer", e);
-        throw new RuntimeException(e);
+          instance = cons.newInstance(configId);
+          instances.put(configId, instance);
+        } catch (ReflectiveOperationException e) {
+          LOG.error("Unable to construct AltoStringFixer", e);
+          throw new RuntimeException(e);
+        }
       }
+      return instance;
     }
-    return instance;
   }
 
   public String getHyphenatedContent(String content1, String content2);
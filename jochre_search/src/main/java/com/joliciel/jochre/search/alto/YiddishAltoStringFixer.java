@@ -14,7 +14,7 @@ import org.slf4j.LoggerFactory;
 
 class YiddishAltoStringFixer implements AltoStringFixer {
   private static final Logger LOG = LoggerFactory.getLogger(YiddishAltoStringFixer.class);
-  private Set<String> dualCharacterLetters = null;
+  private volatile Set<String> dualCharacterLetters = null;
 
   public YiddishAltoStringFixer(String configId) {
   }
@@ -247,13 +247,14 @@ class YiddishAltoStringFixer implements AltoStringFixer {
 
   private Set<String> getDualCharacterLetters() {
     if (dualCharacterLetters == null) {
-      dualCharacterLetters = new TreeSet<>();
+      Set<String> dualCharacterLetters = new TreeSet<>();
       String[] dualCharacterLetterArray = new String[] { "אָ", "אַ", "בּ", "פּ", "וּ", "פֿ", "שׁ", "וֹ", "יִ", "ײַ",
           "כֿ", "תּ", "אֶ", "כּ", "בֿ", "עֵ", "אִ", "שׂ", "נָ", "מְ", "הֶ", "מַ", "בָּ", "לִ", "נִ", "עֶ", "כֶ", "יי",
           "וו", "אֵ", "וי" };
       for (String letter : dualCharacterLetterArray) {
         dualCharacterLetters.add(letter);
       }
+      this.dualCharacterLetters = dualCharacterLetters;
     }
     return dualCharacterLetters;
   }
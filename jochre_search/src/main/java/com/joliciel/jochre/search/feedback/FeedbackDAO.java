@@ -5,6 +5,7 @@ import java.awt.image.BufferedImage;
 import java.sql.Array;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -34,7 +35,7 @@ class FeedbackDAO {
   private static final Logger LOG = LoggerFactory.getLogger(FeedbackDAO.class);
   private static Map<String, FeedbackDAO> instances = new HashMap<>();
 
-  public static FeedbackDAO getInstance(String configId) {
+  public static synchronized FeedbackDAO getInstance(String configId) {
     FeedbackDAO feedbackDAO = instances.get(configId);
     if (feedbackDAO == null) {
       feedbackDAO = new FeedbackDAO(configId);
@@ -735,6 +736,76 @@ class FeedbackDAO {
     }
   }
 
+  /**
+   * Save a batch of new queries and their clauses, using JDBC batching for the
+   * inserts. Queries which have already been saved are skipped.
+   */
+  void saveQueries(List<FeedbackQuery> queries) {
+    List<FeedbackQuery> newQueries = new ArrayList<>(queries.size());
+    for (FeedbackQuery query : queries)
+      if (query.isNew())
+        newQueries.add(query);
+    if (newQueries.size() == 0)
+      return;
+
+    NamedParameterJdbcTemplate jt = new NamedParameterJdbcTemplate(dataSource);
+    MapSqlParameterSource countParams = new MapSqlParameterSource();
+    countParams.addValue("count", newQueries.size());
+    String sql = "SELECT nextval('joc_query_query_id_seq') FROM generate_series(1, :count)";
+    LOG.debug(sql);
+    List<Integer> queryIds = jt.queryForList(sql, countParams, Integer.class);
+
+    Map<String, Integer> ipIds = new HashMap<>();
+    Map<String, Integer> userIds = new HashMap<>();
+    List<MapSqlParameterSource> queryParams = new ArrayList<>(newQueries.size());
+    List<MapSqlParameterSource> clauseParams = new ArrayList<>();
+    for (int i = 0; i < newQueries.size(); i++) {
+      FeedbackQuery query = newQueries.get(i);
+      int queryId = queryIds.get(i);
+      Integer ipId = ipIds.get(query.getIp());
+      if (ipId == null) {
+        ipId = this.getIpId(query.getIp());
+        ipIds.put(query.getIp(), ipId);
+      }
+      Integer userId = userIds.get(query.getUser());
+      if (userId == null) {
+        userId = this.getUserId(query.getUser());
+        userIds.put(query.getUser(), userId);
+      }
+
+      MapSqlParameterSource paramSource = new MapSqlParameterSource();
+      paramSource.addValue("query_id", queryId);
+      paramSource.addValue("query_user_id", userId);
+      paramSource.addValue("query_ip_id", ipId);
+      paramSource.addValue("query_date", new Timestamp(query.getDate().getTime()));
+      paramSource.addValue("query_results", query.getResultCount());
+      queryParams.add(paramSource);
+
+      for (FeedbackCriterion criterion : query.getClauses().keySet()) {
+        MapSqlParameterSource clauseSource = new MapSqlParameterSource();
+        clauseSource.addValue("clause_query_id", queryId);
+        clauseSource.addValue("clause_criterion_id", criterion.getId());
+        clauseSource.addValue("clause_text", query.getClauses().get(criterion));
+        clauseParams.add(clauseSource);
+      }
+    }
+
+    sql = "INSERT INTO joc_query (query_id, query_user_id, query_ip_id, query_date, query_results) "
+        + " VALUES (:query_id, :query_user_id, :query_ip_id, :query_date, :query_results)";
+    LOG.debug(sql + " (" + queryParams.size() + " rows)");
+    jt.batchUpdate(sql, queryParams.toArray(new MapSqlParameterSource[queryParams.size()]));
+
+    if (clauseParams.size() > 0) {
+      sql = "INSERT INTO joc_clause (clause_query_id, clause_criterion_id, clause_text) "
+          + " VALUES (:clause_query_id, :clause_criterion_id, :clause_text)";
+      LOG.debug(sql + " (" + clauseParams.size() + " rows)");
+      jt.batchUpdate(sql, clauseParams.toArray(new MapSqlParameterSource[clauseParams.size()]));
+    }
+
+    for (int i = 0; i < newQueries.size(); i++)
+      newQueries.get(i).setId(queryIds.get(i));
+  }
+
   protected final class QueryMapper implements RowMapper<FeedbackQuery> {
 
     @Override
@@ -36,7 +36,7 @@ public class FeedbackQuery {
   private int resultCount;
   private Map<FeedbackCriterion, String> clauses = new HashMap<>();
 
-  private final FeedbackDAO feedbackDAO;
+  private final String configId;
 
   public FeedbackQuery(String user, String ip, String configId) {
     this(configId);
@@ -45,7 +45,9 @@ public class FeedbackQuery {
   }
 
   FeedbackQuery(String configId) {
-    this.feedbackDAO = FeedbackDAO.getInstance(configId);
+    // the DAO is only needed on save, so that queries can be built on the
+    // search thread and written in the background by the FeedbackWriter
+    this.configId = configId;
   }
 
   public int getId() {
@@ -101,7 +103,7 @@ public class FeedbackQuery {
   }
 
   public void save() {
-    this.feedbackDAO.saveQuery(this);
+    FeedbackDAO.getInstance(configId).saveQuery(this);
   }
 
 }
@@ -0,0 +1,229 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2018 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.search.feedback;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.joliciel.jochre.search.JochreSearchConfig;
+import com.typesafe.config.Config;
+
+/**
+ * Writes search queries to the database in the background, so that a search
+ * doesn't wait for its query to be logged. Queries are held in a bounded queue
+ * and written in JDBC batches by a single daemon thread. If the queue remains
+ * full for longer than the configured wait, the query is dropped and counted
+ * rather than slowing down the search.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public class FeedbackWriter {
+  private static final Logger LOG = LoggerFactory.getLogger(FeedbackWriter.class);
+  private static Map<String, FeedbackWriter> instances = new HashMap<>();
+
+  private final String configId;
+  private final BlockingQueue<FeedbackQuery> queue;
+  private final Consumer<List<FeedbackQuery>> sink;
+  private final int batchSize;
+  private final long maxWait;
+  private final long shutdownTimeout;
+  private final Thread thread;
+  private volatile boolean closed = false;
+
+  private final AtomicLong accepted = new AtomicLong();
+  private final AtomicLong written = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final Object processedLock = new Object();
+
+  public static synchronized FeedbackWriter getInstance(String configId) {
+    FeedbackWriter feedbackWriter = instances.get(configId);
+    if (feedbackWriter == null) {
+      feedbackWriter = new FeedbackWriter(configId);
+      instances.put(configId, feedbackWriter);
+    }
+    return feedbackWriter;
+  }
+
+  /**
+   * Write all waiting queries and stop the writers for all configurations.
+   */
+  public static synchronized void shutdownAll() {
+    for (FeedbackWriter feedbackWriter : instances.values())
+      feedbackWriter.shutdown();
+    instances.clear();
+  }
+
+  private FeedbackWriter(String configId) {
+    // the DAO is only looked up when writing, so that a database error is
+    // counted as a failed batch rather than failing the search
+    this(configId, JochreSearchConfig.getInstance(configId).getConfig().getConfig("feedback-writer"),
+        batch -> FeedbackDAO.getInstance(configId).saveQueries(batch));
+  }
+
+  /**
+   * @param sink
+   *          writes each batch of queries, and throws a RuntimeException if
+   *          the batch could not be written. The list is reused once the sink
+   *          returns.
+   */
+  FeedbackWriter(String configId, Config writerConfig, Consumer<List<FeedbackQuery>> sink) {
+    this.configId = configId;
+    this.sink = sink;
+    this.queue = new ArrayBlockingQueue<>(writerConfig.getInt("queue-size"));
+    this.batchSize = writerConfig.getInt("batch-size");
+    this.maxWait = writerConfig.getDuration("max-wait", TimeUnit.MILLISECONDS);
+    this.shutdownTimeout = writerConfig.getDuration("shutdown-timeout", TimeUnit.MILLISECONDS);
+
+    this.thread = new Thread(this::run, "jochre-feedback-writer-" + configId);
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * Add a new query to the queue of queries to write.
+   * 
+   * @return false if the query was dropped because the queue was full, or the
+   *         writer has been shut down
+   */
+  public boolean write(FeedbackQuery query) {
+    if (query.getDate() == null)
+      query.setDate(new Date());
+    boolean added = false;
+    if (!closed) {
+      try {
+        added = queue.offer(query, maxWait, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (added) {
+      accepted.incrementAndGet();
+    } else {
+      long droppedCount = dropped.incrementAndGet();
+      // avoid flooding the log if the database is down
+      if (Long.bitCount(droppedCount) == 1)
+        LOG.warn("Feedback queue full for " + configId + ", " + droppedCount + " queries dropped so far");
+    }
+    return added;
+  }
+
+  private void run() {
+    List<FeedbackQuery> batch = new ArrayList<>(batchSize);
+    while (!closed || !queue.isEmpty()) {
+      try {
+        FeedbackQuery first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null)
+          continue;
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+        sink.accept(batch);
+        written.addAndGet(batch.size());
+      } catch (InterruptedException e) {
+        break;
+      } catch (RuntimeException e) {
+        LOG.error("Failed to write " + batch.size() + " feedback queries", e);
+        failed.addAndGet(batch.size());
+      } finally {
+        batch.clear();
+        synchronized (processedLock) {
+          processedLock.notifyAll();
+        }
+      }
+    }
+  }
+
+  /**
+   * Wait until all queries accepted so far have been written (or have failed),
+   * or until the timeout has elapsed.
+   * 
+   * @return true if all queries were processed
+   */
+  public boolean flush(long timeout, TimeUnit unit) {
+    long target = accepted.get();
+    long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+    synchronized (processedLock) {
+      while (written.get() + failed.get() < target) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0 || !thread.isAlive())
+          return false;
+        try {
+          processedLock.wait(remaining);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Stop accepting queries, and wait for the queries waiting in the queue to be
+   * written, up to the configured shutdown timeout.
+   */
+  public void shutdown() {
+    closed = true;
+    if (!this.flush(shutdownTimeout, TimeUnit.MILLISECONDS))
+      LOG.warn("Feedback writer for " + configId + " shut down with " + queue.size() + " queries unwritten");
+    thread.interrupt();
+    LOG.info("Feedback writer for " + configId + " shut down. Written: " + written.get() + ", dropped: "
+        + dropped.get() + ", failed: " + failed.get());
+  }
+
+  /**
+   * The number of queries written to the database.
+   */
+  public long getWrittenCount() {
+    return written.get();
+  }
+
+  /**
+   * The number of queries dropped because the queue was full.
+   */
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  /**
+   * The number of queries which could not be written due to a database error.
+   */
+  public long getFailedCount() {
+    return failed.get();
+  }
+
+  /**
+   * The number of queries currently waiting to be written.
+   */
+  public int getQueueSize() {
+    return queue.size();
+  }
+}
@@ -85,7 +85,7 @@ public class HighlightManager {
 
   public void highlight(Highlighter highlighter, Set<Integer> docIds, Writer out) throws IOException {
     Map<Integer, NavigableSet<HighlightTerm>> termMap = highlighter.highlight(docIds);
-    JsonFactory jsonFactory = new JsonFactory();
+    JsonFactory jsonFactory = JochreSearchConstants.JSON_FACTORY;
     JsonGenerator jsonGen = jsonFactory.createGenerator(out);
 
     jsonGen.writeStartObject();
@@ -170,7 +170,7 @@ public class HighlightManager {
     Map<Integer, NavigableSet<HighlightTerm>> termMap = highlighter.highlight(docIds);
     Map<Integer, Either<List<Snippet>, Exception>> snippetMap = this.findSnippets(docIds, termMap, this.snippetCount);
 
-    JsonFactory jsonFactory = new JsonFactory();
+    JsonFactory jsonFactory = JochreSearchConstants.JSON_FACTORY;
     JsonGenerator jsonGen = jsonFactory.createGenerator(out);
 
     jsonGen.writeStartObject();
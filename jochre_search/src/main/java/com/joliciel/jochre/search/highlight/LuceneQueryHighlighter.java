@@ -2,6 +2,8 @@ package com.joliciel.jochre.search.highlight;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -10,7 +12,7 @@ import java.util.NavigableSet;
 import java.util.Set;
 import java.util.TreeSet;
 
-import org.apache.lucene.document.Document;
+import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexReaderContext;
 import org.apache.lucene.index.LeafReader;
@@ -25,7 +27,6 @@ import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.FuzzyQuery;
-import org.apache.lucene.search.FuzzyTermsEnum;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Matches;
 import org.apache.lucene.search.MatchesIterator;
@@ -34,13 +35,14 @@ import org.apache.lucene.search.Query;
 import org.apache.lucene.search.RegexpQuery;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.search.WildcardQuery;
-import org.apache.lucene.util.AttributeSource;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.automaton.Automaton;
 import org.apache.lucene.util.automaton.CompiledAutomaton;
+import org.apache.lucene.util.automaton.LevenshteinAutomata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.joliciel.jochre.search.JochreIndexField;
 import com.joliciel.jochre.search.JochrePayload;
 import com.joliciel.jochre.search.JochreQuery;
 
@@ -62,6 +64,9 @@ public class LuceneQueryHighlighter implements Highlighter {
   // We store the TF once per term text (BytesRef) rather than per term
   // so as not to weight the same term higher for certain fields than others
   private final Map<BytesRef, Double> termLogs = new HashMap<>();
+  private final Map<Term, Double> otherFieldTermLogs = new HashMap<>();
+  private PostingsEnum postingsEnum = null;
+  private Boolean termVectorOverride = null;
 
   public LuceneQueryHighlighter(JochreQuery jochreQuery, IndexSearcher indexSearcher, Set<String> fields)
       throws IOException {
@@ -79,6 +84,16 @@ public class LuceneQueryHighlighter implements Highlighter {
     docCountLog = Math.log(docFieldCount + 1);
   }
 
+  /**
+   * Whether to match multi-term queries against the term vectors of the
+   * documents being highlighted (true) or against the field's dictionary
+   * (false), for fields with term vectors. If null (the default), the cheaper
+   * of the two is chosen for each segment.
+   */
+  void setUseTermVectors(Boolean useTermVectors) {
+    this.termVectorOverride = useTermVectors;
+  }
+
   @Override
   public Map<Integer, NavigableSet<HighlightTerm>> highlight(Set<Integer> docIds) {
     try {
@@ -100,11 +115,8 @@ public class LuceneQueryHighlighter implements Highlighter {
         }
       }
 
-      Map<Integer, Document> luceneIdToLuceneDocMap = new HashMap<>();
       Map<Integer, Set<Integer>> myLeaves = new HashMap<>();
       for (int docId : docIds) {
-        Document luceneDoc = indexSearcher.doc(docId);
-        luceneIdToLuceneDocMap.put(docId, luceneDoc);
         int leaf = ReaderUtil.subIndex(docId, leaves);
         Set<Integer> docsPerLeaf = myLeaves.get(leaf);
         if (docsPerLeaf == null) {
@@ -127,7 +139,13 @@ public class LuceneQueryHighlighter implements Highlighter {
         LeafReaderContext subContext = leaves.get(leaf);
         LeafReader atomicReader = subContext.reader();
 
-        for (int docId : docsPerLeaf) {
+        int[] leafDocIds = new int[docsPerLeaf.size()];
+        int i = 0;
+        for (int docId : docsPerLeaf)
+          leafDocIds[i++] = docId;
+        Arrays.sort(leafDocIds);
+
+        for (int docId : leafDocIds) {
           Map<String, List<HighlightPassage>> fieldPassages = docPassages.get(docId);
           for (Weight weight : weights) {
             Set<Term> terms = new HashSet<>();
@@ -136,10 +154,15 @@ public class LuceneQueryHighlighter implements Highlighter {
             if (matches != null) {
               for (String field : fields) {
                 List<HighlightPassage> passages = fieldPassages.get(field);
-                MatchesIterator iMatches = matches.getMatches(field);
-                while (iMatches.next()) {
-                  HighlightPassage passage = new HighlightPassage(iMatches.startOffset(), iMatches.endOffset(), terms);
-                  passages.add(passage);
+                for (String matchField : this.getMatchFields(field)) {
+                  MatchesIterator iMatches = matches.getMatches(matchField);
+                  if (iMatches == null)
+                    continue;
+                  while (iMatches.next()) {
+                    HighlightPassage passage = new HighlightPassage(iMatches.startOffset(), iMatches.endOffset(),
+                        terms);
+                    passages.add(passage);
+                  }
                 }
               }
             }
@@ -154,45 +177,106 @@ public class LuceneQueryHighlighter implements Highlighter {
           if (atomicReaderTerms == null) {
             continue; // nothing to do
           }
+          TermsEnum termsEnum = atomicReaderTerms.iterator();
+          FieldInfo fieldInfo = atomicReader.getFieldInfos().fieldInfo(field);
+
+          // If the documents being highlighted contain fewer terms between them
+          // than the field's dictionary, only their own terms are matched
+          // against the extractors, by reading their term vectors, so that the
+          // cost depends on the number of documents rather than the index size.
+          boolean useTermVectors = false;
+          if (extractors.size() > 0 && fieldInfo.hasVectors() && termVectorOverride != null) {
+            useTermVectors = termVectorOverride;
+          } else if (extractors.size() > 0 && fieldInfo.hasVectors() && atomicReaderTerms.getDocCount() > 0) {
+            long meanDocTerms = atomicReaderTerms.getSumDocFreq() / atomicReaderTerms.getDocCount();
+            long dictionarySize = atomicReaderTerms.size() < 0 ? Long.MAX_VALUE : atomicReaderTerms.size();
+            useTermVectors = leafDocIds.length * meanDocTerms < dictionarySize;
+          }
 
-          for (TermsEnumExtractor extractor : extractors) {
-            if (LOG.isTraceEnabled())
-              LOG.trace("Matching extractor " + (extractor.getTerm() == null ? "" : extractor.getTerm().utf8ToString())
-                  + " in field " + field);
-            TermsEnum extractorEnum = extractor.getTermsEnum(atomicReaderTerms);
-            BytesRef nextBytesRef = extractorEnum.next();
-            while (nextBytesRef != null) {
-              List<HighlightTerm> highlights = this.findHighlights(field, extractorEnum, subContext,
-                  luceneIdToLuceneDocMap, docsPerLeaf);
-              for (HighlightTerm highlightTerm : highlights) {
-                termMap.get(highlightTerm.getDocId()).add(highlightTerm);
+          if (useTermVectors) {
+            for (int docId : leafDocIds) {
+              Terms docTerms = atomicReader.getTermVector(docId - subContext.docBase, field);
+              if (docTerms == null)
+                continue;
+              for (TermsEnumExtractor extractor : extractors) {
+                if (LOG.isTraceEnabled())
+                  LOG.trace("Matching extractor "
+                      + (extractor.getTerm() == null ? "" : extractor.getTerm().utf8ToString()) + " in field " + field
+                      + " for doc " + docId);
+                TermsEnum extractorEnum = extractor.getTermsEnum(docTerms);
+                BytesRef nextBytesRef = extractorEnum.next();
+                while (nextBytesRef != null) {
+                  // offsets and payloads are read from the postings
+                  if (termsEnum.seekExact(nextBytesRef)) {
+                    List<HighlightTerm> highlights = this.findHighlights(field, field, termsEnum, subContext,
+                        new int[] { docId });
+                    for (HighlightTerm highlightTerm : highlights) {
+                      termMap.get(highlightTerm.getDocId()).add(highlightTerm);
+                    }
+                  }
+                  nextBytesRef = extractorEnum.next();
+                }
+              }
+            }
+          } else {
+            for (TermsEnumExtractor extractor : extractors) {
+              if (LOG.isTraceEnabled())
+                LOG.trace("Matching extractor "
+                    + (extractor.getTerm() == null ? "" : extractor.getTerm().utf8ToString()) + " in field " + field);
+              TermsEnum extractorEnum = extractor.getTermsEnum(atomicReaderTerms);
+              BytesRef nextBytesRef = extractorEnum.next();
+              while (nextBytesRef != null) {
+                List<HighlightTerm> highlights = this.findHighlights(field, field, extractorEnum, subContext,
+                    leafDocIds);
+                for (HighlightTerm highlightTerm : highlights) {
+                  termMap.get(highlightTerm.getDocId()).add(highlightTerm);
+                }
+                nextBytesRef = extractorEnum.next();
               }
-              nextBytesRef = extractorEnum.next();
             }
           }
 
-          for (int docId : docsPerLeaf) {
+          Map<String, TermsEnum> otherFieldEnums = new HashMap<>();
+          for (int docId : leafDocIds) {
             List<HighlightPassage> fieldPassages = docPassages.get(docId).get(field);
             if (fieldPassages != null) {
+              // each term is only sought once per document, even if it appears
+              // in several passages
+              Map<Term, List<HighlightTerm>> docTermHighlights = new HashMap<>();
               for (HighlightPassage passage : fieldPassages) {
                 if (LOG.isTraceEnabled())
                   LOG.trace("Checking passage: " + passage);
                 int termCounter = 0;
-                TermsEnum termsEnum = atomicReaderTerms.iterator();
                 for (Term term : passage.terms) {
                   termCounter++;
-                  if (LOG.isTraceEnabled())
-                    LOG.trace("Searching for term " + termCounter + ": " + term.bytes().utf8ToString() + " in field "
-                        + field);
+                  List<HighlightTerm> highlights = docTermHighlights.get(term);
+                  if (highlights == null) {
+                    // terms from another field sharing this field's offsets are
+                    // sought in their own field
+                    String termField = field;
+                    TermsEnum termFieldEnum = termsEnum;
+                    if (!term.field().equals(field) && this.getMatchFields(field).contains(term.field())) {
+                      termField = term.field();
+                      termFieldEnum = otherFieldEnums.get(termField);
+                      if (termFieldEnum == null) {
+                        Terms termFieldTerms = atomicReader.terms(termField);
+                        termFieldEnum = termFieldTerms == null ? TermsEnum.EMPTY : termFieldTerms.iterator();
+                        otherFieldEnums.put(termField, termFieldEnum);
+                      }
+                    }
+                    if (LOG.isTraceEnabled())
+                      LOG.trace("Searching for term " + termCounter + ": " + term.bytes().utf8ToString() + " in field "
+                          + termField);
 
-                  if (!termsEnum.seekExact(term.bytes())) {
-                    continue; // term not found
+                    if (termFieldEnum.seekExact(term.bytes())) {
+                      highlights = this.findHighlights(field, termField, termFieldEnum, subContext,
+                          new int[] { docId });
+                    } else {
+                      highlights = Collections.emptyList(); // term not found
+                    }
+                    docTermHighlights.put(term, highlights);
                   }
 
-                  Set<Integer> singleDocIdSet = new HashSet<>();
-                  singleDocIdSet.add(docId);
-                  List<HighlightTerm> highlights = this.findHighlights(field, termsEnum, subContext,
-                      luceneIdToLuceneDocMap, singleDocIdSet);
                   for (HighlightTerm highlightTerm : highlights) {
                     if (highlightTerm.getStartOffset() >= passage.start
                         && highlightTerm.getEndOffset() <= passage.end) {
@@ -274,7 +358,17 @@ public class LuceneQueryHighlighter implements Highlighter {
       CompiledAutomaton compiledAutomaton = new CompiledAutomaton(automaton);
       extractors.add(new CompiledAutomatonTermsEnumExtractor(compiledAutomaton));
     } else if (query instanceof FuzzyQuery) {
-      extractors.add(new FuzzyQueryTermsEnumExtractor((FuzzyQuery) query));
+      // build the Levenshtein automaton once, rather than once per TermsEnum
+      FuzzyQuery fuzzyQuery = (FuzzyQuery) query;
+      int[] codePoints = fuzzyQuery.getTerm().text().codePoints().toArray();
+      int prefixLength = Math.min(fuzzyQuery.getPrefixLength(), codePoints.length);
+      String prefix = new String(codePoints, 0, prefixLength);
+      int[] suffix = Arrays.copyOfRange(codePoints, prefixLength, codePoints.length);
+      LevenshteinAutomata levenshteinAutomata = new LevenshteinAutomata(suffix, Character.MAX_CODE_POINT,
+          fuzzyQuery.getTranspositions());
+      Automaton automaton = levenshteinAutomata.toAutomaton(fuzzyQuery.getMaxEdits(), prefix);
+      CompiledAutomaton compiledAutomaton = new CompiledAutomaton(automaton, true, false);
+      extractors.add(new CompiledAutomatonTermsEnumExtractor(compiledAutomaton));
     } else {
       if (LOG.isDebugEnabled())
         LOG.debug("Extracting weight for " + query.getClass().getName());
@@ -306,63 +400,66 @@ public class LuceneQueryHighlighter implements Highlighter {
     }
   }
 
-  private static final class FuzzyQueryTermsEnumExtractor implements TermsEnumExtractor {
-    private FuzzyQuery fuzzyQuery;
-
-    public FuzzyQueryTermsEnumExtractor(FuzzyQuery fuzzyQuery) {
-      this.fuzzyQuery = fuzzyQuery;
-    }
-
-    @Override
-    public TermsEnum getTermsEnum(Terms terms) throws IOException {
-      return new FuzzyTermsEnum(terms, new AttributeSource(), fuzzyQuery.getTerm(), fuzzyQuery.getMaxEdits(),
-          fuzzyQuery.getPrefixLength(), fuzzyQuery.getTranspositions());
-    }
-
-    @Override
-    public BytesRef getTerm() {
-      return this.fuzzyQuery.getTerm().bytes();
-    }
+  /**
+   * The fields whose matches are highlighted in a given field: the field itself,
+   * and for the text field, the lemma field, which shares its offsets.
+   */
+  private List<String> getMatchFields(String field) {
+    if (field.equals(JochreIndexField.text.name()))
+      return Arrays.asList(field, JochreIndexField.lemma.name());
+    return Arrays.asList(field);
   }
 
-  private List<HighlightTerm> findHighlights(String field, TermsEnum termsEnum, LeafReaderContext subContext,
-      Map<Integer, Document> luceneIdToLuceneDocMap, Set<Integer> docsPerLeaf) throws IOException {
+  /**
+   * Find the highlights for the current term of termsEnum, which is read from
+   * termField, and highlighted in field. Only the postings of the documents
+   * requested are read, by advancing directly to each one in turn.
+   * 
+   * @param docIds
+   *          the documents to highlight in this leaf, in ascending order
+   */
+  private List<HighlightTerm> findHighlights(String field, String termField, TermsEnum termsEnum,
+      LeafReaderContext subContext, int[] docIds) throws IOException {
     List<HighlightTerm> highlights = new ArrayList<>();
 
-    Term term = new Term(field, BytesRef.deepCopyOf(termsEnum.term()));
+    Term term = new Term(termField, BytesRef.deepCopyOf(termsEnum.term()));
 
-    PostingsEnum postingsEnum = termsEnum.postings(null,
+    postingsEnum = termsEnum.postings(postingsEnum,
         PostingsEnum.OFFSETS | PostingsEnum.POSITIONS | PostingsEnum.PAYLOADS);
-    int relativeId = postingsEnum.nextDoc();
-    while (relativeId != DocIdSetIterator.NO_MORE_DOCS) {
-      int luceneId = subContext.docBase + relativeId;
-      if (docsPerLeaf.contains(luceneId)) {
-        // Retrieve the term frequency in the current document
-        int freq = postingsEnum.freq();
-
-        if (LOG.isTraceEnabled()) {
-          LOG.trace(
-              "Found " + freq + " matches for term " + term.toString() + ", luceneId " + luceneId + ", field " + field);
-        }
-        for (int i = 0; i < freq; i++) {
-          int position = postingsEnum.nextPosition();
-          int start = postingsEnum.startOffset();
-          int end = postingsEnum.endOffset();
+    int relativeId = -1;
+    for (int luceneId : docIds) {
+      int target = luceneId - subContext.docBase;
+      if (relativeId < target)
+        relativeId = postingsEnum.advance(target);
+      if (relativeId == DocIdSetIterator.NO_MORE_DOCS)
+        break;
+      if (relativeId != target)
+        continue;
+
+      // Retrieve the term frequency in the current document
+      int freq = postingsEnum.freq();
+
+      if (LOG.isTraceEnabled()) {
+        LOG.trace(
+            "Found " + freq + " matches for term " + term.toString() + ", luceneId " + luceneId + ", field " + field);
+      }
+      for (int i = 0; i < freq; i++) {
+        int position = postingsEnum.nextPosition();
+        int start = postingsEnum.startOffset();
+        int end = postingsEnum.endOffset();
 
-          if (LOG.isTraceEnabled())
-            LOG.trace("Found match " + position + " at luceneId " + luceneId + ", field " + field + " start=" + start
-                + ", end=" + end);
+        if (LOG.isTraceEnabled())
+          LOG.trace("Found match " + position + " at luceneId " + luceneId + ", field " + field + " start=" + start
+              + ", end=" + end);
 
-          BytesRef bytesRef = postingsEnum.getPayload();
-          JochrePayload payload = new JochrePayload(bytesRef);
-          if (LOG.isTraceEnabled())
-            LOG.trace("Payload: " + payload.toString());
-          double weight = this.weigh(term);
-          HighlightTerm highlight = new HighlightTerm(luceneId, field, start, end, position, weight, payload);
-          highlights.add(highlight);
-        }
+        BytesRef bytesRef = postingsEnum.getPayload();
+        JochrePayload payload = new JochrePayload(bytesRef);
+        if (LOG.isTraceEnabled())
+          LOG.trace("Payload: " + payload.toString());
+        double weight = this.weigh(term);
+        HighlightTerm highlight = new HighlightTerm(luceneId, field, start, end, position, weight, payload);
+        highlights.add(highlight);
       }
-      relativeId = postingsEnum.nextDoc();
     }
     return highlights;
   }
@@ -377,7 +474,16 @@ public class LuceneQueryHighlighter implements Highlighter {
    */
   private double weigh(Term term) throws IOException {
     double idf = 0;
-    if (termLogs.containsKey(term.bytes())) {
+    if (!fields.contains(term.field())) {
+      // a term from a field sharing offsets with the highlighted fields
+      Double termLog = otherFieldTermLogs.get(term);
+      if (termLog == null) {
+        int freq = indexSearcher.getIndexReader().docFreq(term);
+        termLog = docCountLog - (freq == 0 ? 0 : Math.log(freq));
+        otherFieldTermLogs.put(new Term(term.field(), BytesRef.deepCopyOf(term.bytes())), termLog);
+      }
+      idf = termLog;
+    } else if (termLogs.containsKey(term.bytes())) {
       idf = termLogs.get(term.bytes());
     } else {
       IndexReader reader = indexSearcher.getIndexReader();
@@ -41,6 +41,7 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.joliciel.jochre.search.JochreIndexDocument;
 import com.joliciel.jochre.search.JochrePayload;
+import com.joliciel.jochre.search.JochreSearchConstants;
 
 /**
  * A single snippet within a document, used for displaying the document.
@@ -72,7 +73,7 @@ public class Snippet implements Comparable<Snippet> {
   public Snippet(String json) {
     try {
       Reader reader = new StringReader(json);
-      JsonFactory jsonFactory = new JsonFactory();
+      JsonFactory jsonFactory = JochreSearchConstants.JSON_FACTORY;
       JsonParser jsonParser = jsonFactory.createParser(reader);
       jsonParser.nextToken();
       this.read(jsonParser);
@@ -202,7 +203,7 @@ public class Snippet implements Comparable<Snippet> {
       DecimalFormatSymbols enSymbols = new DecimalFormatSymbols(Locale.US);
       DecimalFormat df = new DecimalFormat("0.00", enSymbols);
       StringWriter writer = new StringWriter();
-      JsonFactory jsonFactory = new JsonFactory();
+      JsonFactory jsonFactory = JochreSearchConstants.JSON_FACTORY;
       JsonGenerator jsonGen = jsonFactory.createGenerator(writer);
       this.toJson(jsonGen, df);
       writer.flush();
@@ -367,8 +368,19 @@ public class Snippet implements Comparable<Snippet> {
           if (endRowIndex >= jochreDoc.getRowCount(pageIndex))
             endRowIndex = jochreDoc.getRowCount(pageIndex) - 1;
         } else {
+          // without highlight terms, find the rows from the snippet's offsets
+          // on the snippet's page
+          int pageRowCount = jochreDoc.getRowCount(pageIndex);
+          int[] startRow = jochreDoc.findRow(startOffset);
+          int[] endRow = jochreDoc.findRow(Math.max(startOffset, endOffset - 1));
           startRowIndex = 0;
-          endRowIndex = 0;
+          if (startRow != null && startRow[0] == pageIndex)
+            startRowIndex = startRow[1];
+          endRowIndex = startRowIndex;
+          if (endRow != null && endRow[0] == pageIndex)
+            endRowIndex = endRow[1];
+          else if (endRow != null && endRow[0] > pageIndex && pageRowCount > 0)
+            endRowIndex = pageRowCount - 1;
         }
       }
 
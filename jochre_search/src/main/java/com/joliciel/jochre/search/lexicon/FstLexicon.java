@@ -0,0 +1,320 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2016 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.search.lexicon;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.RandomAccessInput;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IntsRef;
+import org.apache.lucene.util.IntsRefBuilder;
+import org.apache.lucene.util.fst.Builder;
+import org.apache.lucene.util.fst.FST;
+import org.apache.lucene.util.fst.PositiveIntOutputs;
+import org.apache.lucene.util.fst.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gnu.trove.set.hash.THashSet;
+
+/**
+ * An immutable lexicon compiled into a single file, which is memory-mapped
+ * rather than deserialized. Words and lemmas are each stored in a Lucene FST
+ * mapping the string to its ordinal in sorted order, and the links between
+ * them are stored as lists of ordinals which are read directly from the mapped
+ * file. Only the FSTs are held on the heap, and the mapped pages are shared by
+ * all processes reading the same file.<br>
+ * <br>
+ * A compiled lexicon is written by {@link #write(Map, File)}, typically from
+ * {@link TextFileLexicon#wordToLemmaMap}.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public class FstLexicon implements Lexicon {
+  private static final Logger LOG = LoggerFactory.getLogger(FstLexicon.class);
+  private static final String CODEC_NAME = "JochreLexicon";
+  private static final int VERSION_START = 0;
+  private static final int VERSION_CURRENT = VERSION_START;
+
+  /**
+   * The file extension by which compiled lexicons are recognised.
+   */
+  public static final String EXTENSION = ".fst";
+
+  private final FST<Long> wordFst;
+  private final FST<Long> lemmaFst;
+  private final LinkTable wordToLemmas;
+  private final LinkTable lemmaToWords;
+
+  private FstLexicon(Directory directory, String fileName) throws IOException {
+    // the input is never closed: the link tables read from its mapped slices
+    // for the lifetime of the lexicon
+    IndexInput input = directory.openInput(fileName, IOContext.READ);
+    CodecUtil.checkHeader(input, CODEC_NAME, VERSION_START, VERSION_CURRENT);
+    long start = input.getFilePointer();
+    // only check the footer's structure: a full checksum would read the whole
+    // file
+    CodecUtil.retrieveChecksum(input);
+    input.seek(start);
+    PositiveIntOutputs outputs = PositiveIntOutputs.getSingleton();
+    this.wordFst = new FST<>(input, outputs);
+    this.lemmaFst = new FST<>(input, outputs);
+    this.wordToLemmas = new LinkTable(input);
+    this.lemmaToWords = new LinkTable(input);
+  }
+
+  /**
+   * Open a compiled lexicon file written by {@link #write(Map, File)}.
+   */
+  public static FstLexicon open(File lexiconFile) {
+    try {
+      Directory directory = new MMapDirectory(lexiconFile.getAbsoluteFile().getParentFile().toPath());
+      FstLexicon lexicon = new FstLexicon(directory, lexiconFile.getName());
+      if (LOG.isDebugEnabled())
+        LOG.debug("Opened lexicon " + lexiconFile.getAbsolutePath() + " with " + lexicon.wordToLemmas.size + " words and "
+            + lexicon.lemmaToWords.size + " lemmas, FST heap size: "
+            + (lexicon.wordFst.ramBytesUsed() + lexicon.lemmaFst.ramBytesUsed()));
+      return lexicon;
+    } catch (IOException e) {
+      LOG.error("Failed to open lexicon " + lexiconFile.getAbsolutePath(), e);
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Compile a lexicon from a map of words to their lemmas, and write it to the
+   * file provided, replacing any existing file.
+   */
+  public static void write(Map<String, ? extends Collection<String>> wordToLemmaMap, File outFile) {
+    try {
+      Map<String, Set<String>> lemmaToWordMap = new HashMap<>();
+      for (Map.Entry<String, ? extends Collection<String>> entry : wordToLemmaMap.entrySet()) {
+        for (String lemma : entry.getValue()) {
+          Set<String> words = lemmaToWordMap.get(lemma);
+          if (words == null) {
+            words = new THashSet<>();
+            lemmaToWordMap.put(lemma, words);
+          }
+          words.add(entry.getKey());
+        }
+      }
+
+      TreeMap<BytesRef, String> sortedWords = sort(wordToLemmaMap.keySet());
+      TreeMap<BytesRef, String> sortedLemmas = sort(lemmaToWordMap.keySet());
+      Map<String, Integer> wordOrds = getOrdinals(sortedWords);
+      Map<String, Integer> lemmaOrds = getOrdinals(sortedLemmas);
+
+      File parentFile = outFile.getAbsoluteFile().getParentFile();
+      parentFile.mkdirs();
+      Files.deleteIfExists(outFile.toPath());
+      try (Directory directory = FSDirectory.open(parentFile.toPath());
+          IndexOutput output = directory.createOutput(outFile.getName(), IOContext.DEFAULT)) {
+        CodecUtil.writeHeader(output, CODEC_NAME, VERSION_CURRENT);
+        buildFst(sortedWords).save(output);
+        buildFst(sortedLemmas).save(output);
+        writeLinks(output, sortedWords, wordToLemmaMap, lemmaOrds);
+        writeLinks(output, sortedLemmas, lemmaToWordMap, wordOrds);
+        CodecUtil.writeFooter(output);
+      }
+      LOG.info("Wrote lexicon with " + sortedWords.size() + " words and " + sortedLemmas.size() + " lemmas to "
+          + outFile.getAbsolutePath());
+    } catch (IOException e) {
+      LOG.error("Failed to write lexicon to " + outFile.getAbsolutePath(), e);
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static TreeMap<BytesRef, String> sort(Collection<String> strings) {
+    // FST inputs must be added in UTF-8 byte order
+    TreeMap<BytesRef, String> sorted = new TreeMap<>();
+    for (String string : strings)
+      sorted.put(new BytesRef(string), string);
+    return sorted;
+  }
+
+  private static Map<String, Integer> getOrdinals(TreeMap<BytesRef, String> sorted) {
+    Map<String, Integer> ordinals = new HashMap<>(sorted.size() * 2);
+    int ord = 0;
+    for (String string : sorted.values())
+      ordinals.put(string, ord++);
+    return ordinals;
+  }
+
+  private static FST<Long> buildFst(TreeMap<BytesRef, String> sorted) throws IOException {
+    Builder<Long> builder = new Builder<>(FST.INPUT_TYPE.BYTE1, PositiveIntOutputs.getSingleton());
+    IntsRefBuilder scratch = new IntsRefBuilder();
+    long ord = 0;
+    for (BytesRef bytes : sorted.keySet())
+      builder.add(Util.toIntsRef(bytes, scratch), ord++);
+    return builder.finish();
+  }
+
+  /**
+   * Writes, for each key in order, the sorted ordinals of the strings it is
+   * linked to: first a table of int offsets, and then the ordinals themselves,
+   * delta-encoded as vInts.
+   */
+  private static void writeLinks(IndexOutput output, TreeMap<BytesRef, String> sortedKeys,
+      Map<String, ? extends Collection<String>> links, Map<String, Integer> targetOrds) throws IOException {
+    List<int[]> ordLists = new ArrayList<>(sortedKeys.size());
+    for (String key : sortedKeys.values()) {
+      Collection<String> targets = links.get(key);
+      int[] ords = new int[targets.size()];
+      int i = 0;
+      for (String target : targets)
+        ords[i++] = targetOrds.get(target);
+      Arrays.sort(ords);
+      ordLists.add(ords);
+    }
+
+    int[] offsets = new int[ordLists.size() + 1];
+    int offset = 0;
+    for (int i = 0; i < ordLists.size(); i++) {
+      offsets[i] = offset;
+      int previous = 0;
+      for (int ord : ordLists.get(i)) {
+        offset += vIntLength(ord - previous);
+        previous = ord;
+      }
+    }
+    offsets[ordLists.size()] = offset;
+
+    output.writeVInt(ordLists.size());
+    output.writeVLong(offset);
+    for (int i = 0; i < offsets.length; i++)
+      output.writeInt(offsets[i]);
+    for (int[] ords : ordLists) {
+      int previous = 0;
+      for (int ord : ords) {
+        output.writeVInt(ord - previous);
+        previous = ord;
+      }
+    }
+  }
+
+  private static int vIntLength(int i) {
+    int length = 1;
+    while ((i & ~0x7F) != 0) {
+      i >>>= 7;
+      length++;
+    }
+    return length;
+  }
+
+  /**
+   * A memory-mapped table of links written by
+   * {@link FstLexicon#writeLinks(IndexOutput, TreeMap, Map, Map)}.
+   */
+  private static final class LinkTable {
+    private final int size;
+    private final long dataStart;
+    private final RandomAccessInput slice;
+
+    LinkTable(IndexInput input) throws IOException {
+      this.size = input.readVInt();
+      long dataLength = input.readVLong();
+      this.dataStart = (size + 1) * 4L;
+      long start = input.getFilePointer();
+      this.slice = input.randomAccessSlice(start, dataStart + dataLength);
+      input.seek(start + dataStart + dataLength);
+    }
+
+    int[] getOrdinals(int ord) throws IOException {
+      long pos = dataStart + slice.readInt(ord * 4L);
+      long end = dataStart + slice.readInt((ord + 1) * 4L);
+      int[] ords = new int[(int) (end - pos)];
+      int count = 0;
+      int previous = 0;
+      while (pos < end) {
+        byte b = slice.readByte(pos++);
+        int delta = b & 0x7F;
+        for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+          b = slice.readByte(pos++);
+          delta |= (b & 0x7F) << shift;
+        }
+        previous += delta;
+        ords[count++] = previous;
+      }
+      return Arrays.copyOf(ords, count);
+    }
+  }
+
+  private Set<String> lookup(String key, FST<Long> keyFst, LinkTable links, FST<Long> targetFst) {
+    try {
+      Long ord = Util.get(keyFst, new BytesRef(key));
+      if (ord == null)
+        return null;
+      int[] targetOrds = links.getOrdinals(ord.intValue());
+      Set<String> targets = new THashSet<>(targetOrds.length);
+      for (int targetOrd : targetOrds) {
+        IntsRef ints = Util.getByOutput(targetFst, targetOrd);
+        byte[] bytes = new byte[ints.length];
+        for (int i = 0; i < ints.length; i++)
+          bytes[i] = (byte) ints.ints[ints.offset + i];
+        targets.add(new BytesRef(bytes).utf8ToString());
+      }
+      return targets;
+    } catch (IOException e) {
+      LOG.error("Failed to read lexicon entry for " + key, e);
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public Set<String> getLemmas(String word) {
+    return this.lookup(word, wordFst, wordToLemmas, lemmaFst);
+  }
+
+  @Override
+  public Set<String> getWords(String lemma) {
+    return this.lookup(lemma, lemmaFst, lemmaToWords, wordFst);
+  }
+
+  /**
+   * The number of distinct words in this lexicon.
+   */
+  public int getWordCount() {
+    return wordToLemmas.size;
+  }
+
+  /**
+   * The number of distinct lemmas in this lexicon.
+   */
+  public int getLemmaCount() {
+    return lemmaToWords.size;
+  }
+}
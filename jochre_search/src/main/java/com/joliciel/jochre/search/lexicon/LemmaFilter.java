@@ -0,0 +1,97 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2018 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.search.lexicon;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+
+/**
+ * Replaces each token by the lemmas found for it in the lexicon, stacked at the
+ * token's position. Tokens without lemmas are removed, their position increment
+ * being carried over to the next token (or to the final position increment at
+ * the end of the stream), so that positions, offsets and payloads remain
+ * aligned with the unfiltered token stream.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public final class LemmaFilter extends TokenFilter {
+  private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+  private final PositionIncrementAttribute posIncrAtt = addAttribute(PositionIncrementAttribute.class);
+
+  private final Lexicon lexicon;
+  private List<String> lemmas = null;
+  private int index = 0;
+  private int skippedPositions = 0;
+
+  public LemmaFilter(TokenStream input, Lexicon lexicon) {
+    super(input);
+    this.lexicon = lexicon;
+  }
+
+  @Override
+  public boolean incrementToken() throws IOException {
+    if (lemmas == null) {
+      skippedPositions = 0;
+      while (true) {
+        if (!input.incrementToken())
+          return false;
+        Set<String> tokenLemmas = lexicon.getLemmas(termAtt.toString());
+        if (tokenLemmas != null && tokenLemmas.size() > 0) {
+          lemmas = new ArrayList<>(new TreeSet<>(tokenLemmas));
+          index = 0;
+          posIncrAtt.setPositionIncrement(posIncrAtt.getPositionIncrement() + skippedPositions);
+          skippedPositions = 0;
+          break;
+        }
+        skippedPositions += posIncrAtt.getPositionIncrement();
+      }
+    } else {
+      posIncrAtt.setPositionIncrement(0);
+    }
+
+    String lemma = lemmas.get(index++);
+    termAtt.setEmpty().append(lemma);
+    if (index == lemmas.size())
+      lemmas = null;
+    return true;
+  }
+
+  @Override
+  public void end() throws IOException {
+    super.end();
+    posIncrAtt.setPositionIncrement(posIncrAtt.getPositionIncrement() + skippedPositions);
+  }
+
+  @Override
+  public void reset() throws IOException {
+    super.reset();
+    lemmas = null;
+    index = 0;
+    skippedPositions = 0;
+  }
+}
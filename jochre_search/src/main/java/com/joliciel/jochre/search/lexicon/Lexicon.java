@@ -19,14 +19,9 @@
 package com.joliciel.jochre.search.lexicon;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,38 +38,26 @@ public interface Lexicon {
 
   static Map<String, Lexicon> lexiconMap = new HashMap<>();
 
+  /**
+   * Load the lexicon at a given path, which is either a compiled lexicon ending
+   * with {@link FstLexicon#EXTENSION}, or a zip file containing a serialized
+   * {@link TextFileLexicon}. Each lexicon is only loaded once.
+   */
   public static Lexicon deserializeLexicon(File lexiconFile) {
-    try {
-      String path = lexiconFile.getAbsolutePath();
+    String path = lexiconFile.getAbsolutePath();
+    synchronized (lexiconMap) {
       if (lexiconMap.containsKey(path))
         return lexiconMap.get(path);
 
       LOG.info("Loading lexicon from: " + path);
-
-      TextFileLexicon lexicon = null;
-      FileInputStream fis = new FileInputStream(lexiconFile);
-      ZipInputStream zis = new ZipInputStream(fis);
-      ZipEntry ze = null;
-      while ((ze = zis.getNextEntry()) != null) {
-        LOG.debug(ze.getName());
-        if (ze.getName().endsWith(".obj")) {
-          LOG.debug("deserializing " + ze.getName());
-          @SuppressWarnings("resource")
-          ObjectInputStream in = new ObjectInputStream(zis);
-          lexicon = (TextFileLexicon) in.readObject();
-          break;
-        }
-      }
-      zis.close();
+      Lexicon lexicon = null;
+      if (lexiconFile.getName().endsWith(FstLexicon.EXTENSION))
+        lexicon = FstLexicon.open(lexiconFile);
+      else
+        lexicon = TextFileLexicon.deserialize(lexiconFile);
 
       lexiconMap.put(path, lexicon);
       return lexicon;
-    } catch (IOException e) {
-      LOG.error("Failed to deserialize lexicon " + lexiconFile.getAbsolutePath(), e);
-      throw new RuntimeException(e);
-    } catch (ClassNotFoundException e) {
-      LOG.error("Failed to deserialize lexicon " + lexiconFile.getAbsolutePath(), e);
-      throw new RuntimeException(e);
     }
   }
 
@@ -7,6 +7,7 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
@@ -14,6 +15,7 @@ import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
 import org.slf4j.Logger;
@@ -79,7 +81,16 @@ public class TextFileLexicon implements Lexicon, Serializable {
     }
   }
 
+  /**
+   * Write this lexicon to a file: if the file name ends with
+   * {@link FstLexicon#EXTENSION} it is compiled into an {@link FstLexicon},
+   * otherwise it is serialized into a zip file.
+   */
   public void serialize(File outFile) {
+    if (outFile.getName().endsWith(FstLexicon.EXTENSION)) {
+      FstLexicon.write(wordToLemmaMap, outFile);
+      return;
+    }
     try {
       File parentFile = outFile.getParentFile();
       parentFile.mkdirs();
@@ -100,6 +111,36 @@ public class TextFileLexicon implements Lexicon, Serializable {
     }
   }
 
+  /**
+   * Read a lexicon serialized into a zip file by {@link #serialize(File)}.
+   */
+  public static TextFileLexicon deserialize(File lexiconFile) {
+    try {
+      TextFileLexicon lexicon = null;
+      FileInputStream fis = new FileInputStream(lexiconFile);
+      ZipInputStream zis = new ZipInputStream(fis);
+      ZipEntry ze = null;
+      while ((ze = zis.getNextEntry()) != null) {
+        LOG.debug(ze.getName());
+        if (ze.getName().endsWith(".obj")) {
+          LOG.debug("deserializing " + ze.getName());
+          @SuppressWarnings("resource")
+          ObjectInputStream in = new ObjectInputStream(zis);
+          lexicon = (TextFileLexicon) in.readObject();
+          break;
+        }
+      }
+      zis.close();
+      return lexicon;
+    } catch (IOException e) {
+      LOG.error("Failed to deserialize lexicon " + lexiconFile.getAbsolutePath(), e);
+      throw new RuntimeException(e);
+    } catch (ClassNotFoundException e) {
+      LOG.error("Failed to deserialize lexicon " + lexiconFile.getAbsolutePath(), e);
+      throw new RuntimeException(e);
+    }
+  }
+
   @Override
   public Set<String> getLemmas(String word) {
     return this.wordToLemmaMap.get(word);
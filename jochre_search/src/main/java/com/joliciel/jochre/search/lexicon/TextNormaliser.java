@@ -39,26 +39,28 @@ public interface TextNormaliser {
   static Map<String, TextNormaliser> instances = new HashMap<>();
 
   public static TextNormaliser getInstance(String configId) {
-    TextNormaliser instance = instances.get(configId);
-    if (instance == null) {
-      try {
-        JochreSearchConfig config = JochreSearchConfig.getInstance(configId);
-        if (config.getConfig().hasPath("text-normaliser.class")) {
-          String className = config.getConfig().getString("text-normaliser.class");
+    synchronized (instances) {
+      TextNormaliser instance = instances.get(configId);
+      if (instance == null) {
+        try {
+          JochreSearchConfig config = JochreSearchConfig.getInstance(configId);
+          if (config.getConfig().hasPath("text-normaliser.class")) {
+            String className = config.getConfig().getString("text-normaliser.class");
 
-          @SuppressWarnings("unchecked")
-          Class<? extends TextNormaliser> clazz = (Class<? extends TextNormaliser>) Class.forName(className);
-          Constructor<? extends TextNormaliser> cons = clazz.getConstructor(String.class);
+            @SuppressWarnings("unchecked")
+            Class<? extends TextNormaliser> clazz = (Class<? extends TextNormaliser>) Class.forName(className);
+            Constructor<? extends TextNormaliser> cons = clazz.getConstructor(String.class);
 
-          instance = cons.newInstance(configId);
+            instance = cons.newInstance(configId);
+          }
+          instances.put(configId, instance);
+        } catch (ReflectiveOperationException e) {
+          LOG.error("Unable to construct TextNormaliser", e);
+          throw new RuntimeException(e);
         }
-        instances.put(configId, instance);
-      } catch (ReflectiveOperationException e) {
-        LOG.error("Unable to construct TextNormaliser", e);
-        throw new RuntimeException(e);
       }
+      return instance;
     }
-    return instance;
   }
 
   public String normalise(String text);
@@ -3,8 +3,10 @@ package com.joliciel.jochre.search;
 import static org.junit.Assert.assertEquals;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
@@ -80,6 +82,15 @@ public class FieldTermPrefixFinderTest {
       assertEquals("apple", results.get(0));
       assertEquals("apple pie", results.get(1));
 
+      // completions are ordered by descending frequency, then by term
+      FieldTermCompletion completion = ((JochreSearcher) searcher).getCompletion(JochreIndexField.name);
+      assertEquals(4, completion.getTermCount());
+      List<Pair<String, Integer>> completions = completion.lookup("a", 0);
+      assertEquals(Arrays.asList(Pair.of("apple pie", 2), Pair.of("artichoke", 2), Pair.of("apple", 1)), completions);
+      assertEquals(completions.subList(0, 2), completion.lookup("a", 2));
+      assertEquals(Arrays.asList(Pair.of("banana", 1)), completion.lookup("b", 10));
+      assertEquals(0, completion.lookup("c", 10).size());
+
     } finally {
       manager.getManager().release(searcher);
     }
@@ -0,0 +1,116 @@
+package com.joliciel.jochre.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexOutput;
+import org.junit.Test;
+
+public class IndexManifestTest {
+
+  @Test
+  public void testWriteReadAndPrune() throws Exception {
+    File contentDir = Files.createTempDirectory("content").toFile();
+    new File(contentDir, "work1").mkdir();
+    new File(contentDir, "work2").mkdir();
+
+    try (Directory directory = FSDirectory.open(Files.createTempDirectory("index"))) {
+      try (IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+        IndexManifest manifest = IndexManifest.read(indexWriter);
+        assertEquals(0, manifest.size());
+        manifest.put("work1/", 1000L, 0xfedcba9876543210L, 3);
+        manifest.put("work2/", 2000L, 42L, 5);
+        manifest.put("removed/", 3000L, 43L, 7);
+
+        // the removed work's directory no longer exists
+        assertEquals(1, manifest.removeMissing(contentDir));
+        assertNull(manifest.get("removed/"));
+        assertEquals(2, manifest.size());
+        assertEquals(8, manifest.getSectionCount());
+
+        manifest.write(indexWriter);
+        indexWriter.commit();
+        manifest.deleteStaleFiles(indexWriter);
+
+        // only the generation and checksum are stored in the commit
+        for (Map.Entry<String, String> data : indexWriter.getLiveCommitData())
+          assertFalse(data.getValue().contains("work1/"));
+      }
+
+      try (IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+        IndexManifest manifest = IndexManifest.read(indexWriter);
+        assertEquals(2, manifest.size());
+        IndexManifest.Entry entry = manifest.get("work1/");
+        assertNotNull(entry);
+        assertEquals(1000L, entry.getIndexTime());
+        assertEquals(0xfedcba9876543210L, entry.getFingerprint());
+        assertEquals(3, entry.getSectionCount());
+        assertEquals(42L, manifest.get("work2/").getFingerprint());
+        assertEquals(5, manifest.get("work2/").getSectionCount());
+
+        // a second commit writes a new generation and deletes the previous one
+        manifest.remove("work2/");
+        manifest.write(indexWriter);
+        indexWriter.commit();
+        manifest.deleteStaleFiles(indexWriter);
+        assertEquals(1, getManifestFiles(directory).size());
+      }
+
+      try (IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+        IndexManifest manifest = IndexManifest.read(indexWriter);
+        assertEquals(1, manifest.size());
+        assertNull(manifest.get("work2/"));
+        assertEquals(3, manifest.getSectionCount());
+      }
+    }
+  }
+
+  @Test
+  public void testCorruptManifestIgnored() throws Exception {
+    try (Directory directory = FSDirectory.open(Files.createTempDirectory("index"))) {
+      try (IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+        IndexManifest manifest = IndexManifest.read(indexWriter);
+        manifest.put("work1/", 1000L, 42L, 3);
+        manifest.write(indexWriter);
+        indexWriter.commit();
+      }
+
+      // replace the manifest file behind the commit's back
+      List<String> manifestFiles = getManifestFiles(directory);
+      assertEquals(1, manifestFiles.size());
+      directory.deleteFile(manifestFiles.get(0));
+      try (IndexOutput output = directory.createOutput(manifestFiles.get(0), IOContext.DEFAULT)) {
+        output.writeString("not a manifest");
+      }
+
+      try (IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+        IndexManifest manifest = IndexManifest.read(indexWriter);
+        assertEquals(0, manifest.size());
+      }
+    }
+  }
+
+  private static List<String> getManifestFiles(Directory directory) throws Exception {
+    List<String> manifestFiles = new ArrayList<>();
+    for (String fileName : Arrays.asList(directory.listAll())) {
+      if (fileName.startsWith("jochre-manifest-"))
+        manifestFiles.add(fileName);
+    }
+    return manifestFiles;
+  }
+}
@@ -6,7 +6,11 @@ import java.io.IOException;
 import java.util.Map;
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TopDocs;
@@ -51,4 +55,38 @@ public class JochreIndexBuilderTest {
     }
   }
 
+  @Test
+  public void testPartiallyIndexedWorkUpdated() throws IOException {
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+
+    String configId = "yiddish";
+    JochreIndexBuilder builder = new JochreIndexBuilder(configId, false);
+    builder.updateIndex();
+
+    // remove the work's sections without updating the manifest, as if indexing
+    // had been interrupted
+    JochreSearchManager manager = JochreSearchManager.getInstance(configId);
+    IndexWriterConfig iwc = new IndexWriterConfig(new StandardAnalyzer());
+    try (IndexWriter indexWriter = new IndexWriter(manager.getIndexDir(), iwc)) {
+      indexWriter.deleteDocuments(new Term(JochreIndexField.name.name(), "MotlPeysiDemKhazns"));
+      indexWriter.commit();
+    }
+    manager.getManager().maybeRefresh();
+    assertEquals(0, this.countDocuments(manager, configId));
+
+    // the manifest's section count no longer matches the index
+    builder.updateIndex();
+    assertEquals(1, this.countDocuments(manager, configId));
+  }
+
+  private int countDocuments(JochreSearchManager manager, String configId) throws IOException {
+    IndexSearcher indexSearcher = manager.getManager().acquire();
+    try {
+      JochreIndexSearcher searcher = new JochreIndexSearcher(indexSearcher, configId);
+      return searcher.findDocuments("MotlPeysiDemKhazns").size();
+    } finally {
+      manager.getManager().release(indexSearcher);
+    }
+  }
 }
@@ -0,0 +1,97 @@
+package com.joliciel.jochre.search;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Files;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.Test;
+
+import com.typesafe.config.ConfigFactory;
+
+public class JochreIndexSearcherTest {
+
+  @Test
+  public void testSearchAfter() throws Exception {
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+    String configId = "yiddish";
+
+    try (Directory directory = FSDirectory.open(Files.createTempDirectory("index"))) {
+      try (IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new WhitespaceAnalyzer()))) {
+        for (int i = 0; i < 5; i++)
+          addDocument(indexWriter, i);
+      }
+
+      DirectoryReader reader = DirectoryReader.open(directory);
+      try {
+        JochreIndexSearcher searcher = new JochreIndexSearcher(new IndexSearcher(reader), configId);
+        JochreQuery query = new JochreQuery(configId, "זיך");
+        Pair<TopDocs, Integer> allResults = searcher.search(query, 0, 5);
+        assertEquals(5, allResults.getRight().intValue());
+        ScoreDoc[] allDocs = allResults.getLeft().scoreDocs;
+
+        // each page follows on from the cursor of the previous one
+        Pair<TopDocs, Integer> page = searcher.searchAfter(query, null, 2);
+        assertEquals(5, page.getRight().intValue());
+        assertArrayEquals(new int[] { allDocs[0].doc, allDocs[1].doc }, getDocIds(page.getLeft()));
+        String cursor = searcher.getCursor(page.getLeft().scoreDocs[1]);
+        page = searcher.searchAfter(query, cursor, 2);
+        assertArrayEquals(new int[] { allDocs[2].doc, allDocs[3].doc }, getDocIds(page.getLeft()));
+
+        // once the index has changed, doc ids may refer to other documents, so
+        // the cursor is rejected
+        try (IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new WhitespaceAnalyzer()))) {
+          addDocument(indexWriter, 5);
+        }
+        DirectoryReader newReader = DirectoryReader.openIfChanged(reader);
+        reader.close();
+        reader = newReader;
+        searcher = new JochreIndexSearcher(new IndexSearcher(reader), configId);
+        try {
+          searcher.searchAfter(query, cursor, 2);
+          fail("Stale cursor accepted");
+        } catch (JochreSearchException e) {
+          // expected
+        }
+
+        try {
+          searcher.searchAfter(query, "not a cursor", 2);
+          fail("Invalid cursor accepted");
+        } catch (JochreSearchException e) {
+          // expected
+        }
+      } finally {
+        reader.close();
+      }
+    }
+  }
+
+  private static void addDocument(IndexWriter indexWriter, int i) throws Exception {
+    Document doc = new Document();
+    doc.add(new TextField(JochreIndexField.id.name(), "" + i, Field.Store.YES));
+    doc.add(new TextField(JochreIndexField.text.name(), "זיך", Field.Store.NO));
+    indexWriter.addDocument(doc);
+  }
+
+  private static int[] getDocIds(TopDocs topDocs) {
+    int[] docIds = new int[topDocs.scoreDocs.length];
+    for (int i = 0; i < topDocs.scoreDocs.length; i++)
+      docIds[i] = topDocs.scoreDocs[i].doc;
+    return docIds;
+  }
+}
@@ -0,0 +1,26 @@
+package com.joliciel.jochre.search;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import com.typesafe.config.ConfigFactory;
+
+public class JochreSearcherFactoryTest {
+
+  @Test
+  public void testUnknownPreloadField() {
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+
+    // the field names are checked once on creation, rather than on each refresh
+    new JochreSearcherFactory(JochreSearchConfig.getInstance("yiddish"));
+    try {
+      new JochreSearcherFactory(JochreSearchConfig.getInstance("badPreload"));
+      fail("Unknown field accepted");
+    } catch (JochreSearchException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("writer"));
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package com.joliciel.jochre.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+  private static final double DELTA = 0.0001;
+
+  @Test
+  public void testEmpty() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMean(), DELTA);
+    assertEquals(0, histogram.getMax(), DELTA);
+    assertEquals(0, histogram.getPercentile(0.5), DELTA);
+    assertEquals(0, histogram.getPercentile(0.99), DELTA);
+  }
+
+  @Test
+  public void testBucketBoundaries() {
+    // 1023 us is the last value in the bucket [512, 1024)
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(micros(1023));
+    histogram.record(micros(5000));
+    assertEquals(1.024, histogram.getPercentile(0.5), DELTA);
+
+    // 1024 us is the first value in the bucket [1024, 2048)
+    histogram = new LatencyHistogram();
+    histogram.record(micros(1024));
+    histogram.record(micros(5000));
+    assertEquals(2.048, histogram.getPercentile(0.5), DELTA);
+
+    // the upper bound is capped by the maximum
+    histogram = new LatencyHistogram();
+    histogram.record(micros(1500));
+    assertEquals(1.5, histogram.getPercentile(0.5), DELTA);
+
+    // durations under a microsecond, and negative durations, count as zero
+    histogram = new LatencyHistogram();
+    histogram.record(500);
+    histogram.record(-1000);
+    assertEquals(2, histogram.getCount());
+    assertEquals(0, histogram.getPercentile(1.0), DELTA);
+    assertEquals(0, histogram.getMax(), DELTA);
+
+    // durations beyond the last bucket are counted in it
+    histogram = new LatencyHistogram();
+    histogram.record(TimeUnit.DAYS.toNanos(365));
+    assertEquals(1, histogram.getCount());
+    assertEquals(TimeUnit.DAYS.toMillis(365), histogram.getPercentile(0.5), DELTA);
+  }
+
+  @Test
+  public void testPercentiles() {
+    // 1 to 1000 ms, in a random order
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 1000; i++)
+      histogram.record(TimeUnit.MILLISECONDS.toNanos((i * 7 % 1000) + 1));
+    assertEquals(1000, histogram.getCount());
+    assertEquals(500.5, histogram.getMean(), DELTA);
+    assertEquals(1000.0, histogram.getMax(), DELTA);
+
+    // 500 ms lies in the bucket [262.144, 524.288) ms
+    double p50 = histogram.getPercentile(0.5);
+    assertEquals(524.288, p50, DELTA);
+    assertTrue(p50 >= 500 && p50 < 1000);
+
+    // 990 ms lies in the bucket [524.288, 1048.576) ms, capped by the maximum
+    assertEquals(1000.0, histogram.getPercentile(0.99), DELTA);
+  }
+
+  @Test
+  public void testMax() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(micros(300));
+    histogram.record(micros(12345));
+    histogram.record(micros(700));
+    assertEquals(12.345, histogram.getMax(), DELTA);
+    assertEquals(12.345, histogram.getPercentile(1.0), DELTA);
+  }
+
+  private static long micros(long micros) {
+    return TimeUnit.MICROSECONDS.toNanos(micros);
+  }
+}
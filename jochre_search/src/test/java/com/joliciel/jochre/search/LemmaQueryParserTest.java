@@ -0,0 +1,124 @@
+package com.joliciel.jochre.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.analysis.core.WhitespaceTokenizer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MultiPhraseQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SynonymQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.Test;
+
+import com.joliciel.jochre.search.lexicon.LemmaFilter;
+import com.joliciel.jochre.search.lexicon.LemmaFilterTest;
+import com.joliciel.jochre.search.lexicon.Lexicon;
+
+public class LemmaQueryParserTest {
+
+  private static Analyzer getLemmaAnalyzer(final Lexicon lexicon) {
+    return new Analyzer() {
+      @Override
+      protected TokenStreamComponents createComponents(String fieldName) {
+        Tokenizer tokenizer = new WhitespaceTokenizer();
+        return new TokenStreamComponents(tokenizer, new LemmaFilter(tokenizer, lexicon));
+      }
+    };
+  }
+
+  @Test
+  public void testParse() throws Exception {
+    Lexicon lexicon = LemmaFilterTest.getLexicon();
+    LemmaQueryParser parser = new LemmaQueryParser(new WhitespaceAnalyzer(), new WhitespaceAnalyzer(), lexicon);
+
+    String text = JochreIndexField.text.name();
+    String lemma = JochreIndexField.lemma.name();
+
+    // a word with a single lemma is searched for in the lemma field
+    assertEquals(new TermQuery(new Term(lemma, "child")), parser.parse("children"));
+
+    // a word with several lemmas searches for any of them at the same position
+    Query query = parser.parse("city");
+    assertTrue(query instanceof SynonymQuery);
+    assertEquals(new HashSet<>(Arrays.asList(new Term(lemma, "city"), new Term(lemma, "town"))),
+        new HashSet<>(((SynonymQuery) query).getTerms()));
+
+    // unknown words are searched for as is
+    assertEquals(new TermQuery(new Term(text, "the")), parser.parse("the"));
+
+    // phrases are analysed by the phrase analyser, in the text field
+    assertEquals(new PhraseQuery(text, "children", "went"), parser.parse("\"children went\""));
+  }
+
+  @Test
+  public void testPhraseOverLemmas() throws Exception {
+    Lexicon lexicon = LemmaFilterTest.getLexicon();
+    String text = JochreIndexField.text.name();
+    String lemma = JochreIndexField.lemma.name();
+
+    PerFieldAnalyzerWrapper analyzer = new PerFieldAnalyzerWrapper(new WhitespaceAnalyzer(),
+        Collections.singletonMap(lemma, getLemmaAnalyzer(lexicon)));
+    try (Directory directory = FSDirectory.open(Files.createTempDirectory("index"))) {
+      try (IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(analyzer))) {
+        String contents = "the children went to the city";
+        Document doc = new Document();
+        doc.add(new TextField(text, contents, Field.Store.NO));
+        doc.add(new TextField(lemma, contents, Field.Store.NO));
+        indexWriter.addDocument(doc);
+      }
+
+      try (DirectoryReader reader = DirectoryReader.open(directory)) {
+        IndexSearcher searcher = new IndexSearcher(reader);
+
+        // the lemmas of adjacent words are adjacent
+        assertEquals(1, searcher.count(new PhraseQuery(lemma, "child", "go")));
+        assertEquals(0, searcher.count(new PhraseQuery(lemma, "go", "child")));
+
+        // words without lemmas still take up their position
+        PhraseQuery.Builder builder = new PhraseQuery.Builder();
+        builder.add(new Term(lemma, "go"), 0);
+        builder.add(new Term(lemma, "town"), 3);
+        assertEquals(1, searcher.count(builder.build()));
+        assertEquals(0, searcher.count(new PhraseQuery(lemma, "go", "town")));
+
+        // all of the lemmas of a word are stacked at its position
+        MultiPhraseQuery.Builder multiBuilder = new MultiPhraseQuery.Builder();
+        multiBuilder.add(new Term[] { new Term(lemma, "go") }, 0);
+        multiBuilder.add(new Term[] { new Term(lemma, "city"), new Term(lemma, "town") }, 3);
+        assertEquals(1, searcher.count(multiBuilder.build()));
+
+        // positions are identical to those of the text field
+        builder = new PhraseQuery.Builder();
+        builder.add(new Term(text, "went"), 0);
+        builder.add(new Term(text, "city"), 3);
+        assertEquals(1, searcher.count(builder.build()));
+
+        // single words parsed into lemma queries find the inflected forms
+        LemmaQueryParser parser = new LemmaQueryParser(new WhitespaceAnalyzer(), new WhitespaceAnalyzer(), lexicon);
+        assertEquals(1, searcher.count(parser.parse("goes")));
+        assertEquals(1, searcher.count(parser.parse("child")));
+        assertEquals(0, searcher.count(parser.parse("town")));
+      }
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package com.joliciel.jochre.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.typesafe.config.ConfigFactory;
+
+public class PageImageCacheTest {
+
+  @Test
+  public void testGetImage() {
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+
+    String configId = "yiddish";
+    File pdfFile = new File("src/test/resources/books/MotlPeysiDemKhazns/MotlPeysiDemKhazns.pdf");
+
+    PageImageCache pageImageCache = PageImageCache.getInstance(configId);
+    pageImageCache.clear();
+    int hits = pageImageCache.getHits();
+    int misses = pageImageCache.getMisses();
+
+    BufferedImage image = pageImageCache.getImage(pdfFile, 1);
+    BufferedImage cachedImage = pageImageCache.getImage(pdfFile, 1);
+    assertSame(image, cachedImage);
+    assertEquals(hits + 1, pageImageCache.getHits());
+    assertEquals(misses + 1, pageImageCache.getMisses());
+
+    PdfImageReader pdfImageReader = new PdfImageReader(pdfFile);
+    BufferedImage uncachedImage = pdfImageReader.readImage(1);
+    assertEquals(uncachedImage.getWidth(), image.getWidth());
+    assertEquals(uncachedImage.getHeight(), image.getHeight());
+    assertEquals(uncachedImage.getRGB(image.getWidth() / 2, image.getHeight() / 2), image.getRGB(image.getWidth() / 2, image.getHeight() / 2));
+  }
+
+  @Test
+  public void testConcurrentRequests() throws Exception {
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+
+    String configId = "yiddish";
+    File pdfFile = new File("src/test/resources/books/MotlPeysiDemKhazns/MotlPeysiDemKhazns.pdf");
+
+    PageImageCache pageImageCache = PageImageCache.getInstance(configId);
+    pageImageCache.clear();
+    int hits = pageImageCache.getHits();
+    int misses = pageImageCache.getMisses();
+
+    int threadCount = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    List<Future<BufferedImage>> futures = new ArrayList<>();
+    for (int i = 0; i < threadCount; i++)
+      futures.add(executor.submit(() -> pageImageCache.getImage(pdfFile, 1)));
+    executor.shutdown();
+
+    // every thread gets the same shared image
+    BufferedImage image = futures.get(0).get();
+    for (Future<BufferedImage> future : futures)
+      assertSame(image, future.get());
+
+    // each lookup is counted exactly once, as either a hit or a miss
+    assertEquals(threadCount, pageImageCache.getHits() - hits + pageImageCache.getMisses() - misses);
+    pageImageCache.getImage(pdfFile, 1);
+    assertEquals(threadCount + 1, pageImageCache.getHits() - hits + pageImageCache.getMisses() - misses);
+  }
+}
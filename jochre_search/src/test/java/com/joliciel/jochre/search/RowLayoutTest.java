@@ -0,0 +1,89 @@
+package com.joliciel.jochre.search;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.awt.Rectangle;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.junit.Test;
+
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+
+public class RowLayoutTest {
+
+  @Test
+  public void testEncodeDecode() {
+    TIntIntMap rowCounts = new TIntIntHashMap();
+    TIntObjectMap<TIntObjectMap<Rectangle>> rectangles = new TIntObjectHashMap<>();
+    TIntObjectMap<TIntIntMap> startIndexes = new TIntObjectHashMap<>();
+    Document doc = new Document();
+    int startIndex = 0;
+    // page 2 has no rows, page 3 has a row with no start index
+    int[][] pages = new int[][] { { 1, 3 }, { 2, 0 }, { 3, 2 } };
+    for (int[] page : pages) {
+      int pageIndex = page[0];
+      rowCounts.put(pageIndex, page[1]);
+      doc.add(new StoredField(JochreIndexField.rowCount.name() + pageIndex, page[1]));
+      TIntObjectMap<Rectangle> rowRectangles = new TIntObjectHashMap<>();
+      TIntIntMap rowStartIndexes = new TIntIntHashMap();
+      rectangles.put(pageIndex, rowRectangles);
+      startIndexes.put(pageIndex, rowStartIndexes);
+      for (int rowIndex = 0; rowIndex < page[1]; rowIndex++) {
+        Rectangle rect = new Rectangle(100 - rowIndex * 3, 50 + rowIndex * 40, 800 + rowIndex, 35);
+        rowRectangles.put(rowIndex, rect);
+        doc.add(new StoredField(JochreIndexField.rect.name() + pageIndex + "_" + rowIndex,
+            rect.x + "|" + rect.y + "|" + rect.width + "|" + rect.height));
+        if (pageIndex == 3 && rowIndex == 1)
+          continue;
+        rowStartIndexes.put(rowIndex, startIndex);
+        doc.add(new StoredField(JochreIndexField.start.name() + pageIndex + "_" + rowIndex, startIndex));
+        startIndex += 60;
+      }
+    }
+
+    RowLayout layout = RowLayout.fromMaps(rowCounts, rectangles, startIndexes);
+    RowLayout decoded = RowLayout.fromBytes(layout.toBytes());
+    RowLayout legacy = RowLayout.fromLegacyFields(doc, 1, 3);
+
+    for (RowLayout oneLayout : new RowLayout[] { layout, decoded, legacy }) {
+      assertEquals(3, oneLayout.getRowCount(1));
+      assertEquals(0, oneLayout.getRowCount(2));
+      assertEquals(2, oneLayout.getRowCount(3));
+      assertEquals(0, oneLayout.getRowCount(4));
+      assertEquals(new Rectangle(97, 90, 801, 35), oneLayout.getRowRectangle(1, 1));
+      assertEquals(new Rectangle(97, 90, 801, 35), oneLayout.getRowRectangle(3, 1));
+      assertEquals(120, oneLayout.getStartIndex(1, 2));
+      assertEquals(180, oneLayout.getStartIndex(3, 0));
+      try {
+        oneLayout.getStartIndex(3, 1);
+        throw new AssertionError("Expected IndexFieldNotFoundException");
+      } catch (IndexFieldNotFoundException e) {
+        // expected
+      }
+      try {
+        oneLayout.getStartIndex(2, 0);
+        throw new AssertionError("Expected IndexFieldNotFoundException");
+      } catch (IndexFieldNotFoundException e) {
+        // expected
+      }
+
+      // the next row with a known start index, skipping pages without rows
+      assertEquals(60, oneLayout.getEndIndex(1, 0));
+      assertEquals(180, oneLayout.getEndIndex(1, 2));
+      assertEquals(-1, oneLayout.getEndIndex(3, 0));
+
+      assertArrayEquals(new int[] { 1, 0 }, oneLayout.findRow(0));
+      assertArrayEquals(new int[] { 1, 1 }, oneLayout.findRow(119));
+      assertArrayEquals(new int[] { 1, 2 }, oneLayout.findRow(179));
+      assertArrayEquals(new int[] { 3, 0 }, oneLayout.findRow(180));
+      assertArrayEquals(new int[] { 3, 0 }, oneLayout.findRow(5000));
+      assertNull(oneLayout.findRow(-1));
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package com.joliciel.jochre.search.alto;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+
+/**
+ * Compares parsing a zipped Alto file on the consumer's thread with parsing it
+ * ahead on a reader thread via {@link AltoReader#setPageQueueSize(int)}. Not
+ * run as part of the test suite: run the main method directly.<br>
+ * The 500-page document is built by repeating the pages of the test book. Each
+ * document is parsed once with a consumer which only counts pages, giving the
+ * raw parsing cost, and once with a consumer which analyses each page's text,
+ * standing in for the indexer, so that reading ahead can overlap with it.
+ *
+ * @author Assaf Urieli
+ *
+ */
+public class AltoReaderBenchmark {
+  private static final Pattern PAGE_PATTERN = Pattern.compile("<Page .*?</Page>", Pattern.DOTALL);
+  private static final Pattern PAGE_NUMBER_PATTERN = Pattern.compile("PHYSICAL_IMG_NR=\"\\d+\"");
+
+  public static void main(String[] args) throws Exception {
+    int pageCount = 500;
+    int rounds = 3;
+    int[] queueSizes = { 0, 1, 4, 16 };
+
+    File zipFile = buildDocument(
+        new File("src/test/resources/books/MotlPeysiDemKhazns/MotlPeysiDemKhazns_alto4.xml"), pageCount);
+    System.out.println("Built " + pageCount + " page document: " + zipFile.length() + " bytes zipped");
+
+    Analyzer analyzer = new StandardAnalyzer();
+    System.out.println("consumer\tqueue size\tpages\tmean (ms)\tper page (us)");
+    // the first round is a warm-up
+    for (int round = 0; round < 2; round++) {
+      for (boolean analyse : new boolean[] { false, true }) {
+        for (int queueSize : queueSizes) {
+          long totalNanos = 0;
+          int pages = 0;
+          for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            pages = parse(zipFile, queueSize, analyse ? analyzer : null);
+            totalNanos += System.nanoTime() - start;
+          }
+          long meanNanos = totalNanos / rounds;
+          if (round > 0)
+            System.out.println((analyse ? "analyse" : "count") + "\t" + queueSize + "\t" + pages + "\t"
+                + (meanNanos / 1000000) + "\t" + (meanNanos / 1000 / pages));
+        }
+      }
+    }
+    zipFile.delete();
+  }
+
+  private static File buildDocument(File altoFile, int pageCount) throws IOException {
+    String contents = new String(Files.readAllBytes(Paths.get(altoFile.getPath())), StandardCharsets.UTF_8);
+    List<String> pages = new ArrayList<>();
+    Matcher matcher = PAGE_PATTERN.matcher(contents);
+    while (matcher.find())
+      pages.add(matcher.group());
+    int layoutStart = contents.indexOf("<Layout>") + "<Layout>".length();
+    int layoutEnd = contents.indexOf("</Layout>");
+
+    File zipFile = File.createTempFile("alto", ".zip");
+    try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zipFile))) {
+      zos.putNextEntry(new ZipEntry("alto.xml"));
+      Writer writer = new OutputStreamWriter(zos, StandardCharsets.UTF_8);
+      writer.write(contents.substring(0, layoutStart));
+      for (int i = 0; i < pageCount; i++) {
+        String page = pages.get(i % pages.size());
+        writer.write(PAGE_NUMBER_PATTERN.matcher(page).replaceFirst("PHYSICAL_IMG_NR=\"" + (i + 1) + "\""));
+      }
+      writer.write(contents.substring(layoutEnd));
+      writer.flush();
+      zos.closeEntry();
+    }
+    return zipFile;
+  }
+
+  private static int parse(File zipFile, int queueSize, Analyzer analyzer) throws IOException {
+    int[] pageCount = new int[1];
+    AltoReader reader = new AltoReader(new AltoDocument("benchmark"));
+    reader.setPageQueueSize(queueSize);
+    reader.addConsumer(new AltoPageConsumer() {
+      @Override
+      public void onNextPage(AltoPage altoPage) {
+        pageCount[0]++;
+        if (analyzer != null)
+          analyse(analyzer, altoPage);
+      }
+
+      @Override
+      public void onComplete() {
+      }
+    });
+    try (ZipInputStream zis = new ZipInputStream(new BufferedInputStream(new FileInputStream(zipFile)))) {
+      zis.getNextEntry();
+      reader.parseFile(zis, "benchmark");
+    }
+    return pageCount[0];
+  }
+
+  private static void analyse(Analyzer analyzer, AltoPage altoPage) {
+    StringBuilder sb = new StringBuilder();
+    for (AltoTextLine textLine : altoPage.getTextLines()) {
+      for (AltoString string : textLine.getStrings())
+        sb.append(string.getContent()).append(' ');
+      sb.append('\n');
+    }
+    try (TokenStream tokenStream = analyzer.tokenStream("text", sb.toString())) {
+      tokenStream.reset();
+      while (tokenStream.incrementToken()) {
+        // consume the tokens
+      }
+      tokenStream.end();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
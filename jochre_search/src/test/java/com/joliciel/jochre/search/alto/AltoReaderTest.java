@@ -0,0 +1,85 @@
+package com.joliciel.jochre.search.alto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class AltoReaderTest {
+  private static final int PAGE_COUNT = 40;
+
+  private static InputStream getDocument() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("<alto><Layout>");
+    for (int i = 1; i <= PAGE_COUNT; i++) {
+      sb.append("<Page PHYSICAL_IMG_NR=\"" + i + "\" WIDTH=\"100\" HEIGHT=\"100\">");
+      sb.append("<PrintSpace HPOS=\"0\" VPOS=\"0\" WIDTH=\"100\" HEIGHT=\"100\">");
+      sb.append("<TextBlock HPOS=\"0\" VPOS=\"0\" WIDTH=\"100\" HEIGHT=\"10\">");
+      sb.append("<TextLine HPOS=\"0\" VPOS=\"0\" WIDTH=\"100\" HEIGHT=\"10\">");
+      sb.append("<String HPOS=\"0\" VPOS=\"0\" WIDTH=\"20\" HEIGHT=\"10\" CONTENT=\"page" + i + "\" WC=\"0.9\"/>");
+      sb.append("</TextLine></TextBlock></PrintSpace></Page>");
+    }
+    sb.append("</Layout></alto>");
+    return new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test(timeout = 10000)
+  public void testParseInBackground() {
+    AltoReader reader = new AltoReader();
+    reader.setPageQueueSize(2);
+    List<Integer> pageIndexes = new ArrayList<>();
+    reader.addConsumer(new AltoPageConsumer() {
+      @Override
+      public void onNextPage(AltoPage altoPage) {
+        pageIndexes.add(altoPage.getIndex());
+      }
+
+      @Override
+      public void onComplete() {
+      }
+    });
+    reader.parseFile(getDocument(), "test");
+    assertEquals(PAGE_COUNT, pageIndexes.size());
+    for (int i = 0; i < PAGE_COUNT; i++)
+      assertEquals(i + 1, pageIndexes.get(i).intValue());
+  }
+
+  @Test(timeout = 10000)
+  public void testConsumerFailure() {
+    AltoReader reader = new AltoReader();
+    reader.setPageQueueSize(2);
+    reader.addConsumer(new AltoPageConsumer() {
+      @Override
+      public void onNextPage(AltoPage altoPage) {
+        if (altoPage.getIndex() == 3) {
+          // give the reader thread time to fill the queue and block
+          try {
+            Thread.sleep(500);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          throw new IllegalStateException("Failed on page 3");
+        }
+      }
+
+      @Override
+      public void onComplete() {
+      }
+    });
+
+    // the reader thread, blocked on a full queue, should not prevent the
+    // failure from reaching the caller
+    try {
+      reader.parseFile(getDocument(), "test");
+      fail("Consumer failure swallowed");
+    } catch (IllegalStateException e) {
+      assertEquals("Failed on page 3", e.getMessage());
+    }
+  }
+}
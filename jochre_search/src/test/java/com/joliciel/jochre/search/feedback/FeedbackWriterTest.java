@@ -0,0 +1,149 @@
+package com.joliciel.jochre.search.feedback;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+public class FeedbackWriterTest {
+
+  @Test
+  public void testBatching() throws Exception {
+    CountDownLatch firstBatchStarted = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+    FeedbackWriter writer = new FeedbackWriter("test", getConfig(100, 3, 50), batch -> {
+      firstBatchStarted.countDown();
+      await(release);
+      batchSizes.add(batch.size());
+    });
+    try {
+      assertTrue(writer.write(newQuery()));
+      assertTrue(firstBatchStarted.await(5, TimeUnit.SECONDS));
+
+      // queued while the first batch is being written
+      for (int i = 0; i < 7; i++)
+        assertTrue(writer.write(newQuery()));
+      assertEquals(7, writer.getQueueSize());
+
+      release.countDown();
+      assertTrue(writer.flush(5, TimeUnit.SECONDS));
+      assertEquals(Arrays.asList(1, 3, 3, 1), batchSizes);
+      assertEquals(8, writer.getWrittenCount());
+      assertEquals(0, writer.getQueueSize());
+    } finally {
+      writer.shutdown();
+    }
+  }
+
+  @Test
+  public void testDropWhenFull() throws Exception {
+    CountDownLatch firstBatchStarted = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    FeedbackWriter writer = new FeedbackWriter("test", getConfig(2, 1, 50), batch -> {
+      firstBatchStarted.countDown();
+      await(release);
+    });
+    try {
+      assertTrue(writer.write(newQuery()));
+      assertTrue(firstBatchStarted.await(5, TimeUnit.SECONDS));
+      assertTrue(writer.write(newQuery()));
+      assertTrue(writer.write(newQuery()));
+
+      // the queue is full: the query is dropped once the max wait has elapsed
+      long start = System.currentTimeMillis();
+      assertFalse(writer.write(newQuery()));
+      assertTrue(System.currentTimeMillis() - start >= 50);
+      assertEquals(1, writer.getDroppedCount());
+
+      release.countDown();
+      assertTrue(writer.flush(5, TimeUnit.SECONDS));
+      assertEquals(3, writer.getWrittenCount());
+      assertEquals(1, writer.getDroppedCount());
+    } finally {
+      writer.shutdown();
+    }
+  }
+
+  @Test
+  public void testFailures() throws Exception {
+    CountDownLatch firstBatchStarted = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    FeedbackWriter writer = new FeedbackWriter("test", getConfig(100, 10, 50), batch -> {
+      firstBatchStarted.countDown();
+      await(release);
+      throw new IllegalStateException("Database down");
+    });
+    try {
+      assertTrue(writer.write(newQuery()));
+      assertTrue(firstBatchStarted.await(5, TimeUnit.SECONDS));
+      assertTrue(writer.write(newQuery()));
+      assertTrue(writer.write(newQuery()));
+
+      release.countDown();
+      // failed queries count as processed
+      assertTrue(writer.flush(5, TimeUnit.SECONDS));
+      assertEquals(3, writer.getFailedCount());
+      assertEquals(0, writer.getWrittenCount());
+    } finally {
+      writer.shutdown();
+    }
+  }
+
+  @Test
+  public void testShutdownDrainsQueue() throws Exception {
+    List<FeedbackQuery> written = Collections.synchronizedList(new ArrayList<>());
+    FeedbackWriter writer = new FeedbackWriter("test", getConfig(100, 2, 50), batch -> {
+      try {
+        Thread.sleep(10);
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      written.addAll(batch);
+    });
+
+    List<FeedbackQuery> queries = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      FeedbackQuery query = newQuery();
+      queries.add(query);
+      assertTrue(writer.write(query));
+    }
+    writer.shutdown();
+
+    assertEquals(queries, written);
+    assertEquals(10, writer.getWrittenCount());
+    assertEquals(0, writer.getQueueSize());
+
+    // no longer accepting queries
+    assertFalse(writer.write(newQuery()));
+    assertEquals(1, writer.getDroppedCount());
+  }
+
+  private static Config getConfig(int queueSize, int batchSize, int maxWaitMillis) {
+    return ConfigFactory.parseString("queue-size = " + queueSize + "\n" + "batch-size = " + batchSize + "\n"
+        + "max-wait = " + maxWaitMillis + "ms\n" + "shutdown-timeout = 5s");
+  }
+
+  private static FeedbackQuery newQuery() {
+    return new FeedbackQuery("user", "127.0.0.1", "test");
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
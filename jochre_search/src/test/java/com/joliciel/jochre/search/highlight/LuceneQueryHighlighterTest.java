@@ -1,10 +1,13 @@
 package com.joliciel.jochre.search.highlight;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -12,7 +15,10 @@ import java.util.NavigableSet;
 import java.util.Set;
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TopDocs;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -92,4 +98,62 @@ public class LuceneQueryHighlighterTest {
     }
   }
 
+  @Test
+  public void testTermVectorsMatchPostings() throws IOException {
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+
+    String configId = "yiddish";
+
+    JochreIndexBuilder builder = new JochreIndexBuilder(configId, false);
+    builder.updateIndex();
+
+    JochreSearchManager manager = JochreSearchManager.getInstance(configId);
+    IndexSearcher indexSearcher = manager.getManager().acquire();
+    try {
+      for (LeafReaderContext leaf : indexSearcher.getIndexReader().leaves()) {
+        FieldInfo fieldInfo = leaf.reader().getFieldInfos().fieldInfo(JochreIndexField.text.name());
+        if (fieldInfo != null)
+          assertTrue(fieldInfo.hasVectors());
+      }
+
+      Set<String> fields = new HashSet<>();
+      fields.add(JochreIndexField.text.name());
+
+      // prefix, wildcard and fuzzy queries
+      for (String queryString : new String[] { "קײנ*", "ק?ינער", "קײנער~1" }) {
+        JochreQuery query = new JochreQuery(configId, queryString);
+        JochreIndexSearcher searcher = new JochreIndexSearcher(indexSearcher, configId);
+        Pair<TopDocs, Integer> results = searcher.search(query, 0, 100);
+        Set<Integer> docIds = new HashSet<>();
+        for (ScoreDoc scoreDoc : results.getLeft().scoreDocs)
+          docIds.add(scoreDoc.doc);
+        assertFalse("No results for " + queryString, docIds.isEmpty());
+
+        LuceneQueryHighlighter postingsHighlighter = new LuceneQueryHighlighter(query, indexSearcher, fields);
+        postingsHighlighter.setUseTermVectors(false);
+        Map<Integer, NavigableSet<HighlightTerm>> postingsTerms = postingsHighlighter.highlight(docIds);
+
+        LuceneQueryHighlighter termVectorHighlighter = new LuceneQueryHighlighter(query, indexSearcher, fields);
+        termVectorHighlighter.setUseTermVectors(true);
+        Map<Integer, NavigableSet<HighlightTerm>> termVectorTerms = termVectorHighlighter.highlight(docIds);
+
+        for (int docId : docIds) {
+          List<String> expected = getOffsets(postingsTerms.get(docId));
+          LOG.debug(queryString + ", doc " + docId + ": " + expected);
+          assertFalse("No highlights for " + queryString, expected.isEmpty());
+          assertEquals(queryString, expected, getOffsets(termVectorTerms.get(docId)));
+        }
+      }
+    } finally {
+      manager.getManager().release(indexSearcher);
+    }
+  }
+
+  private static List<String> getOffsets(Set<HighlightTerm> terms) {
+    List<String> offsets = new ArrayList<>();
+    for (HighlightTerm term : terms)
+      offsets.add(term.getStartOffset() + "-" + term.getEndOffset() + "@" + term.getPosition());
+    return offsets;
+  }
 }
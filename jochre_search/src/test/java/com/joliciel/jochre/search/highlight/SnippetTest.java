@@ -2,10 +2,20 @@ package com.joliciel.jochre.search.highlight;
 
 import static org.junit.Assert.*;
 
+import java.awt.Rectangle;
+
+import org.apache.lucene.search.IndexSearcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.junit.Test;
 
+import com.joliciel.jochre.search.JochreIndexBuilder;
+import com.joliciel.jochre.search.JochreIndexDocument;
+import com.joliciel.jochre.search.JochreIndexField;
+import com.joliciel.jochre.search.JochreIndexSearcher;
+import com.joliciel.jochre.search.JochreSearchManager;
+import com.typesafe.config.ConfigFactory;
+
 public class SnippetTest {
   private static final Logger LOG = LoggerFactory.getLogger(SnippetTest.class);
 
@@ -66,4 +76,33 @@ public class SnippetTest {
     
   }
 
+  @Test
+  public void testRectangleWithoutHighlights() throws Exception {
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+
+    String configId = "yiddish";
+    JochreIndexBuilder builder = new JochreIndexBuilder(configId, false);
+    builder.updateIndex();
+
+    JochreSearchManager manager = JochreSearchManager.getInstance(configId);
+    IndexSearcher indexSearcher = manager.getManager().acquire();
+    try {
+      JochreIndexSearcher searcher = new JochreIndexSearcher(indexSearcher, configId);
+      int docId = searcher.findDocuments("MotlPeysiDemKhazns").keySet().iterator().next();
+      JochreIndexDocument jochreDoc = new JochreIndexDocument(indexSearcher, docId, configId);
+      int pageIndex = jochreDoc.getStartPage();
+      assertTrue(jochreDoc.getRowCount(pageIndex) > 3);
+
+      // the rectangle covers the rows containing the snippet's offsets
+      int start = jochreDoc.getStartIndex(pageIndex, 1);
+      int end = jochreDoc.getEndIndex(pageIndex, 2);
+      Snippet snippet = new Snippet(docId, JochreIndexField.text.name(), start, end, pageIndex);
+      Rectangle expected = new Rectangle(jochreDoc.getRowRectangle(pageIndex, 1));
+      expected.add(jochreDoc.getRowRectangle(pageIndex, 2));
+      assertEquals(expected, snippet.getRectangle(jochreDoc));
+    } finally {
+      manager.getManager().release(indexSearcher);
+    }
+  }
 }
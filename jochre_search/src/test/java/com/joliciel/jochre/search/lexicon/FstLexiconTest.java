@@ -0,0 +1,48 @@
+package com.joliciel.jochre.search.lexicon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class FstLexiconTest {
+
+  @Test
+  public void testWriteAndOpen() throws Exception {
+    Map<String, Set<String>> wordToLemmaMap = new HashMap<>();
+    wordToLemmaMap.put("קינדער", new HashSet<>(Arrays.asList("קינד")));
+    wordToLemmaMap.put("קינד", new HashSet<>(Arrays.asList("קינד")));
+    wordToLemmaMap.put("קינדס", new HashSet<>(Arrays.asList("קינד")));
+    wordToLemmaMap.put("גייט", new HashSet<>(Arrays.asList("גיין")));
+    wordToLemmaMap.put("געגאַנגען", new HashSet<>(Arrays.asList("גיין")));
+    wordToLemmaMap.put("שטאָט", new HashSet<>(Arrays.asList("שטאָט", "שטאָטן")));
+    wordToLemmaMap.put("abc", new HashSet<>(Arrays.asList("abc")));
+
+    File dir = Files.createTempDirectory("lexicon").toFile();
+    File lexiconFile = new File(dir, "test" + FstLexicon.EXTENSION);
+    try {
+      FstLexicon.write(wordToLemmaMap, lexiconFile);
+      FstLexicon lexicon = FstLexicon.open(lexiconFile);
+
+      assertEquals(7, lexicon.getWordCount());
+      assertEquals(5, lexicon.getLemmaCount());
+      for (String word : wordToLemmaMap.keySet())
+        assertEquals(wordToLemmaMap.get(word), lexicon.getLemmas(word));
+      assertEquals(new HashSet<>(Arrays.asList("קינדער", "קינד", "קינדס")), lexicon.getWords("קינד"));
+      assertEquals(new HashSet<>(Arrays.asList("שטאָט")), lexicon.getWords("שטאָטן"));
+      assertNull(lexicon.getLemmas("קינ"));
+      assertNull(lexicon.getWords("גייט"));
+    } finally {
+      lexiconFile.delete();
+      dir.delete();
+    }
+  }
+}
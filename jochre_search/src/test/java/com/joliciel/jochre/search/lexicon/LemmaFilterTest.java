@@ -0,0 +1,114 @@
+package com.joliciel.jochre.search.lexicon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.WhitespaceTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.junit.Test;
+
+public class LemmaFilterTest {
+
+  public static Lexicon getLexicon() {
+    final Map<String, Set<String>> lemmas = new HashMap<>();
+    lemmas.put("children", new HashSet<>(Arrays.asList("child")));
+    lemmas.put("child", new HashSet<>(Arrays.asList("child")));
+    lemmas.put("went", new HashSet<>(Arrays.asList("go")));
+    lemmas.put("goes", new HashSet<>(Arrays.asList("go")));
+    lemmas.put("city", new HashSet<>(Arrays.asList("town", "city")));
+    final Map<String, Set<String>> words = new HashMap<>();
+    for (String word : lemmas.keySet()) {
+      for (String lemma : lemmas.get(word)) {
+        Set<String> lemmaWords = words.get(lemma);
+        if (lemmaWords == null) {
+          lemmaWords = new HashSet<>();
+          words.put(lemma, lemmaWords);
+        }
+        lemmaWords.add(word);
+      }
+    }
+    return new Lexicon() {
+      @Override
+      public Set<String> getLemmas(String word) {
+        return lemmas.get(word);
+      }
+
+      @Override
+      public Set<String> getWords(String lemma) {
+        return words.get(lemma);
+      }
+    };
+  }
+
+  private TokenStream getTokenStream(String text) {
+    Tokenizer tokenizer = new WhitespaceTokenizer();
+    tokenizer.setReader(new StringReader(text));
+    return new LemmaFilter(tokenizer, getLexicon());
+  }
+
+  /**
+   * Check the terms, position increments and offsets of each token, and the
+   * final position increment after the stream has ended.
+   */
+  private void assertTokenStreamContents(TokenStream tokenStream, String[] terms, int[] posIncrs, int[] startOffsets,
+      int finalPosIncr) throws IOException {
+    CharTermAttribute termAtt = tokenStream.getAttribute(CharTermAttribute.class);
+    PositionIncrementAttribute posIncrAtt = tokenStream.getAttribute(PositionIncrementAttribute.class);
+    OffsetAttribute offsetAtt = tokenStream.getAttribute(OffsetAttribute.class);
+    tokenStream.reset();
+    for (int i = 0; i < terms.length; i++) {
+      assertTrue("token " + i + " missing", tokenStream.incrementToken());
+      assertEquals("term " + i, terms[i], termAtt.toString());
+      assertEquals("position increment " + i, posIncrs[i], posIncrAtt.getPositionIncrement());
+      assertEquals("start offset " + i, startOffsets[i], offsetAtt.startOffset());
+    }
+    assertFalse(tokenStream.incrementToken());
+    tokenStream.end();
+    assertEquals("final position increment", finalPosIncr, posIncrAtt.getPositionIncrement());
+    tokenStream.close();
+  }
+
+  @Test
+  public void testStackedLemmas() throws Exception {
+    assertTokenStreamContents(this.getTokenStream("children city goes"), new String[] { "child", "city", "town", "go" },
+        new int[] { 1, 1, 0, 1 }, new int[] { 0, 9, 9, 14 }, 0);
+  }
+
+  @Test
+  public void testSkippedTokens() throws Exception {
+    // positions: the=0, children=1, went=2, to=3, the=4, city=5
+    assertTokenStreamContents(this.getTokenStream("the children went to the city"),
+        new String[] { "child", "go", "city", "town" }, new int[] { 2, 1, 3, 0 }, new int[] { 4, 13, 25, 25 }, 0);
+  }
+
+  @Test
+  public void testTrailingSkippedTokens() throws Exception {
+    assertTokenStreamContents(this.getTokenStream("children went to the"), new String[] { "child", "go" },
+        new int[] { 1, 1 }, new int[] { 0, 9 }, 2);
+    assertTokenStreamContents(this.getTokenStream("nothing known here"), new String[0], new int[0], new int[0], 3);
+  }
+
+  @Test
+  public void testReuse() throws Exception {
+    Tokenizer tokenizer = new WhitespaceTokenizer();
+    TokenStream tokenStream = new LemmaFilter(tokenizer, getLexicon());
+    tokenizer.setReader(new StringReader("children went to the"));
+    assertTokenStreamContents(tokenStream, new String[] { "child", "go" }, new int[] { 1, 1 }, new int[] { 0, 9 }, 2);
+    // nothing is carried over from the previous stream
+    tokenizer.setReader(new StringReader("city"));
+    assertTokenStreamContents(tokenStream, new String[] { "city", "town" }, new int[] { 1, 0 }, new int[] { 0, 0 }, 0);
+  }
+}
@@ -0,0 +1,173 @@
+package com.joliciel.jochre.search.lexicon;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.analysis.core.WhitespaceTokenizer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import com.joliciel.jochre.search.JochreIndexField;
+
+/**
+ * Compares query latency for strict search, query-time inflection expansion
+ * via {@link InflectedFormFilter}, and a single-term lookup in the index-time
+ * lemma field populated by {@link LemmaFilter}. Not run as part of the test
+ * suite: run the main method directly.<br>
+ * The synthetic corpus contains 1,000 lemmas with 20 inflected forms each,
+ * with Zipf-distributed word frequencies, so that the most common lemmas
+ * behave like common Yiddish verbs.
+ *
+ * @author Assaf Urieli
+ *
+ */
+public class LemmaSearchBenchmark {
+  public static void main(String[] args) throws Exception {
+    int lemmaCount = 1000;
+    int formsPerLemma = 20;
+    int docCount = 20000;
+    int wordsPerDoc = 200;
+    int queryCount = 2000;
+    Random random = new Random(1);
+
+    final Map<String, Set<String>> lemmas = new HashMap<>();
+    final Map<String, Set<String>> words = new HashMap<>();
+    List<String> forms = new ArrayList<>();
+    for (int i = 0; i < lemmaCount; i++) {
+      String lemma = "l" + i;
+      Set<String> lemmaWords = new TreeSet<>();
+      for (int j = 0; j < formsPerLemma; j++) {
+        String word = lemma + "f" + j;
+        lemmaWords.add(word);
+        lemmas.put(word, Collections.singleton(lemma));
+        forms.add(word);
+      }
+      words.put(lemma, lemmaWords);
+    }
+    Lexicon lexicon = new Lexicon() {
+      @Override
+      public Set<String> getLemmas(String word) {
+        return lemmas.get(word);
+      }
+
+      @Override
+      public Set<String> getWords(String lemma) {
+        return words.get(lemma);
+      }
+    };
+
+    // cumulative Zipf distribution over lemmas
+    double[] cumulative = new double[lemmaCount];
+    double total = 0;
+    for (int i = 0; i < lemmaCount; i++) {
+      total += 1.0 / (i + 1);
+      cumulative[i] = total;
+    }
+
+    String text = JochreIndexField.text.name();
+    String lemma = JochreIndexField.lemma.name();
+    Analyzer analyzer = new PerFieldAnalyzerWrapper(new WhitespaceAnalyzer(),
+        Collections.singletonMap(lemma, new Analyzer() {
+          @Override
+          protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer tokenizer = new WhitespaceTokenizer();
+            return new TokenStreamComponents(tokenizer, new LemmaFilter(tokenizer, lexicon));
+          }
+        }));
+    Analyzer expandingAnalyzer = new Analyzer() {
+      @Override
+      protected TokenStreamComponents createComponents(String fieldName) {
+        Tokenizer tokenizer = new WhitespaceTokenizer();
+        return new TokenStreamComponents(tokenizer, new InflectedFormFilter(tokenizer, lexicon));
+      }
+    };
+
+    try (Directory directory = FSDirectory.open(Files.createTempDirectory("index"))) {
+      long start = System.currentTimeMillis();
+      try (IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(analyzer))) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < docCount; i++) {
+          sb.setLength(0);
+          for (int j = 0; j < wordsPerDoc; j++) {
+            int lemmaIndex = nextLemma(random, cumulative);
+            sb.append(forms.get(lemmaIndex * formsPerLemma + random.nextInt(formsPerLemma))).append(' ');
+          }
+          String contents = sb.toString();
+          Document doc = new Document();
+          doc.add(new TextField(text, contents, Field.Store.NO));
+          doc.add(new TextField(lemma, contents, Field.Store.NO));
+          indexWriter.addDocument(doc);
+        }
+      }
+      System.out.println("Indexed " + docCount + " documents in " + (System.currentTimeMillis() - start) + " ms");
+
+      try (DirectoryReader reader = DirectoryReader.open(directory)) {
+        IndexSearcher searcher = new IndexSearcher(reader);
+        QueryParser expandingParser = new QueryParser(text, expandingAnalyzer);
+
+        List<String> queryWords = new ArrayList<>(queryCount);
+        for (int i = 0; i < queryCount; i++) {
+          int lemmaIndex = nextLemma(random, cumulative);
+          queryWords.add(forms.get(lemmaIndex * formsPerLemma + random.nextInt(formsPerLemma)));
+        }
+
+        List<Query> strictQueries = new ArrayList<>(queryCount);
+        List<Query> expandedQueries = new ArrayList<>(queryCount);
+        List<Query> lemmaQueries = new ArrayList<>(queryCount);
+        for (String word : queryWords) {
+          strictQueries.add(new TermQuery(new Term(text, word)));
+          expandedQueries.add(expandingParser.parse(word));
+          lemmaQueries.add(new TermQuery(new Term(lemma, lexicon.getLemmas(word).iterator().next())));
+        }
+
+        System.out.println("search\tqueries\ttotal (ms)\tper query (us)\ttotal hits");
+        // the first round is a warm-up
+        for (int round = 0; round < 2; round++) {
+          time(searcher, "strict", strictQueries, round > 0);
+          time(searcher, "expanded", expandedQueries, round > 0);
+          time(searcher, "lemma", lemmaQueries, round > 0);
+        }
+      }
+    }
+  }
+
+  private static int nextLemma(Random random, double[] cumulative) {
+    double value = random.nextDouble() * cumulative[cumulative.length - 1];
+    int index = Arrays.binarySearch(cumulative, value);
+    return index >= 0 ? index : -index - 1;
+  }
+
+  private static void time(IndexSearcher searcher, String name, List<Query> queries, boolean print) throws Exception {
+    long totalHits = 0;
+    long start = System.nanoTime();
+    for (Query query : queries)
+      totalHits += searcher.search(query, 10).totalHits;
+    long nanos = System.nanoTime() - start;
+    if (print)
+      System.out.println(name + "\t" + queries.size() + "\t" + (nanos / 1000000) + "\t" + (nanos / 1000 / queries.size())
+          + "\t" + totalHits);
+  }
+}
@@ -49,6 +49,19 @@ public class JochreSearchServlet extends HttpServlet {
   private static final Logger LOG = LoggerFactory.getLogger(JochreSearchServlet.class);
   private static final long serialVersionUID = 1L;
 
+  private transient JochreSearch jochreSearch;
+
+  @Override
+  public void init() throws ServletException {
+    jochreSearch = (JochreSearch) this.getServletContext().getAttribute(JochreSetupListener.JOCHRE_SEARCH_ATTRIBUTE);
+    if (jochreSearch == null) {
+      // the setup listener wasn't registered
+      Config config = ConfigFactory.load();
+      String configId = config.getString("jochre.search.webapp.config-id");
+      jochreSearch = new JochreSearch(configId);
+    }
+  }
+
   @Override
   protected void doPost(HttpServletRequest req, HttpServletResponse response) throws ServletException, IOException {
     this.doGet(req, response);
@@ -99,11 +112,7 @@ public class JochreSearchServlet extends HttpServlet {
         out = Either.ofLeft(response.getWriter());
       }
 
-      Config config = ConfigFactory.load();
-      String configId = config.getString("jochre.search.webapp.config-id");
-
-      JochreSearch main = new JochreSearch(configId);
-      main.execute(argMap, out);
+      jochreSearch.execute(argMap, out);
 
       if (out.isLeft())
         out.getLeft().flush();
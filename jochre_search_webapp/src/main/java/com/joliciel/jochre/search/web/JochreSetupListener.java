@@ -7,19 +7,29 @@ import javax.servlet.ServletContextListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.joliciel.jochre.search.JochreSearch;
 import com.joliciel.jochre.search.JochreSearchConfig;
 import com.joliciel.jochre.search.JochreSearchManager;
+import com.joliciel.jochre.search.feedback.FeedbackWriter;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 
 public class JochreSetupListener implements ServletContextListener {
   private static final Logger LOG = LoggerFactory.getLogger(JochreSetupListener.class);
 
+  /**
+   * The servlet context attribute holding the {@link JochreSearch} shared by
+   * all requests.
+   */
+  public static final String JOCHRE_SEARCH_ATTRIBUTE = "jochreSearch";
+
   public JochreSetupListener() {
   }
 
   @Override
   public void contextDestroyed(ServletContextEvent servletContextEvent) {
+    // write any queries waiting to be logged
+    FeedbackWriter.shutdownAll();
   }
 
   @Override
@@ -39,6 +49,10 @@ public class JochreSetupListener implements ServletContextListener {
 
       // preload the search manager
       JochreSearchManager.getInstance(configId);
+
+      // build the search service once, and share it between all requests
+      JochreSearch jochreSearch = new JochreSearch(configId);
+      servletContextEvent.getServletContext().setAttribute(JOCHRE_SEARCH_ATTRIBUTE, jochreSearch);
     } finally {
       long duration = System.currentTimeMillis() - startTime;
       LOG.info(this.getClass().getSimpleName() + ".contextInitialized Duration: " + duration);
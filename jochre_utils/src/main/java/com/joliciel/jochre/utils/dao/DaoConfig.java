@@ -55,7 +55,7 @@ public class DaoConfig {
   /**
    * Get a datasource from the jochre.jdbc key in the configuration file.
    */
-  public static DataSource getDataSource(Config jdbcConfig) {
+  public static synchronized DataSource getDataSource(Config jdbcConfig) {
     String key = getKey(jdbcConfig);
     if (key == null)
       return null;
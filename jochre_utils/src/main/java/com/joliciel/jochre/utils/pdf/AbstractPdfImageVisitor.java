@@ -27,8 +27,10 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 
 import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDDocumentInformation;
 import org.apache.pdfbox.pdmodel.PDPage;
@@ -39,6 +41,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.joliciel.jochre.utils.JochreException;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
 
 /**
  * A base class for visiting the images in a Pdf document one at a time.
@@ -54,11 +58,25 @@ public abstract class AbstractPdfImageVisitor {
   private boolean docClosed = false;
   private boolean stopOnError = false;
 
+  /**
+   * Open a pdf file, using the memory settings in the default configuration.
+   */
   public AbstractPdfImageVisitor(File pdfFile) {
+    this(pdfFile, ConfigFactory.load());
+  }
+
+  /**
+   * Open a pdf file, using the memory settings found in jochre.pdf in the
+   * configuration provided.
+   */
+  public AbstractPdfImageVisitor(File pdfFile, Config config) {
     try {
       this.pdfFile = pdfFile;
 
-      pdfDocument = PDDocument.load(pdfFile);
+      pdfDocument = PDDocument.load(pdfFile, getMemoryUsageSetting(config.getConfig("jochre.pdf")));
+      // don't keep images in the document's resource cache once they've been
+      // visited
+      pdfDocument.setResourceCache(null);
       PDDocumentInformation info = pdfDocument.getDocumentInformation();
       SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss");
       fields.put("PageCount", "" + pdfDocument.getNumberOfPages());
@@ -92,64 +110,96 @@ public abstract class AbstractPdfImageVisitor {
   /**
    * Visit all of the images in a pdf file.
    * 
-   * @param firstPage
-   *          a value of -1 means no first page
-   * @param lastPage
-   *          a value of -1 means no last page
+   * @param pages
+   *          the pages to visit, starting at 1, or an empty set for all pages
    */
   final protected void visitImages(Set<Integer> pages) {
     try {
-      int i = 0;
-      for (PDPage pdfPage : pdfDocument.getPages()) {
-        i++;
-        if (!pages.isEmpty() && !pages.contains(i))
-          continue;
-
-        LOG.info("Decoding page " + i + " (out of " + pdfDocument.getNumberOfPages() + ")");
-
-        try {
-          PDResources resources = pdfPage.getResources();
-          Iterator<COSName> pdxObjects = resources.getXObjectNames().iterator();
-          int j = 0;
-          while (pdxObjects.hasNext()) {
-            COSName cosName = pdxObjects.next();
-
-            PDXObject pdxObject = resources.getXObject(cosName);
-            if (pdxObject instanceof PDImageXObject) {
-              PDImageXObject pdfImage = (PDImageXObject) pdxObject;
-              BufferedImage image = pdfImage.getImage();
-              if (image == null) {
-                throw new PdfImageExtractionException("Something went wrong: unable to extract image " + j
-                    + " in file  " + pdfFile.getAbsolutePath() + ", page " + i);
-              }
-              this.visitImage(image, cosName.getName(), i, j);
-              j++;
-            }
+      int pageCount = pdfDocument.getNumberOfPages();
+      if (pages.isEmpty()) {
+        int i = 0;
+        for (PDPage pdfPage : pdfDocument.getPages()) {
+          i++;
+          this.visitPage(pdfPage, i, pageCount);
+        }
+      } else {
+        // go straight to the pages requested, rather than parsing all of the
+        // pages preceding them
+        for (int i : new TreeSet<>(pages)) {
+          if (i < 1 || i > pageCount) {
+            LOG.warn("No page " + i + " in file " + pdfFile.getAbsolutePath() + " (" + pageCount + " pages)");
+            continue;
           }
-        } catch (PdfImageExtractionException e) {
-          LOG.error("Error in file  " + pdfFile.getAbsolutePath() + ", page " + i, e);
-          if (stopOnError)
-            throw e;
-        } catch (IOException e) {
-          LOG.error("Error in file  " + pdfFile.getAbsolutePath() + ", page " + i, e);
-          if (stopOnError)
-            throw new RuntimeException(e);
-        } catch (JochreException e) {
-          LOG.error("Error in file  " + pdfFile.getAbsolutePath() + ", page " + i, e);
-          if (stopOnError)
-            throw e;
+          this.visitPage(pdfDocument.getPage(i - 1), i, pageCount);
         }
-      } // next page
+      }
     } finally {
       this.close();
     }
   }
 
+  private void visitPage(PDPage pdfPage, int i, int pageCount) {
+    LOG.info("Decoding page " + i + " (out of " + pageCount + ")");
+
+    try {
+      PDResources resources = pdfPage.getResources();
+      Iterator<COSName> pdxObjects = resources.getXObjectNames().iterator();
+      int j = 0;
+      while (pdxObjects.hasNext()) {
+        COSName cosName = pdxObjects.next();
+
+        PDXObject pdxObject = resources.getXObject(cosName);
+        if (pdxObject instanceof PDImageXObject) {
+          PDImageXObject pdfImage = (PDImageXObject) pdxObject;
+          BufferedImage image = pdfImage.getImage();
+          if (image == null) {
+            throw new PdfImageExtractionException("Something went wrong: unable to extract image " + j
+                + " in file  " + pdfFile.getAbsolutePath() + ", page " + i);
+          }
+          this.visitImage(image, cosName.getName(), i, j);
+          j++;
+        }
+      }
+    } catch (PdfImageExtractionException e) {
+      LOG.error("Error in file  " + pdfFile.getAbsolutePath() + ", page " + i, e);
+      if (stopOnError)
+        throw e;
+    } catch (IOException e) {
+      LOG.error("Error in file  " + pdfFile.getAbsolutePath() + ", page " + i, e);
+      if (stopOnError)
+        throw new RuntimeException(e);
+    } catch (JochreException e) {
+      LOG.error("Error in file  " + pdfFile.getAbsolutePath() + ", page " + i, e);
+      if (stopOnError)
+        throw e;
+    }
+  }
+
   /**
    * Visit a single image.
    */
   protected abstract void visitImage(BufferedImage image, String imageName, int pageIndex, int imageIndex);
 
+  /**
+   * Memory settings for PDFBox. Beyond max-main-memory, the parsed document's
+   * streams are buffered in a scratch file rather than on the heap, so that
+   * the heap used does not grow with the size of the pdf file.
+   */
+  public static MemoryUsageSetting getMemoryUsageSetting(Config pdfConfig) {
+    long maxMainMemory = pdfConfig.getBytes("max-main-memory");
+    long maxStorage = pdfConfig.getBytes("max-storage");
+    MemoryUsageSetting memoryUsageSetting = null;
+    if (maxMainMemory < 0)
+      memoryUsageSetting = MemoryUsageSetting.setupMainMemoryOnly();
+    else if (maxMainMemory == 0)
+      memoryUsageSetting = MemoryUsageSetting.setupTempFileOnly(maxStorage > 0 ? maxStorage : -1);
+    else
+      memoryUsageSetting = MemoryUsageSetting.setupMixed(maxMainMemory, maxStorage > 0 ? maxStorage : -1);
+    if (pdfConfig.hasPath("scratch-dir"))
+      memoryUsageSetting.setTempDir(new File(pdfConfig.getString("scratch-dir")));
+    return memoryUsageSetting;
+  }
+
   public int getPageCount() {
     return pdfDocument.getNumberOfPages();
   }
@@ -1,6 +1,7 @@
 package com.joliciel.jochre.yiddish;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.StringTokenizer;
@@ -8,6 +9,7 @@ import java.util.TreeSet;
 import java.util.regex.Pattern;
 
 import com.joliciel.jochre.lang.DefaultLinguistics;
+import com.joliciel.jochre.lang.ReplacementRule;
 
 public class YiddishLinguistics extends DefaultLinguistics {
   private static final String PUNCTUATION = ":,.?!;*()[]{}<>—\\\"'«»|/%“„-";
@@ -17,6 +19,131 @@ public class YiddishLinguistics extends DefaultLinguistics {
   // notice no dash in the punctuation
   private static final String SPLITTER_PUNCTUATION = ":,.?!;*()[]{}<>—\\\"'«»|/%“„";
 
+  private static final ReplacementRule[] STANDARDISATION_RULES = {
+      // double-character fixes
+      new ReplacementRule("וו", "װ"),
+      new ReplacementRule("וי", "ױ"),
+      new ReplacementRule("ױִ", "ויִ"),
+
+      // systematic replacements, including redundent melupm vov and khirik
+      // yud
+      new ReplacementRule("װוּ", "װוּּ"),
+      new ReplacementRule("וּװ", "וּּװ"),
+      new ReplacementRule("וּי", "וּּי"),
+      new ReplacementRule("וּ", "ו"),
+      new ReplacementRule("עיִ", "עיִִ"),
+      new ReplacementRule("אַיִ", "אַיִִ"),
+      new ReplacementRule("אָיִ", "אָיִִ"),
+      new ReplacementRule("ויִ", "ויִִ"),
+      new ReplacementRule("וּיִ", "וּיִִ"),
+      new ReplacementRule("יִי", "יִִי"),
+      new ReplacementRule("ייִ", "ייִִ"),
+      new ReplacementRule("יִ", "י"),
+      new ReplacementRule("עֶ", "ע"),
+      new ReplacementRule("עֵ", "ע"),
+      new ReplacementRule("אֵ", "ע"),
+      new ReplacementRule("אֶ", "ע"),
+      new ReplacementRule("שׁ", "ש"),
+      new ReplacementRule("וֹ", "ו"),
+      new ReplacementRule("\\Aת([^ּ])", "תּ$1"),
+
+      // more double-character fixes
+      new ReplacementRule("(.)יי", "$1ײ"),
+      new ReplacementRule("ייַ", "ײַ"),
+      new ReplacementRule("“", "\""),
+      new ReplacementRule("''", "\""),
+      new ReplacementRule(",,", "„") };
+
+  /**
+   * Rules applied once a word-initial double yud and the word װאו have been
+   * dealt with.
+   */
+  private static final ReplacementRule[] FURTHER_STANDARDISATION_RULES = {
+      // silent
+      new ReplacementRule("װאו([^ּ])", "װוּ$1"),
+      new ReplacementRule("ואװ", "וּװ"),
+      new ReplacementRule("װאױ", "װױ"),
+      new ReplacementRule("אַא", "אַ"),
+
+      // silent ה
+      new ReplacementRule("טהו", "טו"),
+      new ReplacementRule("טהאָ", "טאָ"),
+
+      // apostrophes all over the place (except at the end)
+      new ReplacementRule("(.)'(.)", "$1$2"),
+
+      // adjectives with דיג instread of דיק
+      new ReplacementRule("(.)דיג\\z", "$1דיק"),
+      new ReplacementRule("(.)דיגן\\z", "$1דיקן") };
+
+  /**
+   * Systematic replacements for non-hebraic words, each of which is applied to
+   * all of the variants found by the previous ones.
+   */
+  private static final ReplacementRule[] VARIANT_RULES = {
+      // silent ה
+      new ReplacementRule("(.)עה", "$1ע"),
+      new ReplacementRule("(.)יה", "$1י"),
+      new ReplacementRule("(.)אַה", "$1אַ"),
+      new ReplacementRule("אָה", "אָ"),
+      new ReplacementRule("(.)וה", "$1ו"),
+
+      // silent א
+      new ReplacementRule("(.)יא", "$1י"),
+
+      // diminutives with על
+      new ReplacementRule("(.)על\\z", "$1ל"),
+
+      // the vowel י spelled יע
+      new ReplacementRule("(.)יע(.)", "$1י$2"),
+
+      // accusative ען instead of ן
+      new ReplacementRule("(.)ען\\z", "$1ן"),
+
+      // ח instead of כ
+      new ReplacementRule("ח(.)", "$1כ"),
+
+      // double letters
+      new ReplacementRule("סס", "ס"),
+      new ReplacementRule("פּפּ", "פּ"),
+      new ReplacementRule("פּפּ", "פּ"),
+      new ReplacementRule("פֿפֿ", "פֿ"),
+      new ReplacementRule("ננ", "נ"),
+      new ReplacementRule("ממ", "מ"),
+      new ReplacementRule("לל", "ל"),
+
+      // בּ instead of ב
+      new ReplacementRule("א([^ַָ])", "אַ$1"),
+      new ReplacementRule("א([^ַָ])", "אָ$1"),
+      new ReplacementRule("יִ", "י"),
+      new ReplacementRule("פ([^ּֿ])", "פֿ$1"),
+      new ReplacementRule("פ([^ּֿ])", "פּ$1"),
+      new ReplacementRule("ב([^ּֿ])", "בֿ$1"),
+      new ReplacementRule("ב([^ּֿ])", "בּ$1"),
+      new ReplacementRule("וּ", "ו"),
+
+      // niqqud
+      new ReplacementRule("כ", "כּ"),
+      new ReplacementRule("ב", "בֿ"),
+      new ReplacementRule("בּ", "ב"),
+      new ReplacementRule("כֿ", "כ"),
+      new ReplacementRule("פ", "פֿ"),
+      new ReplacementRule("פּ", "פ"),
+      new ReplacementRule("װו", "װוּ"),
+
+      // other typical variants
+      new ReplacementRule("דט", "ט"),
+      new ReplacementRule("\\Aפֿער(.)", "פֿאַר$1"),
+      new ReplacementRule("\\Aפער(.)", "פֿאַר$1"),
+      new ReplacementRule("\\Aבע(.)", "באַ$1"),
+      new ReplacementRule("\\Aבּע(.)", "באַ$1"),
+
+      new ReplacementRule("ײ", "ײַ"),
+      new ReplacementRule("(.)דיג\\z", "$1דיק"),
+      new ReplacementRule("(.)דיגער\\z", "$1דיקער"),
+      new ReplacementRule("(.)דיגע\\z", "$1דיקע"),
+      new ReplacementRule("(.)דיגן\\z", "$1דיקן") };
+
   @Override
   public boolean isLeftToRight() {
     return false;
@@ -25,60 +152,14 @@ public class YiddishLinguistics extends DefaultLinguistics {
   @Override
   public String standardiseWord(String originalWord) {
     String word = originalWord;
-    // double-character fixes
-    word = word.replaceAll("וו", "װ");
-    word = word.replaceAll("וי", "ױ");
-    word = word.replaceAll("ױִ", "ויִ");
-
-    // systematic replacements, including redundent melupm vov and khirik
-    // yud
-    word = word.replaceAll("װוּ", "װוּּ");
-    word = word.replaceAll("וּװ", "וּּװ");
-    word = word.replaceAll("וּי", "וּּי");
-    word = word.replaceAll("וּ", "ו");
-    word = word.replaceAll("עיִ", "עיִִ");
-    word = word.replaceAll("אַיִ", "אַיִִ");
-    word = word.replaceAll("אָיִ", "אָיִִ");
-    word = word.replaceAll("ויִ", "ויִִ");
-    word = word.replaceAll("וּיִ", "וּיִִ");
-    word = word.replaceAll("יִי", "יִִי");
-    word = word.replaceAll("ייִ", "ייִִ");
-    word = word.replaceAll("יִ", "י");
-    word = word.replaceAll("עֶ", "ע");
-    word = word.replaceAll("עֵ", "ע");
-    word = word.replaceAll("אֵ", "ע");
-    word = word.replaceAll("אֶ", "ע");
-    word = word.replaceAll("שׁ", "ש");
-    word = word.replaceAll("וֹ", "ו");
-    word = word.replaceAll("\\Aת([^ּ])", "תּ$1");
-
-    // more double-character fixes
-    word = word.replaceAll("(.)יי", "$1ײ");
-    word = word.replaceAll("ייַ", "ײַ");
-    word = word.replaceAll("“", "\"");
-    word = word.replaceAll("''", "\"");
-    word = word.replaceAll(",,", "„");
+    word = ReplacementRule.applyAll(word, STANDARDISATION_RULES);
     if (word.startsWith("יי"))
       word = "ייִ" + word.substring(2);
 
     // silent
     if (word.equals("װאו"))
       word = "װוּ";
-    word = word.replaceAll("װאו([^ּ])", "װוּ$1");
-    word = word.replaceAll("ואװ", "וּװ");
-    word = word.replaceAll("װאױ", "װױ");
-    word = word.replaceAll("אַא", "אַ");
-
-    // silent ה
-    word = word.replaceAll("טהו", "טו");
-    word = word.replaceAll("טהאָ", "טאָ");
-
-    // apostrophes all over the place (except at the end)
-    word = word.replaceAll("(.)'(.)", "$1$2");
-
-    // adjectives with דיג instread of דיק
-    word = word.replaceAll("(.)דיג\\z", "$1דיק");
-    word = word.replaceAll("(.)דיגן\\z", "$1דיקן");
+    word = ReplacementRule.applyAll(word, FURTHER_STANDARDISATION_RULES);
 
     // word = YiddishWordSplitter.getEndForm(word);
 
@@ -260,85 +341,23 @@ public class YiddishLinguistics extends DefaultLinguistics {
 
   @Override
   public Set<String> findVariants(String originalWord) {
-    // systematic replacements for non-hebraic words
-    Set<String> variants = new TreeSet<String>();
+    // the variants are collected in a single list, rather than copying a set
+    // for each rule
+    List<String> variants = new ArrayList<>();
+    Set<String> uniqueVariants = new HashSet<>();
 
     // in case it's a hebraic word, we keep the initial word in the mix
     variants.add(originalWord);
-
-    // silent ה
-    variants = this.addVariants(variants, "(.)עה", "$1ע");
-    variants = this.addVariants(variants, "(.)יה", "$1י");
-    variants = this.addVariants(variants, "(.)אַה", "$1אַ");
-    variants = this.addVariants(variants, "אָה", "אָ");
-    variants = this.addVariants(variants, "(.)וה", "$1ו");
-
-    // silent א
-    variants = this.addVariants(variants, "(.)יא", "$1י");
-
-    // diminutives with על
-    variants = this.addVariants(variants, "(.)על\\z", "$1ל");
-
-    // the vowel י spelled יע
-    variants = this.addVariants(variants, "(.)יע(.)", "$1י$2");
-
-    // accusative ען instead of ן
-    variants = this.addVariants(variants, "(.)ען\\z", "$1ן");
-
-    // ח instead of כ
-    variants = this.addVariants(variants, "ח(.)", "$1כ");
-
-    // double letters
-    variants = this.addVariants(variants, "סס", "ס");
-    variants = this.addVariants(variants, "פּפּ", "פּ");
-    variants = this.addVariants(variants, "פּפּ", "פּ");
-    variants = this.addVariants(variants, "פֿפֿ", "פֿ");
-    variants = this.addVariants(variants, "ננ", "נ");
-    variants = this.addVariants(variants, "ממ", "מ");
-    variants = this.addVariants(variants, "לל", "ל");
-
-    // בּ instead of ב
-    variants = this.addVariants(variants, "א([^ַָ])", "אַ$1");
-    variants = this.addVariants(variants, "א([^ַָ])", "אָ$1");
-    variants = this.addVariants(variants, "יִ", "י");
-    variants = this.addVariants(variants, "פ([^ּֿ])", "פֿ$1");
-    variants = this.addVariants(variants, "פ([^ּֿ])", "פּ$1");
-    variants = this.addVariants(variants, "ב([^ּֿ])", "בֿ$1");
-    variants = this.addVariants(variants, "ב([^ּֿ])", "בּ$1");
-    variants = this.addVariants(variants, "וּ", "ו");
-
-    // niqqud
-    variants = this.addVariants(variants, "כ", "כּ");
-    variants = this.addVariants(variants, "ב", "בֿ");
-    variants = this.addVariants(variants, "בּ", "ב");
-    variants = this.addVariants(variants, "כֿ", "כ");
-    variants = this.addVariants(variants, "פ", "פֿ");
-    variants = this.addVariants(variants, "פּ", "פ");
-    variants = this.addVariants(variants, "װו", "װוּ");
-
-    // other typical variants
-    variants = this.addVariants(variants, "דט", "ט");
-    variants = this.addVariants(variants, "\\Aפֿער(.)", "פֿאַר$1");
-    variants = this.addVariants(variants, "\\Aפער(.)", "פֿאַר$1");
-    variants = this.addVariants(variants, "\\Aבע(.)", "באַ$1");
-    variants = this.addVariants(variants, "\\Aבּע(.)", "באַ$1");
-
-    variants = this.addVariants(variants, "ײ", "ײַ");
-    variants = this.addVariants(variants, "(.)דיג\\z", "$1דיק");
-    variants = this.addVariants(variants, "(.)דיגער\\z", "$1דיקער");
-    variants = this.addVariants(variants, "(.)דיגע\\z", "$1דיקע");
-    variants = this.addVariants(variants, "(.)דיגן\\z", "$1דיקן");
-
-    return variants;
-  }
-
-  Set<String> addVariants(Set<String> variants, String regex, String replacement) {
-    Set<String> newVariants = new TreeSet<String>();
-
-    for (String variant : variants) {
-      newVariants.add(variant);
-      newVariants.add(variant.replaceAll(regex, replacement));
+    uniqueVariants.add(originalWord);
+
+    for (ReplacementRule rule : VARIANT_RULES) {
+      int variantCount = variants.size();
+      for (int i = 0; i < variantCount; i++) {
+        String variant = rule.apply(variants.get(i));
+        if (uniqueVariants.add(variant))
+          variants.add(variant);
+      }
     }
-    return newVariants;
+    return new TreeSet<>(variants);
   }
 }
@@ -0,0 +1,84 @@
+package com.joliciel.jochre.yiddish;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.joliciel.jochre.lang.ReplacementRule;
+
+/**
+ * Measures the number of words per second processed by
+ * {@link YiddishLinguistics}, whose standardisation and variant rules are
+ * applied as {@link ReplacementRule}s to every candidate word in the beam
+ * search. Not run as part of the test suite: run the main method directly.<br>
+ * The sample word list combines the OCR text of the test book in jochre_search,
+ * in running order, and the words of the Zylbercweig name lexicon, and can be
+ * replaced by passing one or more word list files (one word per line) as
+ * arguments.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public class YiddishLinguisticsBenchmark {
+  private static final Pattern CONTENT_PATTERN = Pattern.compile("CONTENT=\"([^\"]+)\"");
+
+  public static void main(String[] args) throws Exception {
+    List<String> words = new ArrayList<>();
+    if (args.length > 0) {
+      for (String arg : args)
+        for (String line : Files.readAllLines(new File(arg).toPath(), StandardCharsets.UTF_8))
+          if (!line.trim().isEmpty())
+            words.add(line.trim());
+    } else {
+      String alto = new String(Files.readAllBytes(
+          new File("../jochre_search/src/test/resources/books/MotlPeysiDemKhazns/MotlPeysiDemKhazns_alto4.xml")
+              .toPath()),
+          StandardCharsets.UTF_8);
+      Matcher matcher = CONTENT_PATTERN.matcher(alto);
+      while (matcher.find())
+        words.add(matcher.group(1));
+      for (String line : Files.readAllLines(new File("resources/lexicons/ZylbercweigLexicon.txt").toPath(),
+          StandardCharsets.UTF_8)) {
+        if (line.startsWith("#"))
+          continue;
+        // the name, followed by a volume:page reference
+        for (String word : line.replaceAll("\\s\\d+:\\d+\\z", "").split("[\\s,()\\-]+"))
+          if (!word.isEmpty())
+            words.add(word);
+      }
+    }
+
+    YiddishLinguistics linguistics = new YiddishLinguistics();
+    List<String> standardWords = new ArrayList<>(words.size());
+    for (String word : words)
+      standardWords.add(linguistics.standardiseWord(word));
+
+    System.out.println("Sample of " + words.size() + " words");
+    System.out.println("method\twords\ttotal (ms)\twords/s\tchecksum");
+    // the first rounds are a warm-up
+    for (int round = 0; round < 4; round++) {
+      boolean print = round == 3;
+      time("standardiseWord", words, linguistics::standardiseWord, print);
+      time("findVariants", standardWords, linguistics::findVariants, print);
+      time("standardiseWord+findVariants", words,
+          word -> linguistics.findVariants(linguistics.standardiseWord(word)), print);
+      time("splitText", words, linguistics::splitText, print);
+    }
+  }
+
+  private static void time(String name, List<String> words, Function<String, ?> function, boolean print) {
+    int hash = 0;
+    long start = System.nanoTime();
+    for (String word : words)
+      hash += function.apply(word).hashCode();
+    long nanos = System.nanoTime() - start;
+    if (print)
+      System.out.println(name + "\t" + words.size() + "\t" + (nanos / 1000000) + "\t"
+          + (long) (words.size() * 1e9 / nanos) + "\t" + hash);
+  }
+}